@@ -17,6 +17,9 @@
 package org.magnos.data;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 import org.magnos.data.error.StoreClosedException;
 import org.magnos.data.error.StoreIOException;
@@ -33,17 +36,26 @@ public abstract class AbstractData implements Data
 {
 
 	// The location of this data in the store, in bytes.
-	private int location;
+	private long location;
 	
 	// The store this data can be read and written to and from.
 	private Store store;
 	
 	// The size of this data in bytes.
-	private final int size;
+	private final long size;
 	
 	// The parent Data object.
 	private Data parent;
 	
+	// Whether this data has changed since it was last read or written.
+	private boolean dirty = true;
+	
+	// The store this data was last read from or written to.
+	private Store syncStore;
+	
+	// The location this data was last read from or written to.
+	private long syncLocation;
+	
 	
 	/**
 	 * Instantiates a new AbstractData.
@@ -51,7 +63,7 @@ public abstract class AbstractData implements Data
 	 * @param size
 	 * 		The size of the data in bytes.
 	 */
-	public AbstractData(int size) 
+	public AbstractData(long size) 
 	{
 		this.size = size;
 	}
@@ -65,7 +77,7 @@ public abstract class AbstractData implements Data
 	 * @param store
 	 * 		The store to read from.
 	 */
-	protected abstract void onRead(int location, Store store);
+	protected abstract void onRead(long location, Store store);
 	
 	/**
 	 * Writes this data to the given store at the given location.
@@ -75,7 +87,45 @@ public abstract class AbstractData implements Data
 	 * @param store
 	 * 		The store to write to.
 	 */
-	protected abstract void onWrite(int location, Store store);
+	protected abstract void onWrite(long location, Store store);
+	
+	/**
+	 * Reads this data from bytes a container has staged in memory, where the
+	 * buffer holds the bytes of the given staging store in its byte order. 
+	 * Leaves which can decode themselves straight from the buffer override 
+	 * this to skip the checks and locks of a store operation, by default this
+	 * data is read from the staging store.
+	 * 
+	 * @param buffer
+	 * 		The staged bytes.
+	 * @param index
+	 * 		The index of this data in the buffer.
+	 * @param stage
+	 * 		The staging store which holds the buffer.
+	 */
+	protected void onRead(ByteBuffer buffer, int index, Store stage)
+	{
+		onRead(index, stage);
+	}
+	
+	/**
+	 * Writes this data to bytes a container is staging in memory, where the
+	 * buffer holds the bytes of the given staging store in its byte order.
+	 * Leaves which can encode themselves straight into the buffer override 
+	 * this to skip the checks and locks of a store operation, by default this
+	 * data is written to the staging store.
+	 * 
+	 * @param buffer
+	 * 		The staged bytes.
+	 * @param index
+	 * 		The index of this data in the buffer.
+	 * @param stage
+	 * 		The staging store which holds the buffer.
+	 */
+	protected void onWrite(ByteBuffer buffer, int index, Store stage)
+	{
+		onWrite(index, stage);
+	}
 
 	
 	/**
@@ -86,7 +136,7 @@ public abstract class AbstractData implements Data
 	 * @param store
 	 * 		The store to check for validity.
 	 */
-	private void doCheck(int location, Store store) 
+	protected final void doCheck(long location, Store store) 
 	{
 		if (store == null) {
 			throw new StoreNullException();
@@ -104,7 +154,7 @@ public abstract class AbstractData implements Data
 	 * {@inheritDoc}
 	 */
 	@Override
-	public final void setLocation(int newLocation) 
+	public final void setLocation(long newLocation) 
 	{
 		location = newLocation;
 	}
@@ -113,7 +163,7 @@ public abstract class AbstractData implements Data
 	 * {@inheritDoc}
 	 */
 	@Override
-	public final int getLocation() 
+	public final long getLocation() 
 	{
 		return location;
 	}
@@ -122,7 +172,7 @@ public abstract class AbstractData implements Data
 	 * {@inheritDoc}
 	 */
 	@Override
-	public final int getSize() 
+	public final long getSize() 
 	{
 		return size;
 	}
@@ -167,11 +217,76 @@ public abstract class AbstractData implements Data
 	 * {@inheritDoc}
 	 */
 	@Override
-	public final int getActualLocation()
+	public final long getActualLocation()
 	{
 		return getLocation() + (parent == null ? 0 : parent.getLocation());
 	}
 	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isDirty()
+	{
+		return dirty;
+	}
+	
+	/**
+	 * Marks this data as changed since it was last read or written. This 
+	 * should be invoked by every method which changes the value of the data.
+	 */
+	protected void markDirty()
+	{
+		dirty = true;
+	}
+	
+	/**
+	 * Returns whether the bytes at the given location of the given store are
+	 * known to match this data, because this data was last read from or 
+	 * written to there and hasn't changed since. Containers use this to skip
+	 * writing data that hasn't changed, which assumes the bytes are only 
+	 * changed in the store through this data.
+	 * 
+	 * @param location
+	 * 		The location of this data in the store.
+	 * @param store
+	 * 		The store this data is being written to.
+	 * @return
+	 * 		True if writing this data there can be skipped, otherwise false.
+	 */
+	protected boolean isSynced(long location, Store store)
+	{
+		return (!dirty && syncStore == store && syncLocation == location);
+	}
+	
+	/**
+	 * Records that this data matches the bytes at the given location of the 
+	 * given store, after it has been read from or written to there.
+	 * 
+	 * @param location
+	 * 		The location of this data in the store.
+	 * @param store
+	 * 		The store this data was read from or written to.
+	 */
+	void synced(long location, Store store)
+	{
+		dirty = false;
+		syncStore = store;
+		syncLocation = location;
+	}
+	
+	/**
+	 * Returns whether onWrite writes all of this data, as opposed to a 
+	 * container which only writes the data within it that has changed.
+	 * 
+	 * @return
+	 * 		True if this data is written as a whole, otherwise false.
+	 */
+	boolean isLeaf()
+	{
+		return true;
+	}
+	
 	/**
 	 * {@inheritDoc}
 	 */
@@ -180,17 +295,19 @@ public abstract class AbstractData implements Data
 	{
 		doCheck(location, store);
 		onRead(location, store);
+		synced(location, store);
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
-	public final void read(int offset) 
+	public final void read(long offset) 
 	{
-		int absolute = location + offset;
+		long absolute = location + offset;
 		doCheck(absolute, store);
 		onRead(absolute, store);
+		synced(absolute, store);
 	}
 
 	/**
@@ -201,17 +318,19 @@ public abstract class AbstractData implements Data
 	{
 		doCheck(location, store);
 		onRead(location, store);
+		synced(location, store);
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
-	public final void read(int offset, Store store) 
+	public final void read(long offset, Store store) 
 	{
-		int absolute = location + offset;
+		long absolute = location + offset;
 		doCheck(absolute, store);
 		onRead(absolute, store);
+		synced(absolute, store);
 	}
 
 	/**
@@ -222,17 +341,19 @@ public abstract class AbstractData implements Data
 	{
 		doCheck(location, store);
 		onWrite(location, store);
+		synced(location, store);
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
-	public final void write(int offset) 
+	public final void write(long offset) 
 	{
-		int absolute = location + offset;
+		long absolute = location + offset;
 		doCheck(absolute, store);
 		onWrite(absolute, store);
+		synced(absolute, store);
 	}
 
 	/**
@@ -243,17 +364,71 @@ public abstract class AbstractData implements Data
 	{
 		doCheck(location, store);
 		onWrite(location, store);
+		synced(location, store);
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
-	public final void write(int offset, Store store) 
+	public final void write(long offset, Store store) 
 	{
-		int absolute = location + offset;
+		long absolute = location + offset;
 		doCheck(absolute, store);
 		onWrite(absolute, store);
+		synced(absolute, store);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final Future<Void> readAsync() 
+	{
+		return readAsync(store);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final Future<Void> readAsync(final Store store) 
+	{
+		final long absolute = location;
+		doCheck(absolute, store);
+		return store.async(new Callable<Void>() {
+			public Void call() {
+				onRead(absolute, store);
+				synced(absolute, store);
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final Future<Void> writeAsync() 
+	{
+		return writeAsync(store);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final Future<Void> writeAsync(final Store store) 
+	{
+		final long absolute = location;
+		doCheck(absolute, store);
+		return store.async(new Callable<Void>() {
+			public Void call() {
+				onWrite(absolute, store);
+				synced(absolute, store);
+				return null;
+			}
+		});
 	}
 
 }
@@ -17,11 +17,16 @@
 package org.magnos.data;
 
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 import sun.nio.ch.DirectBuffer;
 
 /**
  * A utility for converting between primitive data types and an array of bytes.
+ * The methods which take no offset use the first bytes of the array in 
+ * big-endian order and the methods which take an offset and a ByteOrder read
+ * and write at the offset of a given array or buffer in either order without
+ * allocating anything.
  * 
  * @author Philip Diffenderfer
  *
@@ -474,6 +479,469 @@ public class Bits
 		return getLongBytes(Double.doubleToLongBits(x));
 	}
 
+	/**
+	 * Returns the short at the given offset in the array of bytes.
+	 * 
+	 * @param b
+	 * 		The array of bytes.
+	 * @param offset
+	 * 		The offset of the first byte of the short.
+	 * @param order
+	 * 		The order of the bytes of the short.
+	 * @return
+	 * 		A short taken from the bytes.
+	 */
+	public static short getShort(byte[] b, int offset, ByteOrder order) 
+	{
+		short x = (short)(((b[offset] & 0xFF) << 8) | (b[offset + 1] & 0xFF));
+		return (order == ByteOrder.BIG_ENDIAN ? x : Short.reverseBytes(x));
+	}
+	
+	/**
+	 * Sets the bytes at the given offset in the array to the bytes that make 
+	 * up the short.
+	 * 
+	 * @param x
+	 * 		The short to place in the byte array.
+	 * @param b
+	 * 		The byte array to place the bytes.
+	 * @param offset
+	 * 		The offset of the first byte of the short.
+	 * @param order
+	 * 		The order of the bytes of the short.
+	 */
+	public static void getShortBytes(short x, byte[] b, int offset, ByteOrder order) 
+	{
+		if (order != ByteOrder.BIG_ENDIAN) {
+			x = Short.reverseBytes(x);
+		}
+		b[offset + 0] = (byte)(x >>> 8);
+		b[offset + 1] = (byte)(x >>> 0);
+	}
+	
+	/**
+	 * Returns the char at the given offset in the array of bytes.
+	 * 
+	 * @param b
+	 * 		The array of bytes.
+	 * @param offset
+	 * 		The offset of the first byte of the char.
+	 * @param order
+	 * 		The order of the bytes of the char.
+	 * @return
+	 * 		A char taken from the bytes.
+	 */
+	public static char getChar(byte[] b, int offset, ByteOrder order) 
+	{
+		return (char)getShort(b, offset, order);
+	}
+	
+	/**
+	 * Sets the bytes at the given offset in the array to the bytes that make 
+	 * up the char.
+	 * 
+	 * @param x
+	 * 		The char to place in the byte array.
+	 * @param b
+	 * 		The byte array to place the bytes.
+	 * @param offset
+	 * 		The offset of the first byte of the char.
+	 * @param order
+	 * 		The order of the bytes of the char.
+	 */
+	public static void getCharBytes(char x, byte[] b, int offset, ByteOrder order) 
+	{
+		getShortBytes((short)x, b, offset, order);
+	}
+	
+	/**
+	 * Returns the integer at the given offset in the array of bytes.
+	 * 
+	 * @param b
+	 * 		The array of bytes.
+	 * @param offset
+	 * 		The offset of the first byte of the integer.
+	 * @param order
+	 * 		The order of the bytes of the integer.
+	 * @return
+	 * 		An integer taken from the bytes.
+	 */
+	public static int getInt(byte[] b, int offset, ByteOrder order) 
+	{
+		int x = ((b[offset + 0] & 0xFF) << 24) | 
+				((b[offset + 1] & 0xFF) << 16) |
+				((b[offset + 2] & 0xFF) <<  8) |
+				((b[offset + 3] & 0xFF) <<  0);
+		return (order == ByteOrder.BIG_ENDIAN ? x : Integer.reverseBytes(x));
+	}
+	
+	/**
+	 * Sets the bytes at the given offset in the array to the bytes that make 
+	 * up the integer.
+	 * 
+	 * @param x
+	 * 		The integer to place in the byte array.
+	 * @param b
+	 * 		The byte array to place the bytes.
+	 * @param offset
+	 * 		The offset of the first byte of the integer.
+	 * @param order
+	 * 		The order of the bytes of the integer.
+	 */
+	public static void getIntBytes(int x, byte[] b, int offset, ByteOrder order) 
+	{
+		if (order != ByteOrder.BIG_ENDIAN) {
+			x = Integer.reverseBytes(x);
+		}
+		b[offset + 0] = (byte)(x >>> 24);
+		b[offset + 1] = (byte)(x >>> 16);
+		b[offset + 2] = (byte)(x >>>  8);
+		b[offset + 3] = (byte)(x >>>  0);
+	}
+	
+	/**
+	 * Returns the long at the given offset in the array of bytes.
+	 * 
+	 * @param b
+	 * 		The array of bytes.
+	 * @param offset
+	 * 		The offset of the first byte of the long.
+	 * @param order
+	 * 		The order of the bytes of the long.
+	 * @return
+	 * 		A long taken from the bytes.
+	 */
+	public static long getLong(byte[] b, int offset, ByteOrder order) 
+	{
+		long x = ((b[offset + 0] & 0xFFL) << 56) | 
+				 ((b[offset + 1] & 0xFFL) << 48) |
+				 ((b[offset + 2] & 0xFFL) << 40) |
+				 ((b[offset + 3] & 0xFFL) << 32) |
+				 ((b[offset + 4] & 0xFFL) << 24) |
+				 ((b[offset + 5] & 0xFFL) << 16) |
+				 ((b[offset + 6] & 0xFFL) <<  8) |
+				 ((b[offset + 7] & 0xFFL) <<  0);
+		return (order == ByteOrder.BIG_ENDIAN ? x : Long.reverseBytes(x));
+	}
+	
+	/**
+	 * Sets the bytes at the given offset in the array to the bytes that make 
+	 * up the long.
+	 * 
+	 * @param x
+	 * 		The long to place in the byte array.
+	 * @param b
+	 * 		The byte array to place the bytes.
+	 * @param offset
+	 * 		The offset of the first byte of the long.
+	 * @param order
+	 * 		The order of the bytes of the long.
+	 */
+	public static void getLongBytes(long x, byte[] b, int offset, ByteOrder order) 
+	{
+		if (order != ByteOrder.BIG_ENDIAN) {
+			x = Long.reverseBytes(x);
+		}
+		b[offset + 0] = (byte)(x >>> 56);
+		b[offset + 1] = (byte)(x >>> 48);
+		b[offset + 2] = (byte)(x >>> 40);
+		b[offset + 3] = (byte)(x >>> 32);
+		b[offset + 4] = (byte)(x >>> 24);
+		b[offset + 5] = (byte)(x >>> 16);
+		b[offset + 6] = (byte)(x >>>  8);
+		b[offset + 7] = (byte)(x >>>  0);
+	}
+	
+	/**
+	 * Returns the float at the given offset in the array of bytes.
+	 * 
+	 * @param b
+	 * 		The array of bytes.
+	 * @param offset
+	 * 		The offset of the first byte of the float.
+	 * @param order
+	 * 		The order of the bytes of the float.
+	 * @return
+	 * 		A float taken from the bytes.
+	 */
+	public static float getFloat(byte[] b, int offset, ByteOrder order) 
+	{
+		return Float.intBitsToFloat(getInt(b, offset, order));
+	}
+	
+	/**
+	 * Sets the bytes at the given offset in the array to the bytes that make 
+	 * up the float.
+	 * 
+	 * @param x
+	 * 		The float to place in the byte array.
+	 * @param b
+	 * 		The byte array to place the bytes.
+	 * @param offset
+	 * 		The offset of the first byte of the float.
+	 * @param order
+	 * 		The order of the bytes of the float.
+	 */
+	public static void getFloatBytes(float x, byte[] b, int offset, ByteOrder order) 
+	{
+		getIntBytes(Float.floatToIntBits(x), b, offset, order);
+	}
+	
+	/**
+	 * Returns the double at the given offset in the array of bytes.
+	 * 
+	 * @param b
+	 * 		The array of bytes.
+	 * @param offset
+	 * 		The offset of the first byte of the double.
+	 * @param order
+	 * 		The order of the bytes of the double.
+	 * @return
+	 * 		A double taken from the bytes.
+	 */
+	public static double getDouble(byte[] b, int offset, ByteOrder order) 
+	{
+		return Double.longBitsToDouble(getLong(b, offset, order));
+	}
+	
+	/**
+	 * Sets the bytes at the given offset in the array to the bytes that make 
+	 * up the double.
+	 * 
+	 * @param x
+	 * 		The double to place in the byte array.
+	 * @param b
+	 * 		The byte array to place the bytes.
+	 * @param offset
+	 * 		The offset of the first byte of the double.
+	 * @param order
+	 * 		The order of the bytes of the double.
+	 */
+	public static void getDoubleBytes(double x, byte[] b, int offset, ByteOrder order) 
+	{
+		getLongBytes(Double.doubleToLongBits(x), b, offset, order);
+	}
+
+	/**
+	 * Returns the short at the given index in the buffer without changing 
+	 * the position or order of the buffer.
+	 * 
+	 * @param b
+	 * 		The buffer.
+	 * @param index
+	 * 		The index of the first byte of the short.
+	 * @param order
+	 * 		The order of the bytes of the short.
+	 * @return
+	 * 		A short taken from the buffer.
+	 */
+	public static short getShort(ByteBuffer b, int index, ByteOrder order) 
+	{
+		short x = b.getShort(index);
+		return (b.order() == order ? x : Short.reverseBytes(x));
+	}
+	
+	/**
+	 * Sets the bytes at the given index in the buffer to the bytes that make 
+	 * up the short without changing the position or order of the buffer.
+	 * 
+	 * @param x
+	 * 		The short to place in the buffer.
+	 * @param b
+	 * 		The buffer to place the bytes.
+	 * @param index
+	 * 		The index of the first byte of the short.
+	 * @param order
+	 * 		The order of the bytes of the short.
+	 */
+	public static void getShortBytes(short x, ByteBuffer b, int index, ByteOrder order) 
+	{
+		b.putShort(index, b.order() == order ? x : Short.reverseBytes(x));
+	}
+
+	/**
+	 * Returns the char at the given index in the buffer without changing 
+	 * the position or order of the buffer.
+	 * 
+	 * @param b
+	 * 		The buffer.
+	 * @param index
+	 * 		The index of the first byte of the char.
+	 * @param order
+	 * 		The order of the bytes of the char.
+	 * @return
+	 * 		A char taken from the buffer.
+	 */
+	public static char getChar(ByteBuffer b, int index, ByteOrder order) 
+	{
+		char x = b.getChar(index);
+		return (b.order() == order ? x : Character.reverseBytes(x));
+	}
+	
+	/**
+	 * Sets the bytes at the given index in the buffer to the bytes that make 
+	 * up the char without changing the position or order of the buffer.
+	 * 
+	 * @param x
+	 * 		The char to place in the buffer.
+	 * @param b
+	 * 		The buffer to place the bytes.
+	 * @param index
+	 * 		The index of the first byte of the char.
+	 * @param order
+	 * 		The order of the bytes of the char.
+	 */
+	public static void getCharBytes(char x, ByteBuffer b, int index, ByteOrder order) 
+	{
+		b.putChar(index, b.order() == order ? x : Character.reverseBytes(x));
+	}
+
+	/**
+	 * Returns the integer at the given index in the buffer without changing 
+	 * the position or order of the buffer.
+	 * 
+	 * @param b
+	 * 		The buffer.
+	 * @param index
+	 * 		The index of the first byte of the integer.
+	 * @param order
+	 * 		The order of the bytes of the integer.
+	 * @return
+	 * 		An integer taken from the buffer.
+	 */
+	public static int getInt(ByteBuffer b, int index, ByteOrder order) 
+	{
+		int x = b.getInt(index);
+		return (b.order() == order ? x : Integer.reverseBytes(x));
+	}
+	
+	/**
+	 * Sets the bytes at the given index in the buffer to the bytes that make 
+	 * up the integer without changing the position or order of the buffer.
+	 * 
+	 * @param x
+	 * 		The integer to place in the buffer.
+	 * @param b
+	 * 		The buffer to place the bytes.
+	 * @param index
+	 * 		The index of the first byte of the integer.
+	 * @param order
+	 * 		The order of the bytes of the integer.
+	 */
+	public static void getIntBytes(int x, ByteBuffer b, int index, ByteOrder order) 
+	{
+		b.putInt(index, b.order() == order ? x : Integer.reverseBytes(x));
+	}
+
+	/**
+	 * Returns the long at the given index in the buffer without changing 
+	 * the position or order of the buffer.
+	 * 
+	 * @param b
+	 * 		The buffer.
+	 * @param index
+	 * 		The index of the first byte of the long.
+	 * @param order
+	 * 		The order of the bytes of the long.
+	 * @return
+	 * 		A long taken from the buffer.
+	 */
+	public static long getLong(ByteBuffer b, int index, ByteOrder order) 
+	{
+		long x = b.getLong(index);
+		return (b.order() == order ? x : Long.reverseBytes(x));
+	}
+	
+	/**
+	 * Sets the bytes at the given index in the buffer to the bytes that make 
+	 * up the long without changing the position or order of the buffer.
+	 * 
+	 * @param x
+	 * 		The long to place in the buffer.
+	 * @param b
+	 * 		The buffer to place the bytes.
+	 * @param index
+	 * 		The index of the first byte of the long.
+	 * @param order
+	 * 		The order of the bytes of the long.
+	 */
+	public static void getLongBytes(long x, ByteBuffer b, int index, ByteOrder order) 
+	{
+		b.putLong(index, b.order() == order ? x : Long.reverseBytes(x));
+	}
+
+	/**
+	 * Returns the float at the given index in the buffer without changing 
+	 * the position or order of the buffer.
+	 * 
+	 * @param b
+	 * 		The buffer.
+	 * @param index
+	 * 		The index of the first byte of the float.
+	 * @param order
+	 * 		The order of the bytes of the float.
+	 * @return
+	 * 		A float taken from the buffer.
+	 */
+	public static float getFloat(ByteBuffer b, int index, ByteOrder order) 
+	{
+		return Float.intBitsToFloat(getInt(b, index, order));
+	}
+	
+	/**
+	 * Sets the bytes at the given index in the buffer to the bytes that make 
+	 * up the float without changing the position or order of the buffer.
+	 * 
+	 * @param x
+	 * 		The float to place in the buffer.
+	 * @param b
+	 * 		The buffer to place the bytes.
+	 * @param index
+	 * 		The index of the first byte of the float.
+	 * @param order
+	 * 		The order of the bytes of the float.
+	 */
+	public static void getFloatBytes(float x, ByteBuffer b, int index, ByteOrder order) 
+	{
+		getIntBytes(Float.floatToIntBits(x), b, index, order);
+	}
+
+	/**
+	 * Returns the double at the given index in the buffer without changing 
+	 * the position or order of the buffer.
+	 * 
+	 * @param b
+	 * 		The buffer.
+	 * @param index
+	 * 		The index of the first byte of the double.
+	 * @param order
+	 * 		The order of the bytes of the double.
+	 * @return
+	 * 		A double taken from the buffer.
+	 */
+	public static double getDouble(ByteBuffer b, int index, ByteOrder order) 
+	{
+		return Double.longBitsToDouble(getLong(b, index, order));
+	}
+	
+	/**
+	 * Sets the bytes at the given index in the buffer to the bytes that make 
+	 * up the double without changing the position or order of the buffer.
+	 * 
+	 * @param x
+	 * 		The double to place in the buffer.
+	 * @param b
+	 * 		The buffer to place the bytes.
+	 * @param index
+	 * 		The index of the first byte of the double.
+	 * @param order
+	 * 		The order of the bytes of the double.
+	 */
+	public static void getDoubleBytes(double x, ByteBuffer b, int index, ByteOrder order) 
+	{
+		getLongBytes(Double.doubleToLongBits(x), b, index, order);
+	}
+
 	/**
 	 * Explicitly frees the given buffer from memory if it is a DirectBuffer. 
 	 * The data in a DirectBuffer lies outside of JVM space, a DirectBuffer is
@@ -16,6 +16,8 @@
 
 package org.magnos.data;
 
+import java.util.concurrent.Future;
+
 /**
  * A fixed size chunk of data which can be read and written to and from a store.
  * 
@@ -36,7 +38,7 @@ public interface Data
 	 * @param offset
 	 * 		The offset from the location to read the value.
 	 */
-	public void read(int offset);
+	public void read(long offset);
 	
 	/**
 	 * Reads the value from the given store at the location.
@@ -54,7 +56,7 @@ public interface Data
 	 * @param store
 	 * 		The store to read from.
 	 */
-	public void read(int offset, Store store);
+	public void read(long offset, Store store);
 	
 
 	/**
@@ -68,7 +70,7 @@ public interface Data
 	 * @param offset
 	 * 		The offset from the location to write the value.
 	 */
-	public void write(int offset);
+	public void write(long offset);
 
 	/**
 	 * Writes the value to the given store at the location.
@@ -86,7 +88,51 @@ public interface Data
 	 * @param store
 	 * 		The store to write to.
 	 */
-	public void write(int offset, Store store);
+	public void write(long offset, Store store);
+	
+	/**
+	 * Asynchronously reads the value from the store at the location. The 
+	 * value must not be used until the returned future is done.
+	 * 
+	 * @return
+	 * 		The future of the read.
+	 * @see Store#async(java.util.concurrent.Callable)
+	 */
+	public Future<Void> readAsync();
+	
+	/**
+	 * Asynchronously reads the value from the given store at the location. 
+	 * The value must not be used until the returned future is done.
+	 * 
+	 * @param store
+	 * 		The store to read from.
+	 * @return
+	 * 		The future of the read.
+	 * @see Store#async(java.util.concurrent.Callable)
+	 */
+	public Future<Void> readAsync(Store store);
+	
+	/**
+	 * Asynchronously writes the value to the store at the location. The 
+	 * value must not be modified until the returned future is done.
+	 * 
+	 * @return
+	 * 		The future of the write.
+	 * @see Store#async(java.util.concurrent.Callable)
+	 */
+	public Future<Void> writeAsync();
+	
+	/**
+	 * Asynchronously writes the value to the given store at the location. 
+	 * The value must not be modified until the returned future is done.
+	 * 
+	 * @param store
+	 * 		The store to write to.
+	 * @return
+	 * 		The future of the write.
+	 * @see Store#async(java.util.concurrent.Callable)
+	 */
+	public Future<Void> writeAsync(Store store);
 	
 
 	/**
@@ -95,7 +141,7 @@ public interface Data
 	 * @return
 	 * 		The number of bytes this variable takes up in a store.
 	 */
-	public int getSize();
+	public long getSize();
 	
 	/**
 	 * Returns the location in bytes of this variable in the store.
@@ -103,7 +149,7 @@ public interface Data
 	 * @return
 	 * 		The offset in bytes from the beginning of the store.
 	 */
-	public int getLocation();
+	public long getLocation();
 	
 	/**
 	 * Sets the location in bytes of this variable in the store.
@@ -111,7 +157,7 @@ public interface Data
 	 * @param newLocation
 	 * 		The offset in bytes from beginning of the store.
 	 */
-	public void setLocation(int newLocation);
+	public void setLocation(long newLocation);
 	
 	/**
 	 * Returns the store this variable is read and written to and from.
@@ -162,6 +208,15 @@ public interface Data
 	 * @return
 	 * 		The actual location of the data in bytes.
 	 */
-	public int getActualLocation();
+	public long getActualLocation();
+	
+	/**
+	 * Returns whether this data has changed since it was last read or 
+	 * written. New data is dirty until it's first read or written.
+	 * 
+	 * @return
+	 * 		True if this data has unwritten changes, otherwise false.
+	 */
+	public boolean isDirty();
 	
 }
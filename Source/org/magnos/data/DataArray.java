@@ -16,12 +16,17 @@
 
 package org.magnos.data;
 
+import java.nio.ByteBuffer;
+
+import org.magnos.data.store.MemoryStore;
+
 /**
  * An array of data elements which are the same type and size. An array can be
  * either lazy or not. A lazy array does not allocate an array to store the data
  * elements, but instead creates a new element for each get and doesn't cache
  * the element in the set. An array that is not lazy will have an internal cache
- * of items
+ * of items which are read and written with as few store operations as 
+ * possible by staging the bytes of many elements in memory.
  * 
  * @author Philip Diffenderfer
  *
@@ -31,6 +36,13 @@ package org.magnos.data;
 public class DataArray<T extends Data> extends AbstractData 
 {
 	
+	/**
+	 * The maximum number of bytes staged in memory for a single read or write
+	 * of a non-lazy array. At least one element is always staged. The staging
+	 * stores are kept by each thread and shared by every array it transfers.
+	 */
+	public static final int STAGING_SIZE = 1 << 20;
+	
 	// The root element to use to create copies.
 	private final T root;
 	
@@ -151,6 +163,36 @@ public class DataArray<T extends Data> extends AbstractData
 		}
 	}
 	
+	/**
+	 * Returns whether this array is lazy. A lazy array reads and writes its
+	 * elements on each get and set instead of holding them in memory.
+	 * 
+	 * @return
+	 * 		True if this array is lazy, otherwise false.
+	 */
+	public boolean isLazy() 
+	{
+		return lazy;
+	}
+	
+	/**
+	 * Returns a cursor which moves a single element over this array. Moving 
+	 * the cursor reads the element at the new index into the same instance, 
+	 * so scanning the array through a cursor does not allocate an element 
+	 * for each index like the get of a lazy array.
+	 * 
+	 * @return
+	 * 		A new cursor positioned before the first element of this array.
+	 */
+	@SuppressWarnings("unchecked")
+	public DataCursor<T> cursor() 
+	{
+		T element = (T)root.copy();
+		element.setLocation(0);
+		element.setParent(null);
+		return new DataCursor<T>(this, element);
+	}
+	
 	/**
 	 * Returns the number of elements in the array.
 	 * 
@@ -166,15 +208,35 @@ public class DataArray<T extends Data> extends AbstractData
 	 * {@inheritDoc}
 	 */
 	@Override
-	protected void onRead(int location, Store store) 
+	protected void onRead(long location, Store store) 
 	{
 		// Only read all of the elements in if its not lazy.
 		if (!lazy) {
-			for (int i = 0; i < count; i++) {
-				if (elements[i] == null) {
-					elements[i] = root.copy();
+			int chunk = chunk();
+			MemoryStore stage = Staging.acquire(offset(chunk), store.getOrder());
+			try {
+				// Each chunk of elements is read with a single get and then 
+				// each leaf is decoded straight from the staged bytes.
+				for (int i = 0; i < count; i += chunk) {
+					int end = Math.min(count, i + chunk);
+					store.get(offset(i) + location, view(stage, 0, end - i));
+					ByteBuffer staged = stage.getBuffer();
+					for (int k = i; k < end; k++) {
+						if (elements[k] == null) {
+							elements[k] = root.copy();
+						}
+						Data element = elements[k];
+						if (staged(element)) {
+							((AbstractData)element).onRead(staged, (int)(offset(k - i) + element.getLocation()), stage);
+						}
+						else {
+							element.read(offset(k - i), stage);
+						}
+					}
 				}
-				elements[i].read(offset(i) + location, store);
+			}
+			finally {
+				Staging.release(stage);
 			}
 		}
 	}
@@ -183,17 +245,158 @@ public class DataArray<T extends Data> extends AbstractData
 	 * {@inheritDoc}
 	 */
 	@Override
-	protected void onWrite(int location, Store store) 
+	protected void onWrite(long location, Store store) 
 	{
 		// Only write all of the elements out if its not lazy.
+		if (!lazy) {
+			int chunk = chunk();
+			MemoryStore stage = Staging.acquire(offset(chunk), store.getOrder());
+			try {
+				// Each run of changed leaves is encoded into the staged bytes
+				// and then written with a single put. Null and unchanged 
+				// elements end a run since the bytes they cover in the store 
+				// are left as they are, and other elements write only what 
+				// has changed themselves.
+				for (int i = 0; i < count; i += chunk) {
+					int end = Math.min(count, i + chunk);
+					int k = i;
+					while (k < end) {
+						Data element = elements[k];
+						if (element == null || unchanged(k, location, store)) {
+							k++;
+							continue;
+						}
+						if (!staged(element)) {
+							element.write(offset(k) + location, store);
+							k++;
+							continue;
+						}
+						int start = k;
+						ByteBuffer staged = stage.getBuffer();
+						while (k < end && staged(elements[k]) && !unchanged(k, location, store)) {
+							((AbstractData)elements[k]).onWrite(staged, (int)(offset(k - i) + elements[k].getLocation()), stage);
+							k++;
+						}
+						store.put(offset(start) + location, view(stage, start - i, k - i));
+						for (int j = start; j < k; j++) {
+							((AbstractData)elements[j]).synced(offset(j) + location + elements[j].getLocation(), store);
+						}
+					}
+				}
+			}
+			finally {
+				Staging.release(stage);
+			}
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isDirty() 
+	{
+		if (!lazy) {
+			for (int i = 0; i < count; i++) {
+				if (elements[i] != null && elements[i].isDirty()) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected boolean isSynced(long location, Store store) 
+	{
+		if (!lazy) {
+			for (int i = 0; i < count; i++) {
+				if (elements[i] != null && !unchanged(i, location, store)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	void synced(long location, Store store) 
+	{
+		super.synced(location, store);
 		if (!lazy) {
 			for (int i = 0; i < count; i++) {
-				if (elements[i] != null) {
-					elements[i].write(offset(i) + location, store);
+				if (elements[i] instanceof AbstractData) {
+					((AbstractData)elements[i]).synced(offset(i) + location + elements[i].getLocation(), store);
 				}
 			}
 		}
 	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	boolean isLeaf() 
+	{
+		return false;
+	}
+	
+	/**
+	 * Returns whether the element at the given index is known to match the 
+	 * store when this array is at the given location.
+	 */
+	private boolean unchanged(int index, long location, Store store)
+	{
+		Data element = elements[index];
+		return (element instanceof AbstractData && 
+			((AbstractData)element).isSynced(offset(index) + location + element.getLocation(), store));
+	}
+	
+	/**
+	 * Returns whether the given element can be staged with adjacent elements.
+	 */
+	private static boolean staged(Data element)
+	{
+		return (element instanceof AbstractData && ((AbstractData)element).isLeaf());
+	}
+	
+	/**
+	 * Returns the number of elements staged in memory at once.
+	 * 
+	 * @return
+	 * 		The number of elements in a chunk.
+	 */
+	private int chunk()
+	{
+		long perChunk = STAGING_SIZE / Math.max(1, root.getSize());
+		return (int)Math.max(1, Math.min(count, perChunk));
+	}
+	
+	/**
+	 * Returns a view of the staged bytes of the given range of elements.
+	 * 
+	 * @param stage
+	 * 		The staging store.
+	 * @param start
+	 * 		The index of the first element in the chunk.
+	 * @param end
+	 * 		The index after the last element in the chunk.
+	 * @return
+	 * 		The view of the staged bytes.
+	 */
+	private ByteBuffer view(MemoryStore stage, int start, int end)
+	{
+		ByteBuffer view = stage.getBuffer().duplicate();
+		view.limit((int)offset(end));
+		view.position((int)offset(start));
+		return view;
+	}
 
 	/**
 	 * {@inheritDoc}
@@ -213,6 +416,36 @@ public class DataArray<T extends Data> extends AbstractData
 		return copy;
 	}
 	
+	/**
+	 * Returns the element held at the given index of a non-lazy array, 
+	 * creating it if it hasn't been read or set yet.
+	 * 
+	 * @param index
+	 * 		The index of the element in the array.
+	 * @return
+	 * 		The non-null element at the given index.
+	 */
+	Data element(int index)
+	{
+		if (elements[index] == null) {
+			elements[index] = root.copy();
+		}
+		return elements[index];
+	}
+	
+	/**
+	 * Returns the location of the element in the store given its index.
+	 * 
+	 * @param index
+	 * 		The index of the element in the array.
+	 * @return
+	 * 		The location of the element in bytes.
+	 */
+	long location(int index)
+	{
+		return offset(index) + getActualLocation();
+	}
+	
 	/**
 	 * Returns the offset of the element given its index.
 	 * 
@@ -221,9 +454,9 @@ public class DataArray<T extends Data> extends AbstractData
 	 * @return
 	 * 		The offset in bytes.
 	 */
-	private int offset(int index) 
+	long offset(int index) 
 	{
-		return (index * root.getSize());
+		return ((long)index * root.getSize());
 	}
 	
 	/**
@@ -0,0 +1,146 @@
+/* 
+ * NOTICE OF LICENSE
+ * 
+ * This source file is subject to the Open Software License (OSL 3.0) that is 
+ * bundled with this package in the file LICENSE.txt. It is also available 
+ * through the world-wide-web at http://opensource.org/licenses/osl-3.0.php
+ * If you did not receive a copy of the license and are unable to obtain it 
+ * through the world-wide-web, please send an email to pdiffenderfer@gmail.com 
+ * so we can send you a copy immediately. If you use any of this software please
+ * notify me via my website or email, your feedback is much appreciated. 
+ * 
+ * @copyright   Copyright (c) 2011 Magnos Software (http://www.magnos.org)
+ * @license     http://opensource.org/licenses/osl-3.0.php
+ * 				Open Software License (OSL 3.0)
+ */
+
+package org.magnos.data;
+
+
+/**
+ * A single element which moves over the elements of a DataArray. Every move 
+ * reads the element at the new index from the store of the array into the 
+ * same instance, and the element can be changed and written back in place. 
+ * A cursor is not safe to use from multiple threads at once.
+ * 
+ * @author Philip Diffenderfer
+ *
+ * @param <T>
+ * 		The type of element in the array.
+ */
+public class DataCursor<T extends Data> 
+{
+
+	// The array the cursor moves over.
+	private final DataArray<T> array;
+	
+	// The element read at the current index.
+	private final T element;
+	
+	// The current index of the cursor, or -1 if it hasn't moved yet.
+	private int index = -1;
+	
+	
+	/**
+	 * Instantiates a new DataCursor.
+	 * 
+	 * @param array
+	 * 		The array the cursor moves over.
+	 * @param element
+	 * 		The element the cursor reads into.
+	 */
+	DataCursor(DataArray<T> array, T element) 
+	{
+		this.array = array;
+		this.element = element;
+	}
+	
+	/**
+	 * Moves the cursor to the given index and reads the element there. If 
+	 * the index is outside the bounds of the array an 
+	 * IndexOutOfBoundsException is thrown.
+	 * 
+	 * @param index
+	 * 		The index of the element in the array.
+	 * @return
+	 * 		The element of this cursor, read from the given index.
+	 */
+	public T moveTo(int index) 
+	{
+		if (index < 0 || index >= array.getLength()) {
+			throw new IndexOutOfBoundsException();
+		}
+		this.index = index;
+		element.read(array.location(index), array.getStore());
+		return element;
+	}
+	
+	/**
+	 * Returns whether there is an element after the current index.
+	 * 
+	 * @return
+	 * 		True if next will move the cursor, otherwise false.
+	 */
+	public boolean hasNext() 
+	{
+		return (index + 1 < array.getLength());
+	}
+	
+	/**
+	 * Moves the cursor to the next index and reads the element there. If the
+	 * cursor is at the last element an IndexOutOfBoundsException is thrown.
+	 * 
+	 * @return
+	 * 		The element of this cursor, read from the next index.
+	 */
+	public T next() 
+	{
+		return moveTo(index + 1);
+	}
+	
+	/**
+	 * Writes the element of this cursor back to its current index. If the 
+	 * cursor hasn't moved yet an IndexOutOfBoundsException is thrown.
+	 */
+	public void write() 
+	{
+		if (index == -1) {
+			throw new IndexOutOfBoundsException();
+		}
+		element.write(array.location(index), array.getStore());
+	}
+	
+	/**
+	 * Returns the element of this cursor. The element is reused by each move.
+	 * 
+	 * @return
+	 * 		The element of this cursor.
+	 */
+	public T get() 
+	{
+		return element;
+	}
+	
+	/**
+	 * Returns the current index of this cursor.
+	 * 
+	 * @return
+	 * 		The current index, or -1 if the cursor hasn't moved yet.
+	 */
+	public int getIndex() 
+	{
+		return index;
+	}
+	
+	/**
+	 * Returns the array this cursor moves over.
+	 * 
+	 * @return
+	 * 		The array of this cursor.
+	 */
+	public DataArray<T> getArray() 
+	{
+		return array;
+	}
+	
+}
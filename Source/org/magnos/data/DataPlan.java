@@ -0,0 +1,336 @@
+/* 
+ * NOTICE OF LICENSE
+ * 
+ * This source file is subject to the Open Software License (OSL 3.0) that is 
+ * bundled with this package in the file LICENSE.txt. It is also available 
+ * through the world-wide-web at http://opensource.org/licenses/osl-3.0.php
+ * If you did not receive a copy of the license and are unable to obtain it 
+ * through the world-wide-web, please send an email to pdiffenderfer@gmail.com 
+ * so we can send you a copy immediately. If you use any of this software please
+ * notify me via my website or email, your feedback is much appreciated. 
+ * 
+ * @copyright   Copyright (c) 2011 Magnos Software (http://www.magnos.org)
+ * @license     http://opensource.org/licenses/osl-3.0.php
+ * 				Open Software License (OSL 3.0)
+ */
+
+package org.magnos.data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.magnos.data.error.StoreClosedException;
+import org.magnos.data.error.StoreIOException;
+import org.magnos.data.error.StoreNullException;
+import org.magnos.data.store.MemoryStore;
+
+
+/**
+ * A compiled plan for reading and writing a tree of data. Compiling a plan 
+ * flattens the DataSets and non-lazy DataArrays of the tree into its leaves
+ * and their offsets from the root, and joins adjacent leaves into contiguous 
+ * ranges. Executing a plan transfers each range with a single store 
+ * operation through a staging buffer and decodes or encodes each leaf 
+ * straight from the buffer, so the store is checked and locked once for each
+ * range instead of for every leaf. Leaves which don't extend AbstractData are
+ * read and written through the staging store.
+ * <br/>
+ * The layout of a plan is fixed when it's compiled, so it must be compiled 
+ * again if data is added to a DataSet of the tree. Compiling fills in the 
+ * missing elements of non-lazy DataArrays, so a write covers every element.
+ * Lazy DataArrays hold no elements and are left out of a plan. A plan is 
+ * not safe to execute from multiple threads at once.
+ * 
+ * @author Philip Diffenderfer
+ *
+ */
+public class DataPlan 
+{
+
+	// The data the plan was compiled from.
+	private final Data root;
+	
+	// The leaves of the tree, ordered by offset.
+	private final Data[] leaves;
+	
+	// The offset of each leaf from the root, in bytes.
+	private final long[] offsets;
+	
+	// The offset of each range from the root, in bytes.
+	private final long[] rangeOffsets;
+	
+	// The size of each range in bytes.
+	private final int[] rangeSizes;
+	
+	// The index of the first leaf of each range, with the number of leaves as 
+	// the last element.
+	private final int[] rangeLeaves;
+	
+	// The size of the largest range in bytes.
+	private final int largest;
+	
+	
+	/**
+	 * Instantiates a new DataPlan.
+	 */
+	private DataPlan(Data root, Data[] leaves, long[] offsets, long[] rangeOffsets, int[] rangeSizes, int[] rangeLeaves) 
+	{
+		this.root = root;
+		this.leaves = leaves;
+		this.offsets = offsets;
+		this.rangeOffsets = rangeOffsets;
+		this.rangeSizes = rangeSizes;
+		this.rangeLeaves = rangeLeaves;
+		
+		int largest = 1;
+		for (int size : rangeSizes) {
+			largest = Math.max(largest, size);
+		}
+		this.largest = largest;
+	}
+	
+	/**
+	 * Returns the data this plan was compiled from.
+	 * 
+	 * @return
+	 * 		The root of this plan.
+	 */
+	public Data getRoot() 
+	{
+		return root;
+	}
+	
+	/**
+	 * Returns the number of leaves read and written by this plan.
+	 * 
+	 * @return
+	 * 		The number of leaves in this plan.
+	 */
+	public int getLeafCount() 
+	{
+		return leaves.length;
+	}
+	
+	/**
+	 * Returns the number of contiguous ranges, which is the number of store
+	 * operations made by each execution of this plan.
+	 * 
+	 * @return
+	 * 		The number of ranges in this plan.
+	 */
+	public int getRangeCount() 
+	{
+		return rangeSizes.length;
+	}
+	
+	/**
+	 * Reads the tree from the store and location of the root.
+	 */
+	public void read() 
+	{
+		read(root.getActualLocation(), root.getStore());
+	}
+	
+	/**
+	 * Reads the tree from the given store, with the root at the given location.
+	 * 
+	 * @param location
+	 * 		The location of the root in the store, in bytes.
+	 * @param store
+	 * 		The store to read from.
+	 */
+	public void read(long location, Store store) 
+	{
+		check(location, store);
+		MemoryStore stage = Staging.acquire(largest, store.getOrder());
+		try {
+			for (int r = 0; r < rangeSizes.length; r++) {
+				long start = rangeOffsets[r];
+				store.get(location + start, view(stage, rangeSizes[r]));
+				
+				ByteBuffer buffer = stage.getBuffer();
+				for (int i = rangeLeaves[r]; i < rangeLeaves[r + 1]; i++) {
+					Data leaf = leaves[i];
+					long staged = offsets[i] - start;
+					if (leaf instanceof AbstractData) {
+						((AbstractData)leaf).onRead(buffer, (int)staged, stage);
+						((AbstractData)leaf).synced(location + offsets[i], store);
+					}
+					else {
+						leaf.read(staged - leaf.getLocation(), stage);
+					}
+				}
+			}
+		}
+		finally {
+			Staging.release(stage);
+		}
+	}
+	
+	/**
+	 * Writes the tree to the store and location of the root.
+	 */
+	public void write() 
+	{
+		write(root.getActualLocation(), root.getStore());
+	}
+	
+	/**
+	 * Writes the tree to the given store, with the root at the given location.
+	 * 
+	 * @param location
+	 * 		The location of the root in the store, in bytes.
+	 * @param store
+	 * 		The store to write to.
+	 */
+	public void write(long location, Store store) 
+	{
+		check(location, store);
+		MemoryStore stage = Staging.acquire(largest, store.getOrder());
+		try {
+			for (int r = 0; r < rangeSizes.length; r++) {
+				long start = rangeOffsets[r];
+				
+				ByteBuffer buffer = stage.getBuffer();
+				for (int i = rangeLeaves[r]; i < rangeLeaves[r + 1]; i++) {
+					Data leaf = leaves[i];
+					long staged = offsets[i] - start;
+					if (leaf instanceof AbstractData) {
+						((AbstractData)leaf).onWrite(buffer, (int)staged, stage);
+					}
+					else {
+						leaf.write(staged - leaf.getLocation(), stage);
+					}
+				}
+				
+				store.put(location + start, view(stage, rangeSizes[r]));
+				
+				for (int i = rangeLeaves[r]; i < rangeLeaves[r + 1]; i++) {
+					if (leaves[i] instanceof AbstractData) {
+						((AbstractData)leaves[i]).synced(location + offsets[i], store);
+					}
+				}
+			}
+		}
+		finally {
+			Staging.release(stage);
+		}
+	}
+	
+	/**
+	 * Validates the store and the location of the root once for the whole 
+	 * execution.
+	 */
+	private void check(long location, Store store) 
+	{
+		if (store == null) {
+			throw new StoreNullException();
+		}
+		if (store.isClosed()) {
+			throw new StoreClosedException();
+		}
+		if (location < 0 || location + root.getSize() > store.capacity()) {
+			throw new StoreIOException(new IOException("Invalid location: " + location + " and size: " + root.getSize()));
+		}
+	}
+	
+	/**
+	 * Returns a view of the first bytes of the staging store.
+	 */
+	private ByteBuffer view(MemoryStore stage, int size) 
+	{
+		ByteBuffer view = stage.getBuffer().duplicate();
+		view.clear();
+		view.limit(size);
+		return view;
+	}
+	
+	/**
+	 * Compiles a plan for the given data and every data beneath it. Ranges
+	 * are no larger than {@link DataArray#STAGING_SIZE} unless a single leaf 
+	 * is larger.
+	 * 
+	 * @param root
+	 * 		The root of the tree to compile.
+	 * @return
+	 * 		The compiled plan.
+	 */
+	public static DataPlan compile(Data root) 
+	{
+		List<Data> leafList = new ArrayList<Data>();
+		List<Long> offsetList = new ArrayList<Long>();
+		flatten(root, 0, leafList, offsetList);
+		
+		int count = leafList.size();
+		Data[] leaves = leafList.toArray(new Data[count]);
+		long[] offsets = new long[count];
+		for (int i = 0; i < count; i++) {
+			offsets[i] = offsetList.get(i);
+		}
+		
+		// Join leaves which start where the previous leaf ends.
+		List<Integer> starts = new ArrayList<Integer>();
+		for (int i = 0; i < count; i++) {
+			if (i == 0) {
+				starts.add(i);
+				continue;
+			}
+			long first = offsets[starts.get(starts.size() - 1)];
+			long previousEnd = offsets[i - 1] + leaves[i - 1].getSize();
+			long end = offsets[i] + leaves[i].getSize();
+			if (offsets[i] != previousEnd || end - first > DataArray.STAGING_SIZE) {
+				starts.add(i);
+			}
+		}
+		
+		int ranges = starts.size();
+		long[] rangeOffsets = new long[ranges];
+		int[] rangeSizes = new int[ranges];
+		int[] rangeLeaves = new int[ranges + 1];
+		for (int r = 0; r < ranges; r++) {
+			int first = starts.get(r);
+			int last = (r + 1 < ranges ? starts.get(r + 1) : count) - 1;
+			long size = offsets[last] + leaves[last].getSize() - offsets[first];
+			if (size > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("Data of " + size + " bytes is too large for a plan");
+			}
+			rangeOffsets[r] = offsets[first];
+			rangeSizes[r] = (int)size;
+			rangeLeaves[r] = first;
+		}
+		rangeLeaves[ranges] = count;
+		
+		return new DataPlan(root, leaves, offsets, rangeOffsets, rangeSizes, rangeLeaves);
+	}
+	
+	/**
+	 * Adds the leaves beneath the given data to the lists, in the order of 
+	 * their offsets.
+	 */
+	private static void flatten(Data data, long offset, List<Data> leaves, List<Long> offsets) 
+	{
+		if (data instanceof DataSet) {
+			DataSet set = (DataSet)data;
+			for (int i = 0; i < set.getCount(); i++) {
+				Data child = set.get(i);
+				flatten(child, offset + child.getLocation(), leaves, offsets);
+			}
+		}
+		else if (data instanceof DataArray<?>) {
+			DataArray<?> array = (DataArray<?>)data;
+			if (!array.isLazy()) {
+				for (int i = 0; i < array.getLength(); i++) {
+					Data element = array.element(i);
+					flatten(element, offset + array.offset(i) + element.getLocation(), leaves, offsets);
+				}
+			}
+		}
+		else {
+			leaves.add(data);
+			offsets.add(offset);
+		}
+	}
+	
+}
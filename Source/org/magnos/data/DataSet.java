@@ -16,11 +16,16 @@
 
 package org.magnos.data;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.magnos.data.store.MemoryStore;
+
 /**
- * A set of data pieces.
+ * A set of data pieces. Writing a set only writes the pieces which have 
+ * changed since they were last read from or written to the same location, 
+ * and adjacent changed pieces are written together with a single put.
  * 
  * @author Philip Diffenderfer
  *
@@ -29,7 +34,7 @@ public class DataSet extends AbstractData
 {
 
 	// The current and actual size of the set in bytes.
-	private int dataSize = 0;
+	private long dataSize = 0;
 	
 	// The data added to the set.
 	private List<Data> dataList = new ArrayList<Data>();
@@ -41,7 +46,7 @@ public class DataSet extends AbstractData
 	 * @param size
 	 * 		The fixed size of the DataSet in bytes.
 	 */
-	public DataSet(int size) 
+	public DataSet(long size) 
 	{
 		super(size);
 	}
@@ -103,13 +108,24 @@ public class DataSet extends AbstractData
 		return (T)dataList.get(index);
 	}
 	
+	/**
+	 * Returns the number of data pieces added to this set.
+	 * 
+	 * @return
+	 * 		The number of data pieces in this set.
+	 */
+	public int getCount() 
+	{
+		return dataList.size();
+	}
+	
 	/**
 	 * Returns the current or actual size of the DataSet.
 	 * 
 	 * @return
 	 * 		The current or actual size of the DataSet in bytes.
 	 */
-	public int getSetSize() 
+	public long getSetSize() 
 	{
 		return dataSize;
 	}
@@ -118,7 +134,7 @@ public class DataSet extends AbstractData
 	 * {@inheritDoc}
 	 */
 	@Override
-	protected void onRead(int location, Store store) 
+	protected void onRead(long location, Store store) 
 	{
 		for (Data d : dataList) {
 			d.read(location, store);
@@ -129,11 +145,150 @@ public class DataSet extends AbstractData
 	 * {@inheritDoc}
 	 */
 	@Override
-	protected void onWrite(int location, Store store) 
+	protected void onWrite(long location, Store store) 
+	{
+		int count = dataList.size();
+		int i = 0;
+		while (i < count) {
+			Data d = dataList.get(i);
+			if (unchanged(d, location, store)) {
+				i++;
+				continue;
+			}
+			
+			// Gather the changed leaves which follow this one without a gap.
+			int end = i + 1;
+			long runSize = d.getSize();
+			if (staged(d)) {
+				while (end < count) {
+					Data prev = dataList.get(end - 1);
+					Data next = dataList.get(end);
+					if (!staged(next) || unchanged(next, location, store) ||
+						next.getLocation() != prev.getLocation() + prev.getSize() ||
+						runSize + next.getSize() > DataArray.STAGING_SIZE) {
+						break;
+					}
+					runSize += next.getSize();
+					end++;
+				}
+			}
+			
+			if (end - i == 1) {
+				d.write(location, store);
+			}
+			else {
+				write(i, end, (int)runSize, location, store);
+			}
+			i = end;
+		}
+	}
+	
+	/**
+	 * Writes a run of adjacent leaves with a single put by encoding them into
+	 * a staging store of the calling thread first.
+	 * 
+	 * @param start
+	 * 		The index of the first piece of the run.
+	 * @param end
+	 * 		The index after the last piece of the run.
+	 * @param size
+	 * 		The size of the run in bytes.
+	 * @param location
+	 * 		The location of this set in the store.
+	 * @param store
+	 * 		The store to write to.
+	 */
+	private void write(int start, int end, int size, long location, Store store)
+	{
+		long first = dataList.get(start).getLocation();
+		MemoryStore stage = Staging.acquire(size, store.getOrder());
+		try {
+			for (int k = start; k < end; k++) {
+				AbstractData d = (AbstractData)dataList.get(k);
+				d.onWrite(d.getLocation() - first, stage);
+			}
+			
+			ByteBuffer view = stage.getBuffer().duplicate();
+			view.clear();
+			view.limit(size);
+			store.put(location + first, view);
+		}
+		finally {
+			Staging.release(stage);
+		}
+		
+		for (int k = start; k < end; k++) {
+			AbstractData d = (AbstractData)dataList.get(k);
+			d.synced(location + d.getLocation(), store);
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isDirty() 
 	{
 		for (Data d : dataList) {
-			d.write(location, store);
+			if (d.isDirty()) {
+				return true;
+			}
 		}
+		return false;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected boolean isSynced(long location, Store store) 
+	{
+		for (Data d : dataList) {
+			if (!unchanged(d, location, store)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	void synced(long location, Store store) 
+	{
+		super.synced(location, store);
+		for (Data d : dataList) {
+			if (d instanceof AbstractData) {
+				((AbstractData)d).synced(location + d.getLocation(), store);
+			}
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	boolean isLeaf() 
+	{
+		return false;
+	}
+	
+	/**
+	 * Returns whether the given piece is known to match the store when this 
+	 * set is at the given location.
+	 */
+	private static boolean unchanged(Data d, long location, Store store) 
+	{
+		return (d instanceof AbstractData && ((AbstractData)d).isSynced(location + d.getLocation(), store));
+	}
+	
+	/**
+	 * Returns whether the given piece can be staged with adjacent pieces.
+	 */
+	private static boolean staged(Data d) 
+	{
+		return (d instanceof AbstractData && ((AbstractData)d).isLeaf() && d.getSize() <= DataArray.STAGING_SIZE);
 	}
 
 	/**
@@ -163,7 +318,7 @@ public class DataSet extends AbstractData
 	 */
 	public static DataSet create(Data ... data) 
 	{
-		int total = 0;
+		long total = 0;
 		for (Data d : data) {
 			total += d.getSize();
 		}
@@ -0,0 +1,151 @@
+/* 
+ * NOTICE OF LICENSE
+ * 
+ * This source file is subject to the Open Software License (OSL 3.0) that is 
+ * bundled with this package in the file LICENSE.txt. It is also available 
+ * through the world-wide-web at http://opensource.org/licenses/osl-3.0.php
+ * If you did not receive a copy of the license and are unable to obtain it 
+ * through the world-wide-web, please send an email to pdiffenderfer@gmail.com 
+ * so we can send you a copy immediately. If you use any of this software please
+ * notify me via my website or email, your feedback is much appreciated. 
+ * 
+ * @copyright   Copyright (c) 2011 Magnos Software (http://www.magnos.org)
+ * @license     http://opensource.org/licenses/osl-3.0.php
+ * 				Open Software License (OSL 3.0)
+ */
+
+package org.magnos.data;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+
+/**
+ * An array of int values which is read and written with a single store 
+ * operation. The values are accessed through a IntBuffer view without boxing 
+ * and without an object for each element.
+ * 
+ * @author Philip Diffenderfer
+ *
+ */
+public class IntArray extends PrimitiveArray 
+{
+
+	// The view of the elements.
+	private IntBuffer values;
+	
+	
+	/**
+	 * Instantiates a new IntArray held in the heap.
+	 * 
+	 * @param count
+	 * 		The number of elements in the array.
+	 */
+	public IntArray(int count) 
+	{
+		this(count, false);
+	}
+	
+	/**
+	 * Instantiates a new IntArray.
+	 * 
+	 * @param count
+	 * 		The number of elements in the array.
+	 * @param direct
+	 * 		Whether the elements are held in a direct buffer outside of the heap.
+	 */
+	public IntArray(int count, boolean direct) 
+	{
+		super(count, 4, direct);
+	}
+	
+	/**
+	 * Returns the value at the given index. If the index is outside the 
+	 * bounds of the array an IndexOutOfBoundsException is thrown.
+	 * 
+	 * @param index
+	 * 		The index of the value in the array.
+	 * @return
+	 * 		The value at the given index.
+	 */
+	public int getInt(int index) 
+	{
+		check(index);
+		return values.get(index);
+	}
+	
+	/**
+	 * Sets the value at the given index, but does not write it to the store.
+	 * If the index is outside the bounds of the array an 
+	 * IndexOutOfBoundsException is thrown.
+	 * 
+	 * @param index
+	 * 		The index of the value in the array.
+	 * @param value
+	 * 		The new value.
+	 */
+	public void setInt(int index, int value) 
+	{
+		check(index);
+		values.put(index, value);
+		markDirty();
+	}
+	
+	/**
+	 * Copies the values of this array into a new array.
+	 * 
+	 * @return
+	 * 		The values of this array.
+	 */
+	public int[] toArray() 
+	{
+		int[] array = new int[getLength()];
+		IntBuffer source = values.duplicate();
+		source.clear();
+		source.get(array);
+		return array;
+	}
+	
+	/**
+	 * Sets the values of this array from the given array, which must have at
+	 * most as many values as this array.
+	 * 
+	 * @param array
+	 * 		The new values, starting at index 0.
+	 */
+	public void set(int[] array) 
+	{
+		IntBuffer target = values.duplicate();
+		target.clear();
+		target.put(array);
+		markDirty();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void onView(ByteBuffer buffer) 
+	{
+		values = buffer.asIntBuffer();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void convert(ByteBuffer from, ByteBuffer to) 
+	{
+		to.asIntBuffer().put(from.asIntBuffer());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Data copy() 
+	{
+		return copyTo(new IntArray(getLength(), isDirect()));
+	}
+	
+}
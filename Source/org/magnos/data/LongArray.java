@@ -0,0 +1,151 @@
+/* 
+ * NOTICE OF LICENSE
+ * 
+ * This source file is subject to the Open Software License (OSL 3.0) that is 
+ * bundled with this package in the file LICENSE.txt. It is also available 
+ * through the world-wide-web at http://opensource.org/licenses/osl-3.0.php
+ * If you did not receive a copy of the license and are unable to obtain it 
+ * through the world-wide-web, please send an email to pdiffenderfer@gmail.com 
+ * so we can send you a copy immediately. If you use any of this software please
+ * notify me via my website or email, your feedback is much appreciated. 
+ * 
+ * @copyright   Copyright (c) 2011 Magnos Software (http://www.magnos.org)
+ * @license     http://opensource.org/licenses/osl-3.0.php
+ * 				Open Software License (OSL 3.0)
+ */
+
+package org.magnos.data;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+
+
+/**
+ * An array of long values which is read and written with a single store 
+ * operation. The values are accessed through a LongBuffer view without boxing 
+ * and without an object for each element.
+ * 
+ * @author Philip Diffenderfer
+ *
+ */
+public class LongArray extends PrimitiveArray 
+{
+
+	// The view of the elements.
+	private LongBuffer values;
+	
+	
+	/**
+	 * Instantiates a new LongArray held in the heap.
+	 * 
+	 * @param count
+	 * 		The number of elements in the array.
+	 */
+	public LongArray(int count) 
+	{
+		this(count, false);
+	}
+	
+	/**
+	 * Instantiates a new LongArray.
+	 * 
+	 * @param count
+	 * 		The number of elements in the array.
+	 * @param direct
+	 * 		Whether the elements are held in a direct buffer outside of the heap.
+	 */
+	public LongArray(int count, boolean direct) 
+	{
+		super(count, 8, direct);
+	}
+	
+	/**
+	 * Returns the value at the given index. If the index is outside the 
+	 * bounds of the array an IndexOutOfBoundsException is thrown.
+	 * 
+	 * @param index
+	 * 		The index of the value in the array.
+	 * @return
+	 * 		The value at the given index.
+	 */
+	public long getLong(int index) 
+	{
+		check(index);
+		return values.get(index);
+	}
+	
+	/**
+	 * Sets the value at the given index, but does not write it to the store.
+	 * If the index is outside the bounds of the array an 
+	 * IndexOutOfBoundsException is thrown.
+	 * 
+	 * @param index
+	 * 		The index of the value in the array.
+	 * @param value
+	 * 		The new value.
+	 */
+	public void setLong(int index, long value) 
+	{
+		check(index);
+		values.put(index, value);
+		markDirty();
+	}
+	
+	/**
+	 * Copies the values of this array into a new array.
+	 * 
+	 * @return
+	 * 		The values of this array.
+	 */
+	public long[] toArray() 
+	{
+		long[] array = new long[getLength()];
+		LongBuffer source = values.duplicate();
+		source.clear();
+		source.get(array);
+		return array;
+	}
+	
+	/**
+	 * Sets the values of this array from the given array, which must have at
+	 * most as many values as this array.
+	 * 
+	 * @param array
+	 * 		The new values, starting at index 0.
+	 */
+	public void set(long[] array) 
+	{
+		LongBuffer target = values.duplicate();
+		target.clear();
+		target.put(array);
+		markDirty();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void onView(ByteBuffer buffer) 
+	{
+		values = buffer.asLongBuffer();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void convert(ByteBuffer from, ByteBuffer to) 
+	{
+		to.asLongBuffer().put(from.asLongBuffer());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Data copy() 
+	{
+		return copyTo(new LongArray(getLength(), isDirect()));
+	}
+	
+}
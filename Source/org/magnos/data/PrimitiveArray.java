@@ -0,0 +1,248 @@
+/* 
+ * NOTICE OF LICENSE
+ * 
+ * This source file is subject to the Open Software License (OSL 3.0) that is 
+ * bundled with this package in the file LICENSE.txt. It is also available 
+ * through the world-wide-web at http://opensource.org/licenses/osl-3.0.php
+ * If you did not receive a copy of the license and are unable to obtain it 
+ * through the world-wide-web, please send an email to pdiffenderfer@gmail.com 
+ * so we can send you a copy immediately. If you use any of this software please
+ * notify me via my website or email, your feedback is much appreciated. 
+ * 
+ * @copyright   Copyright (c) 2011 Magnos Software (http://www.magnos.org)
+ * @license     http://opensource.org/licenses/osl-3.0.php
+ * 				Open Software License (OSL 3.0)
+ */
+
+package org.magnos.data;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+
+/**
+ * An array of fixed-size primitive values held in a single buffer instead of 
+ * one Var for each element. The whole array is read and written to a store 
+ * with a single get or put, and the buffer takes on the byte order of the 
+ * store it's transferred with. Subclasses access the elements through a typed
+ * view of the buffer which is recreated each time the order changes.
+ * 
+ * @author Philip Diffenderfer
+ *
+ */
+public abstract class PrimitiveArray extends AbstractData 
+{
+
+	// The number of elements in the array.
+	private final int count;
+	
+	// Whether the buffer is allocated outside of the heap.
+	private final boolean direct;
+	
+	// The bytes of every element in the array.
+	private ByteBuffer buffer;
+	
+	
+	/**
+	 * Instantiates a new PrimitiveArray.
+	 * 
+	 * @param count
+	 * 		The number of elements in the array.
+	 * @param width
+	 * 		The size of each element in bytes.
+	 * @param direct
+	 * 		Whether the elements are held in a direct buffer outside of the heap.
+	 */
+	protected PrimitiveArray(int count, int width, boolean direct) 
+	{
+		super((long)count * width);
+		if ((long)count * width > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("An array of " + count + " elements is too large");
+		}
+		this.count = count;
+		this.direct = direct;
+		this.buffer = allocate(count * width, ByteOrder.BIG_ENDIAN);
+		this.onView(buffer);
+	}
+	
+	/**
+	 * Creates the typed view of the elements. This is invoked every time the
+	 * buffer is replaced, which is when the byte order of the array changes.
+	 * 
+	 * @param buffer
+	 * 		The buffer holding the elements, in the byte order of the array.
+	 */
+	protected abstract void onView(ByteBuffer buffer);
+	
+	/**
+	 * Returns the number of elements in the array.
+	 * 
+	 * @return
+	 * 		The number of elements in the array.
+	 */
+	public int getLength() 
+	{
+		return count;
+	}
+	
+	/**
+	 * Returns whether the elements are held in a direct buffer.
+	 * 
+	 * @return
+	 * 		True if the elements are outside of the heap, otherwise false.
+	 */
+	public boolean isDirect()
+	{
+		return direct;
+	}
+	
+	/**
+	 * Returns the byte order the elements are currently held in.
+	 * 
+	 * @return
+	 * 		The byte order of the array.
+	 */
+	public ByteOrder getOrder()
+	{
+		return buffer.order();
+	}
+	
+	/**
+	 * Throws an IndexOutOfBoundsException if the given index is not in the 
+	 * array.
+	 * 
+	 * @param index
+	 * 		The index of an element.
+	 */
+	protected final void check(int index)
+	{
+		if (index < 0 || index >= count) {
+			throw new IndexOutOfBoundsException();
+		}
+	}
+	
+	/**
+	 * Copies the elements of this array into the given array.
+	 * 
+	 * @param copy
+	 * 		The array to copy into, of the same length.
+	 * @return
+	 * 		The given array.
+	 */
+	protected final <A extends PrimitiveArray> A copyTo(A copy)
+	{
+		PrimitiveArray target = copy;
+		ByteBuffer source = buffer.duplicate();
+		source.clear();
+		target.order(buffer.order());
+		target.buffer.clear();
+		target.buffer.put(source);
+		copy.setLocation(getLocation());
+		copy.setStore(getStore());
+		copy.setParent(getParent());
+		return copy;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void onRead(long location, Store store) 
+	{
+		// The bytes are taken as they are, they only need to be viewed in the
+		// order of the store.
+		buffer.clear();
+		if (buffer.order() != store.getOrder()) {
+			buffer.order(store.getOrder());
+			onView(buffer);
+		}
+		store.get(location, buffer);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void onWrite(long location, Store store) 
+	{
+		order(store.getOrder());
+		buffer.clear();
+		store.put(location, buffer);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void onRead(ByteBuffer staged, int index, Store stage) 
+	{
+		buffer.clear();
+		if (buffer.order() != staged.order()) {
+			buffer.order(staged.order());
+			onView(buffer);
+		}
+		ByteBuffer bytes = staged.duplicate();
+		bytes.limit(index + buffer.capacity());
+		bytes.position(index);
+		buffer.put(bytes);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void onWrite(ByteBuffer staged, int index, Store stage) 
+	{
+		order(staged.order());
+		buffer.clear();
+		ByteBuffer bytes = staged.duplicate();
+		bytes.position(index);
+		bytes.put(buffer);
+	}
+	
+	/**
+	 * Converts the elements to the given byte order, preserving their values.
+	 * 
+	 * @param order
+	 * 		The new byte order of the array.
+	 */
+	private void order(ByteOrder order)
+	{
+		if (buffer.order() != order) {
+			ByteBuffer reordered = allocate(buffer.capacity(), order);
+			buffer.clear();
+			convert(buffer, reordered);
+			buffer = reordered;
+			onView(buffer);
+		}
+	}
+	
+	/**
+	 * Copies the values of the elements from one buffer to another buffer of 
+	 * a different byte order.
+	 * 
+	 * @param from
+	 * 		The buffer to copy from.
+	 * @param to
+	 * 		The buffer to copy to.
+	 */
+	protected abstract void convert(ByteBuffer from, ByteBuffer to);
+	
+	/**
+	 * Allocates a buffer for the elements.
+	 * 
+	 * @param size
+	 * 		The size of the buffer in bytes.
+	 * @param order
+	 * 		The byte order of the buffer.
+	 * @return
+	 * 		The new buffer.
+	 */
+	private ByteBuffer allocate(int size, ByteOrder order)
+	{
+		ByteBuffer allocated = (direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size));
+		allocated.order(order);
+		return allocated;
+	}
+	
+}
@@ -0,0 +1,113 @@
+/* 
+ * NOTICE OF LICENSE
+ * 
+ * This source file is subject to the Open Software License (OSL 3.0) that is 
+ * bundled with this package in the file LICENSE.txt. It is also available 
+ * through the world-wide-web at http://opensource.org/licenses/osl-3.0.php
+ * If you did not receive a copy of the license and are unable to obtain it 
+ * through the world-wide-web, please send an email to pdiffenderfer@gmail.com 
+ * so we can send you a copy immediately. If you use any of this software please
+ * notify me via my website or email, your feedback is much appreciated. 
+ * 
+ * @copyright   Copyright (c) 2011 Magnos Software (http://www.magnos.org)
+ * @license     http://opensource.org/licenses/osl-3.0.php
+ * 				Open Software License (OSL 3.0)
+ */
+
+package org.magnos.data;
+
+import java.nio.ByteOrder;
+
+import org.magnos.data.store.MemoryStore;
+
+
+/**
+ * The memory stores data is staged in so the bytes of many pieces can be 
+ * read or written with a single store operation. A transfer borrows a store
+ * from its thread and releases it when done, and transfers nested within it
+ * (such as the elements of an array of arrays) borrow the next store. Each
+ * thread keeps a store of no more than {@link DataArray#STAGING_SIZE} bytes
+ * for each of the first {@link #DEPTH} nested transfers, any transfer which
+ * needs more or is nested deeper is given a store which is deleted when 
+ * it's released.
+ * 
+ * @author Philip Diffenderfer
+ *
+ */
+class Staging 
+{
+
+	/**
+	 * The number of nested transfers a thread keeps staging stores for.
+	 */
+	public static final int DEPTH = 4;
+	
+	// The staging stores of each thread.
+	private static final ThreadLocal<Staging> threads = new ThreadLocal<Staging>() {
+		protected Staging initialValue() {
+			return new Staging();
+		}
+	};
+	
+	// The kept store for each depth, created when first borrowed.
+	private final MemoryStore[] kept = new MemoryStore[DEPTH];
+	
+	// The number of stores currently borrowed.
+	private int depth;
+	
+	/**
+	 * Lends a staging store with at least the given number of bytes and the
+	 * given byte order to the calling thread. It must be released once the
+	 * transfer is done, before the transfer which enclosed it is released.
+	 * 
+	 * @param size
+	 * 		The number of bytes which will be staged.
+	 * @param order
+	 * 		The byte order of the store transferred to or from.
+	 * @return
+	 * 		The staging store.
+	 */
+	public static MemoryStore acquire(long size, ByteOrder order)
+	{
+		Staging staging = threads.get();
+		int d = staging.depth++;
+		
+		MemoryStore stage;
+		if (d < DEPTH && size <= DataArray.STAGING_SIZE) {
+			stage = staging.kept[d];
+			if (stage == null) {
+				stage = staging.kept[d] = new MemoryStore("staging", StoreAccess.ReadWrite, size);
+			}
+			else if (stage.capacity() < size) {
+				stage.capacity(size);
+			}
+		}
+		else {
+			stage = new MemoryStore("staging", StoreAccess.ReadWrite, size);
+		}
+		
+		if (stage.getOrder() != order) {
+			stage.setOrder(order);
+		}
+		return stage;
+	}
+	
+	/**
+	 * Returns the staging store most recently lent by 
+	 * {@link #acquire(long, ByteOrder)} to the calling thread. A store which 
+	 * isn't kept by the thread is deleted.
+	 * 
+	 * @param stage
+	 * 		The staging store to release.
+	 */
+	public static void release(MemoryStore stage)
+	{
+		Staging staging = threads.get();
+		int d = --staging.depth;
+		
+		if (d >= DEPTH || staging.kept[d] != stage) {
+			stage.delete();
+		}
+	}
+	
+}
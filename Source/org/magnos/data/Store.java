@@ -17,6 +17,9 @@
 package org.magnos.data;
 
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 import org.magnos.data.error.StoreAccessException;
 import org.magnos.data.error.StoreClosedException;
@@ -71,7 +74,7 @@ public interface Store
 	 * @throws StoreAccessException
 	 * 		The store does not have sufficient access to perform the operation.
 	 */
-	public StoreAccess create(StoreAccess initialAccess, int initialCapacity) throws StoreIOException, StoreAccessException;
+	public StoreAccess create(StoreAccess initialAccess, long initialCapacity) throws StoreIOException, StoreAccessException;
 	
 	/**
 	 * Explicitly opens this store for reading and writing. If this store has
@@ -119,6 +122,20 @@ public interface Store
 	 */
 	public void flush() throws StoreIOException, StoreClosedException;
 	
+	/**
+	 * Returns a future which completes once every write made to this store 
+	 * before this call has been flushed. If the store flushes groups of writes
+	 * in the background this waits for the next flush, otherwise the store is 
+	 * flushed now and the returned future is already complete. If the flush 
+	 * fails the future throws an ExecutionException with the cause.
+	 * 
+	 * @return
+	 * 		The future of the flush.
+	 * @throws StoreIOException
+	 * 		An error occurred in the implementation. See attached exception.
+	 */
+	public Future<Void> durable() throws StoreIOException;
+	
 	/**
  	 * Closes this store if not closed already. A closed store will throw 
 	 * exceptions when data is trying to be read from and written to.
@@ -156,7 +173,7 @@ public interface Store
 	 * @return
 	 * 		The store's size in bytes.
 	 */
-	public int capacity();
+	public long capacity();
 	
 	/**
 	 * Sets the stores size or capacity in bytes. If the given capacity is less
@@ -177,7 +194,7 @@ public interface Store
 	 * @throws StoreAccessException
 	 * 		The store does not have sufficient access to perform the operation.
 	 */
-	public int capacity(int newCapacity) throws StoreIOException, StoreClosedException, StoreAccessException;
+	public long capacity(long newCapacity) throws StoreIOException, StoreClosedException, StoreAccessException;
 	
 	/**
 	 * Returns the current access of this store to its persisted medium if any 
@@ -277,6 +294,27 @@ public interface Store
 	 */
 	public void setAutoLoad(boolean autoLoad);
 	
+	/**
+	 * Returns the order of the bytes of the primitives read and written with
+	 * the typed accessors of this store, which is big-endian by default.
+	 * 
+	 * @return
+	 * 		The byte order of this store.
+	 */
+	public ByteOrder getOrder();
+	
+	/**
+	 * Sets the order of the bytes of the primitives read and written with the
+	 * typed accessors of this store. In the native order of the platform 
+	 * memory and mapped stores read and write primitives without swapping 
+	 * bytes. The order is not persisted unless a {@link StoreHeader} is 
+	 * written to the store.
+	 * 
+	 * @param order
+	 * 		The new byte order of this store.
+	 */
+	public void setOrder(ByteOrder order);
+	
 	
 	/**
 	 * Writes the array of bytes to the store at the given location.
@@ -293,7 +331,7 @@ public interface Store
 	 * @throws StoreAccessException
 	 * 		The store does not have sufficient access to perform the operation.
 	 */
-	public void put(int location, byte[] bytes) throws StoreIOException, StoreClosedException, StoreAccessException;
+	public void put(long location, byte[] bytes) throws StoreIOException, StoreClosedException, StoreAccessException;
 	
 	/**
 	 * Writes a section in the array of bytes to the store at the given location.
@@ -314,7 +352,7 @@ public interface Store
 	 * @throws StoreAccessException
 	 * 		The store does not have sufficient access to perform the operation.
 	 */
-	public void put(int location, byte[] bytes, int offset, int length) throws StoreIOException, StoreClosedException, StoreAccessException;
+	public void put(long location, byte[] bytes, int offset, int length) throws StoreIOException, StoreClosedException, StoreAccessException;
 	
 	/**
 	 * Writes a ByteBuffer to the store at the given location.
@@ -332,7 +370,7 @@ public interface Store
 	 * @throws StoreAccessException
 	 * 		The store does not have sufficient access to perform the operation.
 	 */
-	public void put(int location, ByteBuffer buffer) throws StoreIOException, StoreClosedException, StoreAccessException;
+	public void put(long location, ByteBuffer buffer) throws StoreIOException, StoreClosedException, StoreAccessException;
 	
 
 	/**
@@ -350,7 +388,7 @@ public interface Store
 	 * @throws StoreAccessException
 	 * 		The store does not have sufficient access to perform the operation.
 	 */
-	public void get(int location, byte[] bytes) throws StoreIOException, StoreClosedException, StoreAccessException;
+	public void get(long location, byte[] bytes) throws StoreIOException, StoreClosedException, StoreAccessException;
 
 	/**
 	 * Reads from the store and puts it in a section in the array of bytes.
@@ -371,7 +409,7 @@ public interface Store
 	 * @throws StoreAccessException
 	 * 		The store does not have sufficient access to perform the operation.
 	 */
-	public void get(int location, byte[] bytes, int offset, int length) throws StoreIOException, StoreClosedException, StoreAccessException;
+	public void get(long location, byte[] bytes, int offset, int length) throws StoreIOException, StoreClosedException, StoreAccessException;
 
 	/**
 	 * Reads a ByteBuffer to the store at the given location.
@@ -389,7 +427,7 @@ public interface Store
 	 * @throws StoreAccessException
 	 * 		The store does not have sufficient access to perform the operation.
 	 */
-	public void get(int location, ByteBuffer buffer) throws StoreIOException, StoreClosedException, StoreAccessException;
+	public void get(long location, ByteBuffer buffer) throws StoreIOException, StoreClosedException, StoreAccessException;
 
 
 	/**
@@ -409,7 +447,374 @@ public interface Store
 	 * @throws StoreAccessException
 	 * 		The store does not have sufficient access to perform the operation.
 	 */
-	public byte[] get(int location, int size) throws StoreIOException, StoreClosedException, StoreAccessException;
+	public byte[] get(long location, int size) throws StoreIOException, StoreClosedException, StoreAccessException;
+	
+	/**
+	 * Writes every entry in the batch to the store. The whole batch is written
+	 * under a single lock acquisition and access check, and if the store 
+	 * automatically flushes it's flushed once after the batch is written. The
+	 * store may visit the entries in order of location, but the batch itself 
+	 * keeps the order it was built in.
+	 * 
+	 * @param batch
+	 * 		The batch of locations and buffers to write.
+	 * @throws StoreIOException
+	 * 		An error occurred in the implementation. See attached exception.
+	 * @throws StoreClosedException
+	 * 		The store is closed. If auto open is set to true this still may be
+	 * 		thrown if there was an error opening the store.
+	 * @throws StoreAccessException
+	 * 		The store does not have sufficient access to perform the operation.
+	 */
+	public void put(StoreBatch batch) throws StoreIOException, StoreClosedException, StoreAccessException;
+	
+	/**
+	 * Reads every entry in the batch from the store. The whole batch is read
+	 * under a single lock acquisition and access check. The store may visit 
+	 * the entries in order of location, but the batch itself keeps the order
+	 * it was built in.
+	 * 
+	 * @param batch
+	 * 		The batch of locations and buffers to read into.
+	 * @throws StoreIOException
+	 * 		An error occurred in the implementation. See attached exception.
+	 * @throws StoreClosedException
+	 * 		The store is closed. If auto open is set to true this still may be
+	 * 		thrown if there was an error opening the store.
+	 * @throws StoreAccessException
+	 * 		The store does not have sufficient access to perform the operation.
+	 */
+	public void get(StoreBatch batch) throws StoreIOException, StoreClosedException, StoreAccessException;
+	
+	/**
+	 * Gets a byte from the given location in the store without creating any
+	 * temporary arrays. Multi-byte values are read in the order of the store.
+	 * 
+	 * @param location
+	 * 		The offset to get the data, in bytes, from the beginning of the store.
+	 * @return
+	 * 		The byte read.
+	 * @throws StoreIOException
+	 * 		An error occurred in the implementation. See attached exception.
+	 * @throws StoreClosedException
+	 * 		The store is closed. If auto open is set to true this still may be
+	 * 		thrown if there was an error opening the store.
+	 * @throws StoreAccessException
+	 * 		The store does not have read permissions.
+	 */
+	public byte getByte(long location) throws StoreIOException, StoreClosedException, StoreAccessException;
+	
+	/**
+	 * Puts a byte at the given location in the store without creating any 
+	 * temporary arrays. Multi-byte values are written in the order of the store.
+	 * 
+	 * @param location
+	 * 		The offset to put the data, in bytes, from the beginning of the store.
+	 * @param value
+	 * 		The byte to write.
+	 * @throws StoreIOException
+	 * 		An error occurred in the implementation. See attached exception.
+	 * @throws StoreClosedException
+	 * 		The store is closed. If auto open is set to true this still may be
+	 * 		thrown if there was an error opening the store.
+	 * @throws StoreAccessException
+	 * 		The store does not have write permissions.
+	 */
+	public void putByte(long location, byte value) throws StoreIOException, StoreClosedException, StoreAccessException;
+	
+	/**
+	 * Gets a short from the given location in the store without creating any
+	 * temporary arrays. Multi-byte values are read in the order of the store.
+	 * 
+	 * @param location
+	 * 		The offset to get the data, in bytes, from the beginning of the store.
+	 * @return
+	 * 		The short read.
+	 * @throws StoreIOException
+	 * 		An error occurred in the implementation. See attached exception.
+	 * @throws StoreClosedException
+	 * 		The store is closed. If auto open is set to true this still may be
+	 * 		thrown if there was an error opening the store.
+	 * @throws StoreAccessException
+	 * 		The store does not have read permissions.
+	 */
+	public short getShort(long location) throws StoreIOException, StoreClosedException, StoreAccessException;
+	
+	/**
+	 * Puts a short at the given location in the store without creating any 
+	 * temporary arrays. Multi-byte values are written in the order of the store.
+	 * 
+	 * @param location
+	 * 		The offset to put the data, in bytes, from the beginning of the store.
+	 * @param value
+	 * 		The short to write.
+	 * @throws StoreIOException
+	 * 		An error occurred in the implementation. See attached exception.
+	 * @throws StoreClosedException
+	 * 		The store is closed. If auto open is set to true this still may be
+	 * 		thrown if there was an error opening the store.
+	 * @throws StoreAccessException
+	 * 		The store does not have write permissions.
+	 */
+	public void putShort(long location, short value) throws StoreIOException, StoreClosedException, StoreAccessException;
+	
+	/**
+	 * Gets an int from the given location in the store without creating any
+	 * temporary arrays. Multi-byte values are read in the order of the store.
+	 * 
+	 * @param location
+	 * 		The offset to get the data, in bytes, from the beginning of the store.
+	 * @return
+	 * 		The int read.
+	 * @throws StoreIOException
+	 * 		An error occurred in the implementation. See attached exception.
+	 * @throws StoreClosedException
+	 * 		The store is closed. If auto open is set to true this still may be
+	 * 		thrown if there was an error opening the store.
+	 * @throws StoreAccessException
+	 * 		The store does not have read permissions.
+	 */
+	public int getInt(long location) throws StoreIOException, StoreClosedException, StoreAccessException;
+	
+	/**
+	 * Puts an int at the given location in the store without creating any 
+	 * temporary arrays. Multi-byte values are written in the order of the store.
+	 * 
+	 * @param location
+	 * 		The offset to put the data, in bytes, from the beginning of the store.
+	 * @param value
+	 * 		The int to write.
+	 * @throws StoreIOException
+	 * 		An error occurred in the implementation. See attached exception.
+	 * @throws StoreClosedException
+	 * 		The store is closed. If auto open is set to true this still may be
+	 * 		thrown if there was an error opening the store.
+	 * @throws StoreAccessException
+	 * 		The store does not have write permissions.
+	 */
+	public void putInt(long location, int value) throws StoreIOException, StoreClosedException, StoreAccessException;
+	
+	/**
+	 * Gets a long from the given location in the store without creating any
+	 * temporary arrays. Multi-byte values are read in the order of the store.
+	 * 
+	 * @param location
+	 * 		The offset to get the data, in bytes, from the beginning of the store.
+	 * @return
+	 * 		The long read.
+	 * @throws StoreIOException
+	 * 		An error occurred in the implementation. See attached exception.
+	 * @throws StoreClosedException
+	 * 		The store is closed. If auto open is set to true this still may be
+	 * 		thrown if there was an error opening the store.
+	 * @throws StoreAccessException
+	 * 		The store does not have read permissions.
+	 */
+	public long getLong(long location) throws StoreIOException, StoreClosedException, StoreAccessException;
+	
+	/**
+	 * Puts a long at the given location in the store without creating any 
+	 * temporary arrays. Multi-byte values are written in the order of the store.
+	 * 
+	 * @param location
+	 * 		The offset to put the data, in bytes, from the beginning of the store.
+	 * @param value
+	 * 		The long to write.
+	 * @throws StoreIOException
+	 * 		An error occurred in the implementation. See attached exception.
+	 * @throws StoreClosedException
+	 * 		The store is closed. If auto open is set to true this still may be
+	 * 		thrown if there was an error opening the store.
+	 * @throws StoreAccessException
+	 * 		The store does not have write permissions.
+	 */
+	public void putLong(long location, long value) throws StoreIOException, StoreClosedException, StoreAccessException;
+	
+	/**
+	 * Replaces the masked bits of the 1, 2, 4, or 8 byte word at the given 
+	 * location as a single read-modify-write, so concurrent updates of other 
+	 * bits of the same word are not lost. Multi-byte words are in the order of
+	 * the store.
+	 * 
+	 * @param location
+	 * 		The offset of the word, in bytes, from the beginning of the store.
+	 * @param size
+	 * 		The size of the word in bytes, which is 1, 2, 4, or 8.
+	 * @param mask
+	 * 		The bits of the word to replace.
+	 * @param bits
+	 * 		The new values of the masked bits, the other bits are ignored.
+	 * @return
+	 * 		The updated word, unsigned for words smaller than 8 bytes.
+	 * @throws IllegalArgumentException
+	 * 		The size is not 1, 2, 4, or 8.
+	 * @throws StoreIOException
+	 * 		An error occurred in the implementation. See attached exception.
+	 * @throws StoreClosedException
+	 * 		The store is closed. If auto open is set to true this still may be
+	 * 		thrown if there was an error opening the store.
+	 * @throws StoreAccessException
+	 * 		The store does not have read and write permissions.
+	 */
+	public long putBits(long location, int size, long mask, long bits) throws StoreIOException, StoreClosedException, StoreAccessException;
+	
+	/**
+	 * Gets a float from the given location in the store without creating any
+	 * temporary arrays. Multi-byte values are read in the order of the store.
+	 * 
+	 * @param location
+	 * 		The offset to get the data, in bytes, from the beginning of the store.
+	 * @return
+	 * 		The float read.
+	 * @throws StoreIOException
+	 * 		An error occurred in the implementation. See attached exception.
+	 * @throws StoreClosedException
+	 * 		The store is closed. If auto open is set to true this still may be
+	 * 		thrown if there was an error opening the store.
+	 * @throws StoreAccessException
+	 * 		The store does not have read permissions.
+	 */
+	public float getFloat(long location) throws StoreIOException, StoreClosedException, StoreAccessException;
+	
+	/**
+	 * Puts a float at the given location in the store without creating any 
+	 * temporary arrays. Multi-byte values are written in the order of the store.
+	 * 
+	 * @param location
+	 * 		The offset to put the data, in bytes, from the beginning of the store.
+	 * @param value
+	 * 		The float to write.
+	 * @throws StoreIOException
+	 * 		An error occurred in the implementation. See attached exception.
+	 * @throws StoreClosedException
+	 * 		The store is closed. If auto open is set to true this still may be
+	 * 		thrown if there was an error opening the store.
+	 * @throws StoreAccessException
+	 * 		The store does not have write permissions.
+	 */
+	public void putFloat(long location, float value) throws StoreIOException, StoreClosedException, StoreAccessException;
+	
+	/**
+	 * Gets a double from the given location in the store without creating any
+	 * temporary arrays. Multi-byte values are read in the order of the store.
+	 * 
+	 * @param location
+	 * 		The offset to get the data, in bytes, from the beginning of the store.
+	 * @return
+	 * 		The double read.
+	 * @throws StoreIOException
+	 * 		An error occurred in the implementation. See attached exception.
+	 * @throws StoreClosedException
+	 * 		The store is closed. If auto open is set to true this still may be
+	 * 		thrown if there was an error opening the store.
+	 * @throws StoreAccessException
+	 * 		The store does not have read permissions.
+	 */
+	public double getDouble(long location) throws StoreIOException, StoreClosedException, StoreAccessException;
+	
+	/**
+	 * Puts a double at the given location in the store without creating any 
+	 * temporary arrays. Multi-byte values are written in the order of the store.
+	 * 
+	 * @param location
+	 * 		The offset to put the data, in bytes, from the beginning of the store.
+	 * @param value
+	 * 		The double to write.
+	 * @throws StoreIOException
+	 * 		An error occurred in the implementation. See attached exception.
+	 * @throws StoreClosedException
+	 * 		The store is closed. If auto open is set to true this still may be
+	 * 		thrown if there was an error opening the store.
+	 * @throws StoreAccessException
+	 * 		The store does not have write permissions.
+	 */
+	public void putDouble(long location, double value) throws StoreIOException, StoreClosedException, StoreAccessException;
+	
+	/**
+	 * Runs the given task asynchronously for this store. Stores which may 
+	 * block on a slow medium run the task on an executor, other stores run 
+	 * the task immediately on the calling thread and return a future which 
+	 * is already complete. Any exception thrown by the task is thrown from the
+	 * future as the cause of an ExecutionException.
+	 * 
+	 * @param task
+	 * 		The task to run, typically reads or writes on this store.
+	 * @return
+	 * 		The future of the task.
+	 */
+	public <T> Future<T> async(Callable<T> task);
+	
+	/**
+	 * Asynchronously puts the bytes between the buffers position and limit at
+	 * the given location in the store. The buffer must not be used until the 
+	 * returned future is done.
+	 * 
+	 * @param location
+	 * 		The offset to put the data, in bytes, from the beginning of the store.
+	 * @param buffer
+	 * 		The buffer to take the data from.
+	 * @return
+	 * 		The future of the write.
+	 * @see #async(Callable)
+	 */
+	public Future<Void> putAsync(long location, ByteBuffer buffer);
+	
+	/**
+	 * Asynchronously puts the array of bytes at the given location in the 
+	 * store. The array must not be modified until the returned future is done.
+	 * 
+	 * @param location
+	 * 		The offset to put the data, in bytes, from the beginning of the store.
+	 * @param bytes
+	 * 		The array of bytes to write.
+	 * @return
+	 * 		The future of the write.
+	 * @see #async(Callable)
+	 */
+	public Future<Void> putAsync(long location, byte[] bytes);
+	
+	/**
+	 * Asynchronously gets bytes from the given location in the store into the
+	 * buffer between its position and limit. The buffer must not be used until
+	 * the returned future is done.
+	 * 
+	 * @param location
+	 * 		The offset to get the data, in bytes, from the beginning of the store.
+	 * @param buffer
+	 * 		The buffer to read the data into.
+	 * @return
+	 * 		The future of the read.
+	 * @see #async(Callable)
+	 */
+	public Future<Void> getAsync(long location, ByteBuffer buffer);
+	
+	/**
+	 * Asynchronously gets bytes from the given location in the store into the
+	 * entire array. The array must not be used until the returned future is 
+	 * done.
+	 * 
+	 * @param location
+	 * 		The offset to get the data, in bytes, from the beginning of the store.
+	 * @param bytes
+	 * 		The array to read the data into.
+	 * @return
+	 * 		The future of the read.
+	 * @see #async(Callable)
+	 */
+	public Future<Void> getAsync(long location, byte[] bytes);
+	
+	/**
+	 * Asynchronously gets the given number of bytes from the given location 
+	 * in the store.
+	 * 
+	 * @param location
+	 * 		The offset to get the data, in bytes, from the beginning of the store.
+	 * @param size
+	 * 		The number of bytes to read.
+	 * @return
+	 * 		The future of the bytes read.
+	 * @see #async(Callable)
+	 */
+	public Future<byte[]> getAsync(long location, int size);
 	
 }
-
@@ -0,0 +1,265 @@
+/* 
+ * NOTICE OF LICENSE
+ * 
+ * This source file is subject to the Open Software License (OSL 3.0) that is 
+ * bundled with this package in the file LICENSE.txt. It is also available 
+ * through the world-wide-web at http://opensource.org/licenses/osl-3.0.php
+ * If you did not receive a copy of the license and are unable to obtain it 
+ * through the world-wide-web, please send an email to pdiffenderfer@gmail.com 
+ * so we can send you a copy immediately. If you use any of this software please
+ * notify me via my website or email, your feedback is much appreciated. 
+ * 
+ * @copyright   Copyright (c) 2011 Magnos Software (http://www.magnos.org)
+ * @license     http://opensource.org/licenses/osl-3.0.php
+ * 				Open Software License (OSL 3.0)
+ */
+
+package org.magnos.data;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+
+/**
+ * A batch of reads or writes to perform on a store at once. Each entry in the
+ * batch is a location in the store and a buffer, the bytes between the buffers
+ * position and limit are read or written at the location. A batch is executed
+ * by a store under a single lock acquisition, validation, and access check, so
+ * many small reads or writes cost about as much as one. The entries of a batch
+ * should not overlap.
+ * 
+ * @author Philip Diffenderfer
+ *
+ */
+public class StoreBatch 
+{
+
+	// The locations of the entries.
+	private long[] locations;
+	
+	// The buffers of the entries.
+	private ByteBuffer[] buffers;
+	
+	// The number of entries in the batch.
+	private int size;
+	
+	
+	/**
+	 * Instantiates a new StoreBatch.
+	 */
+	public StoreBatch()
+	{
+		this(16);
+	}
+	
+	/**
+	 * Instantiates a new StoreBatch.
+	 * 
+	 * @param capacity
+	 * 		The initial number of entries the batch can hold before growing.
+	 */
+	public StoreBatch(int capacity)
+	{
+		this.locations = new long[Math.max(capacity, 1)];
+		this.buffers = new ByteBuffer[Math.max(capacity, 1)];
+	}
+	
+	/**
+	 * Adds an entry to the batch.
+	 * 
+	 * @param location
+	 * 		The location in the store, the offset of bytes from the beginning.
+	 * @param buffer
+	 * 		The buffer to read into or write from. The bytes read or written are
+	 * 		the bytes between the buffers position and limit.
+	 * @return
+	 * 		The reference to this batch.
+	 */
+	public StoreBatch add(long location, ByteBuffer buffer)
+	{
+		if (size == locations.length) {
+			locations = Arrays.copyOf(locations, size << 1);
+			buffers = Arrays.copyOf(buffers, size << 1);
+		}
+		locations[size] = location;
+		buffers[size] = buffer;
+		size++;
+		return this;
+	}
+	
+	/**
+	 * Adds an entry to the batch.
+	 * 
+	 * @param location
+	 * 		The location in the store, the offset of bytes from the beginning.
+	 * @param bytes
+	 * 		The array of bytes to read into or write from.
+	 * @return
+	 * 		The reference to this batch.
+	 */
+	public StoreBatch add(long location, byte[] bytes)
+	{
+		return add(location, ByteBuffer.wrap(bytes));
+	}
+	
+	/**
+	 * Returns the number of entries in the batch.
+	 * 
+	 * @return
+	 * 		The number of entries.
+	 */
+	public int size()
+	{
+		return size;
+	}
+	
+	/**
+	 * Returns the location of the entry at the given index.
+	 * 
+	 * @param index
+	 * 		The index of the entry.
+	 * @return
+	 * 		The location in the store of the entry.
+	 */
+	public long getLocation(int index)
+	{
+		return locations[index];
+	}
+	
+	/**
+	 * Returns the buffer of the entry at the given index.
+	 * 
+	 * @param index
+	 * 		The index of the entry.
+	 * @return
+	 * 		The buffer of the entry.
+	 */
+	public ByteBuffer getBuffer(int index)
+	{
+		return buffers[index];
+	}
+	
+	/**
+	 * Returns the lowest location of any entry in the batch.
+	 * 
+	 * @return
+	 * 		The location in bytes, or 0 if the batch is empty.
+	 */
+	public long getStart()
+	{
+		long start = (size == 0 ? 0 : Long.MAX_VALUE);
+		for (int i = 0; i < size; i++) {
+			start = Math.min(start, locations[i]);
+		}
+		return start;
+	}
+	
+	/**
+	 * Returns the location just past the last byte of any entry in the batch.
+	 * 
+	 * @return
+	 * 		The location in bytes, or 0 if the batch is empty.
+	 */
+	public long getEnd()
+	{
+		long end = 0;
+		for (int i = 0; i < size; i++) {
+			end = Math.max(end, locations[i] + buffers[i].remaining());
+		}
+		return end;
+	}
+	
+	/**
+	 * Returns the total number of bytes between the position and limit of 
+	 * the buffers of every entry.
+	 * 
+	 * @return
+	 * 		The number of bytes read or written by the batch.
+	 */
+	public long getBytes()
+	{
+		long bytes = 0;
+		for (int i = 0; i < size; i++) {
+			bytes += buffers[i].remaining();
+		}
+		return bytes;
+	}
+	
+	/**
+	 * Returns the indices of the entries ordered by their location. Entries 
+	 * with the same location remain in the order they were added. The batch 
+	 * itself is not changed.
+	 * 
+	 * @return
+	 * 		The array of entry indices in location order.
+	 */
+	public int[] order()
+	{
+		int[] order = new int[size];
+		for (int i = 0; i < size; i++) {
+			order[i] = i;
+		}
+		
+		// Entries are usually added close to location order, so a merge sort
+		// which skips runs already in order does little work.
+		int[] temp = new int[size];
+		for (int width = 1; width < size; width <<= 1) {
+			for (int from = 0; from < size - width; from += width << 1) {
+				int middle = from + width;
+				int to = Math.min(middle + width, size);
+				if (locations[order[middle - 1]] > locations[order[middle]]) {
+					merge(order, temp, from, middle, to);
+				}
+			}
+		}
+		return order;
+	}
+	
+	/**
+	 * Sorts the entries in the batch by their location. Entries with the same
+	 * location remain in the order they were added. This reorders the entries
+	 * of the batch itself, use {@link #order()} to leave the batch in the 
+	 * order it was built.
+	 */
+	public void sort()
+	{
+		int[] order = order();
+		
+		long[] sortedLocations = new long[locations.length];
+		ByteBuffer[] sortedBuffers = new ByteBuffer[buffers.length];
+		for (int i = 0; i < size; i++) {
+			sortedLocations[i] = locations[order[i]];
+			sortedBuffers[i] = buffers[order[i]];
+		}
+		locations = sortedLocations;
+		buffers = sortedBuffers;
+	}
+	
+	/**
+	 * Merges two adjacent sorted runs of entry indices.
+	 */
+	private void merge(int[] order, int[] temp, int from, int middle, int to)
+	{
+		System.arraycopy(order, from, temp, from, to - from);
+		int i = from;
+		int j = middle;
+		for (int k = from; k < to; k++) {
+			if (j == to || (i < middle && locations[temp[i]] <= locations[temp[j]])) {
+				order[k] = temp[i++];
+			}
+			else {
+				order[k] = temp[j++];
+			}
+		}
+	}
+	
+	/**
+	 * Removes all entries from the batch.
+	 */
+	public void clear()
+	{
+		Arrays.fill(buffers, 0, size, null);
+		size = 0;
+	}
+	
+}
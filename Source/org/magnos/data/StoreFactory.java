@@ -16,6 +16,8 @@
 
 package org.magnos.data;
 
+import java.nio.ByteOrder;
+
 /**
  * A factory for creating stores given their name and their desired capacity.
  * 
@@ -37,7 +39,24 @@ public interface StoreFactory
 	 * @return
 	 * 		The reference to a newly instantiated store with the given name.
 	 */
-	public Store create(String name, int capacity);
+	public Store create(String name, long capacity);
+	
+	/**
+	 * Creates a store given its name, desired capacity, and the order of the
+	 * bytes of the primitives read and written to it.
+	 * 
+	 * @param name
+	 * 		The name of the store. If the store is persistable this may be the
+	 * 		file name to the file to which the store is persisted. If the store
+	 * 		is memory based then it is merely a reference.
+	 * @param capacity
+	 * 		The desired capacity of the store in bytes.
+	 * @param order
+	 * 		The byte order of the store.
+	 * @return
+	 * 		The reference to a newly instantiated store with the given name.
+	 */
+	public Store create(String name, long capacity, ByteOrder order);
 	
 	/**
 	 * Creates a store given its name.
@@ -0,0 +1,182 @@
+/* 
+ * NOTICE OF LICENSE
+ * 
+ * This source file is subject to the Open Software License (OSL 3.0) that is 
+ * bundled with this package in the file LICENSE.txt. It is also available 
+ * through the world-wide-web at http://opensource.org/licenses/osl-3.0.php
+ * If you did not receive a copy of the license and are unable to obtain it 
+ * through the world-wide-web, please send an email to pdiffenderfer@gmail.com 
+ * so we can send you a copy immediately. If you use any of this software please
+ * notify me via my website or email, your feedback is much appreciated. 
+ * 
+ * @copyright   Copyright (c) 2011 Magnos Software (http://www.magnos.org)
+ * @license     http://opensource.org/licenses/osl-3.0.php
+ * 				Open Software License (OSL 3.0)
+ */
+
+package org.magnos.data;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+
+import org.magnos.data.error.StoreIOException;
+
+
+/**
+ * An optional header which records how a store was written, placed at the
+ * start of the store (or any location) by the application. The header is a 
+ * magic number followed by the byte order of the store, both written in the 
+ * same layout regardless of the order. Writing a header records the order it
+ * holds and reading a header sets the order of the store it was read from, 
+ * so a store created in native order is read back in native order.
+ * 
+ * @author Philip Diffenderfer
+ *
+ */
+public class StoreHeader extends AbstractData 
+{
+
+	// The size of the header in bytes.
+	public static final int SIZE = 8;
+	
+	// The number which starts every header.
+	public static final int MAGIC = 0x44415045;
+	
+	// The flag of a big-endian store.
+	private static final byte BIG_ENDIAN = 0;
+	
+	// The flag of a little-endian store.
+	private static final byte LITTLE_ENDIAN = 1;
+	
+	// The byte order of the store.
+	private ByteOrder order;
+	
+	/**
+	 * Instantiates a new big-endian StoreHeader.
+	 */
+	public StoreHeader()
+	{
+		this(null, 0, ByteOrder.BIG_ENDIAN);
+	}
+	
+	/**
+	 * Instantiates a new StoreHeader.
+	 * 
+	 * @param order
+	 * 		The byte order of the store.
+	 */
+	public StoreHeader(ByteOrder order)
+	{
+		this(null, 0, order);
+	}
+	
+	/**
+	 * Instantiates a new StoreHeader at the start of the given store with the
+	 * byte order of the store.
+	 * 
+	 * @param store
+	 * 		The initial store.
+	 */
+	public StoreHeader(Store store)
+	{
+		this(store, 0, store.getOrder());
+	}
+	
+	/**
+	 * Instantiates a new StoreHeader.
+	 * 
+	 * @param store
+	 * 		The initial store.
+	 * @param location
+	 * 		The initial location.
+	 * @param order
+	 * 		The byte order of the store.
+	 */
+	public StoreHeader(Store store, long location, ByteOrder order)
+	{
+		super(SIZE);
+		this.setStore(store);
+		this.setLocation(location);
+		this.order = order;
+	}
+	
+	/**
+	 * Returns the byte order of the store.
+	 * 
+	 * @return
+	 * 		The byte order recorded by this header.
+	 */
+	public ByteOrder getOrder()
+	{
+		return order;
+	}
+	
+	/**
+	 * Sets the byte order of the store, but does not write it to the store.
+	 * 
+	 * @param order
+	 * 		The byte order to record.
+	 */
+	public void setOrder(ByteOrder order)
+	{
+		this.order = order;
+	}
+	
+	/**
+	 * Returns whether the store has a header at the given location.
+	 * 
+	 * @param store
+	 * 		The store to check.
+	 * @param location
+	 * 		The location of the header.
+	 * @return
+	 * 		True if the magic number of a header is at the location.
+	 */
+	public static boolean exists(Store store, long location)
+	{
+		if (store.capacity() < location + SIZE) {
+			return false;
+		}
+		return Bits.getInt(store.get(location, 4)) == MAGIC;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void onRead(long location, Store store) 
+	{
+		byte[] b = store.get(location, SIZE);
+		
+		if (Bits.getInt(b) != MAGIC) {
+			throw new StoreIOException(new IOException("Invalid store header at: " + location));
+		}
+		order = (b[4] == LITTLE_ENDIAN ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+		
+		store.setOrder(order);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void onWrite(long location, Store store) 
+	{
+		byte[] b = new byte[SIZE];
+		Bits.getIntBytes(MAGIC, b);
+		b[4] = (order == ByteOrder.LITTLE_ENDIAN ? LITTLE_ENDIAN : BIG_ENDIAN);
+		
+		store.put(location, b);
+		store.setOrder(order);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Data copy() 
+	{
+		return new StoreHeader(getStore(), getLocation(), order);
+	}
+
+}
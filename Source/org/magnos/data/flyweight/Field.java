@@ -0,0 +1,53 @@
+/* 
+ * NOTICE OF LICENSE
+ * 
+ * This source file is subject to the Open Software License (OSL 3.0) that is 
+ * bundled with this package in the file LICENSE.txt. It is also available 
+ * through the world-wide-web at http://opensource.org/licenses/osl-3.0.php
+ * If you did not receive a copy of the license and are unable to obtain it 
+ * through the world-wide-web, please send an email to pdiffenderfer@gmail.com 
+ * so we can send you a copy immediately. If you use any of this software please
+ * notify me via my website or email, your feedback is much appreciated. 
+ * 
+ * @copyright   Copyright (c) 2011 Magnos Software (http://www.magnos.org)
+ * @license     http://opensource.org/licenses/osl-3.0.php
+ * 				Open Software License (OSL 3.0)
+ */
+
+package org.magnos.data.flyweight;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a getter of a {@link Flyweight} interface as a field of the record.
+ * A getter is named getX or isX and returns a boolean, byte, short, char,
+ * int, long, float, double, or String. The field may have a setter named 
+ * setX in the interface as well. Fields are laid out in the order they're 
+ * declared unless they are given an explicit offset.
+ * 
+ * @author Philip Diffenderfer
+ *
+ */
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.METHOD)
+public @interface Field 
+{
+
+	/**
+	 * The number of bytes of a String field. This is required for a String
+	 * and ignored for all other types, which have a fixed size.
+	 */
+	public int length() default 0;
+	
+	/**
+	 * The offset of the field from the start of the record in bytes. By 
+	 * default a field starts where the previous field ends.
+	 */
+	public long offset() default -1;
+	
+}
@@ -0,0 +1,47 @@
+/* 
+ * NOTICE OF LICENSE
+ * 
+ * This source file is subject to the Open Software License (OSL 3.0) that is 
+ * bundled with this package in the file LICENSE.txt. It is also available 
+ * through the world-wide-web at http://opensource.org/licenses/osl-3.0.php
+ * If you did not receive a copy of the license and are unable to obtain it 
+ * through the world-wide-web, please send an email to pdiffenderfer@gmail.com 
+ * so we can send you a copy immediately. If you use any of this software please
+ * notify me via my website or email, your feedback is much appreciated. 
+ * 
+ * @copyright   Copyright (c) 2011 Magnos Software (http://www.magnos.org)
+ * @license     http://opensource.org/licenses/osl-3.0.php
+ * 				Open Software License (OSL 3.0)
+ */
+
+package org.magnos.data.flyweight;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an interface which describes a fixed-size record. The 
+ * FlyweightProcessor generates a class in the same package which implements 
+ * the interface by reading and writing each {@link Field} directly in a 
+ * Store at a constant offset from the location of the record. A single 
+ * instance of the generated class can be moved over any number of records.
+ * 
+ * @author Philip Diffenderfer
+ *
+ */
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface Flyweight 
+{
+
+	/**
+	 * The simple name of the generated class. By default this is the name of
+	 * the interface followed by Flyweight.
+	 */
+	public String name() default "";
+	
+}
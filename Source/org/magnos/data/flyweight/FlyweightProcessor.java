@@ -0,0 +1,348 @@
+/* 
+ * NOTICE OF LICENSE
+ * 
+ * This source file is subject to the Open Software License (OSL 3.0) that is 
+ * bundled with this package in the file LICENSE.txt. It is also available 
+ * through the world-wide-web at http://opensource.org/licenses/osl-3.0.php
+ * If you did not receive a copy of the license and are unable to obtain it 
+ * through the world-wide-web, please send an email to pdiffenderfer@gmail.com 
+ * so we can send you a copy immediately. If you use any of this software please
+ * notify me via my website or email, your feedback is much appreciated. 
+ * 
+ * @copyright   Copyright (c) 2011 Magnos Software (http://www.magnos.org)
+ * @license     http://opensource.org/licenses/osl-3.0.php
+ * 				Open Software License (OSL 3.0)
+ */
+
+package org.magnos.data.flyweight;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.JavaFileObject;
+
+/**
+ * Generates the flyweight classes of interfaces annotated with 
+ * {@link Flyweight}. The generated class has a store and a location and 
+ * implements every field getter and setter with a single Store accessor at
+ * a constant offset from the location, so accessing a record allocates 
+ * nothing beyond the values of String fields.
+ * <br/>
+ * The processor is registered in META-INF/services, so it runs whenever an
+ * annotated interface is compiled with this library on the classpath.
+ * 
+ * @author Philip Diffenderfer
+ *
+ */
+@SupportedAnnotationTypes("org.magnos.data.flyweight.Flyweight")
+public class FlyweightProcessor extends AbstractProcessor 
+{
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public SourceVersion getSupportedSourceVersion() 
+	{
+		return SourceVersion.latestSupported();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) 
+	{
+		for (Element element : round.getElementsAnnotatedWith(Flyweight.class)) {
+			if (element.getKind() != ElementKind.INTERFACE) {
+				error("Only an interface can be a @Flyweight", element);
+				continue;
+			}
+			generate((TypeElement)element);
+		}
+		return true;
+	}
+	
+	/**
+	 * Generates the flyweight class of the given interface.
+	 * 
+	 * @param type
+	 * 		The interface annotated with Flyweight.
+	 */
+	private void generate(TypeElement type) 
+	{
+		Map<String, Property> properties = new LinkedHashMap<String, Property>();
+		List<ExecutableElement> setters = new ArrayList<ExecutableElement>();
+		boolean valid = true;
+		
+		// Gather the fields from the getters and check the rest of the methods.
+		for (Element member : type.getEnclosedElements()) {
+			if (member.getKind() != ElementKind.METHOD) {
+				continue;
+			}
+			ExecutableElement method = (ExecutableElement)member;
+			String name = method.getSimpleName().toString();
+			Field field = method.getAnnotation(Field.class);
+			
+			if (field != null) {
+				Property property = property(method, field);
+				if (property == null) {
+					valid = false;
+				}
+				else {
+					properties.put(property.name, property);
+				}
+			}
+			else if (name.startsWith("set") && method.getParameters().size() == 1 &&
+					method.getReturnType().getKind() == TypeKind.VOID) {
+				setters.add(method);
+			}
+			else if (!method.getModifiers().contains(Modifier.STATIC)) {
+				error("A method of a @Flyweight must be a @Field getter or a setter", method);
+				valid = false;
+			}
+		}
+		
+		for (ExecutableElement setter : setters) {
+			Property property = properties.get(setter.getSimpleName().toString().substring(3));
+			TypeMirror parameter = setter.getParameters().get(0).asType();
+			if (property == null || !processingEnv.getTypeUtils().isSameType(parameter, property.getter.getReturnType())) {
+				error("A setter of a @Flyweight must match a @Field getter", setter);
+				valid = false;
+			}
+			else {
+				property.setter = true;
+			}
+		}
+		
+		if (!valid) {
+			return;
+		}
+		
+		// Lay out the fields in order, unless they have an explicit offset.
+		long size = 0;
+		for (Property property : properties.values()) {
+			if (property.offset == -1) {
+				property.offset = size;
+			}
+			size = Math.max(size, property.offset + property.size);
+		}
+		
+		String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+		String className = type.getAnnotation(Flyweight.class).name();
+		if (className.length() == 0) {
+			className = type.getSimpleName() + "Flyweight";
+		}
+		String qualifiedName = (packageName.length() == 0 ? className : packageName + "." + className);
+		
+		try {
+			JavaFileObject file = processingEnv.getFiler().createSourceFile(qualifiedName, type);
+			Writer out = file.openWriter();
+			try {
+				out.write(source(packageName, className, type, properties.values(), size));
+			}
+			finally {
+				out.close();
+			}
+		}
+		catch (IOException e) {
+			error("Unable to write " + qualifiedName + ": " + e.getMessage(), type);
+		}
+	}
+	
+	/**
+	 * Returns the property of the given @Field getter, or null if the getter
+	 * is not valid.
+	 */
+	private Property property(ExecutableElement getter, Field field) 
+	{
+		String name = getter.getSimpleName().toString();
+		TypeMirror type = getter.getReturnType();
+		
+		Property property = new Property();
+		property.getter = getter;
+		property.offset = field.offset();
+		
+		if (name.startsWith("get") && name.length() > 3) {
+			property.name = name.substring(3);
+		}
+		else if (name.startsWith("is") && name.length() > 2 && type.getKind() == TypeKind.BOOLEAN) {
+			property.name = name.substring(2);
+		}
+		else {
+			error("A @Field must be named getX, or isX for a boolean", getter);
+			return null;
+		}
+		if (!getter.getParameters().isEmpty()) {
+			error("A @Field getter must not have parameters", getter);
+			return null;
+		}
+		if (property.offset < -1) {
+			error("A @Field offset must not be negative", getter);
+			return null;
+		}
+		
+		switch (type.getKind()) {
+		case BOOLEAN:
+		case BYTE:
+			property.size = 1;
+			break;
+		case SHORT:
+		case CHAR:
+			property.size = 2;
+			break;
+		case INT:
+		case FLOAT:
+			property.size = 4;
+			break;
+		case LONG:
+		case DOUBLE:
+			property.size = 8;
+			break;
+		default:
+			if (!type.toString().equals("java.lang.String")) {
+				error("A @Field must be a primitive or a String", getter);
+				return null;
+			}
+			if (field.length() <= 0) {
+				error("A String @Field must have a length", getter);
+				return null;
+			}
+			property.size = field.length();
+			break;
+		}
+		return property;
+	}
+	
+	/**
+	 * Returns the source of the flyweight class.
+	 */
+	private String source(String packageName, String className, TypeElement type, Iterable<Property> properties, long size) 
+	{
+		StringBuilder s = new StringBuilder();
+		if (packageName.length() > 0) {
+			s.append("package ").append(packageName).append(";\n\n");
+		}
+		s.append("import org.magnos.data.Bits;\n");
+		s.append("import org.magnos.data.Store;\n");
+		s.append("import org.magnos.data.flyweight.Flyweights;\n\n");
+		s.append("/**\n");
+		s.append(" * The flyweight of ").append(type.getSimpleName()).append(", generated by the FlyweightProcessor.\n");
+		s.append(" */\n");
+		s.append("public final class ").append(className).append(" implements ").append(type.getQualifiedName()).append("\n{\n\n");
+		
+		s.append("\t/**\n\t * The size of a record in bytes.\n\t */\n");
+		s.append("\tpublic static final long SIZE = ").append(size).append("L;\n\n");
+		for (Property p : properties) {
+			s.append("\t/**\n\t * The offset of the ").append(p.name).append(" field in bytes.\n\t */\n");
+			s.append("\tpublic static final long ").append(p.constant()).append(" = ").append(p.offset).append("L;\n\n");
+		}
+		
+		s.append("\t// The store the record is in.\n");
+		s.append("\tprivate Store store;\n\n");
+		s.append("\t// The location of the record in the store.\n");
+		s.append("\tprivate long location;\n\n");
+		
+		s.append("\tpublic ").append(className).append("()\n\t{\n\t}\n\n");
+		s.append("\tpublic ").append(className).append("(Store store, long location)\n\t{\n");
+		s.append("\t\tthis.store = store;\n\t\tthis.location = location;\n\t}\n\n");
+		
+		s.append("\tpublic ").append(className).append(" moveTo(long location)\n\t{\n");
+		s.append("\t\tthis.location = location;\n\t\treturn this;\n\t}\n\n");
+		s.append("\tpublic ").append(className).append(" moveTo(Store store, long location)\n\t{\n");
+		s.append("\t\tthis.store = store;\n\t\tthis.location = location;\n\t\treturn this;\n\t}\n\n");
+		s.append("\tpublic Store getStore()\n\t{\n\t\treturn store;\n\t}\n\n");
+		s.append("\tpublic long getLocation()\n\t{\n\t\treturn location;\n\t}\n\n");
+		
+		for (Property p : properties) {
+			String at = "location + " + p.constant();
+			String returnType = p.getter.getReturnType().toString();
+			
+			s.append("\tpublic ").append(returnType).append(" ").append(p.getter.getSimpleName()).append("()\n\t{\n\t\treturn ");
+			switch (p.getter.getReturnType().getKind()) {
+			case BOOLEAN: s.append("Bits.getBoolean(store.getByte(").append(at).append("))"); break;
+			case BYTE: s.append("store.getByte(").append(at).append(")"); break;
+			case SHORT: s.append("store.getShort(").append(at).append(")"); break;
+			case CHAR: s.append("(char)store.getShort(").append(at).append(")"); break;
+			case INT: s.append("store.getInt(").append(at).append(")"); break;
+			case LONG: s.append("store.getLong(").append(at).append(")"); break;
+			case FLOAT: s.append("store.getFloat(").append(at).append(")"); break;
+			case DOUBLE: s.append("store.getDouble(").append(at).append(")"); break;
+			default: s.append("Flyweights.getString(store, ").append(at).append(", ").append(p.size).append(")"); break;
+			}
+			s.append(";\n\t}\n\n");
+			
+			if (p.setter) {
+				s.append("\tpublic void set").append(p.name).append("(").append(returnType).append(" value)\n\t{\n\t\t");
+				switch (p.getter.getReturnType().getKind()) {
+				case BOOLEAN: s.append("store.putByte(").append(at).append(", Bits.getBooleanBytes(value))"); break;
+				case BYTE: s.append("store.putByte(").append(at).append(", value)"); break;
+				case SHORT: s.append("store.putShort(").append(at).append(", value)"); break;
+				case CHAR: s.append("store.putShort(").append(at).append(", (short)value)"); break;
+				case INT: s.append("store.putInt(").append(at).append(", value)"); break;
+				case LONG: s.append("store.putLong(").append(at).append(", value)"); break;
+				case FLOAT: s.append("store.putFloat(").append(at).append(", value)"); break;
+				case DOUBLE: s.append("store.putDouble(").append(at).append(", value)"); break;
+				default: s.append("Flyweights.putString(store, ").append(at).append(", ").append(p.size).append(", value)"); break;
+				}
+				s.append(";\n\t}\n\n");
+			}
+		}
+		
+		s.append("}\n");
+		return s.toString();
+	}
+	
+	/**
+	 * Reports an error on the given element.
+	 */
+	private void error(String message, Element element) 
+	{
+		processingEnv.getMessager().printMessage(Kind.ERROR, message, element);
+	}
+	
+	/**
+	 * A field of a flyweight.
+	 */
+	private static class Property 
+	{
+		// The name of the field, without the get, is, or set prefix.
+		private String name;
+		
+		// The getter of the field.
+		private ExecutableElement getter;
+		
+		// Whether the interface has a setter for the field.
+		private boolean setter;
+		
+		// The offset of the field in bytes.
+		private long offset;
+		
+		// The size of the field in bytes.
+		private long size;
+		
+		// Returns the name of the offset constant of the field.
+		private String constant() 
+		{
+			return "OFFSET_" + name.replaceAll("([a-z0-9])([A-Z])", "$1_$2").toUpperCase();
+		}
+	}
+	
+}
@@ -0,0 +1,83 @@
+/* 
+ * NOTICE OF LICENSE
+ * 
+ * This source file is subject to the Open Software License (OSL 3.0) that is 
+ * bundled with this package in the file LICENSE.txt. It is also available 
+ * through the world-wide-web at http://opensource.org/licenses/osl-3.0.php
+ * If you did not receive a copy of the license and are unable to obtain it 
+ * through the world-wide-web, please send an email to pdiffenderfer@gmail.com 
+ * so we can send you a copy immediately. If you use any of this software please
+ * notify me via my website or email, your feedback is much appreciated. 
+ * 
+ * @copyright   Copyright (c) 2011 Magnos Software (http://www.magnos.org)
+ * @license     http://opensource.org/licenses/osl-3.0.php
+ * 				Open Software License (OSL 3.0)
+ */
+
+package org.magnos.data.flyweight;
+
+import java.nio.charset.Charset;
+
+import org.magnos.data.Store;
+
+/**
+ * Access to the fields of generated flyweights which don't map to a single
+ * primitive accessor of a Store. Strings are encoded in ISO-8859-1, null-
+ * terminated when shorter than the field and padded with zeros, which is the
+ * same layout as the default StringVar.
+ * 
+ * @author Philip Diffenderfer
+ *
+ */
+public class Flyweights 
+{
+
+	// The charset of string fields.
+	private static final Charset LATIN_1 = Charset.forName("ISO-8859-1");
+	
+	/**
+	 * Reads a string field from the store.
+	 * 
+	 * @param store
+	 * 		The store to read from.
+	 * @param location
+	 * 		The location of the field in the store.
+	 * @param length
+	 * 		The number of bytes of the field.
+	 * @return
+	 * 		The string up to the first null character.
+	 */
+	public static String getString(Store store, long location, int length) 
+	{
+		byte[] bytes = store.get(location, length);
+		int end = 0;
+		while (end < length && bytes[end] != 0) {
+			end++;
+		}
+		return new String(bytes, 0, end, LATIN_1);
+	}
+	
+	/**
+	 * Writes a string field to the store, truncating the string if it's
+	 * longer than the field.
+	 * 
+	 * @param store
+	 * 		The store to write to.
+	 * @param location
+	 * 		The location of the field in the store.
+	 * @param length
+	 * 		The number of bytes of the field.
+	 * @param value
+	 * 		The string to write, where null is written as an empty string.
+	 */
+	public static void putString(Store store, long location, int length, String value) 
+	{
+		byte[] bytes = new byte[length];
+		if (value != null) {
+			byte[] encoded = value.getBytes(LATIN_1);
+			System.arraycopy(encoded, 0, bytes, 0, Math.min(length, encoded.length));
+		}
+		store.put(location, bytes);
+	}
+	
+}
@@ -0,0 +1,845 @@
+/* 
+ * NOTICE OF LICENSE
+ * 
+ * This source file is subject to the Open Software License (OSL 3.0) that is 
+ * bundled with this package in the file LICENSE.txt. It is also available 
+ * through the world-wide-web at http://opensource.org/licenses/osl-3.0.php
+ * If you did not receive a copy of the license and are unable to obtain it 
+ * through the world-wide-web, please send an email to pdiffenderfer@gmail.com 
+ * so we can send you a copy immediately. If you use any of this software please
+ * notify me via my website or email, your feedback is much appreciated. 
+ * 
+ * @copyright   Copyright (c) 2011 Magnos Software (http://www.magnos.org)
+ * @license     http://opensource.org/licenses/osl-3.0.php
+ * 				Open Software License (OSL 3.0)
+ */
+
+package org.magnos.data.index;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.magnos.data.Store;
+import org.magnos.data.error.StoreIOException;
+import org.magnos.data.store.CachedStore;
+
+/**
+ * A B+tree in a Store which maps fixed-size keys to long values, such as the
+ * ids of records in a RecordStore. Every node is a page of the store, so a 
+ * lookup reads one page for each level of the tree. The page size should 
+ * match the I/O size of the store, by default the page size of a 
+ * CachedStore.
+ * <br/>
+ * Keys are compared as unsigned bytes. The keyOf methods encode numbers so 
+ * their bytes sort in numeric order. Leaves are linked in key order for 
+ * range scans, and a tree can be bulk loaded from sorted keys by writing 
+ * each page once. Removing a key never merges pages.
+ * <br/>
+ * The first page holds the magic number, key size, page size, height, root, 
+ * number of pages, and number of keys. Every other page is a node with a 
+ * type, a number of entries, and a link: the next leaf of a leaf, or the 
+ * first child of an internal node. The entries follow as a key and a long,
+ * which is a value in a leaf and the child holding keys at least as large 
+ * as the key in an internal node.
+ * 
+ * @author Philip Diffenderfer
+ *
+ */
+public class BPlusTree 
+{
+	
+	/**
+	 * The default size of a page in bytes.
+	 */
+	public static final int DEFAULT_PAGE_SIZE = CachedStore.DEFAULT_PAGE_SIZE;
+	
+	/**
+	 * The number which starts the first page.
+	 */
+	public static final int MAGIC = 0x42505452;
+	
+	// The size of the header of a node in bytes.
+	private static final int HEADER_SIZE = 16;
+	
+	// The types of nodes.
+	private static final byte LEAF = 1;
+	private static final byte INTERNAL = 2;
+	
+	// The link of the last leaf.
+	private static final long NONE = -1L;
+	
+	// The minimum number of pages the store grows by.
+	private static final int GROWTH = 16;
+	
+	// The locations of the fields of the first page.
+	private static final int META_MAGIC = 0;
+	private static final int META_KEY_SIZE = 4;
+	private static final int META_PAGE_SIZE = 8;
+	private static final int META_HEIGHT = 12;
+	private static final int META_ROOT = 16;
+	private static final int META_PAGES = 24;
+	private static final int META_SIZE = 32;
+	
+	// The store the tree is in.
+	private final Store store;
+	
+	// The location of the first page in the store.
+	private final long location;
+	
+	// The size of a key in bytes.
+	private final int keySize;
+	
+	// The size of a page in bytes.
+	private final int pageSize;
+	
+	// The size of an entry in bytes.
+	private final int entrySize;
+	
+	// The most entries a node holds.
+	private final int maxEntries;
+	
+	// The node being read or changed.
+	private final ByteBuffer page;
+	
+	// The new node of a split.
+	private final ByteBuffer sibling;
+	
+	// The page of the root node.
+	private long root;
+	
+	// The number of levels of nodes.
+	private int height;
+	
+	// The number of pages, including the first.
+	private long pageCount;
+	
+	// The number of keys in the tree.
+	private long size;
+	
+	
+	/**
+	 * Instantiates a new BPlusTree with pages of the default size at the 
+	 * start of the given store.
+	 * 
+	 * @param store
+	 * 		The open store the tree is in.
+	 * @param keySize
+	 * 		The size of a key in bytes.
+	 */
+	public BPlusTree(Store store, int keySize) 
+	{
+		this(store, 0, keySize, DEFAULT_PAGE_SIZE);
+	}
+	
+	/**
+	 * Instantiates a new BPlusTree. If the store has a tree at the given 
+	 * location it's opened, otherwise a new empty tree is written there.
+	 * 
+	 * @param store
+	 * 		The open store the tree is in.
+	 * @param location
+	 * 		The location of the first page of the tree in the store.
+	 * @param keySize
+	 * 		The size of a key in bytes.
+	 * @param pageSize
+	 * 		The size of a page in bytes, which must hold at least 3 entries.
+	 * @throws StoreIOException
+	 * 		The tree in the store has a different key or page size.
+	 */
+	public BPlusTree(Store store, long location, int keySize, int pageSize) 
+	{
+		if (keySize <= 0) {
+			throw new IllegalArgumentException("A key must be at least one byte");
+		}
+		this.store = store;
+		this.location = location;
+		this.keySize = keySize;
+		this.pageSize = pageSize;
+		this.entrySize = keySize + 8;
+		this.maxEntries = (pageSize - HEADER_SIZE) / entrySize;
+		if (maxEntries < 3 || pageSize < META_SIZE + 8) {
+			throw new IllegalArgumentException("A page of " + pageSize + " bytes is too small for keys of " + keySize + " bytes");
+		}
+		this.page = ByteBuffer.allocate(pageSize);
+		this.sibling = ByteBuffer.allocate(pageSize);
+		
+		if (location + pageSize <= store.capacity() && store.getInt(location + META_MAGIC) == MAGIC) {
+			int existingKey = store.getInt(location + META_KEY_SIZE);
+			int existingPage = store.getInt(location + META_PAGE_SIZE);
+			if (existingKey != keySize || existingPage != pageSize) {
+				throw new StoreIOException(new IOException("The tree at: " + location + " has keys of " + existingKey + " bytes and pages of " + existingPage));
+			}
+			height = store.getInt(location + META_HEIGHT);
+			root = store.getLong(location + META_ROOT);
+			pageCount = store.getLong(location + META_PAGES);
+			size = store.getLong(location + META_SIZE);
+		}
+		else {
+			pageCount = 1;
+			clear();
+			store.putInt(location + META_MAGIC, MAGIC);
+			store.putInt(location + META_KEY_SIZE, keySize);
+			store.putInt(location + META_PAGE_SIZE, pageSize);
+			writeMeta();
+		}
+	}
+	
+	/**
+	 * Returns the value of the given key.
+	 * 
+	 * @param key
+	 * 		The key to find.
+	 * @return
+	 * 		The value of the key, or null if the tree doesn't have the key.
+	 */
+	public synchronized Long get(byte[] key) 
+	{
+		checkKey(key);
+		long id = root;
+		for (int level = 1; level < height; level++) {
+			read(id, page);
+			id = child(page, key);
+		}
+		read(id, page);
+		int i = lowerBound(page, key);
+		if (i < count(page) && compare(key, page, i) == 0) {
+			return page.getLong(entry(i) + keySize);
+		}
+		return null;
+	}
+	
+	/**
+	 * Puts the given key and value in the tree, replacing the value if the 
+	 * tree already has the key.
+	 * 
+	 * @param key
+	 * 		The key.
+	 * @param value
+	 * 		The value of the key.
+	 * @return
+	 * 		True if the key was added, false if its value was replaced.
+	 */
+	public synchronized boolean put(byte[] key, long value) 
+	{
+		checkKey(key);
+		long[] path = new long[height];
+		long id = root;
+		for (int level = 0; level < height - 1; level++) {
+			path[level] = id;
+			read(id, page);
+			id = child(page, key);
+		}
+		path[height - 1] = id;
+		read(id, page);
+		
+		int i = lowerBound(page, key);
+		int count = count(page);
+		if (i < count && compare(key, page, i) == 0) {
+			page.putLong(entry(i) + keySize, value);
+			write(id, page);
+			return false;
+		}
+		
+		byte[] entry = new byte[entrySize];
+		System.arraycopy(key, 0, entry, 0, keySize);
+		ByteBuffer.wrap(entry).putLong(keySize, value);
+		
+		if (count < maxEntries) {
+			insert(page, i, entry);
+			write(id, page);
+		}
+		else {
+			// The upper half of the leaf and the new entry move to a new leaf,
+			// and the first key of the new leaf goes up to the parent.
+			byte[] entries = split(page, i, entry);
+			int left = (count + 1) / 2;
+			long right = newPage();
+			
+			fill(sibling, LEAF, page.getLong(8), entries, left, count + 1);
+			fill(page, LEAF, right, entries, 0, left);
+			write(id, page);
+			write(right, sibling);
+			
+			byte[] promoted = new byte[keySize];
+			System.arraycopy(entries, left * entrySize, promoted, 0, keySize);
+			insertParent(path, height - 2, promoted, right);
+		}
+		size++;
+		writeMeta();
+		return true;
+	}
+	
+	/**
+	 * Removes the given key from the tree. The leaf of the key is not merged 
+	 * with its siblings if it becomes small or empty.
+	 * 
+	 * @param key
+	 * 		The key to remove.
+	 * @return
+	 * 		True if the key was removed, false if the tree didn't have it.
+	 */
+	public synchronized boolean remove(byte[] key) 
+	{
+		checkKey(key);
+		long id = root;
+		for (int level = 1; level < height; level++) {
+			read(id, page);
+			id = child(page, key);
+		}
+		read(id, page);
+		int i = lowerBound(page, key);
+		int count = count(page);
+		if (i == count || compare(key, page, i) != 0) {
+			return false;
+		}
+		byte[] bytes = page.array();
+		System.arraycopy(bytes, entry(i + 1), bytes, entry(i), (count - i - 1) * entrySize);
+		setCount(page, count - 1);
+		write(id, page);
+		size--;
+		writeMeta();
+		return true;
+	}
+	
+	/**
+	 * Returns a cursor over the keys from the given key up to but not 
+	 * including the other given key, in order.
+	 * 
+	 * @param from
+	 * 		The first key of the range, or null to start at the smallest key.
+	 * @param to
+	 * 		The key after the range, or null to end at the largest key.
+	 * @return
+	 * 		A cursor before the first key of the range.
+	 */
+	public synchronized Cursor range(byte[] from, byte[] to) 
+	{
+		if (from != null) {
+			checkKey(from);
+		}
+		if (to != null) {
+			checkKey(to);
+		}
+		ByteBuffer leaf = ByteBuffer.allocate(pageSize);
+		long id = root;
+		for (int level = 1; level < height; level++) {
+			read(id, leaf);
+			id = (from == null ? leaf.getLong(8) : child(leaf, from));
+		}
+		read(id, leaf);
+		return new Cursor(leaf, (from == null ? 0 : lowerBound(leaf, from)), to);
+	}
+	
+	/**
+	 * Loads an empty tree with the given keys, which must be in increasing 
+	 * order. Each page is filled and written once, from the leaves up.
+	 * 
+	 * @param keys
+	 * 		The keys in increasing order.
+	 * @param values
+	 * 		The value of each key.
+	 * @throws IllegalStateException
+	 * 		The tree is not empty.
+	 * @throws IllegalArgumentException
+	 * 		The keys are not in increasing order.
+	 */
+	public synchronized void bulkLoad(byte[][] keys, long[] values) 
+	{
+		if (size != 0) {
+			throw new IllegalStateException("Only an empty tree can be bulk loaded");
+		}
+		if (keys.length != values.length) {
+			throw new IllegalArgumentException("There must be a value for each key");
+		}
+		for (int i = 0; i < keys.length; i++) {
+			checkKey(keys[i]);
+			if (i > 0 && compare(keys[i - 1], keys[i]) >= 0) {
+				throw new IllegalArgumentException("The keys must be in increasing order");
+			}
+		}
+		if (keys.length == 0) {
+			return;
+		}
+		
+		// The leaves are allocated in order, so each links to the next page.
+		pageCount = 1;
+		int n = keys.length;
+		int nodes = (n + maxEntries - 1) / maxEntries;
+		long[] children = new long[nodes];
+		byte[][] firstKeys = new byte[nodes][];
+		for (int j = 0; j < nodes; j++) {
+			int start = j * maxEntries;
+			int end = Math.min(n, start + maxEntries);
+			long id = newPage();
+			page.clear();
+			page.put(0, LEAF);
+			setCount(page, end - start);
+			page.putLong(8, j + 1 < nodes ? id + 1 : NONE);
+			for (int i = start; i < end; i++) {
+				page.position(entry(i - start));
+				page.put(keys[i]);
+				page.putLong(values[i]);
+			}
+			write(id, page);
+			children[j] = id;
+			firstKeys[j] = keys[start];
+		}
+		height = 1;
+		
+		// Each level above has a node for every maxEntries + 1 children.
+		while (children.length > 1) {
+			int fanout = maxEntries + 1;
+			int parents = (children.length + fanout - 1) / fanout;
+			long[] parentIds = new long[parents];
+			byte[][] parentKeys = new byte[parents][];
+			for (int j = 0; j < parents; j++) {
+				int start = j * fanout;
+				int end = Math.min(children.length, start + fanout);
+				long id = newPage();
+				page.clear();
+				page.put(0, INTERNAL);
+				setCount(page, end - start - 1);
+				page.putLong(8, children[start]);
+				for (int k = start + 1; k < end; k++) {
+					page.position(entry(k - start - 1));
+					page.put(firstKeys[k]);
+					page.putLong(children[k]);
+				}
+				write(id, page);
+				parentIds[j] = id;
+				parentKeys[j] = firstKeys[start];
+			}
+			children = parentIds;
+			firstKeys = parentKeys;
+			height++;
+		}
+		root = children[0];
+		size = n;
+		writeMeta();
+	}
+	
+	/**
+	 * Returns the number of keys in the tree.
+	 * 
+	 * @return
+	 * 		The number of keys.
+	 */
+	public synchronized long size() 
+	{
+		return size;
+	}
+	
+	/**
+	 * Returns the number of levels of nodes, which is the number of pages 
+	 * read by a lookup.
+	 * 
+	 * @return
+	 * 		The height of the tree.
+	 */
+	public synchronized int getHeight() 
+	{
+		return height;
+	}
+	
+	/**
+	 * Returns the number of pages used by the tree.
+	 * 
+	 * @return
+	 * 		The number of pages.
+	 */
+	public synchronized long getPageCount() 
+	{
+		return pageCount;
+	}
+	
+	/**
+	 * Returns the size of a key in bytes.
+	 * 
+	 * @return
+	 * 		The size of a key.
+	 */
+	public int getKeySize() 
+	{
+		return keySize;
+	}
+	
+	/**
+	 * Returns the size of a page in bytes.
+	 * 
+	 * @return
+	 * 		The size of a page.
+	 */
+	public int getPageSize() 
+	{
+		return pageSize;
+	}
+	
+	/**
+	 * Returns the most entries a node holds.
+	 * 
+	 * @return
+	 * 		The maximum entries of a node.
+	 */
+	public int getMaxEntries() 
+	{
+		return maxEntries;
+	}
+	
+	/**
+	 * Inserts a key and the page holding keys at least as large into the 
+	 * internal node at the given level of the path, splitting it or adding 
+	 * a new root as necessary.
+	 */
+	private void insertParent(long[] path, int level, byte[] key, long child) 
+	{
+		byte[] entry = new byte[entrySize];
+		System.arraycopy(key, 0, entry, 0, keySize);
+		ByteBuffer.wrap(entry).putLong(keySize, child);
+		
+		if (level < 0) {
+			long id = newPage();
+			page.clear();
+			page.put(0, INTERNAL);
+			setCount(page, 0);
+			page.putLong(8, root);
+			insert(page, 0, entry);
+			write(id, page);
+			root = id;
+			height++;
+			return;
+		}
+		
+		long id = path[level];
+		read(id, page);
+		int count = count(page);
+		int i = upperBound(page, key);
+		if (count < maxEntries) {
+			insert(page, i, entry);
+			write(id, page);
+			return;
+		}
+		
+		// The middle key goes up to the parent, and its child becomes the 
+		// first child of the new node.
+		byte[] entries = split(page, i, entry);
+		int middle = (count + 1) / 2;
+		long right = newPage();
+		long first = ByteBuffer.wrap(entries).getLong(middle * entrySize + keySize);
+		
+		fill(sibling, INTERNAL, first, entries, middle + 1, count + 1);
+		fill(page, INTERNAL, page.getLong(8), entries, 0, middle);
+		write(id, page);
+		write(right, sibling);
+		
+		byte[] promoted = new byte[keySize];
+		System.arraycopy(entries, middle * entrySize, promoted, 0, keySize);
+		insertParent(path, level - 1, promoted, right);
+	}
+	
+	/**
+	 * Returns the entries of a full node with the given entry inserted at the
+	 * given index.
+	 */
+	private byte[] split(ByteBuffer node, int index, byte[] entry) 
+	{
+		int count = count(node);
+		byte[] entries = new byte[(count + 1) * entrySize];
+		System.arraycopy(node.array(), entry(0), entries, 0, index * entrySize);
+		System.arraycopy(entry, 0, entries, index * entrySize, entrySize);
+		System.arraycopy(node.array(), entry(index), entries, (index + 1) * entrySize, (count - index) * entrySize);
+		return entries;
+	}
+	
+	/**
+	 * Fills a node with a range of the given entries.
+	 */
+	private void fill(ByteBuffer node, byte type, long link, byte[] entries, int start, int end) 
+	{
+		node.clear();
+		node.put(0, type);
+		setCount(node, end - start);
+		node.putLong(8, link);
+		System.arraycopy(entries, start * entrySize, node.array(), entry(0), (end - start) * entrySize);
+	}
+	
+	/**
+	 * Inserts an entry into a node with room at the given index.
+	 */
+	private void insert(ByteBuffer node, int index, byte[] entry) 
+	{
+		int count = count(node);
+		byte[] bytes = node.array();
+		System.arraycopy(bytes, entry(index), bytes, entry(index + 1), (count - index) * entrySize);
+		System.arraycopy(entry, 0, bytes, entry(index), entrySize);
+		setCount(node, count + 1);
+	}
+	
+	/**
+	 * Returns the child of an internal node which holds the given key.
+	 */
+	private long child(ByteBuffer node, byte[] key) 
+	{
+		int i = upperBound(node, key);
+		return (i == 0 ? node.getLong(8) : node.getLong(entry(i - 1) + keySize));
+	}
+	
+	/**
+	 * Returns the index of the first entry with a key at least the given key.
+	 */
+	private int lowerBound(ByteBuffer node, byte[] key) 
+	{
+		int low = 0;
+		int high = count(node);
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (compare(key, node, mid) > 0) {
+				low = mid + 1;
+			}
+			else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+	
+	/**
+	 * Returns the index of the first entry with a key larger than the given key.
+	 */
+	private int upperBound(ByteBuffer node, byte[] key) 
+	{
+		int low = 0;
+		int high = count(node);
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (compare(key, node, mid) >= 0) {
+				low = mid + 1;
+			}
+			else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+	
+	/**
+	 * Compares the given key to the key of an entry as unsigned bytes.
+	 */
+	private int compare(byte[] key, ByteBuffer node, int index) 
+	{
+		byte[] bytes = node.array();
+		int offset = entry(index);
+		for (int i = 0; i < keySize; i++) {
+			int difference = (key[i] & 0xFF) - (bytes[offset + i] & 0xFF);
+			if (difference != 0) {
+				return difference;
+			}
+		}
+		return 0;
+	}
+	
+	/**
+	 * Compares two keys as unsigned bytes.
+	 */
+	private int compare(byte[] a, byte[] b) 
+	{
+		for (int i = 0; i < keySize; i++) {
+			int difference = (a[i] & 0xFF) - (b[i] & 0xFF);
+			if (difference != 0) {
+				return difference;
+			}
+		}
+		return 0;
+	}
+	
+	/**
+	 * Allocates a page at the end of the tree, growing the store by several
+	 * pages at a time.
+	 */
+	private long newPage() 
+	{
+		long id = pageCount++;
+		long needed = location + pageCount * pageSize;
+		long capacity = store.capacity();
+		if (needed > capacity) {
+			long pages = Math.max(0, (capacity - location) / pageSize);
+			long grown = Math.max(pageCount, pages + Math.max(GROWTH, pages / 2));
+			store.capacity(location + grown * pageSize);
+		}
+		return id;
+	}
+	
+	/**
+	 * Empties the tree, leaving a single empty leaf as the root.
+	 */
+	private void clear() 
+	{
+		root = newPage();
+		height = 1;
+		size = 0;
+		fill(page, LEAF, NONE, new byte[0], 0, 0);
+		write(root, page);
+	}
+	
+	private void read(long id, ByteBuffer node) 
+	{
+		node.clear();
+		store.get(location + id * pageSize, node);
+		node.clear();
+	}
+	
+	private void write(long id, ByteBuffer node) 
+	{
+		node.clear();
+		store.put(location + id * pageSize, node);
+		node.clear();
+	}
+	
+	private void writeMeta() 
+	{
+		store.putInt(location + META_HEIGHT, height);
+		store.putLong(location + META_ROOT, root);
+		store.putLong(location + META_PAGES, pageCount);
+		store.putLong(location + META_SIZE, size);
+	}
+	
+	private int entry(int index) 
+	{
+		return HEADER_SIZE + index * entrySize;
+	}
+	
+	private static int count(ByteBuffer node) 
+	{
+		return node.getShort(2) & 0xFFFF;
+	}
+	
+	private static void setCount(ByteBuffer node, int count) 
+	{
+		node.putShort(2, (short)count);
+	}
+	
+	private void checkKey(byte[] key) 
+	{
+		if (key.length != keySize) {
+			throw new IllegalArgumentException("A key must be " + keySize + " bytes");
+		}
+	}
+	
+	/**
+	 * Returns the 8 byte key of the given number, which sorts in numeric order.
+	 * 
+	 * @param x
+	 * 		The number.
+	 * @return
+	 * 		The key of the number.
+	 */
+	public static byte[] keyOf(long x) 
+	{
+		return ByteBuffer.allocate(8).putLong(0, x ^ Long.MIN_VALUE).array();
+	}
+	
+	/**
+	 * Returns the 4 byte key of the given number, which sorts in numeric order.
+	 * 
+	 * @param x
+	 * 		The number.
+	 * @return
+	 * 		The key of the number.
+	 */
+	public static byte[] keyOf(int x) 
+	{
+		return ByteBuffer.allocate(4).putInt(0, x ^ Integer.MIN_VALUE).array();
+	}
+	
+	/**
+	 * A position in the leaves of the tree which moves forward through a 
+	 * range of keys. The tree should not be changed while a cursor is used.
+	 * 
+	 * @author Philip Diffenderfer
+	 *
+	 */
+	public class Cursor 
+	{
+		
+		// The current leaf.
+		private final ByteBuffer leaf;
+		
+		// The key after the range, or null.
+		private final byte[] to;
+		
+		// The current key.
+		private final byte[] key;
+		
+		// The index of the next entry in the leaf.
+		private int index;
+		
+		// The current value.
+		private long value;
+		
+		// Whether the cursor has moved past the range.
+		private boolean done;
+		
+		private Cursor(ByteBuffer leaf, int index, byte[] to) 
+		{
+			this.leaf = leaf;
+			this.index = index;
+			this.to = to;
+			this.key = new byte[keySize];
+		}
+		
+		/**
+		 * Moves to the next key of the range.
+		 * 
+		 * @return
+		 * 		True if the cursor moved to a key, false if the range has ended.
+		 */
+		public boolean next() 
+		{
+			if (done) {
+				return false;
+			}
+			synchronized (BPlusTree.this) {
+				while (index >= count(leaf)) {
+					long next = leaf.getLong(8);
+					if (next == NONE) {
+						done = true;
+						return false;
+					}
+					read(next, leaf);
+					index = 0;
+				}
+			}
+			if (to != null && compare(to, leaf, index) <= 0) {
+				done = true;
+				return false;
+			}
+			System.arraycopy(leaf.array(), entry(index), key, 0, keySize);
+			value = leaf.getLong(entry(index) + keySize);
+			index++;
+			return true;
+		}
+		
+		/**
+		 * Returns the current key. The array is reused by each move.
+		 * 
+		 * @return
+		 * 		The current key.
+		 */
+		public byte[] getKey() 
+		{
+			return key;
+		}
+		
+		/**
+		 * Returns the value of the current key.
+		 * 
+		 * @return
+		 * 		The current value.
+		 */
+		public long getValue() 
+		{
+			return value;
+		}
+		
+	}
+	
+}
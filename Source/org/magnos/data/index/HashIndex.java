@@ -0,0 +1,608 @@
+/* 
+ * NOTICE OF LICENSE
+ * 
+ * This source file is subject to the Open Software License (OSL 3.0) that is 
+ * bundled with this package in the file LICENSE.txt. It is also available 
+ * through the world-wide-web at http://opensource.org/licenses/osl-3.0.php
+ * If you did not receive a copy of the license and are unable to obtain it 
+ * through the world-wide-web, please send an email to pdiffenderfer@gmail.com 
+ * so we can send you a copy immediately. If you use any of this software please
+ * notify me via my website or email, your feedback is much appreciated. 
+ * 
+ * @copyright   Copyright (c) 2011 Magnos Software (http://www.magnos.org)
+ * @license     http://opensource.org/licenses/osl-3.0.php
+ * 				Open Software License (OSL 3.0)
+ */
+
+package org.magnos.data.index;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.magnos.data.Store;
+import org.magnos.data.error.StoreIOException;
+
+/**
+ * A hash table in a Store which maps fixed-size keys to long values, for
+ * exact lookups which are cheaper than a BPlusTree. The table uses linear 
+ * probing, so a lookup reads consecutive slots until it finds the key or an
+ * empty slot, and a slot is a single small read. Lookups and removals 
+ * allocate nothing.
+ * <br/>
+ * When the table is three quarters full a table twice as large is placed 
+ * after it in the store, and each following put or remove moves a few slots
+ * of the old table into the new one. Until every slot has moved, lookups 
+ * check the new table and then the old one. Removing from the new table 
+ * shifts the following entries back instead of leaving a marker, while 
+ * entries in the old table are marked as moved or removed since the old 
+ * table is only read until it's dropped. A new table never fits in the 
+ * space of the tables before it, since each is twice the last, so that 
+ * space is left unused and the tables end at about twice the size of the 
+ * current table after the header. {@link #compact()} moves the table back 
+ * to just after the header and shrinks the store, so the store holds only
+ * the current table, and three times that while the next resize is moving.
+ * <br/>
+ * Everything is kept in the store, so the table is used as is after the 
+ * store is reopened, even in the middle of a resize. The header holds a 
+ * magic number, the key size, the number of keys, the location and 
+ * capacity of the table and the old table, and the next old slot to move.
+ * 
+ * @author Philip Diffenderfer
+ *
+ */
+public class HashIndex 
+{
+	
+	/**
+	 * The size of the header in bytes.
+	 */
+	public static final int HEADER_SIZE = 56;
+	
+	/**
+	 * The number which starts the header.
+	 */
+	public static final int MAGIC = 0x48494458;
+	
+	/**
+	 * The default number of slots of a new table.
+	 */
+	public static final int DEFAULT_CAPACITY = 1024;
+	
+	/**
+	 * The number of old slots moved into the new table by each change.
+	 */
+	public static final int MIGRATE_STEP = 8;
+	
+	// The locations of the header fields, relative to the header.
+	private static final int HEADER_MAGIC = 0;
+	private static final int HEADER_KEY_SIZE = 4;
+	private static final int HEADER_SIZE_FIELD = 8;
+	
+	// The states of a slot.
+	private static final byte EMPTY = 0;
+	private static final byte FULL = 1;
+	private static final byte MOVED = 2;
+	
+	// The locations of the fields of a slot.
+	private static final int SLOT_VALUE = 8;
+	private static final int SLOT_KEY = 16;
+	
+	// The store the table is in.
+	private final Store store;
+	
+	// The location of the header in the store.
+	private final long location;
+	
+	// The size of a key in bytes.
+	private final int keySize;
+	
+	// The size of a slot in bytes, a multiple of 8.
+	private final int slotSize;
+	
+	// The slot being read.
+	private final ByteBuffer slot;
+	
+	// The slot being written.
+	private final ByteBuffer moving;
+	
+	// The fields of the header which change, written with a single put.
+	private final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE - HEADER_SIZE_FIELD);
+	
+	// The number of keys.
+	private long size;
+	
+	// The location and number of slots of the table.
+	private long table;
+	private long capacity;
+	
+	// The location and number of slots of the old table, or -1 and 0.
+	private long oldTable;
+	private long oldCapacity;
+	
+	// The next slot of the old table to move into the table.
+	private long migrated;
+	
+	
+	/**
+	 * Instantiates a new HashIndex at the start of the given store.
+	 * 
+	 * @param store
+	 * 		The open store the table is in.
+	 * @param keySize
+	 * 		The size of a key in bytes.
+	 */
+	public HashIndex(Store store, int keySize) 
+	{
+		this(store, 0, keySize, DEFAULT_CAPACITY);
+	}
+	
+	/**
+	 * Instantiates a new HashIndex. If the store has a table at the given 
+	 * location it's opened, otherwise a new empty table is written there.
+	 * 
+	 * @param store
+	 * 		The open store the table is in.
+	 * @param location
+	 * 		The location of the header in the store.
+	 * @param keySize
+	 * 		The size of a key in bytes.
+	 * @param initialCapacity
+	 * 		The number of slots of a new table, rounded up to a power of 2.
+	 * @throws StoreIOException
+	 * 		The table in the store has a different key size.
+	 */
+	public HashIndex(Store store, long location, int keySize, int initialCapacity) 
+	{
+		if (keySize <= 0) {
+			throw new IllegalArgumentException("A key must be at least one byte");
+		}
+		if (initialCapacity < 1) {
+			throw new IllegalArgumentException("A table must have at least one slot");
+		}
+		this.store = store;
+		this.location = location;
+		this.keySize = keySize;
+		this.slotSize = (SLOT_KEY + keySize + 7) & ~7;
+		this.slot = ByteBuffer.allocate(slotSize);
+		this.moving = ByteBuffer.allocate(slotSize);
+		
+		if (location + HEADER_SIZE <= store.capacity() && store.getInt(location + HEADER_MAGIC) == MAGIC) {
+			int existing = store.getInt(location + HEADER_KEY_SIZE);
+			if (existing != keySize) {
+				throw new StoreIOException(new IOException("The table at: " + location + " has keys of " + existing + " bytes"));
+			}
+			ByteBuffer fields = ByteBuffer.allocate(header.capacity());
+			fields.order(store.getOrder());
+			store.get(location + HEADER_SIZE_FIELD, fields);
+			fields.flip();
+			size = fields.getLong();
+			table = fields.getLong();
+			capacity = fields.getLong();
+			oldTable = fields.getLong();
+			oldCapacity = fields.getLong();
+			migrated = fields.getLong();
+		}
+		else {
+			capacity = Integer.highestOneBit(Math.max(2, initialCapacity) * 2 - 1);
+			table = location + HEADER_SIZE;
+			oldTable = -1;
+			clear(table, capacity);
+			store.putInt(location + HEADER_MAGIC, MAGIC);
+			store.putInt(location + HEADER_KEY_SIZE, keySize);
+			writeHeader();
+		}
+	}
+	
+	/**
+	 * Returns the value of the given key.
+	 * 
+	 * @param key
+	 * 		The key to find.
+	 * @param missing
+	 * 		The value to return if the table doesn't have the key.
+	 * @return
+	 * 		The value of the key, or missing.
+	 */
+	public synchronized long get(byte[] key, long missing) 
+	{
+		checkKey(key);
+		long hash = hash(key);
+		if (find(table, capacity, hash, key) != -1 || 
+			(oldTable != -1 && find(oldTable, oldCapacity, hash, key) != -1)) {
+			return slot.getLong(SLOT_VALUE);
+		}
+		return missing;
+	}
+	
+	/**
+	 * Returns whether the table has the given key.
+	 * 
+	 * @param key
+	 * 		The key to find.
+	 * @return
+	 * 		True if the table has the key.
+	 */
+	public synchronized boolean containsKey(byte[] key) 
+	{
+		checkKey(key);
+		long hash = hash(key);
+		return find(table, capacity, hash, key) != -1 || 
+			(oldTable != -1 && find(oldTable, oldCapacity, hash, key) != -1);
+	}
+	
+	/**
+	 * Puts the given key and value in the table, replacing the value if the 
+	 * table already has the key.
+	 * 
+	 * @param key
+	 * 		The key.
+	 * @param value
+	 * 		The value of the key.
+	 * @return
+	 * 		True if the key was added, false if its value was replaced.
+	 */
+	public synchronized boolean put(byte[] key, long value) 
+	{
+		checkKey(key);
+		migrate(MIGRATE_STEP);
+		long hash = hash(key);
+		
+		long index = find(table, capacity, hash, key);
+		if (index != -1) {
+			store.putLong(slotLocation(table, index) + SLOT_VALUE, value);
+			writeHeader();
+			return false;
+		}
+		
+		// A key in the old table moves to the new table with its new value.
+		boolean added = true;
+		if (oldTable != -1) {
+			long old = find(oldTable, oldCapacity, hash, key);
+			if (old != -1) {
+				store.putByte(slotLocation(oldTable, old), MOVED);
+				added = false;
+			}
+		}
+		if (added && oldTable == -1 && (size + 1) * 4 > capacity * 3) {
+			resize();
+			migrate(MIGRATE_STEP);
+		}
+		
+		moving.clear();
+		moving.order(store.getOrder());
+		moving.put(0, FULL);
+		moving.putLong(SLOT_VALUE, value);
+		moving.position(SLOT_KEY);
+		moving.put(key);
+		insert(hash);
+		
+		if (added) {
+			size++;
+		}
+		writeHeader();
+		return added;
+	}
+	
+	/**
+	 * Removes the given key from the table.
+	 * 
+	 * @param key
+	 * 		The key to remove.
+	 * @return
+	 * 		True if the key was removed, false if the table didn't have it.
+	 */
+	public synchronized boolean remove(byte[] key) 
+	{
+		checkKey(key);
+		migrate(MIGRATE_STEP);
+		long hash = hash(key);
+		
+		long index = find(table, capacity, hash, key);
+		if (index != -1) {
+			delete(index);
+		}
+		else if (oldTable != -1 && (index = find(oldTable, oldCapacity, hash, key)) != -1) {
+			store.putByte(slotLocation(oldTable, index), MOVED);
+		}
+		else {
+			writeHeader();
+			return false;
+		}
+		size--;
+		writeHeader();
+		return true;
+	}
+	
+	/**
+	 * Moves the table to just after the header, reclaiming the space of the
+	 * tables it replaced, and shrinks the store to end with the table if the
+	 * table was at the end of the store. A resize in progress is finished 
+	 * first. This reads and writes every slot of the table, and the table is
+	 * not usable in the store until it returns.
+	 * 
+	 * @return
+	 * 		The number of bytes the store shrank by.
+	 */
+	public synchronized long compact() 
+	{
+		while (oldTable != -1) {
+			migrate((int)Math.min(Integer.MAX_VALUE, oldCapacity));
+		}
+		
+		long start = location + HEADER_SIZE;
+		long bytes = capacity * slotSize;
+		long end = table + bytes;
+		
+		if (table != start) {
+			// The table only moves back, so each chunk is read before it's overwritten.
+			byte[] chunk = new byte[(int)Math.min(bytes, 1 << 20)];
+			for (long offset = 0; offset < bytes; offset += chunk.length) {
+				int length = (int)Math.min(chunk.length, bytes - offset);
+				store.get(table + offset, chunk, 0, length);
+				store.put(start + offset, chunk, 0, length);
+			}
+			table = start;
+		}
+		writeHeader();
+		
+		long shrunk = 0;
+		if (store.capacity() == end && end > start + bytes) {
+			store.capacity(start + bytes);
+			shrunk = end - start - bytes;
+		}
+		return shrunk;
+	}
+	
+	/**
+	 * Returns the number of keys in the table.
+	 * 
+	 * @return
+	 * 		The number of keys.
+	 */
+	public synchronized long size() 
+	{
+		return size;
+	}
+	
+	/**
+	 * Returns the number of slots of the table, not counting an old table 
+	 * which is being moved into it.
+	 * 
+	 * @return
+	 * 		The number of slots.
+	 */
+	public synchronized long capacity() 
+	{
+		return capacity;
+	}
+	
+	/**
+	 * Returns whether entries are being moved from an old table into the 
+	 * table.
+	 * 
+	 * @return
+	 * 		True if the table is being resized.
+	 */
+	public synchronized boolean isResizing() 
+	{
+		return oldTable != -1;
+	}
+	
+	/**
+	 * Returns the size of a key in bytes.
+	 * 
+	 * @return
+	 * 		The size of a key.
+	 */
+	public int getKeySize() 
+	{
+		return keySize;
+	}
+	
+	/**
+	 * Returns the size of a slot in bytes.
+	 * 
+	 * @return
+	 * 		The size of a slot.
+	 */
+	public int getSlotSize() 
+	{
+		return slotSize;
+	}
+	
+	/**
+	 * Finds the slot of the given key in a table, leaving the slot in the 
+	 * slot buffer.
+	 * 
+	 * @return
+	 * 		The index of the slot, or -1 if the table doesn't have the key.
+	 */
+	private long find(long at, long slots, long hash, byte[] key) 
+	{
+		long mask = slots - 1;
+		long index = hash & mask;
+		for (long probes = 0; probes < slots; probes++) {
+			read(at, index, slot);
+			byte state = slot.get(0);
+			if (state == EMPTY) {
+				return -1;
+			}
+			if (state == FULL && matches(key)) {
+				return index;
+			}
+			index = (index + 1) & mask;
+		}
+		return -1;
+	}
+	
+	/**
+	 * Writes the slot in the moving buffer to the first empty slot after its
+	 * home in the table. The table has no key of the slot.
+	 */
+	private void insert(long hash) 
+	{
+		long mask = capacity - 1;
+		long index = hash & mask;
+		while (store.getByte(slotLocation(table, index)) != EMPTY) {
+			index = (index + 1) & mask;
+		}
+		moving.clear();
+		store.put(slotLocation(table, index), moving);
+	}
+	
+	/**
+	 * Empties a slot of the table and shifts back each following entry which
+	 * may then be found sooner, so no slot in a probe is ever empty.
+	 */
+	private void delete(long index) 
+	{
+		long mask = capacity - 1;
+		long hole = index;
+		long next = (index + 1) & mask;
+		for (;;) {
+			read(table, next, slot);
+			if (slot.get(0) == EMPTY) {
+				break;
+			}
+			long home = hash(slot.array(), SLOT_KEY) & mask;
+			if (((next - home) & mask) >= ((next - hole) & mask)) {
+				slot.clear();
+				store.put(slotLocation(table, hole), slot);
+				hole = next;
+			}
+			next = (next + 1) & mask;
+		}
+		store.putByte(slotLocation(table, hole), EMPTY);
+	}
+	
+	/**
+	 * Places a table twice as large after the table and starts moving the 
+	 * table into it.
+	 */
+	private void resize() 
+	{
+		oldTable = table;
+		oldCapacity = capacity;
+		migrated = 0;
+		table = oldTable + oldCapacity * slotSize;
+		capacity = oldCapacity * 2;
+		clear(table, capacity);
+	}
+	
+	/**
+	 * Grows the store to hold a table and empties its slots. The bytes a
+	 * store grows by are already zero, so only the slots which lie below the
+	 * previous end of the store are written.
+	 */
+	private void clear(long at, long slots) 
+	{
+		long end = at + slots * slotSize;
+		long dirty = Math.min(end, store.capacity());
+		if (dirty < end) {
+			store.capacity(end);
+		}
+		if (dirty > at) {
+			byte[] zeros = new byte[(int)Math.min(dirty - at, 1 << 20)];
+			for (long offset = at; offset < dirty; offset += zeros.length) {
+				store.put(offset, zeros, 0, (int)Math.min(zeros.length, dirty - offset));
+			}
+		}
+	}
+	
+	/**
+	 * Moves up to the given number of slots of the old table into the table,
+	 * dropping the old table once every slot has moved.
+	 */
+	private void migrate(int slots) 
+	{
+		if (oldTable == -1) {
+			return;
+		}
+		long end = Math.min(oldCapacity, migrated + slots);
+		for (; migrated < end; migrated++) {
+			long at = slotLocation(oldTable, migrated);
+			moving.clear();
+			store.get(at, moving);
+			if (moving.get(0) == FULL) {
+				insert(hash(moving.array(), SLOT_KEY));
+				store.putByte(at, MOVED);
+			}
+		}
+		if (migrated == oldCapacity) {
+			oldTable = -1;
+			oldCapacity = 0;
+			migrated = 0;
+		}
+	}
+	
+	/**
+	 * Returns whether the key in the slot buffer is the given key.
+	 */
+	private boolean matches(byte[] key) 
+	{
+		byte[] bytes = slot.array();
+		for (int i = 0; i < keySize; i++) {
+			if (bytes[SLOT_KEY + i] != key[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private long hash(byte[] key) 
+	{
+		return hash(key, 0);
+	}
+	
+	/**
+	 * A 64-bit FNV-1a hash of the key at the given offset, mixed so the low 
+	 * bits used to pick a slot depend on every byte.
+	 */
+	private long hash(byte[] bytes, int offset) 
+	{
+		long h = 0xcbf29ce484222325L;
+		for (int i = 0; i < keySize; i++) {
+			h ^= bytes[offset + i] & 0xFF;
+			h *= 0x100000001b3L;
+		}
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		return h;
+	}
+	
+	private void read(long at, long index, ByteBuffer buffer) 
+	{
+		buffer.clear();
+		buffer.order(store.getOrder());
+		store.get(slotLocation(at, index), buffer);
+		buffer.clear();
+	}
+	
+	private long slotLocation(long at, long index) 
+	{
+		return at + index * slotSize;
+	}
+	
+	private void writeHeader() 
+	{
+		header.clear();
+		header.order(store.getOrder());
+		header.putLong(size);
+		header.putLong(table);
+		header.putLong(capacity);
+		header.putLong(oldTable);
+		header.putLong(oldCapacity);
+		header.putLong(migrated);
+		header.flip();
+		store.put(location + HEADER_SIZE_FIELD, header);
+	}
+	
+	private void checkKey(byte[] key) 
+	{
+		if (key.length != keySize) {
+			throw new IllegalArgumentException("A key must be " + keySize + " bytes");
+		}
+	}
+	
+}
@@ -0,0 +1,400 @@
+/* 
+ * NOTICE OF LICENSE
+ * 
+ * This source file is subject to the Open Software License (OSL 3.0) that is 
+ * bundled with this package in the file LICENSE.txt. It is also available 
+ * through the world-wide-web at http://opensource.org/licenses/osl-3.0.php
+ * If you did not receive a copy of the license and are unable to obtain it 
+ * through the world-wide-web, please send an email to pdiffenderfer@gmail.com 
+ * so we can send you a copy immediately. If you use any of this software please
+ * notify me via my website or email, your feedback is much appreciated. 
+ * 
+ * @copyright   Copyright (c) 2011 Magnos Software (http://www.magnos.org)
+ * @license     http://opensource.org/licenses/osl-3.0.php
+ * 				Open Software License (OSL 3.0)
+ */
+
+package org.magnos.data.record;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.magnos.data.Data;
+import org.magnos.data.Store;
+import org.magnos.data.error.StoreIOException;
+
+/**
+ * An array of fixed-size records in a Store which are allocated and freed by
+ * id. Freed records are linked into a free list kept in the records 
+ * themselves, so allocating and freeing are constant time and the list 
+ * survives closing the store. The store grows by a chunk of records at a 
+ * time, never once per record.
+ * <br/>
+ * The records follow a header which holds a magic number, the record size, 
+ * the number of records ever allocated, the number of live records, and the 
+ * head of the free list. A free record holds the id of the next free record 
+ * in its first 8 bytes, so a record is at least 8 bytes. Which records are
+ * free is also tracked in memory with a bit per record, rebuilt from the 
+ * free list when the records are opened, so a record which is already free
+ * can't be freed again and link the list back to itself.
+ * 
+ * @author Philip Diffenderfer
+ *
+ */
+public class RecordStore 
+{
+	
+	/**
+	 * The size of the header in bytes.
+	 */
+	public static final int HEADER_SIZE = 32;
+	
+	/**
+	 * The number which starts the header.
+	 */
+	public static final int MAGIC = 0x52454353;
+	
+	/**
+	 * The smallest size of a record in bytes.
+	 */
+	public static final int MIN_RECORD_SIZE = 8;
+	
+	/**
+	 * The default number of records the store grows by.
+	 */
+	public static final int DEFAULT_GROWTH = 1024;
+	
+	// The locations of the header fields, relative to the header.
+	private static final int HEADER_MAGIC = 0;
+	private static final int HEADER_RECORD_SIZE = 4;
+	private static final int HEADER_ALLOCATED = 8;
+	private static final int HEADER_LIVE = 16;
+	private static final int HEADER_FREE = 24;
+	
+	// The value of the free list head when the list is empty.
+	private static final long NONE = -1L;
+	
+	// The store the records are in.
+	private final Store store;
+	
+	// The location of the header in the store.
+	private final long location;
+	
+	// The size of a record in bytes.
+	private final int recordSize;
+	
+	// The minimum number of records the store grows by.
+	private final int growth;
+	
+	// A record of zeros, written over each allocated record.
+	private final byte[] zeros;
+	
+	// The fields of the header which change, written with a single put.
+	private final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE - HEADER_ALLOCATED);
+	
+	// The number of records ever allocated, which are all below this id.
+	private long allocated;
+	
+	// The number of records which are allocated and not freed.
+	private long live;
+	
+	// The id of the first free record, or NONE.
+	private long freeHead;
+	
+	// A bit for each record ever allocated which is set while it's free.
+	private long[] freeBits = new long[0];
+	
+	
+	/**
+	 * Instantiates a new RecordStore at the start of the given store.
+	 * 
+	 * @param store
+	 * 		The open store the records are in.
+	 * @param recordSize
+	 * 		The size of a record in bytes.
+	 */
+	public RecordStore(Store store, int recordSize) 
+	{
+		this(store, 0, recordSize, DEFAULT_GROWTH);
+	}
+	
+	/**
+	 * Instantiates a new RecordStore. If the store has a header at the given
+	 * location the records are read from it, otherwise a new header is 
+	 * written there.
+	 * 
+	 * @param store
+	 * 		The open store the records are in.
+	 * @param location
+	 * 		The location of the header in the store.
+	 * @param recordSize
+	 * 		The size of a record in bytes, at least MIN_RECORD_SIZE.
+	 * @param growth
+	 * 		The minimum number of records the store grows by when it's full.
+	 * @throws StoreIOException
+	 * 		The header in the store has a different record size, or its free
+	 * 		list is corrupt.
+	 */
+	public RecordStore(Store store, long location, int recordSize, int growth) 
+	{
+		if (recordSize < MIN_RECORD_SIZE) {
+			throw new IllegalArgumentException("A record must be at least " + MIN_RECORD_SIZE + " bytes");
+		}
+		if (growth < 1) {
+			throw new IllegalArgumentException("The store must grow by at least one record");
+		}
+		this.store = store;
+		this.location = location;
+		this.recordSize = recordSize;
+		this.growth = growth;
+		this.zeros = new byte[recordSize];
+		
+		if (location + HEADER_SIZE <= store.capacity() && store.getInt(location + HEADER_MAGIC) == MAGIC) {
+			int existing = store.getInt(location + HEADER_RECORD_SIZE);
+			if (existing != recordSize) {
+				throw new StoreIOException(new IOException("Records at: " + location + " are " + existing + " bytes, not " + recordSize));
+			}
+			allocated = store.getLong(location + HEADER_ALLOCATED);
+			live = store.getLong(location + HEADER_LIVE);
+			freeHead = store.getLong(location + HEADER_FREE);
+			readFreeList();
+		}
+		else {
+			if (store.capacity() < location + HEADER_SIZE) {
+				store.capacity(location + HEADER_SIZE);
+			}
+			allocated = 0;
+			live = 0;
+			freeHead = NONE;
+			store.putInt(location + HEADER_MAGIC, MAGIC);
+			store.putInt(location + HEADER_RECORD_SIZE, recordSize);
+			writeHeader();
+		}
+	}
+	
+	/**
+	 * Allocates a record, reusing the most recently freed record if there is
+	 * one. The bytes of the record are all zero.
+	 * 
+	 * @return
+	 * 		The id of the record.
+	 */
+	public synchronized long allocate() 
+	{
+		long id;
+		if (freeHead != NONE) {
+			id = freeHead;
+			freeHead = store.getLong(getLocation(id));
+			setFree(id, false);
+		}
+		else {
+			id = allocated;
+			ensure(allocated + 1);
+			allocated++;
+		}
+		live++;
+		store.put(getLocation(id), zeros);
+		writeHeader();
+		return id;
+	}
+	
+	/**
+	 * Frees the given record so it can be allocated again. A record may only
+	 * be freed once for each time it's allocated, the first 8 bytes of the
+	 * record are overwritten and it must not be used until it's allocated 
+	 * again.
+	 * 
+	 * @param id
+	 * 		The id of an allocated record.
+	 * @throws IndexOutOfBoundsException
+	 * 		The id has never been allocated.
+	 * @throws IllegalStateException
+	 * 		The record is already free.
+	 */
+	public synchronized void free(long id) 
+	{
+		if (id < 0 || id >= allocated) {
+			throw new IndexOutOfBoundsException("Record " + id + " has not been allocated");
+		}
+		if (isFree(id)) {
+			throw new IllegalStateException("Record " + id + " is already free");
+		}
+		store.putLong(getLocation(id), freeHead);
+		freeHead = id;
+		setFree(id, true);
+		live--;
+		writeHeader();
+	}
+	
+	/**
+	 * Returns whether the given record has been freed and not allocated again.
+	 * 
+	 * @param id
+	 * 		The id of the record.
+	 * @return
+	 * 		True if the record is free, false if it's allocated or has never
+	 * 		been allocated.
+	 */
+	public synchronized boolean isFree(long id) 
+	{
+		long word = id >>> 6;
+		return (id >= 0 && word < freeBits.length && (freeBits[(int)word] & (1L << id)) != 0);
+	}
+	
+	/**
+	 * Points the given data at the given record, so reading and writing the 
+	 * data reads and writes the record.
+	 * 
+	 * @param <T>
+	 * 		The type of data.
+	 * @param data
+	 * 		The data to place at the record, no larger than a record.
+	 * @param id
+	 * 		The id of the record.
+	 * @return
+	 * 		The given data.
+	 */
+	public <T extends Data> T bind(T data, long id) 
+	{
+		if (data.getSize() > recordSize) {
+			throw new IllegalArgumentException("Data of " + data.getSize() + " bytes does not fit in a record of " + recordSize);
+		}
+		data.setStore(store);
+		data.setLocation(getLocation(id));
+		return data;
+	}
+	
+	/**
+	 * Returns the location of the given record in the store.
+	 * 
+	 * @param id
+	 * 		The id of the record.
+	 * @return
+	 * 		The location of the record in bytes.
+	 */
+	public long getLocation(long id) 
+	{
+		return location + HEADER_SIZE + id * recordSize;
+	}
+	
+	/**
+	 * Returns the store the records are in.
+	 * 
+	 * @return
+	 * 		The store of the records.
+	 */
+	public Store getStore() 
+	{
+		return store;
+	}
+	
+	/**
+	 * Returns the size of a record in bytes.
+	 * 
+	 * @return
+	 * 		The size of a record.
+	 */
+	public int getRecordSize() 
+	{
+		return recordSize;
+	}
+	
+	/**
+	 * Returns the number of records which are allocated and not freed.
+	 * 
+	 * @return
+	 * 		The number of live records.
+	 */
+	public synchronized long getLive() 
+	{
+		return live;
+	}
+	
+	/**
+	 * Returns the number of records ever allocated, every id is below this.
+	 * 
+	 * @return
+	 * 		The number of allocated records.
+	 */
+	public synchronized long getAllocated() 
+	{
+		return allocated;
+	}
+	
+	/**
+	 * Returns the number of records the store can hold before it grows.
+	 * 
+	 * @return
+	 * 		The capacity of the store in records.
+	 */
+	public long getCapacity() 
+	{
+		return Math.max(0, (store.capacity() - location - HEADER_SIZE) / recordSize);
+	}
+	
+	/**
+	 * Grows the store if it can't hold the given number of records. The store
+	 * grows by the larger of the growth and half the records it holds, so 
+	 * a table which keeps growing resizes a logarithmic number of times.
+	 */
+	private void ensure(long records) 
+	{
+		long capacity = getCapacity();
+		if (records > capacity) {
+			long grown = Math.max(records, capacity + Math.max(growth, capacity / 2));
+			store.capacity(getLocation(grown));
+		}
+	}
+	
+	/**
+	 * Marks the given record as free or not, growing the bits if necessary.
+	 */
+	private void setFree(long id, boolean free) 
+	{
+		int word = (int)(id >>> 6);
+		if (word >= freeBits.length) {
+			freeBits = Arrays.copyOf(freeBits, Math.max(word + 1, freeBits.length * 2));
+		}
+		if (free) {
+			freeBits[word] |= (1L << id);
+		}
+		else {
+			freeBits[word] &= ~(1L << id);
+		}
+	}
+	
+	/**
+	 * Marks every record in the free list as free, checking that each is 
+	 * allocated and appears once.
+	 */
+	private void readFreeList() 
+	{
+		long count = 0;
+		for (long id = freeHead; id != NONE; id = store.getLong(getLocation(id))) {
+			if (id < 0 || id >= allocated || isFree(id)) {
+				throw new StoreIOException(new IOException("The free list of records at: " + location + " is corrupt at: " + id));
+			}
+			setFree(id, true);
+			count++;
+		}
+		if (count != allocated - live) {
+			throw new StoreIOException(new IOException("The free list of records at: " + location + " has " + count + " records, not " + (allocated - live)));
+		}
+	}
+	
+	/**
+	 * Writes the fields of the header which change.
+	 */
+	private void writeHeader() 
+	{
+		header.clear();
+		header.order(store.getOrder());
+		header.putLong(allocated);
+		header.putLong(live);
+		header.putLong(freeHead);
+		header.flip();
+		store.put(location + HEADER_ALLOCATED, header);
+	}
+	
+}
@@ -0,0 +1,623 @@
+/* 
+ * NOTICE OF LICENSE
+ * 
+ * This source file is subject to the Open Software License (OSL 3.0) that is 
+ * bundled with this package in the file LICENSE.txt. It is also available 
+ * through the world-wide-web at http://opensource.org/licenses/osl-3.0.php
+ * If you did not receive a copy of the license and are unable to obtain it 
+ * through the world-wide-web, please send an email to pdiffenderfer@gmail.com 
+ * so we can send you a copy immediately. If you use any of this software please
+ * notify me via my website or email, your feedback is much appreciated. 
+ * 
+ * @copyright   Copyright (c) 2011 Magnos Software (http://www.magnos.org)
+ * @license     http://opensource.org/licenses/osl-3.0.php
+ * 				Open Software License (OSL 3.0)
+ */
+
+package org.magnos.data.record;
+
+import java.nio.ByteBuffer;
+
+import org.magnos.data.Store;
+
+/**
+ * Variable-length records kept in fixed-size slotted pages of a Store. Each
+ * page starts with a header and a directory of slots which grows up from the
+ * header, while the bytes of records grow down from the end of the page. A 
+ * record is identified by its page and slot, and that id never changes: a 
+ * record which grows is moved within its page, compacting the page if 
+ * necessary, and a record which no longer fits in its page is moved to 
+ * another page and left a forwarding address in its original slot.
+ * <br/>
+ * The layout of a page (all numbers are unsigned big-endian shorts):
+ * <pre>
+ * [slot count][data start][garbage][reserved][offset, length]...  free  ...records
+ * </pre>
+ * A slot with an offset of 0 is free. A page which is all zeros is empty, so
+ * the store can be grown without initializing pages. An index of which pages 
+ * have room is kept in memory and rebuilt from the page headers when the
+ * pages are opened.
+ * 
+ * @author Philip Diffenderfer
+ *
+ */
+public class SlottedPages 
+{
+
+	/**
+	 * The default size of a page in bytes.
+	 */
+	public static final int DEFAULT_PAGE_SIZE = 4096;
+	
+	/**
+	 * The smallest size of a page in bytes.
+	 */
+	public static final int MIN_PAGE_SIZE = 64;
+	
+	/**
+	 * The largest size of a page in bytes.
+	 */
+	public static final int MAX_PAGE_SIZE = 32768;
+	
+	/**
+	 * The size of the header of a page in bytes.
+	 */
+	public static final int HEADER_SIZE = 8;
+	
+	/**
+	 * The size of a slot in the directory of a page in bytes.
+	 */
+	public static final int SLOT_SIZE = 4;
+	
+	// The fewest bytes a record takes in a page, which is enough to replace
+	// it with a forwarding address.
+	private static final int MIN_SPACE = 8;
+	
+	// The bit of a slot length which marks a forwarding address.
+	private static final int FORWARD = 0x8000;
+	
+	// The bits of a slot length which hold the length.
+	private static final int LENGTH = 0x7FFF;
+	
+	// The store the pages are in.
+	private final Store store;
+	
+	// The location of the first page in the store.
+	private final long location;
+	
+	// The size of a page in bytes.
+	private final int pageSize;
+	
+	// The page being read or changed.
+	private final ByteBuffer page;
+	
+	// The number of free bytes of each page, including garbage.
+	private int[] free;
+	
+	// The number of pages.
+	private int pageCount;
+	
+	// The page the last record was inserted in, where the search for room starts.
+	private int lastPage;
+	
+	
+	/**
+	 * Instantiates a new SlottedPages with pages of the default size which 
+	 * start at the beginning of the given store.
+	 * 
+	 * @param store
+	 * 		The open store the pages are in.
+	 */
+	public SlottedPages(Store store) 
+	{
+		this(store, 0, DEFAULT_PAGE_SIZE);
+	}
+	
+	/**
+	 * Instantiates a new SlottedPages. Every page between the given location
+	 * and the end of the store is used, and the store is grown a page at a 
+	 * time when none of them have room for a record.
+	 * 
+	 * @param store
+	 * 		The open store the pages are in.
+	 * @param location
+	 * 		The location of the first page in the store.
+	 * @param pageSize
+	 * 		The size of a page in bytes, between MIN_PAGE_SIZE and MAX_PAGE_SIZE.
+	 */
+	public SlottedPages(Store store, long location, int pageSize) 
+	{
+		if (pageSize < MIN_PAGE_SIZE || pageSize > MAX_PAGE_SIZE) {
+			throw new IllegalArgumentException("A page must be between " + MIN_PAGE_SIZE + " and " + MAX_PAGE_SIZE + " bytes");
+		}
+		this.store = store;
+		this.location = location;
+		this.pageSize = pageSize;
+		this.page = ByteBuffer.allocate(pageSize);
+		this.pageCount = (int)Math.max(0, (store.capacity() - location) / pageSize);
+		this.free = new int[Math.max(16, pageCount)];
+		
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		for (int p = 0; p < pageCount; p++) {
+			header.clear();
+			store.get(pageLocation(p), header);
+			int slots = header.getShort(0) & 0xFFFF;
+			int start = dataStart(header.getShort(2) & 0xFFFF);
+			int garbage = header.getShort(4) & 0xFFFF;
+			free[p] = start - (HEADER_SIZE + slots * SLOT_SIZE) + garbage;
+		}
+	}
+	
+	/**
+	 * Returns the store the pages are in.
+	 * 
+	 * @return
+	 * 		The store of the pages.
+	 */
+	public Store getStore() 
+	{
+		return store;
+	}
+	
+	/**
+	 * Returns the size of a page in bytes.
+	 * 
+	 * @return
+	 * 		The size of a page.
+	 */
+	public int getPageSize() 
+	{
+		return pageSize;
+	}
+	
+	/**
+	 * Returns the number of pages.
+	 * 
+	 * @return
+	 * 		The number of pages.
+	 */
+	public synchronized int getPageCount() 
+	{
+		return pageCount;
+	}
+	
+	/**
+	 * Returns the number of bytes in the given page which are not used by 
+	 * records or slots, including the bytes which compacting would reclaim.
+	 * 
+	 * @param pageIndex
+	 * 		The index of the page.
+	 * @return
+	 * 		The number of free bytes in the page.
+	 */
+	public synchronized int getFreeBytes(int pageIndex) 
+	{
+		return free[pageIndex];
+	}
+	
+	/**
+	 * Returns the length of the longest record.
+	 * 
+	 * @return
+	 * 		The maximum length of a record in bytes.
+	 */
+	public int getMaxLength() 
+	{
+		return pageSize - HEADER_SIZE - SLOT_SIZE;
+	}
+	
+	/**
+	 * Inserts a record into the first page with room for it.
+	 * 
+	 * @param record
+	 * 		The bytes of the record.
+	 * @return
+	 * 		The id of the new record.
+	 * @throws IllegalArgumentException
+	 * 		The record is longer than the maximum length.
+	 */
+	public synchronized long insert(byte[] record) 
+	{
+		checkLength(record.length);
+		return insert(record, record.length, 0, -1);
+	}
+	
+	/**
+	 * Returns the record with the given id.
+	 * 
+	 * @param id
+	 * 		The id of the record.
+	 * @return
+	 * 		The bytes of the record, or null if there is no record with the id.
+	 */
+	public synchronized byte[] get(long id) 
+	{
+		int s = getSlot(id);
+		if (!load(getPage(id), s)) {
+			return null;
+		}
+		int length = slotLength(s);
+		if ((length & FORWARD) != 0) {
+			return get(page.getLong(slotOffset(s)));
+		}
+		byte[] record = new byte[length];
+		page.position(slotOffset(s));
+		page.get(record);
+		return record;
+	}
+	
+	/**
+	 * Replaces the record with the given id. The id of the record stays the
+	 * same even if the record has to move to another page.
+	 * 
+	 * @param id
+	 * 		The id of the record.
+	 * @param record
+	 * 		The new bytes of the record.
+	 * @return
+	 * 		True if the record was updated, false if there is no record with 
+	 * 		the id.
+	 * @throws IllegalArgumentException
+	 * 		The record is longer than the maximum length.
+	 */
+	public synchronized boolean update(long id, byte[] record) 
+	{
+		checkLength(record.length);
+		int p = getPage(id);
+		int s = getSlot(id);
+		if (!load(p, s)) {
+			return false;
+		}
+		
+		// A moved record is removed from where it moved to, leaving the 
+		// forwarding address to be replaced.
+		if ((slotLength(s) & FORWARD) != 0) {
+			remove(page.getLong(slotOffset(s)));
+			load(p, s);
+		}
+		
+		int released = space(slotLength(s) & LENGTH);
+		if (free() + released >= space(record.length)) {
+			release(s);
+			allocate(s, record, record.length, 0);
+			save(p);
+			return true;
+		}
+		
+		// The record doesn't fit in its page, it moves to another page and 
+		// its slot holds the address it moved to.
+		long moved = insert(record, record.length, 0, p);
+		load(p, s);
+		release(s);
+		allocate(s, ByteBuffer.allocate(MIN_SPACE).putLong(0, moved).array(), MIN_SPACE, FORWARD);
+		save(p);
+		return true;
+	}
+	
+	/**
+	 * Deletes the record with the given id. The id may be reused by a record
+	 * inserted later.
+	 * 
+	 * @param id
+	 * 		The id of the record.
+	 * @return
+	 * 		True if the record was deleted, false if there is no record with 
+	 * 		the id.
+	 */
+	public synchronized boolean delete(long id) 
+	{
+		int p = getPage(id);
+		int s = getSlot(id);
+		if (!load(p, s)) {
+			return false;
+		}
+		if ((slotLength(s) & FORWARD) != 0) {
+			remove(page.getLong(slotOffset(s)));
+		}
+		remove(id);
+		return true;
+	}
+	
+	/**
+	 * Compacts the given page so all of its free bytes are contiguous. This 
+	 * happens automatically when a record needs the room, the ids of the 
+	 * records in the page do not change.
+	 * 
+	 * @param pageIndex
+	 * 		The index of the page.
+	 */
+	public synchronized void compact(int pageIndex) 
+	{
+		load(pageIndex);
+		compact();
+		save(pageIndex);
+	}
+	
+	/**
+	 * Inserts a record into the first page with room for it other than the 
+	 * excluded page, adding a page if none have room.
+	 */
+	private long insert(byte[] record, int length, int flags, int exclude) 
+	{
+		int needed = space(length) + SLOT_SIZE;
+		int p = findPage(needed, exclude);
+		if (p == -1) {
+			p = addPage();
+		}
+		load(p);
+		
+		// Reuse a free slot before adding one to the directory.
+		int slots = slotCount();
+		int s = 0;
+		while (s < slots && slotOffset(s) != 0) {
+			s++;
+		}
+		if (s == slots) {
+			// The new slot may overlap the first record, so make room first.
+			int directory = HEADER_SIZE + (slots + 1) * SLOT_SIZE;
+			if (dataStart() - directory < space(length)) {
+				compact();
+			}
+			setSlotCount(slots + 1);
+			setSlot(s, 0, 0);
+		}
+		allocate(s, record, length, flags);
+		save(p);
+		
+		lastPage = p;
+		return id(p, s);
+	}
+	
+	/**
+	 * Removes the record in the given slot, and any free slots which are 
+	 * left at the end of the directory.
+	 */
+	private void remove(long id) 
+	{
+		int p = getPage(id);
+		int s = getSlot(id);
+		if (!load(p, s)) {
+			return;
+		}
+		release(s);
+		int slots = slotCount();
+		while (slots > 0 && slotOffset(slots - 1) == 0) {
+			slots--;
+		}
+		setSlotCount(slots);
+		save(p);
+	}
+	
+	/**
+	 * Returns the first page starting from the last insert with at least the
+	 * given number of free bytes, or -1 if none have room.
+	 */
+	private int findPage(int needed, int exclude) 
+	{
+		for (int i = 0; i < pageCount; i++) {
+			int p = (lastPage + i) % pageCount;
+			if (p != exclude && free[p] >= needed) {
+				return p;
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * Grows the store by a page and returns the index of the new page.
+	 */
+	private int addPage() 
+	{
+		int p = pageCount;
+		store.capacity(pageLocation(p + 1));
+		if (p == free.length) {
+			int[] grown = new int[free.length * 2];
+			System.arraycopy(free, 0, grown, 0, p);
+			free = grown;
+		}
+		free[p] = pageSize - HEADER_SIZE;
+		pageCount++;
+		return p;
+	}
+	
+	/**
+	 * Marks the bytes of the record in the given slot as garbage and frees 
+	 * the slot.
+	 */
+	private void release(int s) 
+	{
+		setGarbage(garbage() + space(slotLength(s) & LENGTH));
+		setSlot(s, 0, 0);
+	}
+	
+	/**
+	 * Places a record at the start of the records in the page and points the
+	 * given slot at it, compacting the page first if necessary. The page must
+	 * have enough free bytes.
+	 */
+	private void allocate(int s, byte[] record, int length, int flags) 
+	{
+		int needed = space(length);
+		int directory = HEADER_SIZE + slotCount() * SLOT_SIZE;
+		if (dataStart() - directory < needed) {
+			compact();
+		}
+		int start = dataStart() - needed;
+		page.position(start);
+		page.put(record, 0, length);
+		setSlot(s, start, length | flags);
+		setDataStart(start);
+	}
+	
+	/**
+	 * Moves the records of the page to the end of the page so the garbage 
+	 * between them becomes free.
+	 */
+	private void compact() 
+	{
+		byte[] bytes = page.array();
+		byte[] copy = bytes.clone();
+		int start = pageSize;
+		int slots = slotCount();
+		for (int s = 0; s < slots; s++) {
+			int offset = slotOffset(s);
+			if (offset != 0) {
+				int length = slotLength(s);
+				int space = space(length & LENGTH);
+				start -= space;
+				System.arraycopy(copy, offset, bytes, start, space);
+				setSlot(s, start, length);
+			}
+		}
+		setDataStart(start);
+		setGarbage(0);
+	}
+	
+	/**
+	 * Reads the given page, returning false if the page or the slot in it 
+	 * does not exist or the slot is free.
+	 */
+	private boolean load(int p, int s) 
+	{
+		if (p < 0 || p >= pageCount) {
+			return false;
+		}
+		load(p);
+		return (s < slotCount() && slotOffset(s) != 0);
+	}
+	
+	/**
+	 * Reads the given page.
+	 */
+	private void load(int p) 
+	{
+		page.clear();
+		store.get(pageLocation(p), page);
+	}
+	
+	/**
+	 * Writes the given page and updates how many free bytes it has.
+	 */
+	private void save(int p) 
+	{
+		page.clear();
+		store.put(pageLocation(p), page);
+		free[p] = free();
+	}
+	
+	private long pageLocation(int p) 
+	{
+		return location + (long)p * pageSize;
+	}
+	
+	private int free() 
+	{
+		return dataStart() - (HEADER_SIZE + slotCount() * SLOT_SIZE) + garbage();
+	}
+	
+	private int slotCount() 
+	{
+		return page.getShort(0) & 0xFFFF;
+	}
+	
+	private void setSlotCount(int slots) 
+	{
+		page.putShort(0, (short)slots);
+	}
+	
+	private int dataStart() 
+	{
+		return dataStart(page.getShort(2) & 0xFFFF);
+	}
+	
+	private int dataStart(int stored) 
+	{
+		return (stored == 0 ? pageSize : stored);
+	}
+	
+	private void setDataStart(int start) 
+	{
+		page.putShort(2, (short)start);
+	}
+	
+	private int garbage() 
+	{
+		return page.getShort(4) & 0xFFFF;
+	}
+	
+	private void setGarbage(int garbage) 
+	{
+		page.putShort(4, (short)garbage);
+	}
+	
+	private int slotOffset(int s) 
+	{
+		return page.getShort(HEADER_SIZE + s * SLOT_SIZE) & 0xFFFF;
+	}
+	
+	private int slotLength(int s) 
+	{
+		return page.getShort(HEADER_SIZE + s * SLOT_SIZE + 2) & 0xFFFF;
+	}
+	
+	private void setSlot(int s, int offset, int length) 
+	{
+		page.putShort(HEADER_SIZE + s * SLOT_SIZE, (short)offset);
+		page.putShort(HEADER_SIZE + s * SLOT_SIZE + 2, (short)length);
+	}
+	
+	private void checkLength(int length) 
+	{
+		if (length > getMaxLength()) {
+			throw new IllegalArgumentException("A record of " + length + " bytes is longer than the maximum of " + getMaxLength());
+		}
+	}
+	
+	// The number of bytes a record of the given length takes in a page.
+	private static int space(int length) 
+	{
+		return Math.max(MIN_SPACE, length);
+	}
+	
+	/**
+	 * Returns the id of the record in the given slot of the given page.
+	 * 
+	 * @param pageIndex
+	 * 		The index of the page.
+	 * @param slot
+	 * 		The index of the slot in the page.
+	 * @return
+	 * 		The id of the record.
+	 */
+	public static long id(int pageIndex, int slot) 
+	{
+		return ((long)pageIndex << 16) | slot;
+	}
+	
+	/**
+	 * Returns the index of the page of the given record id.
+	 * 
+	 * @param id
+	 * 		The id of a record.
+	 * @return
+	 * 		The index of the page.
+	 */
+	public static int getPage(long id) 
+	{
+		return (int)(id >>> 16);
+	}
+	
+	/**
+	 * Returns the index of the slot of the given record id.
+	 * 
+	 * @param id
+	 * 		The id of a record.
+	 * @return
+	 * 		The index of the slot in the page.
+	 */
+	public static int getSlot(long id) 
+	{
+		return (int)(id & 0xFFFF);
+	}
+	
+}
@@ -18,9 +18,16 @@ package org.magnos.data.store;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.magnos.data.Store;
 import org.magnos.data.StoreAccess;
+import org.magnos.data.StoreBatch;
 import org.magnos.data.error.StoreClosedException;
 import org.magnos.data.error.StoreIOException;
 
@@ -28,6 +35,34 @@ import org.magnos.data.error.StoreIOException;
 /**
  * An abstract Store. Implementations must adhere to the guidelines specified
  * in the documentation of the abstract methods.
+ * <p>
+ * Reads and writes to the store are done concurrently, they only share a lock
+ * with the operations that change the structure of the store (open, close, 
+ * resize, and delete) which are serialized. Implementations must therefore 
+ * perform their gets and puts with absolute (positional) access that doesn't
+ * modify any state shared between threads (like a buffer's position).
+ * </p>
+ * <p>
+ * Reads and writes also lock the range of bytes they touch with a 
+ * {@link StripedLock}, so writes to different stripes of the store proceed in
+ * parallel while writes over the same stripes are atomic with respect to each
+ * other and to reads. 
+ * </p>
+ * <p>
+ * Instead of flushing after every write with auto flush, a store can flush 
+ * for a group of writes at once on a background thread with 
+ * {@link #setGroupFlush(long, long)}, and writers can wait for their writes 
+ * to be flushed with {@link #durable()}.
+ * </p>
+ * <p>
+ * Primitives are read and written in the order given to 
+ * {@link #setOrder(ByteOrder)}, which is big-endian by default.
+ * </p>
+ * <p>
+ * Asynchronous reads and writes run on the executor given to 
+ * {@link #setAsyncExecutor(Executor)}, or on the calling thread if there is
+ * none.
+ * </p>
  * 
  * @author Philip Diffenderfer
  *
@@ -36,18 +71,34 @@ public abstract class AbstractStore implements Store
 {
 	
 	// Whether this store will automatically open if its closed.
-	private boolean autoOpen = true;
+	private volatile boolean autoOpen = true;
 
 	// Whether this store will automatically write data to any persisted medium
 	// after every write occurs.
-	private boolean autoFlush = false;
+	private volatile boolean autoFlush = false;
+	
+	// Flushes groups of writes on a background thread, if not null.
+	private volatile GroupFlush groupFlush;
+	
+	// Runs asynchronous tasks, or null to run them on the calling thread.
+	private volatile Executor asyncExecutor;
+	
+	// The order of the bytes of primitives read and written.
+	private volatile ByteOrder order = ByteOrder.BIG_ENDIAN;
+	
+	// The small buffer each thread reads and writes primitives through.
+	private final ThreadLocal<ByteBuffer> scratch = new ThreadLocal<ByteBuffer>() {
+		protected ByteBuffer initialValue() {
+			return ByteBuffer.allocate(8);
+		}
+	};
 	
 	// Whether this store will automatically load data from any persisted medium
 	// before every read occurs.
-	private boolean autoLoad = false;
+	private volatile boolean autoLoad = false;
 	
 	// The access of the store to any persisted medium.
-	private StoreAccess access = StoreAccess.ReadWrite;
+	private volatile StoreAccess access = StoreAccess.ReadWrite;
 	
 	// The unique name of this store. If this store is persisted to a file 
 	// system this may be the file name.
@@ -58,7 +109,14 @@ public abstract class AbstractStore implements Store
 	
 	// The current capacity of the store. This does not represent the desired 
 	// capacity but the actual capacity of the store.
-	private volatile int capacity = -1;
+	private volatile long capacity = -1;
+	
+	// The lock shared by reads and writes (read lock) and held exclusively by
+	// operations which change the structure of the store (write lock).
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	
+	// The locks on ranges of bytes acquired by reads and writes.
+	private volatile StripedLock stripes = new StripedLock();
 	
 	
 	/**
@@ -90,7 +148,7 @@ public abstract class AbstractStore implements Store
 	 * @throws IOException
 	 * 		An error occurred opening the store with the given access.
 	 */
-	protected abstract int storeOpen(StoreAccess access) throws IOException;
+	protected abstract long storeOpen(StoreAccess access) throws IOException;
 	
 	/**
 	 * Should load contents of the store into memory from a persisted medium if 
@@ -134,7 +192,7 @@ public abstract class AbstractStore implements Store
 	 * @throws IOException
 	 * 		An error occured resizing the store.
 	 */
-	protected abstract int storeResize(int capacity) throws IOException;
+	protected abstract long storeResize(long capacity) throws IOException;
 
 	/**
 	 * Returns whether the store exists in its probable medium. This could be
@@ -164,7 +222,7 @@ public abstract class AbstractStore implements Store
 	 * @throws IOException
 	 * 		An error occurred reading from the store.
 	 */
-	protected abstract void storeGet(int location, byte[] bytes, int offset, int length) throws IOException;
+	protected abstract void storeGet(long location, byte[] bytes, int offset, int length) throws IOException;
 	
 	/**
 	 * Gets data at the given location and stores it in the given ByteBuffer.
@@ -177,7 +235,7 @@ public abstract class AbstractStore implements Store
 	 * @throws IOException
 	 * 		An error occurred reading from the store.
 	 */
-	protected abstract void storeGet(int location, ByteBuffer buffer) throws IOException;
+	protected abstract void storeGet(long location, ByteBuffer buffer) throws IOException;
 	
 	/**
 	 * Puts data at the given location from the given byte array.
@@ -193,7 +251,7 @@ public abstract class AbstractStore implements Store
 	 * @throws IOException
 	 * 		An error occurred writing to the store.
 	 */
-	protected abstract void storePut(int location, byte[] bytes, int offset, int length) throws IOException;
+	protected abstract void storePut(long location, byte[] bytes, int offset, int length) throws IOException;
 
 	/**
 	 * Puts data at the given location from the given ByteBuffer.
@@ -206,9 +264,336 @@ public abstract class AbstractStore implements Store
 	 * @throws IOException
 	 * 		An error occurred writing to the store.
 	 */
-	protected abstract void storePut(int location, ByteBuffer buffer) throws IOException;
+	protected abstract void storePut(long location, ByteBuffer buffer) throws IOException;
+	
+	/**
+	 * Gets data for every entry in the batch. By default each entry is read
+	 * with {@link #storeGet(long, ByteBuffer)}, implementations that can read
+	 * many ranges at once more efficiently should override this.
+	 * 
+	 * @param batch
+	 * 		The batch of locations and buffers to place the data in. Each buffer
+	 * 		will be filled with data to its limit.
+	 * @throws IOException
+	 * 		An error occurred reading from the store.
+	 */
+	protected void storeGet(StoreBatch batch) throws IOException
+	{
+		for (int i = 0; i < batch.size(); i++) {
+			storeGet(batch.getLocation(i), batch.getBuffer(i));
+		}
+	}
+	
+	/**
+	 * Puts data for every entry in the batch. By default each entry is written
+	 * with {@link #storePut(long, ByteBuffer)}, implementations that can write
+	 * many ranges at once more efficiently should override this.
+	 * 
+	 * @param batch
+	 * 		The batch of locations and buffers to take the data from. Each 
+	 * 		buffer will be emptied of data to its limit.
+	 * @throws IOException
+	 * 		An error occurred writing to the store.
+	 */
+	protected void storePut(StoreBatch batch) throws IOException
+	{
+		for (int i = 0; i < batch.size(); i++) {
+			storePut(batch.getLocation(i), batch.getBuffer(i));
+		}
+	}
+	
+	/**
+	 * Gets a byte at the given location. By default it's read through a small 
+	 * buffer reused by each thread, implementations which can read it 
+	 * directly should override this.
+	 * 
+	 * @param location
+	 * 		The offset to get the data, in bytes, from the beginning of the store.
+	 * @return
+	 * 		The byte read.
+	 * @throws IOException
+	 * 		An error occurred reading from the store.
+	 */
+	protected byte storeGetByte(long location) throws IOException
+	{
+		ByteBuffer b = scratch(1);
+		storeGet(location, b);
+		return b.get(0);
+	}
+	
+	/**
+	 * Puts a byte at the given location. By default it's written through a small
+	 * buffer reused by each thread, implementations which can write it 
+	 * directly should override this.
+	 * 
+	 * @param location
+	 * 		The offset to put the data, in bytes, from the beginning of the store.
+	 * @param value
+	 * 		The byte to write.
+	 * @throws IOException
+	 * 		An error occurred writing to the store.
+	 */
+	protected void storePutByte(long location, byte value) throws IOException
+	{
+		ByteBuffer b = scratch(1);
+		b.put(0, value);
+		storePut(location, b);
+	}
+	
+	/**
+	 * Gets a short at the given location. By default it's read through a small 
+	 * buffer reused by each thread, implementations which can read it 
+	 * directly should override this.
+	 * 
+	 * @param location
+	 * 		The offset to get the data, in bytes, from the beginning of the store.
+	 * @return
+	 * 		The short read.
+	 * @throws IOException
+	 * 		An error occurred reading from the store.
+	 */
+	protected short storeGetShort(long location) throws IOException
+	{
+		ByteBuffer b = scratch(2);
+		storeGet(location, b);
+		return b.getShort(0);
+	}
+	
+	/**
+	 * Puts a short at the given location. By default it's written through a small
+	 * buffer reused by each thread, implementations which can write it 
+	 * directly should override this.
+	 * 
+	 * @param location
+	 * 		The offset to put the data, in bytes, from the beginning of the store.
+	 * @param value
+	 * 		The short to write.
+	 * @throws IOException
+	 * 		An error occurred writing to the store.
+	 */
+	protected void storePutShort(long location, short value) throws IOException
+	{
+		ByteBuffer b = scratch(2);
+		b.putShort(0, value);
+		storePut(location, b);
+	}
+	
+	/**
+	 * Gets an int at the given location. By default it's read through a small 
+	 * buffer reused by each thread, implementations which can read it 
+	 * directly should override this.
+	 * 
+	 * @param location
+	 * 		The offset to get the data, in bytes, from the beginning of the store.
+	 * @return
+	 * 		The int read.
+	 * @throws IOException
+	 * 		An error occurred reading from the store.
+	 */
+	protected int storeGetInt(long location) throws IOException
+	{
+		ByteBuffer b = scratch(4);
+		storeGet(location, b);
+		return b.getInt(0);
+	}
+	
+	/**
+	 * Puts an int at the given location. By default it's written through a small
+	 * buffer reused by each thread, implementations which can write it 
+	 * directly should override this.
+	 * 
+	 * @param location
+	 * 		The offset to put the data, in bytes, from the beginning of the store.
+	 * @param value
+	 * 		The int to write.
+	 * @throws IOException
+	 * 		An error occurred writing to the store.
+	 */
+	protected void storePutInt(long location, int value) throws IOException
+	{
+		ByteBuffer b = scratch(4);
+		b.putInt(0, value);
+		storePut(location, b);
+	}
+	
+	/**
+	 * Gets a long at the given location. By default it's read through a small 
+	 * buffer reused by each thread, implementations which can read it 
+	 * directly should override this.
+	 * 
+	 * @param location
+	 * 		The offset to get the data, in bytes, from the beginning of the store.
+	 * @return
+	 * 		The long read.
+	 * @throws IOException
+	 * 		An error occurred reading from the store.
+	 */
+	protected long storeGetLong(long location) throws IOException
+	{
+		ByteBuffer b = scratch(8);
+		storeGet(location, b);
+		return b.getLong(0);
+	}
+	
+	/**
+	 * Puts a long at the given location. By default it's written through a small
+	 * buffer reused by each thread, implementations which can write it 
+	 * directly should override this.
+	 * 
+	 * @param location
+	 * 		The offset to put the data, in bytes, from the beginning of the store.
+	 * @param value
+	 * 		The long to write.
+	 * @throws IOException
+	 * 		An error occurred writing to the store.
+	 */
+	protected void storePutLong(long location, long value) throws IOException
+	{
+		ByteBuffer b = scratch(8);
+		b.putLong(0, value);
+		storePut(location, b);
+	}
+	
+	/**
+	 * Gets a float at the given location. By default it's read through a small 
+	 * buffer reused by each thread, implementations which can read it 
+	 * directly should override this.
+	 * 
+	 * @param location
+	 * 		The offset to get the data, in bytes, from the beginning of the store.
+	 * @return
+	 * 		The float read.
+	 * @throws IOException
+	 * 		An error occurred reading from the store.
+	 */
+	protected float storeGetFloat(long location) throws IOException
+	{
+		ByteBuffer b = scratch(4);
+		storeGet(location, b);
+		return b.getFloat(0);
+	}
+	
+	/**
+	 * Puts a float at the given location. By default it's written through a small
+	 * buffer reused by each thread, implementations which can write it 
+	 * directly should override this.
+	 * 
+	 * @param location
+	 * 		The offset to put the data, in bytes, from the beginning of the store.
+	 * @param value
+	 * 		The float to write.
+	 * @throws IOException
+	 * 		An error occurred writing to the store.
+	 */
+	protected void storePutFloat(long location, float value) throws IOException
+	{
+		ByteBuffer b = scratch(4);
+		b.putFloat(0, value);
+		storePut(location, b);
+	}
+	
+	/**
+	 * Gets a double at the given location. By default it's read through a small 
+	 * buffer reused by each thread, implementations which can read it 
+	 * directly should override this.
+	 * 
+	 * @param location
+	 * 		The offset to get the data, in bytes, from the beginning of the store.
+	 * @return
+	 * 		The double read.
+	 * @throws IOException
+	 * 		An error occurred reading from the store.
+	 */
+	protected double storeGetDouble(long location) throws IOException
+	{
+		ByteBuffer b = scratch(8);
+		storeGet(location, b);
+		return b.getDouble(0);
+	}
+	
+	/**
+	 * Puts a double at the given location. By default it's written through a small
+	 * buffer reused by each thread, implementations which can write it 
+	 * directly should override this.
+	 * 
+	 * @param location
+	 * 		The offset to put the data, in bytes, from the beginning of the store.
+	 * @param value
+	 * 		The double to write.
+	 * @throws IOException
+	 * 		An error occurred writing to the store.
+	 */
+	protected void storePutDouble(long location, double value) throws IOException
+	{
+		ByteBuffer b = scratch(8);
+		b.putDouble(0, value);
+		storePut(location, b);
+	}
+	
+	/**
+	 * Returns the small buffer of the current thread, cleared and limited to
+	 * the given number of bytes.
+	 * 
+	 * @param length
+	 * 		The number of bytes which will be read or written.
+	 * @return
+	 * 		The buffer of the current thread.
+	 */
+	private ByteBuffer scratch(int length)
+	{
+		ByteBuffer b = scratch.get();
+		b.clear();
+		b.limit(length);
+		b.order(order);
+		return b;
+	}
+	
+	/**
+	 * Notifies an open store that the order of the bytes of primitives has
+	 * changed, implementations which read primitives through their own 
+	 * buffers should change the order of those buffers. By default this does
+	 * nothing.
+	 * 
+	 * @param order
+	 * 		The new byte order.
+	 */
+	protected void storeOrder(ByteOrder order)
+	{
+	}
+
 
+	/**
+	 * Flushes after a write if auto flush is set, or counts the write toward
+	 * the next flush if group flush is set.
+	 * 
+	 * @param length
+	 * 		The number of bytes written.
+	 * @throws IOException
+	 * 		An error occurred flushing the store.
+	 */
+	private void flushed(long length) throws IOException
+	{
+		GroupFlush group = groupFlush;
+		if (group != null) {
+			group.written(length);
+		}
+		else if (autoFlush) {
+			storeFlush();
+		}
+	}
 
+	/**
+	 * Sets the capacity of an open store which grows as it's written to, such
+	 * as a LogStore. The caller must hold shared or exclusive access.
+	 * 
+	 * @param capacity
+	 * 		The new capacity of the store.
+	 */
+	protected final void grown(long capacity)
+	{
+		this.capacity = capacity;
+	}
+	
 	/**
 	 * Validates an action by checking if the store is closed. If the store
 	 * is closed and the store could not be automatically opened this will throw
@@ -221,12 +606,61 @@ public abstract class AbstractStore implements Store
 				// Open with previous or default access.
 				open(access);
 			}
-			else {
+			if (closed) {
 				throw new StoreClosedException();
 			}
 		}
 	}
 	
+	/**
+	 * Checks that a location is not negative before any stripes are locked
+	 * for it.
+	 * 
+	 * @param location
+	 * 		The location in the store.
+	 * @throws IndexOutOfBoundsException
+	 * 		The location is negative.
+	 */
+	private static void checkLocation(long location)
+	{
+		if (location < 0) {
+			throw new IndexOutOfBoundsException("The location " + location + " is negative");
+		}
+	}
+	
+	/**
+	 * Acquires shared access to the store for a read or write. If the store 
+	 * is closed it will be opened (if auto open is true) before the shared 
+	 * lock is acquired, since a shared lock cannot be upgraded to open the 
+	 * store. Every call to acquire must be followed by a call to release.
+	 * 
+	 * @throws StoreClosedException
+	 * 		The store is closed and could not be automatically opened.
+	 */
+	protected final void acquire() throws StoreClosedException
+	{
+		for (;;) {
+			// Open if necessary, or throw StoreClosedException
+			validate();
+			
+			lock.readLock().lock();
+			
+			// The store may have been closed between validating and locking.
+			if (!closed) {
+				return;
+			}
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * Releases shared access to the store previously acquired.
+	 */
+	protected final void release()
+	{
+		lock.readLock().unlock();
+	}
+	
 	/**
 	 * {@inheritDoc}
 	 */
@@ -240,11 +674,9 @@ public abstract class AbstractStore implements Store
 	 * {@inheritDoc}
 	 */
 	@Override
-	public final int capacity() 
+	public final long capacity() 
 	{
-		synchronized (this) {
-			return capacity;
-		}
+		return capacity;
 	}
 
 	/**
@@ -253,9 +685,7 @@ public abstract class AbstractStore implements Store
 	@Override
 	public final StoreAccess getAccess() 
 	{
-		synchronized (this) {
-			return access;
-		}
+		return access;
 	}
 
 	/**
@@ -264,7 +694,8 @@ public abstract class AbstractStore implements Store
 	@Override
 	public final StoreAccess setAccess(StoreAccess newAccess) 
 	{
-		synchronized (this) {
+		lock.writeLock().lock();
+		try {
 			// If its not open, just change default access
 			if (closed) {
 				access = newAccess;
@@ -276,6 +707,9 @@ public abstract class AbstractStore implements Store
 			}
 			return access;
 		}
+		finally {
+			lock.writeLock().unlock();
+		}
 	}
 
 	/**
@@ -284,9 +718,13 @@ public abstract class AbstractStore implements Store
 	@Override
 	public final boolean exists() 
 	{
-		synchronized (this) {
+		lock.readLock().lock();
+		try {
 			return (!closed || storeExists());
 		}
+		finally {
+			lock.readLock().unlock();
+		}
 	}
 
 	/**
@@ -295,8 +733,8 @@ public abstract class AbstractStore implements Store
 	@Override
 	public final void delete() 
 	{
-		synchronized (this) 
-		{
+		lock.writeLock().lock();
+		try {
 			// Requires write permissions.
 			access.tryWrite(this);
 
@@ -304,16 +742,19 @@ public abstract class AbstractStore implements Store
 			close();
 			storeDelete();	
 		}
+		finally {
+			lock.writeLock().unlock();
+		}
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override	
-	public final int capacity(int newCapacity) 
+	public final long capacity(long newCapacity) 
 	{
-		synchronized (this) 
-		{
+		lock.writeLock().lock();
+		try {
 			// Open if necessary, or throw StoreClosedException
 			validate();
 			
@@ -331,16 +772,19 @@ public abstract class AbstractStore implements Store
 			}	
 			return capacity;
 		}
+		finally {
+			lock.writeLock().unlock();
+		}
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
-	public final StoreAccess create(StoreAccess initialAccess, int initialCapacity) throws StoreIOException 
+	public final StoreAccess create(StoreAccess initialAccess, long initialCapacity) throws StoreIOException 
 	{
-		synchronized (this) 
-		{
+		lock.writeLock().lock();
+		try {
 			// Open with given access.
 			if (open(initialAccess) != null) 
 			{
@@ -350,6 +794,9 @@ public abstract class AbstractStore implements Store
 			
 			return access;
 		}
+		finally {
+			lock.writeLock().unlock();
+		}
 	}
 
 	/**
@@ -358,8 +805,8 @@ public abstract class AbstractStore implements Store
 	@Override
 	public final StoreAccess open(StoreAccess initialAccess) throws StoreIOException 
 	{
-		synchronized (this) 
-		{
+		lock.writeLock().lock();
+		try {
 			// If access is null, no permissions can be granted!
 			if (initialAccess == null) {
 				return null;
@@ -377,6 +824,11 @@ public abstract class AbstractStore implements Store
 					// Open succeeds, access granted.
 					access = initialAccess;
 					closed = false;
+					
+					GroupFlush group = groupFlush;
+					if (group != null) {
+						group.start();
+					}
 				}
 				// An error occurred opening store.
 				catch (IOException e) {
@@ -394,6 +846,9 @@ public abstract class AbstractStore implements Store
 			// The accepted access to the store.
 			return access;
 		}
+		finally {
+			lock.writeLock().unlock();
+		}
 	}
 
 	/**
@@ -402,18 +857,17 @@ public abstract class AbstractStore implements Store
 	@Override
 	public final void load() throws StoreIOException 
 	{
-		synchronized (this) 
-		{
-			// Open if necessary, or throw StoreClosedException
-			validate();
-			
+		// Open if necessary, or throw StoreClosedException
+		acquire();
+		try {
 			// Try loading data from persisted medium to memory.
-			try {
-				storeLoad();
-			}
-			catch (IOException e) {
-				throw new StoreIOException(e);
-			}
+			storeLoad();
+		}
+		catch (IOException e) {
+			throw new StoreIOException(e);
+		}
+		finally {
+			release();
 		}
 	}
 
@@ -423,19 +877,20 @@ public abstract class AbstractStore implements Store
 	@Override
 	public final void flush() throws StoreIOException 
 	{
-		synchronized (this) 
-		{
+		lock.readLock().lock();
+		try {
 			// Only flush if not closed and we can write
 			if (!closed && access.canWrite) 
 			{
-				try {
-					storeFlush();
-				}
-				catch (IOException e) {
-					throw new StoreIOException(e);
-				}	
+				storeFlush();
 			}
 		}
+		catch (IOException e) {
+			throw new StoreIOException(e);
+		}
+		finally {
+			lock.readLock().unlock();
+		}
 	}
 
 	/**
@@ -444,8 +899,8 @@ public abstract class AbstractStore implements Store
 	@Override
 	public final void close() throws StoreIOException 
 	{
-		synchronized (this) 
-		{
+		lock.writeLock().lock();
+		try {
 			// Only close if not already closed.
 			if (!closed) {
 				// Always flush before close.
@@ -460,9 +915,20 @@ public abstract class AbstractStore implements Store
 				finally {
 					// Assume its closed even when an exception is thrown.
 					closed = true;
+					
+					// Any writes waiting on a group flush were flushed above,
+					// the flushing thread is started again when reopened.
+					GroupFlush group = groupFlush;
+					if (group != null) {
+						group.closed();
+						group.stop();
+					}
 				}
 			}
 		}
+		finally {
+			lock.writeLock().unlock();
+		}
 	}
 
 	/**
@@ -471,9 +937,7 @@ public abstract class AbstractStore implements Store
 	@Override
 	public final boolean isClosed() 
 	{
-		synchronized (this) {
-			return closed;
-		}
+		return closed;
 	}
 
 	/**
@@ -482,74 +946,87 @@ public abstract class AbstractStore implements Store
 	@Override
 	public final boolean isOpen() 
 	{
-		synchronized (this) {
-			return !closed;
-		}
+		return !closed;
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
-	public final void get(int location, byte[] bytes, int offset, int length) 
+	public final void get(long location, byte[] bytes, int offset, int length) 
 	{
-		synchronized (this) 
-		{
+		checkLocation(location);
+		
+		// Open if necessary, or throw StoreClosedException
+		acquire();
+		try {
 			// Automatically loads data after a single write.
 			if (autoLoad) {
-				load();
-			}
-			else {
-				// Open if necessary, or throw StoreClosedException
-				validate();	
+				storeLoad();
 			}
 
 			// Requires read permissions.
 			access.tryRead(this);
 
+			// Only writes over the same stripes block this read.
+			stripes.lockRead(location, length);
 			try {
 				storeGet(location, bytes, offset, length);	
 			}
-			catch (IOException e) {
-				throw new StoreIOException(e);
+			finally {
+				stripes.unlockRead(location, length);
 			}
-		}	
+		}
+		catch (IOException e) {
+			throw new StoreIOException(e);
+		}
+		finally {
+			release();
+		}
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
-	public final void get(int location, ByteBuffer buffer) 
+	public final void get(long location, ByteBuffer buffer) 
 	{
-		synchronized (this) 
-		{
+		checkLocation(location);
+		
+		// Open if necessary, or throw StoreClosedException
+		acquire();
+		try {
 			// Automatically loads data after a single write.
 			if (autoLoad) {
-				load();
-			}
-			else {
-				// Open if necessary, or throw StoreClosedException
-				validate();	
+				storeLoad();
 			}
 			
 			// Requires read permissions.
 			access.tryRead(this);
 
+			// Only writes over the same stripes block this read.
+			int length = buffer.remaining();
+			stripes.lockRead(location, length);
 			try {
 				storeGet(location, buffer);	
 			}
-			catch (IOException e) {
-				throw new StoreIOException(e);
+			finally {
+				stripes.unlockRead(location, length);
 			}
-		}	
+		}
+		catch (IOException e) {
+			throw new StoreIOException(e);
+		}
+		finally {
+			release();
+		}
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
-	public final void get(int location, byte[] bytes) 
+	public final void get(long location, byte[] bytes) 
 	{
 		get(location, bytes, 0, bytes.length);
 	}
@@ -558,7 +1035,7 @@ public abstract class AbstractStore implements Store
 	 * {@inheritDoc}
 	 */
 	@Override
-	public final byte[] get(int location, int size) 
+	public final byte[] get(long location, int size) 
 	{
 		byte[] data = new byte[size];
 		get(location, data, 0, size);
@@ -569,27 +1046,33 @@ public abstract class AbstractStore implements Store
 	 * {@inheritDoc}
 	 */
 	@Override
-	public final void put(int location, byte[] bytes, int offset, int length) 
+	public final void put(long location, byte[] bytes, int offset, int length) 
 	{
-		synchronized (this) 
-		{
-			// Open if necessary, or throw StoreClosedException
-			validate();
-			
+		checkLocation(location);
+		
+		// Open if necessary, or throw StoreClosedException
+		acquire();
+		try {
 			// Requires write permissions.
 			access.tryWrite(this);
 			
+			// Only reads and writes over the same stripes block this write.
+			stripes.lockWrite(location, length);
 			try {
 				storePut(location, bytes, offset, length);
 			}
-			catch (IOException e) {
-				throw new StoreIOException(e);
+			finally {
+				stripes.unlockWrite(location, length);
 			}
 			
 			// Automatically flushes data after a single write.
-			if (autoFlush) {
-				flush();
-			}
+			flushed(length);
+		}
+		catch (IOException e) {
+			throw new StoreIOException(e);
+		}
+		finally {
+			release();
 		}
 	}
 
@@ -597,27 +1080,34 @@ public abstract class AbstractStore implements Store
 	 * {@inheritDoc}
 	 */
 	@Override
-	public final void put(int location, ByteBuffer buffer) 
+	public final void put(long location, ByteBuffer buffer) 
 	{
-		synchronized (this) 
-		{
-			// Open if necessary, or throw StoreClosedException
-			validate();
-			
+		checkLocation(location);
+		
+		// Open if necessary, or throw StoreClosedException
+		acquire();
+		try {
 			// Requires write permissions.
 			access.tryWrite(this);
 			
+			// Only reads and writes over the same stripes block this write.
+			int length = buffer.remaining();
+			stripes.lockWrite(location, length);
 			try {
 				storePut(location, buffer);
 			}
-			catch (IOException e) {
-				throw new StoreIOException(e);
+			finally {
+				stripes.unlockWrite(location, length);
 			}
 			
 			// Automatically flushes data after a single write.
-			if (autoFlush) {
-				flush();
-			}
+			flushed(length);
+		}
+		catch (IOException e) {
+			throw new StoreIOException(e);
+		}
+		finally {
+			release();
 		}
 	}
 
@@ -625,11 +1115,155 @@ public abstract class AbstractStore implements Store
 	 * {@inheritDoc}
 	 */
 	@Override
-	public final void put(int location, byte[] bytes) 
+	public final void put(long location, byte[] bytes) 
 	{
 		put(location, bytes, 0, bytes.length);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final void get(StoreBatch batch) 
+	{
+		checkLocation(batch.getStart());
+		
+		// Open if necessary, or throw StoreClosedException
+		acquire();
+		try {
+			// Automatically loads data after a single write.
+			if (autoLoad) {
+				storeLoad();
+			}
+			
+			// Requires read permissions.
+			access.tryRead(this);
+
+			// Lock only the stripes of the ranges the entries cover.
+			long[] starts = new long[batch.size()];
+			long[] lengths = new long[batch.size()];
+			int ranges = ranges(batch, starts, lengths);
+			stripes.lockRead(starts, lengths, ranges);
+			try {
+				storeGet(batch);
+			}
+			finally {
+				stripes.unlockRead(starts, lengths, ranges);
+			}
+		}
+		catch (IOException e) {
+			throw new StoreIOException(e);
+		}
+		finally {
+			release();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final void put(StoreBatch batch) 
+	{
+		checkLocation(batch.getStart());
+		
+		// Open if necessary, or throw StoreClosedException
+		acquire();
+		try {
+			// Requires write permissions.
+			access.tryWrite(this);
+			
+			// Lock only the stripes of the ranges the entries cover.
+			long[] starts = new long[batch.size()];
+			long[] lengths = new long[batch.size()];
+			int ranges = ranges(batch, starts, lengths);
+			long bytes = batch.getBytes();
+			stripes.lockWrite(starts, lengths, ranges);
+			try {
+				storePut(batch);
+			}
+			finally {
+				stripes.unlockWrite(starts, lengths, ranges);
+			}
+			
+			// Automatically flushes data after the whole batch.
+			flushed(bytes);
+		}
+		catch (IOException e) {
+			throw new StoreIOException(e);
+		}
+		finally {
+			release();
+		}
+	}
+
+	/**
+	 * Coalesces the entries of a batch into ranges of bytes in location 
+	 * order, where entries which touch or overlap share a range.
+	 * 
+	 * @param batch
+	 * 		The batch.
+	 * @param starts
+	 * 		The array to place the start of each range in.
+	 * @param lengths
+	 * 		The array to place the number of bytes in each range in.
+	 * @return
+	 * 		The number of ranges.
+	 */
+	private static int ranges(StoreBatch batch, long[] starts, long[] lengths)
+	{
+		int[] order = batch.order();
+		int ranges = 0;
+		long end = 0;
+		
+		for (int i = 0; i < order.length; i++) {
+			long location = batch.getLocation(order[i]);
+			long next = location + batch.getBuffer(order[i]).remaining();
+			
+			if (ranges > 0 && location <= end) {
+				end = Math.max(end, next);
+			}
+			else {
+				starts[ranges++] = location;
+				end = next;
+			}
+			lengths[ranges - 1] = end - starts[ranges - 1];
+		}
+		return ranges;
+	}
+
+	/**
+	 * Returns the number of bytes covered by a single stripe of the lock 
+	 * acquired by reads and writes on ranges of bytes in this store.
+	 * 
+	 * @return
+	 * 		The size of a stripe in bytes.
+	 */
+	public final int getStripeSize()
+	{
+		return stripes.getStripeSize();
+	}
+	
+	/**
+	 * Sets the number of bytes covered by a single stripe of the lock acquired
+	 * by reads and writes on ranges of bytes in this store. Writers to 
+	 * different stripes can proceed in parallel. This waits for any reads and
+	 * writes in progress to finish.
+	 * 
+	 * @param stripeSize
+	 * 		The size of a stripe in bytes.
+	 */
+	public final void setStripeSize(int stripeSize)
+	{
+		lock.writeLock().lock();
+		try {
+			stripes = new StripedLock(stripeSize, stripes.getStripeCount());
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -665,6 +1299,725 @@ public abstract class AbstractStore implements Store
 	{
 		this.autoFlush = autoFlush;
 	}
+	
+	/**
+	 * Flushes this store on a background thread for groups of writes instead
+	 * of after every write. A flush happens once the interval has passed since
+	 * the first write that hasn't been flushed, or once the given number of 
+	 * bytes have been written, whichever comes first. While set this takes 
+	 * the place of auto flush. Passing zero for both disables group flush and
+	 * flushes any writes still waiting. The background thread is stopped when
+	 * this store is closed and started again when it's opened.
+	 * 
+	 * @param interval
+	 * 		The milliseconds after the first unflushed write to flush, or 0 to
+	 * 		only flush by bytes and when {@link #durable()} is waited on.
+	 * @param bytes
+	 * 		The number of unflushed bytes which causes a flush, or 0 to only 
+	 * 		flush by interval.
+	 */
+	public final void setGroupFlush(long interval, long bytes)
+	{
+		GroupFlush previous = groupFlush;
+		GroupFlush group = (interval > 0 || bytes > 0 ? new GroupFlush(this, interval, bytes) : null);
+		
+		// A closed store starts flushing when it's opened.
+		if (group != null && !closed) {
+			group.start();
+		}
+		groupFlush = group;
+		
+		if (previous != null) {
+			previous.stop();
+		}
+	}
+	
+	/**
+	 * Returns whether this store flushes groups of writes on a background 
+	 * thread.
+	 * 
+	 * @return
+	 * 		True if group flush is set.
+	 */
+	public final boolean isGroupFlush()
+	{
+		return (groupFlush != null);
+	}
+	
+	/**
+	 * Returns the milliseconds after the first unflushed write to flush.
+	 * 
+	 * @return
+	 * 		The group flush interval, or 0 if not flushed by interval.
+	 */
+	public final long getGroupFlushInterval()
+	{
+		GroupFlush group = groupFlush;
+		return (group == null ? 0 : group.getInterval());
+	}
+	
+	/**
+	 * Returns the number of unflushed bytes which causes a flush.
+	 * 
+	 * @return
+	 * 		The group flush size, or 0 if not flushed by bytes.
+	 */
+	public final long getGroupFlushBytes()
+	{
+		GroupFlush group = groupFlush;
+		return (group == null ? 0 : group.getBytes());
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final byte getByte(long location) 
+	{
+		checkLocation(location);
+		
+		// Open if necessary, or throw StoreClosedException
+		acquire();
+		try {
+			// Automatically loads data after a single write.
+			if (autoLoad) {
+				storeLoad();
+			}
+			
+			// Requires read permissions.
+			access.tryRead(this);
+
+			// Only writes over the same stripes block this read.
+			stripes.lockRead(location, 1);
+			try {
+				return storeGetByte(location);
+			}
+			finally {
+				stripes.unlockRead(location, 1);
+			}
+		}
+		catch (IOException e) {
+			throw new StoreIOException(e);
+		}
+		finally {
+			release();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final void putByte(long location, byte value) 
+	{
+		checkLocation(location);
+		
+		// Open if necessary, or throw StoreClosedException
+		acquire();
+		try {
+			// Requires write permissions.
+			access.tryWrite(this);
+			
+			// Only reads and writes over the same stripes block this write.
+			stripes.lockWrite(location, 1);
+			try {
+				storePutByte(location, value);
+			}
+			finally {
+				stripes.unlockWrite(location, 1);
+			}
+			
+			// Automatically flushes data after a single write.
+			flushed(1);
+		}
+		catch (IOException e) {
+			throw new StoreIOException(e);
+		}
+		finally {
+			release();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final short getShort(long location) 
+	{
+		checkLocation(location);
+		
+		// Open if necessary, or throw StoreClosedException
+		acquire();
+		try {
+			// Automatically loads data after a single write.
+			if (autoLoad) {
+				storeLoad();
+			}
+			
+			// Requires read permissions.
+			access.tryRead(this);
+
+			// Only writes over the same stripes block this read.
+			stripes.lockRead(location, 2);
+			try {
+				return storeGetShort(location);
+			}
+			finally {
+				stripes.unlockRead(location, 2);
+			}
+		}
+		catch (IOException e) {
+			throw new StoreIOException(e);
+		}
+		finally {
+			release();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final void putShort(long location, short value) 
+	{
+		checkLocation(location);
+		
+		// Open if necessary, or throw StoreClosedException
+		acquire();
+		try {
+			// Requires write permissions.
+			access.tryWrite(this);
+			
+			// Only reads and writes over the same stripes block this write.
+			stripes.lockWrite(location, 2);
+			try {
+				storePutShort(location, value);
+			}
+			finally {
+				stripes.unlockWrite(location, 2);
+			}
+			
+			// Automatically flushes data after a single write.
+			flushed(2);
+		}
+		catch (IOException e) {
+			throw new StoreIOException(e);
+		}
+		finally {
+			release();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final int getInt(long location) 
+	{
+		checkLocation(location);
+		
+		// Open if necessary, or throw StoreClosedException
+		acquire();
+		try {
+			// Automatically loads data after a single write.
+			if (autoLoad) {
+				storeLoad();
+			}
+			
+			// Requires read permissions.
+			access.tryRead(this);
+
+			// Only writes over the same stripes block this read.
+			stripes.lockRead(location, 4);
+			try {
+				return storeGetInt(location);
+			}
+			finally {
+				stripes.unlockRead(location, 4);
+			}
+		}
+		catch (IOException e) {
+			throw new StoreIOException(e);
+		}
+		finally {
+			release();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final void putInt(long location, int value) 
+	{
+		checkLocation(location);
+		
+		// Open if necessary, or throw StoreClosedException
+		acquire();
+		try {
+			// Requires write permissions.
+			access.tryWrite(this);
+			
+			// Only reads and writes over the same stripes block this write.
+			stripes.lockWrite(location, 4);
+			try {
+				storePutInt(location, value);
+			}
+			finally {
+				stripes.unlockWrite(location, 4);
+			}
+			
+			// Automatically flushes data after a single write.
+			flushed(4);
+		}
+		catch (IOException e) {
+			throw new StoreIOException(e);
+		}
+		finally {
+			release();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final long getLong(long location) 
+	{
+		checkLocation(location);
+		
+		// Open if necessary, or throw StoreClosedException
+		acquire();
+		try {
+			// Automatically loads data after a single write.
+			if (autoLoad) {
+				storeLoad();
+			}
+			
+			// Requires read permissions.
+			access.tryRead(this);
+
+			// Only writes over the same stripes block this read.
+			stripes.lockRead(location, 8);
+			try {
+				return storeGetLong(location);
+			}
+			finally {
+				stripes.unlockRead(location, 8);
+			}
+		}
+		catch (IOException e) {
+			throw new StoreIOException(e);
+		}
+		finally {
+			release();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final void putLong(long location, long value) 
+	{
+		checkLocation(location);
+		
+		// Open if necessary, or throw StoreClosedException
+		acquire();
+		try {
+			// Requires write permissions.
+			access.tryWrite(this);
+			
+			// Only reads and writes over the same stripes block this write.
+			stripes.lockWrite(location, 8);
+			try {
+				storePutLong(location, value);
+			}
+			finally {
+				stripes.unlockWrite(location, 8);
+			}
+			
+			// Automatically flushes data after a single write.
+			flushed(8);
+		}
+		catch (IOException e) {
+			throw new StoreIOException(e);
+		}
+		finally {
+			release();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final long putBits(long location, int size, long mask, long bits) 
+	{
+		if (size != 1 && size != 2 && size != 4 && size != 8) {
+			throw new IllegalArgumentException("A word must be 1, 2, 4, or 8 bytes");
+		}
+		
+		checkLocation(location);
+		
+		// Open if necessary, or throw StoreClosedException
+		acquire();
+		try {
+			// Automatically loads data after a single write.
+			if (autoLoad) {
+				storeLoad();
+			}
+			
+			// Requires read and write permissions.
+			access.tryRead(this);
+			access.tryWrite(this);
+			
+			// The write lock is held across the get and put of the word.
+			long word;
+			stripes.lockWrite(location, size);
+			try {
+				switch (size) {
+				case 1:
+					word = storeGetByte(location) & 0xFFL;
+					break;
+				case 2:
+					word = storeGetShort(location) & 0xFFFFL;
+					break;
+				case 4:
+					word = storeGetInt(location) & 0xFFFFFFFFL;
+					break;
+				default:
+					word = storeGetLong(location);
+					break;
+				}
+				
+				word = (word & ~mask) | (bits & mask);
+				
+				switch (size) {
+				case 1:
+					word &= 0xFFL;
+					storePutByte(location, (byte)word);
+					break;
+				case 2:
+					word &= 0xFFFFL;
+					storePutShort(location, (short)word);
+					break;
+				case 4:
+					word &= 0xFFFFFFFFL;
+					storePutInt(location, (int)word);
+					break;
+				default:
+					storePutLong(location, word);
+					break;
+				}
+			}
+			finally {
+				stripes.unlockWrite(location, size);
+			}
+			
+			// Automatically flushes data after a single write.
+			flushed(size);
+			
+			return word;
+		}
+		catch (IOException e) {
+			throw new StoreIOException(e);
+		}
+		finally {
+			release();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final float getFloat(long location) 
+	{
+		checkLocation(location);
+		
+		// Open if necessary, or throw StoreClosedException
+		acquire();
+		try {
+			// Automatically loads data after a single write.
+			if (autoLoad) {
+				storeLoad();
+			}
+			
+			// Requires read permissions.
+			access.tryRead(this);
+
+			// Only writes over the same stripes block this read.
+			stripes.lockRead(location, 4);
+			try {
+				return storeGetFloat(location);
+			}
+			finally {
+				stripes.unlockRead(location, 4);
+			}
+		}
+		catch (IOException e) {
+			throw new StoreIOException(e);
+		}
+		finally {
+			release();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final void putFloat(long location, float value) 
+	{
+		checkLocation(location);
+		
+		// Open if necessary, or throw StoreClosedException
+		acquire();
+		try {
+			// Requires write permissions.
+			access.tryWrite(this);
+			
+			// Only reads and writes over the same stripes block this write.
+			stripes.lockWrite(location, 4);
+			try {
+				storePutFloat(location, value);
+			}
+			finally {
+				stripes.unlockWrite(location, 4);
+			}
+			
+			// Automatically flushes data after a single write.
+			flushed(4);
+		}
+		catch (IOException e) {
+			throw new StoreIOException(e);
+		}
+		finally {
+			release();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final double getDouble(long location) 
+	{
+		checkLocation(location);
+		
+		// Open if necessary, or throw StoreClosedException
+		acquire();
+		try {
+			// Automatically loads data after a single write.
+			if (autoLoad) {
+				storeLoad();
+			}
+			
+			// Requires read permissions.
+			access.tryRead(this);
+
+			// Only writes over the same stripes block this read.
+			stripes.lockRead(location, 8);
+			try {
+				return storeGetDouble(location);
+			}
+			finally {
+				stripes.unlockRead(location, 8);
+			}
+		}
+		catch (IOException e) {
+			throw new StoreIOException(e);
+		}
+		finally {
+			release();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final void putDouble(long location, double value) 
+	{
+		checkLocation(location);
+		
+		// Open if necessary, or throw StoreClosedException
+		acquire();
+		try {
+			// Requires write permissions.
+			access.tryWrite(this);
+			
+			// Only reads and writes over the same stripes block this write.
+			stripes.lockWrite(location, 8);
+			try {
+				storePutDouble(location, value);
+			}
+			finally {
+				stripes.unlockWrite(location, 8);
+			}
+			
+			// Automatically flushes data after a single write.
+			flushed(8);
+		}
+		catch (IOException e) {
+			throw new StoreIOException(e);
+		}
+		finally {
+			release();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final ByteOrder getOrder() 
+	{
+		return order;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final void setOrder(ByteOrder order) 
+	{
+		lock.writeLock().lock();
+		try {
+			this.order = order;
+			
+			// Readers and writers are excluded while buffers change order.
+			if (!closed) {
+				storeOrder(order);
+			}
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Returns the executor which runs asynchronous tasks for this store.
+	 * 
+	 * @return
+	 * 		The executor, or null if tasks are run on the calling thread.
+	 */
+	public final Executor getAsyncExecutor()
+	{
+		return asyncExecutor;
+	}
+	
+	/**
+	 * Sets the executor which runs asynchronous tasks for this store.
+	 * 
+	 * @param asyncExecutor
+	 * 		The executor, or null to run tasks on the calling thread.
+	 */
+	public final void setAsyncExecutor(Executor asyncExecutor)
+	{
+		this.asyncExecutor = asyncExecutor;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final <T> Future<T> async(Callable<T> task) 
+	{
+		FutureTask<T> future = new FutureTask<T>(task);
+		Executor executor = asyncExecutor;
+		if (executor == null) {
+			future.run();
+		}
+		else {
+			executor.execute(future);
+		}
+		return future;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final Future<Void> putAsync(final long location, final ByteBuffer buffer) 
+	{
+		return async(new Callable<Void>() {
+			public Void call() {
+				put(location, buffer);
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final Future<Void> putAsync(final long location, final byte[] bytes) 
+	{
+		return async(new Callable<Void>() {
+			public Void call() {
+				put(location, bytes);
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final Future<Void> getAsync(final long location, final ByteBuffer buffer) 
+	{
+		return async(new Callable<Void>() {
+			public Void call() {
+				get(location, buffer);
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final Future<Void> getAsync(final long location, final byte[] bytes) 
+	{
+		return async(new Callable<Void>() {
+			public Void call() {
+				get(location, bytes);
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final Future<byte[]> getAsync(final long location, final int size) 
+	{
+		return async(new Callable<byte[]>() {
+			public byte[] call() {
+				return get(location, size);
+			}
+		});
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final Future<Void> durable() 
+	{
+		GroupFlush group = groupFlush;
+		if (group != null) {
+			return group.durable();
+		}
+		flush();
+		return GroupFlush.FLUSHED;
+	}
 
 	/**
 	 * {@inheritDoc}
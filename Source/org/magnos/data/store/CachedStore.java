@@ -0,0 +1,602 @@
+/* 
+ * NOTICE OF LICENSE
+ * 
+ * This source file is subject to the Open Software License (OSL 3.0) that is 
+ * bundled with this package in the file LICENSE.txt. It is also available 
+ * through the world-wide-web at http://opensource.org/licenses/osl-3.0.php
+ * If you did not receive a copy of the license and are unable to obtain it 
+ * through the world-wide-web, please send an email to pdiffenderfer@gmail.com 
+ * so we can send you a copy immediately. If you use any of this software please
+ * notify me via my website or email, your feedback is much appreciated. 
+ * 
+ * @copyright   Copyright (c) 2011 Magnos Software (http://www.magnos.org)
+ * @license     http://opensource.org/licenses/osl-3.0.php
+ * 				Open Software License (OSL 3.0)
+ */
+
+package org.magnos.data.store;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+
+import org.magnos.data.Bits;
+import org.magnos.data.Store;
+import org.magnos.data.StoreAccess;
+import org.magnos.data.store.cache.CachePolicy;
+import org.magnos.data.store.cache.LruCachePolicy;
+import org.magnos.data.store.cache.PageTable;
+import org.magnos.data.store.cache.PinnedFrames;
+
+
+/**
+ * A store which caches the pages of another store in direct buffers. The 
+ * number of pages cached is bounded by a budget of bytes, and when the cache
+ * is full a CachePolicy chooses the page to evict. Writes are made to the 
+ * underlying store immediately and update any cached pages they overlap. 
+ * The table of cached pages is guarded by a single lock which is only held 
+ * to find, claim, or update frames; pages are loaded from the underlying 
+ * store outside of it. A frame is pinned while a page is loaded into it or
+ * copied out of it so it can't be evicted, and readers of a page which is
+ * being loaded wait for it instead of loading it again. When every frame is
+ * pinned a read goes directly to the underlying store. This is best placed 
+ * in front of read-mostly stores whose working set fits in memory.
+ * 
+ * @author Philip Diffenderfer
+ *
+ */
+public class CachedStore extends AbstractStore 
+{
+
+	/**
+	 * The default size of a cached page.
+	 */
+	public static final int DEFAULT_PAGE_SIZE = 4 * 1024;
+	
+	/**
+	 * The default number of bytes the cached pages may use.
+	 */
+	public static final long DEFAULT_BUDGET = 64 * 1024 * 1024;
+	
+	// The store being cached.
+	private final Store store;
+	
+	// The size of a cached page.
+	private final int pageSize;
+	
+	// The policy which chooses the page to evict.
+	private final CachePolicy policy;
+	
+	// The frame of each cached page, by page index. This is also the lock for the cache.
+	private final PageTable table;
+	
+	// The buffer of each frame, allocated when first used.
+	private final ByteBuffer[] frames;
+	
+	// The page index in each frame, by frame.
+	private final long[] framePages;
+	
+	// The stack of empty frames.
+	private final int[] free;
+	
+	// The number of empty frames.
+	private int freeCount;
+	
+	// The number of readers using each frame, by frame.
+	private final int[] pins;
+	
+	// The number of pins on all frames.
+	private int pinned;
+	
+	// Whether the page in each frame is still being loaded, by frame.
+	private final boolean[] loading;
+	
+	// Whether the page in each frame was written while it was being loaded, by frame.
+	private final boolean[] stale;
+	
+	// The frames the policy must skip when evicting.
+	private final PinnedFrames pinnedFrames = new PinnedFrames() {
+		public boolean isPinned(int frame) {
+			return pins[frame] > 0;
+		}
+	};
+	
+	// The number of page reads served from the cache.
+	private long hits;
+	
+	// The number of page reads which loaded the page from the store.
+	private long misses;
+	
+	// The number of pages evicted to make room for another.
+	private long evictions;
+	
+	/**
+	 * Instantiates a new CachedStore with the default page size, budget, and
+	 * a least recently used policy.
+	 * 
+	 * @param store
+	 * 		The store to cache.
+	 */
+	public CachedStore(Store store)
+	{
+		this(store, DEFAULT_PAGE_SIZE, DEFAULT_BUDGET, new LruCachePolicy());
+	}
+	
+	/**
+	 * Instantiates a new CachedStore.
+	 * 
+	 * @param store
+	 * 		The store to cache.
+	 * @param pageSize
+	 * 		The size of a cached page in bytes.
+	 * @param budget
+	 * 		The number of bytes the cached pages may use. At least one page is
+	 * 		always cached.
+	 * @param policy
+	 * 		The policy which chooses the page to evict when the cache is full.
+	 * @throws IllegalArgumentException
+	 * 		The page size is not positive.
+	 */
+	public CachedStore(Store store, int pageSize, long budget, CachePolicy policy)
+	{
+		super(store.getName());
+		
+		if (pageSize <= 0) {
+			throw new IllegalArgumentException("The page size must be positive");
+		}
+		int frameCount = (int)Math.min(Integer.MAX_VALUE, Math.max(1, budget / pageSize));
+		
+		this.store = store;
+		this.pageSize = pageSize;
+		this.policy = policy;
+		this.frames = new ByteBuffer[frameCount];
+		this.framePages = new long[frameCount];
+		this.free = new int[frameCount];
+		this.pins = new int[frameCount];
+		this.loading = new boolean[frameCount];
+		this.stale = new boolean[frameCount];
+		this.table = new PageTable(frameCount);
+		this.invalidate();
+	}
+	
+	/**
+	 * Returns the store being cached.
+	 * 
+	 * @return
+	 * 		The underlying store.
+	 */
+	public Store getStore()
+	{
+		return store;
+	}
+	
+	/**
+	 * Returns the size of a cached page.
+	 * 
+	 * @return
+	 * 		The page size in bytes.
+	 */
+	public int getPageSize()
+	{
+		return pageSize;
+	}
+	
+	/**
+	 * Returns the maximum number of pages which may be cached.
+	 * 
+	 * @return
+	 * 		The number of frames in the cache.
+	 */
+	public int getFrameCount()
+	{
+		return frames.length;
+	}
+	
+	/**
+	 * Returns the policy which chooses the page to evict.
+	 * 
+	 * @return
+	 * 		The cache policy.
+	 */
+	public CachePolicy getPolicy()
+	{
+		return policy;
+	}
+	
+	/**
+	 * Returns the number of page reads served from the cache.
+	 * 
+	 * @return
+	 * 		The number of cache hits.
+	 */
+	public long getHits()
+	{
+		synchronized (table) {
+			return hits;
+		}
+	}
+	
+	/**
+	 * Returns the number of page reads which loaded the page from the store.
+	 * 
+	 * @return
+	 * 		The number of cache misses.
+	 */
+	public long getMisses()
+	{
+		synchronized (table) {
+			return misses;
+		}
+	}
+	
+	/**
+	 * Returns the number of pages evicted to make room for another.
+	 * 
+	 * @return
+	 * 		The number of evictions.
+	 */
+	public long getEvictions()
+	{
+		synchronized (table) {
+			return evictions;
+		}
+	}
+	
+	/**
+	 * Sets the hit, miss, and eviction counters back to zero.
+	 */
+	public void resetStatistics()
+	{
+		synchronized (table) {
+			hits = misses = evictions = 0;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected long storeOpen(StoreAccess access) throws IOException 
+	{
+		store.open(access);
+		invalidate();
+		return store.capacity();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void storeLoad() throws IOException 
+	{
+		store.load();
+		invalidate();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void storeFlush() throws IOException 
+	{
+		store.flush();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void storeClose() throws IOException 
+	{
+		synchronized (table) {
+			invalidate();
+			for (int i = 0; i < frames.length; i++) {
+				if (frames[i] != null) {
+					Bits.free(frames[i]);
+					frames[i] = null;
+				}
+			}
+		}
+		store.close();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected long storeResize(long capacity) throws IOException 
+	{
+		// The last page changes size.
+		invalidate();
+		return store.capacity(capacity);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected boolean storeExists() 
+	{
+		return store.exists();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void storeDelete() 
+	{
+		store.delete();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void storeGet(long location, byte[] bytes, int offset, int length) throws IOException 
+	{
+		storeGet(location, ByteBuffer.wrap(bytes, offset, length));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void storeGet(long location, ByteBuffer buffer) throws IOException 
+	{
+		int limit = buffer.limit();
+		long position = location;
+		
+		while (buffer.hasRemaining()) {
+			long index = position / pageSize;
+			int offset = (int)(position - index * pageSize);
+			int count = Math.min(buffer.remaining(), pageSize - offset);
+			int frame = pin(index);
+			
+			buffer.limit(buffer.position() + count);
+			try {
+				if (frame == -1) {
+					store.get(position, buffer);
+				}
+				else {
+					ByteBuffer view = frames[frame].duplicate();
+					view.clear();
+					view.position(offset);
+					view.limit(offset + count);
+					buffer.put(view);
+				}
+			}
+			finally {
+				buffer.limit(limit);
+				if (frame != -1) {
+					unpin(frame);
+				}
+			}
+			position += count;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void storePut(long location, byte[] bytes, int offset, int length) throws IOException 
+	{
+		storePut(location, ByteBuffer.wrap(bytes, offset, length));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void storePut(long location, ByteBuffer buffer) throws IOException 
+	{
+		ByteBuffer source = buffer.duplicate();
+		store.put(location, buffer);
+		
+		synchronized (table) {
+			// Update the cached pages, pages which aren't cached are skipped
+			// and pages still being loaded are loaded again.
+			long position = location;
+			while (source.hasRemaining()) {
+				long index = position / pageSize;
+				int offset = (int)(position - index * pageSize);
+				int count = Math.min(source.remaining(), pageSize - offset);
+				int frame = table.get(index);
+				
+				source.limit(source.position() + count);
+				if (frame != -1) {
+					if (loading[frame]) {
+						stale[frame] = true;
+					}
+					else {
+						ByteBuffer view = frames[frame].duplicate();
+						view.clear();
+						view.position(offset);
+						view.put(source);
+					}
+				}
+				source.position(source.limit());
+				source.limit(buffer.limit());
+				position += count;
+			}
+		}
+	}
+	
+	/**
+	 * Pins the frame holding the page with the given index, loading the page
+	 * from the store outside of the lock if it's not cached. The frame must
+	 * be unpinned once the caller is done reading it.
+	 * 
+	 * @param index
+	 * 		The index of the page.
+	 * @return
+	 * 		The frame holding the page, or -1 if every frame is pinned and the
+	 * 		page should be read from the store directly.
+	 * @throws IOException
+	 * 		An error occurred loading the page.
+	 */
+	private int pin(long index) throws IOException
+	{
+		int frame;
+		
+		synchronized (table) {
+			for (;;) {
+				frame = table.get(index);
+				if (frame == -1) {
+					break;
+				}
+				if (!loading[frame]) {
+					hits++;
+					policy.access(frame);
+					pins[frame]++;
+					pinned++;
+					return frame;
+				}
+				try {
+					table.wait();
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("Interrupted waiting for a page to load");
+				}
+			}
+			misses++;
+			
+			frame = claim();
+			if (frame == -1) {
+				return -1;
+			}
+			if (frames[frame] == null) {
+				frames[frame] = ByteBuffer.allocateDirect(pageSize);
+			}
+			table.put(index, frame);
+			framePages[frame] = index;
+			policy.insert(frame, index);
+			loading[frame] = true;
+			stale[frame] = false;
+			pins[frame]++;
+			pinned++;
+		}
+		
+		boolean loaded = false;
+		try {
+			for (;;) {
+				load(frames[frame], index);
+				
+				synchronized (table) {
+					if (!stale[frame]) {
+						loading[frame] = false;
+						loaded = true;
+						table.notifyAll();
+						return frame;
+					}
+					stale[frame] = false;
+				}
+			}
+		}
+		finally {
+			if (!loaded) {
+				synchronized (table) {
+					table.remove(index);
+					policy.remove(frame);
+					free[freeCount++] = frame;
+					loading[frame] = false;
+					pins[frame]--;
+					pinned--;
+					table.notifyAll();
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Unpins a frame returned by {@link #pin(long)}.
+	 * 
+	 * @param frame
+	 * 		The frame to unpin.
+	 */
+	private void unpin(int frame)
+	{
+		synchronized (table) {
+			pins[frame]--;
+			if (--pinned == 0) {
+				table.notifyAll();
+			}
+		}
+	}
+	
+	/**
+	 * Returns an empty frame, evicting the page in an unpinned frame if
+	 * there are none. The caller must hold the lock on the table.
+	 * 
+	 * @return
+	 * 		The empty frame, or -1 if every frame is pinned.
+	 */
+	private int claim()
+	{
+		if (freeCount > 0) {
+			return free[--freeCount];
+		}
+		int frame = policy.evict(pinnedFrames);
+		if (frame != -1) {
+			table.remove(framePages[frame]);
+			evictions++;
+		}
+		return frame;
+	}
+	
+	/**
+	 * Loads what the store has of the page with the given index into the 
+	 * buffer and zeros the rest.
+	 * 
+	 * @param buffer
+	 * 		The buffer of the frame to load the page into.
+	 * @param index
+	 * 		The index of the page.
+	 */
+	private void load(ByteBuffer buffer, long index)
+	{
+		long start = index * pageSize;
+		long length = Math.max(0, Math.min(pageSize, store.capacity() - start));
+		buffer.clear();
+		buffer.limit((int)length);
+		if (length > 0) {
+			store.get(start, buffer);
+		}
+		buffer.limit(pageSize);
+		while (buffer.hasRemaining()) {
+			buffer.put((byte)0);
+		}
+		buffer.clear();
+	}
+	
+	/**
+	 * Drops every cached page once no frame is pinned, the frames are kept 
+	 * to be reused.
+	 */
+	private void invalidate()
+	{
+		synchronized (table) {
+			boolean interrupted = false;
+			while (pinned > 0) {
+				try {
+					table.wait();
+				}
+				catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+			table.clear();
+			for (int i = 0; i < free.length; i++) {
+				free[i] = free.length - i - 1;
+			}
+			freeCount = free.length;
+			policy.reset(free.length);
+		}
+	}
+
+}
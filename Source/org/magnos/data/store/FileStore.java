@@ -18,15 +18,46 @@ package org.magnos.data.store;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.magnos.data.StoreAccess;
+import org.magnos.data.StoreBatch;
+import org.magnos.data.error.StoreIOException;
 
 
 /**
  * A store which has a file as its persisted medium. All reads and writes are
- * made to the file immediately.
+ * made to the file immediately at absolute positions, so concurrent reads and
+ * writes do not contend over the file pointer. Reads and writes of byte arrays
+ * and heap buffers are copied through a direct buffer reused by each thread.
+ * Batches are sorted by location and adjacent entries are coalesced into a
+ * single scattering read or gathering write.
+ * <br/>
+ * In write-back mode writes are made to fixed-size pages kept in memory and
+ * reads of those pages are served from them. Dirty pages are written to the 
+ * file in location order, with adjacent pages in a single write, when the 
+ * store is flushed, resized, or closed or when the number of dirty bytes 
+ * reaches a threshold. The file is only read or written while the pages are
+ * locked when the store is flushed, resized, or closed, so reads of clean 
+ * pages and writes which reach the threshold don't wait on each other.
+ * <br/>
+ * Asynchronous reads and writes run on the {@link #ASYNC_EXECUTOR} by default.
  * 
  * @author Philip Diffenderfer
  *
@@ -34,12 +65,92 @@ import org.magnos.data.StoreAccess;
 public class FileStore extends AbstractStore 
 {
 
+	/**
+	 * The size of the direct buffer each thread copies arrays through.
+	 */
+	public static final int BUFFER_SIZE = 64 * 1024;
+	
+	/**
+	 * The default size of a page in write-back mode.
+	 */
+	public static final int DEFAULT_PAGE_SIZE = 4 * 1024;
+	
+	/**
+	 * The default number of dirty bytes in write-back mode which causes all 
+	 * dirty pages to be written to the file.
+	 */
+	public static final long DEFAULT_DIRTY_THRESHOLD = 4 * 1024 * 1024;
+	
+	/**
+	 * The number of threads the {@link #ASYNC_EXECUTOR} runs tasks on at once.
+	 */
+	public static final int ASYNC_THREADS = Runtime.getRuntime().availableProcessors();
+	
+	/**
+	 * The executor shared by file stores to run asynchronous reads and writes
+	 * on daemon threads, so the callers never wait on the disk. At most 
+	 * {@link #ASYNC_THREADS} tasks run at once and the rest wait in a queue,
+	 * idle threads exit after a minute. Stores which need their own threads
+	 * can be given another with {@link #setAsyncExecutor(Executor)}.
+	 */
+	public static final Executor ASYNC_EXECUTOR = newAsyncExecutor();
+	
+	// The direct buffer each thread copies arrays through.
+	private static final ThreadLocal<ByteBuffer> buffers = new ThreadLocal<ByteBuffer>() {
+		protected ByteBuffer initialValue() {
+			return ByteBuffer.allocateDirect(BUFFER_SIZE);
+		}
+	};
+	
+	// Creates the bounded pool of daemon threads for the ASYNC_EXECUTOR.
+	private static Executor newAsyncExecutor()
+	{
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(ASYNC_THREADS, ASYNC_THREADS, 
+			60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "FileStore-async");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
 	// The file the store is persisted to.
 	private File file;
 	
 	// The stream used to perform operations on the file.
 	private RandomAccessFile stream;
 	
+	// The channel used to perform positional operations on the file.
+	private FileChannel channel;
+	
+	// Serializes gathering and scattering, which use the channels position.
+	private final Object batchLock = new Object();
+	
+	// The dirty pages by page index, this is also the lock for write-back.
+	private final TreeMap<Long, ByteBuffer> pages = new TreeMap<Long, ByteBuffer>();
+	
+	// The pages being written to the file without holding the lock.
+	private final TreeMap<Long, ByteBuffer> flushing = new TreeMap<Long, ByteBuffer>();
+	
+	// The clean pages which can be reused.
+	private final ArrayDeque<ByteBuffer> freePages = new ArrayDeque<ByteBuffer>();
+	
+	// Counts the writes of pages to the file, pages read from the file while
+	// the pages weren't locked are only used if this hasn't changed.
+	private long generation;
+	
+	// Whether writes are made to pages in memory instead of the file.
+	private volatile boolean writeBack = false;
+	
+	// The size of a page in write-back mode.
+	private int pageSize = DEFAULT_PAGE_SIZE;
+	
+	// The number of dirty bytes which causes the dirty pages to be written.
+	private long dirtyThreshold = DEFAULT_DIRTY_THRESHOLD;
+	
 	/**
 	 * Instantiates a new FileStore while opening it with the given access and
 	 * setting it to the given capacity.
@@ -52,7 +163,7 @@ public class FileStore extends AbstractStore
 	 * @param capacity
 	 * 		The requested capacity of the store.
 	 */
-	public FileStore(File file, StoreAccess access, int capacity) 
+	public FileStore(File file, StoreAccess access, long capacity) 
 	{
 		this(file);
 		this.create(access, capacity);
@@ -70,7 +181,7 @@ public class FileStore extends AbstractStore
 	 * @param capacity
 	 * 		The requested capacity of the store.
 	 */
-	public FileStore(String filename, StoreAccess access, int capacity) 
+	public FileStore(String filename, StoreAccess access, long capacity) 
 	{
 		this(filename);
 		this.create(access, capacity);
@@ -87,6 +198,7 @@ public class FileStore extends AbstractStore
 	{
 		super(file.getAbsolutePath());
 		this.file = file;
+		this.setAsyncExecutor(ASYNC_EXECUTOR);
 	}
 	
 	/**
@@ -100,6 +212,7 @@ public class FileStore extends AbstractStore
 	{
 		super(filename);
 		this.file = new File(filename);
+		this.setAsyncExecutor(ASYNC_EXECUTOR);
 	}
 	
 	/**
@@ -123,12 +236,126 @@ public class FileStore extends AbstractStore
 	{
 		return stream;
 	}
+	
+	/**
+	 * Returns the channel used to perform positional operations on the file.
+	 * 
+	 * @return
+	 * 		The stores channel.
+	 */
+	public FileChannel getChannel() 
+	{
+		return channel;
+	}
+
+	/**
+	 * Returns whether writes are made to pages in memory which are written to
+	 * the file later.
+	 * 
+	 * @return
+	 * 		True if this store is in write-back mode, false if every write is
+	 * 		made to the file immediately.
+	 */
+	public boolean isWriteBack()
+	{
+		return writeBack;
+	}
+	
+	/**
+	 * Sets whether writes are made to pages in memory which are written to 
+	 * the file later. Leaving write-back mode writes all dirty pages to the
+	 * file.
+	 * 
+	 * @param writeBack
+	 * 		True if this store should be in write-back mode, false if every 
+	 * 		write should be made to the file immediately.
+	 * @throws StoreIOException
+	 * 		An error occurred writing the dirty pages to the file.
+	 */
+	public void setWriteBack(boolean writeBack)
+	{
+		synchronized (pages) {
+			flushPages();
+			this.writeBack = writeBack;
+		}
+	}
+	
+	/**
+	 * Enters write-back mode with the given page size and dirty threshold. Any
+	 * dirty pages are written to the file first.
+	 * 
+	 * @param pageSize
+	 * 		The size of a page in bytes.
+	 * @param dirtyThreshold
+	 * 		The number of dirty bytes which causes all dirty pages to be written
+	 * 		to the file.
+	 * @throws IllegalArgumentException
+	 * 		The page size or dirty threshold is not positive.
+	 * @throws StoreIOException
+	 * 		An error occurred writing the dirty pages to the file.
+	 */
+	public void setWriteBack(int pageSize, long dirtyThreshold)
+	{
+		if (pageSize <= 0 || dirtyThreshold <= 0) {
+			throw new IllegalArgumentException("The page size and dirty threshold must be positive");
+		}
+		synchronized (pages) {
+			flushPages();
+			if (this.pageSize != pageSize) {
+				freePages.clear();
+			}
+			this.pageSize = pageSize;
+			this.dirtyThreshold = dirtyThreshold;
+			this.writeBack = true;
+		}
+	}
+	
+	/**
+	 * Returns the size of a page in write-back mode.
+	 * 
+	 * @return
+	 * 		The size of a page in bytes.
+	 */
+	public int getPageSize()
+	{
+		synchronized (pages) {
+			return pageSize;
+		}
+	}
+	
+	/**
+	 * Returns the number of dirty bytes in write-back mode which causes all 
+	 * dirty pages to be written to the file.
+	 * 
+	 * @return
+	 * 		The dirty threshold in bytes.
+	 */
+	public long getDirtyThreshold()
+	{
+		synchronized (pages) {
+			return dirtyThreshold;
+		}
+	}
+	
+	/**
+	 * Returns the number of bytes in dirty pages which have not been written
+	 * to the file yet.
+	 * 
+	 * @return
+	 * 		The number of dirty bytes.
+	 */
+	public long getDirtyBytes()
+	{
+		synchronized (pages) {
+			return dirtyPages();
+		}
+	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
-	protected int storeOpen(StoreAccess access) throws IOException 
+	protected long storeOpen(StoreAccess access) throws IOException 
 	{
 		// If the file doesn't exist, create it.
 		if (!file.exists()) {
@@ -140,11 +367,12 @@ public class FileStore extends AbstractStore
 		// Open with desired access.
 		String mode = (access.canWrite ? "rw" : "r");
 		stream = new RandomAccessFile(file, mode);
+		channel = stream.getChannel();
 		
 		// If we're supposed to lock it, then do it.
 		if (access.canLock) {
 			try {
-				stream.getChannel().lock();
+				channel.lock();
 			}
 			catch (Exception e) {
 				storeClose();
@@ -152,7 +380,7 @@ public class FileStore extends AbstractStore
 				throw new IOException(e);
 			}
 		}
-		return (int)Math.min(stream.length(), Integer.MAX_VALUE);
+		return stream.length();
 	}
 
 	/**
@@ -169,6 +397,9 @@ public class FileStore extends AbstractStore
 	@Override
 	protected void storeFlush() throws IOException 
 	{
+		synchronized (pages) {
+			writePages();
+		}
 	}
 
 	/**
@@ -177,11 +408,15 @@ public class FileStore extends AbstractStore
 	@Override
 	protected void storeClose() throws IOException 
 	{
-		// Write out all meta-data first.
-		stream.getChannel().force(true);
+		// Write out all dirty pages and meta-data first.
+		synchronized (pages) {
+			writePages();
+		}
+		channel.force(true);
 		// Closing stream will also unlock file
 		stream.close();
 		stream = null;
+		channel = null;
 	}
 
 	/**
@@ -208,50 +443,877 @@ public class FileStore extends AbstractStore
 	 * {@inheritDoc}
 	 */
 	@Override
-	protected int storeResize(int capacity) throws IOException 
+	protected long storeResize(long capacity) throws IOException 
 	{
+		// Dirty pages may lie past the new capacity.
+		synchronized (pages) {
+			writePages();
+		}
 		stream.setLength(capacity);
-		return (int)Math.min(stream.length(), Integer.MAX_VALUE);
+		return stream.length();
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
-	protected void storeGet(int location, byte[] bytes, int offset, int length) throws IOException 
+	protected void storeGet(long location, byte[] bytes, int offset, int length) throws IOException 
 	{
-		stream.seek(location);
-		stream.read(bytes, offset, length);
+		if (!writeBack || !getPages(location, ByteBuffer.wrap(bytes, offset, length))) {
+			fileGet(location, bytes, offset, length);
+		}
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
-	protected void storePut(int location, byte[] bytes, int offset, int length) throws IOException 
+	protected void storePut(long location, byte[] bytes, int offset, int length) throws IOException 
 	{
-		stream.seek(location);
-		stream.write(bytes, offset, length);
+		if (!writeBack || !putPages(location, ByteBuffer.wrap(bytes, offset, length))) {
+			filePut(location, bytes, offset, length);
+		}
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
-	protected void storeGet(int location, ByteBuffer buffer) throws IOException 
+	protected void storeGet(long location, ByteBuffer buffer) throws IOException 
 	{
-		stream.seek(location);
-		stream.getChannel().read(buffer);
+		if (!writeBack || !getPages(location, buffer)) {
+			fileGet(location, buffer);
+		}
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
-	protected void storePut(int location, ByteBuffer buffer) throws IOException 
+	protected void storePut(long location, ByteBuffer buffer) throws IOException 
+	{
+		if (!writeBack || !putPages(location, buffer)) {
+			filePut(location, buffer);
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void storeGet(StoreBatch batch) throws IOException 
+	{
+		// Pages are read entry by entry.
+		if (writeBack) {
+			super.storeGet(batch);
+			return;
+		}
+		
+		// The batch is walked in location order without reordering it.
+		int[] order = batch.order();
+		
+		int i = 0;
+		while (i < order.length) {
+			int end = adjacent(batch, order, i);
+			
+			if (end - i == 1) {
+				fileGet(batch.getLocation(order[i]), batch.getBuffer(order[i]));
+			}
+			else {
+				read(buffers(batch, order, i, end), batch.getLocation(order[i]));
+			}
+			i = end;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void storePut(StoreBatch batch) throws IOException 
+	{
+		// Pages are written entry by entry.
+		if (writeBack) {
+			super.storePut(batch);
+			return;
+		}
+		
+		// The batch is walked in location order without reordering it.
+		int[] order = batch.order();
+		
+		int i = 0;
+		while (i < order.length) {
+			int end = adjacent(batch, order, i);
+			
+			if (end - i == 1) {
+				filePut(batch.getLocation(order[i]), batch.getBuffer(order[i]));
+			}
+			else {
+				write(buffers(batch, order, i, end), batch.getLocation(order[i]));
+			}
+			i = end;
+		}
+	}
+	
+	/**
+	 * Reads bytes from the file into the given array, copying through the 
+	 * direct buffer of the current thread.
+	 * 
+	 * @param location
+	 * 		The location in the file to start reading from.
+	 * @param bytes
+	 * 		The array to read into.
+	 * @param offset
+	 * 		The offset in the array to start reading into.
+	 * @param length
+	 * 		The number of bytes to read.
+	 * @throws IOException
+	 * 		An error occurred reading from the file.
+	 */
+	private void fileGet(long location, byte[] bytes, int offset, int length) throws IOException 
+	{
+		ByteBuffer direct = buffers.get();
+		long position = location;
+		int end = offset + length;
+		
+		while (offset < end) {
+			int count = Math.min(end - offset, direct.capacity());
+			
+			direct.clear();
+			direct.limit(count);
+			int read = read(direct, position);
+			direct.flip();
+			direct.get(bytes, offset, read);
+			
+			// The end of the file has been reached.
+			if (read < count) {
+				break;
+			}
+			offset += count;
+			position += count;
+		}
+	}
+
+	/**
+	 * Writes bytes from the given array to the file, copying through the 
+	 * direct buffer of the current thread.
+	 * 
+	 * @param location
+	 * 		The location in the file to start writing to.
+	 * @param bytes
+	 * 		The array to write from.
+	 * @param offset
+	 * 		The offset in the array to start writing from.
+	 * @param length
+	 * 		The number of bytes to write.
+	 * @throws IOException
+	 * 		An error occurred writing to the file.
+	 */
+	private void filePut(long location, byte[] bytes, int offset, int length) throws IOException 
+	{
+		ByteBuffer direct = buffers.get();
+		long position = location;
+		int end = offset + length;
+		
+		while (offset < end) {
+			int count = Math.min(end - offset, direct.capacity());
+			
+			direct.clear();
+			direct.put(bytes, offset, count);
+			direct.flip();
+			write(direct, position);
+			
+			offset += count;
+			position += count;
+		}
+	}
+
+	/**
+	 * Reads bytes from the file into the given buffer. Heap buffers are read
+	 * through the direct buffer of the current thread.
+	 * 
+	 * @param location
+	 * 		The location in the file to start reading from.
+	 * @param buffer
+	 * 		The buffer to read into.
+	 * @throws IOException
+	 * 		An error occurred reading from the file.
+	 */
+	private void fileGet(long location, ByteBuffer buffer) throws IOException 
+	{
+		if (buffer.isDirect() || !buffer.hasArray()) {
+			read(buffer, location);
+		}
+		else {
+			int position = buffer.position();
+			int length = buffer.remaining();
+			fileGet(location, buffer.array(), buffer.arrayOffset() + position, length);
+			buffer.position(position + length);
+		}
+	}
+
+	/**
+	 * Writes bytes from the given buffer to the file. Heap buffers are written
+	 * through the direct buffer of the current thread.
+	 * 
+	 * @param location
+	 * 		The location in the file to start writing to.
+	 * @param buffer
+	 * 		The buffer to write from.
+	 * @throws IOException
+	 * 		An error occurred writing to the file.
+	 */
+	private void filePut(long location, ByteBuffer buffer) throws IOException 
 	{
-		stream.seek(location);
-		stream.getChannel().write(buffer);
+		if (buffer.isDirect() || !buffer.hasArray()) {
+			write(buffer, location);
+		}
+		else {
+			int position = buffer.position();
+			int length = buffer.remaining();
+			filePut(location, buffer.array(), buffer.arrayOffset() + position, length);
+			buffer.position(position + length);
+		}
+	}
+	
+	/**
+	 * Reads the bytes of every page which overlaps the given buffer. Bytes of
+	 * dirty pages and pages being written are copied from memory while the 
+	 * pages are locked, and the rest are read from the file after the lock is
+	 * released so reads of clean pages never wait on each other.
+	 * 
+	 * @param location
+	 * 		The location in the store to start reading from.
+	 * @param buffer
+	 * 		The buffer to read into.
+	 * @return
+	 * 		False if the store left write-back mode and nothing was read.
+	 * @throws IOException
+	 * 		An error occurred reading from the file.
+	 */
+	private boolean getPages(long location, ByteBuffer buffer) throws IOException
+	{
+		int start = buffer.position();
+		long end = location + buffer.remaining();
+		
+		// The ranges of clean bytes, as pairs of start and end locations.
+		long[] clean = new long[8];
+		int cleanCount = 0;
+		
+		synchronized (pages) {
+			if (!writeBack) {
+				return false;
+			}
+			long position = location;
+			
+			while (position < end) {
+				long index = position / pageSize;
+				int offset = (int)(position - index * pageSize);
+				int count = (int)Math.min(end - position, pageSize - offset);
+				ByteBuffer page = dirtyPage(index);
+				
+				if (page == null) {
+					// The page is clean, the file has the latest bytes.
+					if (cleanCount > 0 && clean[cleanCount - 1] == position) {
+						clean[cleanCount - 1] = position + count;
+					}
+					else {
+						if (cleanCount == clean.length) {
+							clean = Arrays.copyOf(clean, cleanCount << 1);
+						}
+						clean[cleanCount++] = position;
+						clean[cleanCount++] = position + count;
+					}
+				}
+				else {
+					ByteBuffer view = page.duplicate();
+					view.limit(pageSize);
+					view.position(offset);
+					view.limit(offset + count);
+					slice(buffer, start, location, position, position + count).put(view);
+				}
+				position += count;
+			}
+		}
+		
+		for (int i = 0; i < cleanCount; i += 2) {
+			fileGet(clean[i], slice(buffer, start, location, clean[i], clean[i + 1]));
+		}
+		buffer.position(start + (int)(end - location));
+		return true;
+	}
+	
+	/**
+	 * Writes the bytes of the given buffer to the pages which overlap it. 
+	 * Pages which are not dirty are read from the file while the pages are
+	 * not locked, and are only used if no page was written to the file in 
+	 * the meantime. If the dirty threshold is reached the dirty pages are 
+	 * written to the file, also while the pages are not locked.
+	 * 
+	 * @param location
+	 * 		The location in the store to start writing to.
+	 * @param buffer
+	 * 		The buffer to write from.
+	 * @return
+	 * 		False if the store left write-back mode and nothing was written.
+	 * @throws IOException
+	 * 		An error occurred reading or writing the file.
+	 */
+	private boolean putPages(long location, ByteBuffer buffer) throws IOException
+	{
+		long end = location + buffer.remaining();
+		Map<Long, ByteBuffer> loaded = null;
+		long loadedGeneration = 0;
+		int loadedPageSize = 0;
+		
+		for (;;) {
+			List<Long> missing = null;
+			ByteBuffer[] blank = null;
+			TreeMap<Long, ByteBuffer> flush = null;
+			
+			synchronized (pages) {
+				// Pages loaded before another write to the file may be stale.
+				if (loaded != null && (loadedGeneration != generation || loadedPageSize != pageSize)) {
+					recycle(loaded.values(), loadedPageSize);
+					loaded = null;
+				}
+				if (!writeBack) {
+					if (loaded != null) {
+						recycle(loaded.values(), loadedPageSize);
+					}
+					return false;
+				}
+				
+				long first = location / pageSize;
+				long last = (Math.max(end, location + 1) - 1) / pageSize;
+				for (long index = first; index <= last; index++) {
+					if (pages.containsKey(index)) {
+						continue;
+					}
+					ByteBuffer writing = flushing.get(index);
+					ByteBuffer page = (loaded == null ? null : loaded.remove(index));
+					if (writing != null) {
+						// The page is being written, its bytes are the latest.
+						if (page == null) {
+							page = newPage();
+						}
+						ByteBuffer copy = writing.duplicate();
+						copy.clear();
+						page.clear();
+						page.put(copy);
+						page.position(0);
+						page.limit(writing.limit());
+						pages.put(index, page);
+					}
+					else if (page != null) {
+						pages.put(index, page);
+					}
+					else {
+						if (missing == null) {
+							missing = new ArrayList<Long>();
+						}
+						missing.add(index);
+					}
+				}
+				
+				if (missing == null) {
+					writeToPages(location, buffer);
+					if (loaded != null) {
+						recycle(loaded.values(), loadedPageSize);
+					}
+					if (dirtyPages() >= dirtyThreshold && flushing.isEmpty()) {
+						flush = startFlush();
+					}
+				}
+				else {
+					blank = new ByteBuffer[missing.size()];
+					for (int i = 0; i < blank.length; i++) {
+						blank[i] = newPage();
+					}
+					loadedGeneration = generation;
+					loadedPageSize = pageSize;
+				}
+			}
+			
+			if (missing == null) {
+				if (flush != null) {
+					finishFlush(flush);
+				}
+				return true;
+			}
+			
+			if (loaded == null) {
+				loaded = new HashMap<Long, ByteBuffer>();
+			}
+			for (int i = 0; i < blank.length; i++) {
+				long index = missing.get(i);
+				loaded.put(index, loadPage(blank[i], index, loadedPageSize));
+			}
+		}
+	}
+	
+	/**
+	 * Writes the bytes of the given buffer to the pages which overlap it, 
+	 * which must all be dirty. The caller must hold the lock on the pages.
+	 * 
+	 * @param location
+	 * 		The location in the store to start writing to.
+	 * @param buffer
+	 * 		The buffer to write from.
+	 */
+	private void writeToPages(long location, ByteBuffer buffer)
+	{
+		int limit = buffer.limit();
+		long position = location;
+		
+		while (buffer.hasRemaining()) {
+			long index = position / pageSize;
+			int offset = (int)(position - index * pageSize);
+			int count = Math.min(buffer.remaining(), pageSize - offset);
+			ByteBuffer page = pages.get(index);
+			
+			// The limit of a page is the end of its bytes in the file.
+			page.limit(Math.max(page.limit(), offset + count));
+			
+			buffer.limit(buffer.position() + count);
+			ByteBuffer view = page.duplicate();
+			view.position(offset);
+			view.put(buffer);
+			buffer.limit(limit);
+			position += count;
+		}
+	}
+	
+	/**
+	 * Returns the view of the given buffer which holds the bytes between the
+	 * given locations, where the buffer holds the bytes from a location at 
+	 * the given position.
+	 * 
+	 * @param buffer
+	 * 		The buffer.
+	 * @param start
+	 * 		The position of the buffer which holds the byte at the location.
+	 * @param location
+	 * 		The location of the byte at the start of the buffer.
+	 * @param from
+	 * 		The location of the first byte of the view.
+	 * @param to
+	 * 		The location after the last byte of the view.
+	 * @return
+	 * 		The view of the buffer.
+	 */
+	private ByteBuffer slice(ByteBuffer buffer, int start, long location, long from, long to)
+	{
+		ByteBuffer view = buffer.duplicate();
+		view.limit(start + (int)(to - location));
+		view.position(start + (int)(from - location));
+		return view;
+	}
+	
+	/**
+	 * Returns the dirty page or the page being written at the given index, 
+	 * or null if the file has the latest bytes of the page. The caller must 
+	 * hold the lock on the pages.
+	 * 
+	 * @param index
+	 * 		The index of the page.
+	 * @return
+	 * 		The page in memory, or null.
+	 */
+	private ByteBuffer dirtyPage(long index)
+	{
+		ByteBuffer page = pages.get(index);
+		return (page != null ? page : flushing.get(index));
+	}
+	
+	/**
+	 * Returns the number of bytes in dirty pages and pages being written. The 
+	 * caller must hold the lock on the pages.
+	 * 
+	 * @return
+	 * 		The number of dirty bytes.
+	 */
+	private long dirtyPages()
+	{
+		return (long)(pages.size() + flushing.size()) * pageSize;
+	}
+	
+	/**
+	 * Returns a page which can be reused or a new page. The caller must hold
+	 * the lock on the pages.
+	 * 
+	 * @return
+	 * 		The page.
+	 */
+	private ByteBuffer newPage()
+	{
+		ByteBuffer page = freePages.poll();
+		if (page == null) {
+			page = ByteBuffer.allocateDirect(pageSize);
+		}
+		return page;
+	}
+	
+	/**
+	 * Keeps the given pages for reuse if they're still the size of a page. 
+	 * The caller must hold the lock on the pages.
+	 * 
+	 * @param unused
+	 * 		The pages which are no longer used.
+	 * @param size
+	 * 		The size of the pages.
+	 */
+	private void recycle(Collection<ByteBuffer> unused, int size)
+	{
+		if (size == pageSize) {
+			freePages.addAll(unused);
+		}
+	}
+	
+	/**
+	 * Fills the given page with the bytes of the file at the given page 
+	 * index. The limit of the page is the number of bytes read from the file
+	 * and the remaining bytes of the page are zeros.
+	 * 
+	 * @param page
+	 * 		The page to fill.
+	 * @param index
+	 * 		The index of the page.
+	 * @param size
+	 * 		The size of a page.
+	 * @return
+	 * 		The page.
+	 * @throws IOException
+	 * 		An error occurred reading from the file.
+	 */
+	private ByteBuffer loadPage(ByteBuffer page, long index, int size) throws IOException
+	{
+		page.clear();
+		int read = read(page, index * size);
+		while (page.hasRemaining()) {
+			page.put((byte)0);
+		}
+		page.position(0);
+		page.limit(read);
+		return page;
+	}
+	
+	/**
+	 * Moves the dirty pages to the pages being written, so they can be 
+	 * written to the file by {@link #finishFlush(TreeMap)} without holding 
+	 * the lock on the pages. The caller must hold the lock on the pages.
+	 * 
+	 * @return
+	 * 		The pages to write.
+	 */
+	private TreeMap<Long, ByteBuffer> startFlush()
+	{
+		flushing.putAll(pages);
+		pages.clear();
+		generation++;
+		return flushing;
+	}
+	
+	/**
+	 * Writes the pages moved by {@link #startFlush()} to the file without 
+	 * holding the lock on the pages. If the write fails the pages which 
+	 * weren't written again since are dirty again.
+	 * 
+	 * @param flush
+	 * 		The pages to write.
+	 * @throws IOException
+	 * 		An error occurred writing to the file.
+	 */
+	private void finishFlush(TreeMap<Long, ByteBuffer> flush) throws IOException
+	{
+		boolean written = false;
+		try {
+			writeRuns(flush);
+			written = true;
+		}
+		finally {
+			synchronized (pages) {
+				for (Map.Entry<Long, ByteBuffer> e : flush.entrySet()) {
+					if (!written && !pages.containsKey(e.getKey())) {
+						pages.put(e.getKey(), e.getValue());
+					}
+					else {
+						freePages.add(e.getValue());
+					}
+				}
+				flushing.clear();
+				generation++;
+				pages.notifyAll();
+			}
+		}
+	}
+	
+	/**
+	 * Writes all dirty pages to the file in order of location, after waiting 
+	 * for any pages being written without the lock. The caller must hold the
+	 * lock on the pages.
+	 * 
+	 * @throws IOException
+	 * 		An error occurred writing to the file.
+	 */
+	private void writePages() throws IOException
+	{
+		while (!flushing.isEmpty()) {
+			try {
+				pages.wait();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted waiting for pages to be written");
+			}
+		}
+		if (pages.isEmpty()) {
+			return;
+		}
+		generation++;
+		writeRuns(pages);
+		
+		for (ByteBuffer page : pages.values()) {
+			freePages.add(page);
+		}
+		pages.clear();
+	}
+	
+	/**
+	 * Writes the given pages to the file in order of location, each run of
+	 * adjacent full pages is written at once.
+	 * 
+	 * @param dirty
+	 * 		The pages by page index.
+	 * @throws IOException
+	 * 		An error occurred writing to the file.
+	 */
+	private void writeRuns(TreeMap<Long, ByteBuffer> dirty) throws IOException
+	{
+		if (dirty.isEmpty()) {
+			return;
+		}
+		ByteBuffer[] run = new ByteBuffer[dirty.size()];
+		int runSize = 0;
+		long runIndex = 0;
+		
+		for (Map.Entry<Long, ByteBuffer> e : dirty.entrySet()) {
+			long index = e.getKey();
+			
+			// The run ends at a gap or after a page which isn't full.
+			if (runSize > 0 && (runIndex + runSize != index || run[runSize - 1].limit() != pageSize)) {
+				writeRun(run, runSize, runIndex);
+				runSize = 0;
+			}
+			if (runSize == 0) {
+				runIndex = index;
+			}
+			run[runSize++] = e.getValue();
+		}
+		writeRun(run, runSize, runIndex);
+	}
+	
+	/**
+	 * Writes all dirty pages to the file, throwing any error as a 
+	 * StoreIOException. The caller must hold the lock on the pages.
+	 * 
+	 * @throws StoreIOException
+	 * 		An error occurred writing to the file.
+	 */
+	private void flushPages() throws StoreIOException
+	{
+		try {
+			writePages();
+		}
+		catch (IOException e) {
+			throw new StoreIOException(e);
+		}
+	}
+	
+	/**
+	 * Writes a run of adjacent pages to the file.
+	 * 
+	 * @param run
+	 * 		The array of pages in the run.
+	 * @param runSize
+	 * 		The number of pages in the run.
+	 * @param runIndex
+	 * 		The index of the first page in the run.
+	 * @throws IOException
+	 * 		An error occurred writing to the file.
+	 */
+	private void writeRun(ByteBuffer[] run, int runSize, long runIndex) throws IOException
+	{
+		ByteBuffer[] srcs = new ByteBuffer[runSize];
+		for (int i = 0; i < runSize; i++) {
+			srcs[i] = run[i].duplicate();
+		}
+		if (runSize == 1) {
+			write(srcs[0], runIndex * pageSize);
+		}
+		else {
+			write(srcs, runIndex * pageSize);
+		}
+	}
+	
+	/**
+	 * Returns the index in the order after the run of adjacent entries that
+	 * starts at the given index. An entry is adjacent to the previous entry 
+	 * if it begins where the previous entry ends.
+	 * 
+	 * @param batch
+	 * 		The batch.
+	 * @param order
+	 * 		The indices of the entries in location order.
+	 * @param start
+	 * 		The index in the order of the first entry in the run.
+	 * @return
+	 * 		The index in the order after the last entry in the run.
+	 */
+	private int adjacent(StoreBatch batch, int[] order, int start)
+	{
+		int end = start + 1;
+		long next = batch.getLocation(order[start]) + batch.getBuffer(order[start]).remaining();
+		while (end < order.length && batch.getLocation(order[end]) == next) {
+			next += batch.getBuffer(order[end]).remaining();
+			end++;
+		}
+		return end;
+	}
+	
+	/**
+	 * Returns the buffers of the entries between the given indices of the 
+	 * order.
+	 * 
+	 * @param batch
+	 * 		The batch.
+	 * @param order
+	 * 		The indices of the entries in location order.
+	 * @param start
+	 * 		The index in the order of the first entry, inclusive.
+	 * @param end
+	 * 		The index in the order of the last entry, exclusive.
+	 * @return
+	 * 		The array of buffers.
+	 */
+	private ByteBuffer[] buffers(StoreBatch batch, int[] order, int start, int end)
+	{
+		ByteBuffer[] buffers = new ByteBuffer[end - start];
+		for (int i = start; i < end; i++) {
+			buffers[i - start] = batch.getBuffer(order[i]);
+		}
+		return buffers;
+	}
+	
+	/**
+	 * Returns the total number of bytes remaining in the given buffers.
+	 * 
+	 * @param buffers
+	 * 		The array of buffers.
+	 * @return
+	 * 		The number of bytes remaining.
+	 */
+	private long remaining(ByteBuffer[] buffers)
+	{
+		long remaining = 0;
+		for (ByteBuffer b : buffers) {
+			remaining += b.remaining();
+		}
+		return remaining;
+	}
+	
+	/**
+	 * Reads from the file at the given position until the buffer is full or
+	 * the end of the file is reached. Positional reads leave the file pointer
+	 * untouched.
+	 * 
+	 * @param buffer
+	 * 		The buffer to read into.
+	 * @param position
+	 * 		The position in the file to start reading from.
+	 * @return
+	 * 		The number of bytes read.
+	 * @throws IOException
+	 * 		An error occurred reading from the file.
+	 */
+	private int read(ByteBuffer buffer, long position) throws IOException
+	{
+		int total = 0;
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, position + total);
+			if (read == -1) {
+				break;
+			}
+			total += read;
+		}
+		return total;
+	}
+	
+	/**
+	 * Reads from the file at the given position into the buffers in order 
+	 * until they are full or the end of the file is reached.
+	 * 
+	 * @param dsts
+	 * 		The buffers to read into.
+	 * @param position
+	 * 		The position in the file to start reading from.
+	 * @throws IOException
+	 * 		An error occurred reading from the file.
+	 */
+	private void read(ByteBuffer[] dsts, long position) throws IOException
+	{
+		long remaining = remaining(dsts);
+		
+		synchronized (batchLock) {
+			channel.position(position);
+			while (remaining > 0) {
+				long read = channel.read(dsts);
+				if (read == -1) {
+					break;
+				}
+				remaining -= read;
+			}
+		}
+	}
+	
+	/**
+	 * Writes the buffers in order to the file at the given position.
+	 * 
+	 * @param srcs
+	 * 		The buffers to write from.
+	 * @param position
+	 * 		The position in the file to start writing to.
+	 * @throws IOException
+	 * 		An error occurred writing to the file.
+	 */
+	private void write(ByteBuffer[] srcs, long position) throws IOException
+	{
+		long remaining = remaining(srcs);
+		
+		synchronized (batchLock) {
+			channel.position(position);
+			while (remaining > 0) {
+				remaining -= channel.write(srcs);
+			}
+		}
+	}
+	
+	/**
+	 * Writes the buffer to the file at the given position. Positional writes
+	 * leave the file pointer untouched.
+	 * 
+	 * @param buffer
+	 * 		The buffer to write from.
+	 * @param position
+	 * 		The position in the file to start writing to.
+	 * @throws IOException
+	 * 		An error occurred writing to the file.
+	 */
+	private void write(ByteBuffer buffer, long position) throws IOException
+	{
+		while (buffer.hasRemaining()) {
+			position += channel.write(buffer, position);
+		}
 	}
 
 }
@@ -0,0 +1,454 @@
+/* 
+ * NOTICE OF LICENSE
+ * 
+ * This source file is subject to the Open Software License (OSL 3.0) that is 
+ * bundled with this package in the file LICENSE.txt. It is also available 
+ * through the world-wide-web at http://opensource.org/licenses/osl-3.0.php
+ * If you did not receive a copy of the license and are unable to obtain it 
+ * through the world-wide-web, please send an email to pdiffenderfer@gmail.com 
+ * so we can send you a copy immediately. If you use any of this software please
+ * notify me via my website or email, your feedback is much appreciated. 
+ * 
+ * @copyright   Copyright (c) 2011 Magnos Software (http://www.magnos.org)
+ * @license     http://opensource.org/licenses/osl-3.0.php
+ * 				Open Software License (OSL 3.0)
+ */
+
+package org.magnos.data.store;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.magnos.data.Store;
+
+
+/**
+ * Flushes a store on a background thread for a group of writes at once. A 
+ * flush happens once an interval has passed since the first write which has
+ * not been flushed, or once enough bytes have been written, whichever comes 
+ * first. Every write is numbered, and a durability future completes once a 
+ * flush that started after a given write has finished. Without an interval
+ * nothing bounds how long a write waits for the bytes to add up, so asking 
+ * for a durability future then makes the writes before it due. The flushing thread
+ * runs between {@link #start()} and {@link #stop()}, and may be started 
+ * again after it's stopped.
+ * 
+ * @author Philip Diffenderfer
+ *
+ */
+class GroupFlush implements Runnable 
+{
+
+	/**
+	 * A future which is already complete, for writes flushed immediately.
+	 */
+	public static final Future<Void> FLUSHED = new Future<Void>() {
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			return false;
+		}
+		public boolean isCancelled() {
+			return false;
+		}
+		public boolean isDone() {
+			return true;
+		}
+		public Void get() {
+			return null;
+		}
+		public Void get(long timeout, TimeUnit unit) {
+			return null;
+		}
+	};
+
+	// The store to flush.
+	private final Store store;
+	
+	// The milliseconds after the first unflushed write to flush, or 0.
+	private final long interval;
+	
+	// The number of unflushed bytes which causes a flush, or 0.
+	private final long bytes;
+	
+	// The lock over the counters below.
+	private final ReentrantLock lock = new ReentrantLock();
+	
+	// Signalled to the flushing thread when a flush may be due.
+	private final Condition due = lock.newCondition();
+	
+	// Signalled to waiting futures when a flush has finished.
+	private final Condition done = lock.newCondition();
+	
+	// The number of writes made.
+	private long written;
+	
+	// The number of writes known to be flushed.
+	private long flushed;
+	
+	// The number of writes covered by the last failed flush.
+	private long failed;
+	
+	// The error of the last failed flush.
+	private Throwable failure;
+	
+	// The number of writes durability futures wait on, without an interval.
+	private long requested;
+	
+	// The number of bytes written since the last flush started.
+	private long pending;
+	
+	// The time in nanoseconds of the first write since the last flush started.
+	private long pendingSince;
+	
+	// The flushing thread, or null if stopped.
+	private volatile Thread thread;
+	
+	/**
+	 * Instantiates a new GroupFlush, its flushing thread is not started.
+	 * 
+	 * @param store
+	 * 		The store to flush.
+	 * @param interval
+	 * 		The milliseconds after the first unflushed write to flush, or 0 
+	 * 		to only flush by bytes.
+	 * @param bytes
+	 * 		The number of unflushed bytes which causes a flush, or 0 to only
+	 * 		flush by interval.
+	 */
+	public GroupFlush(Store store, long interval, long bytes)
+	{
+		this.store = store;
+		this.interval = Math.max(0, interval);
+		this.bytes = Math.max(0, bytes);
+	}
+	
+	/**
+	 * Starts the flushing thread if it's not already running.
+	 */
+	public synchronized void start()
+	{
+		if (thread == null) {
+			thread = new Thread(this, "GroupFlush-" + store.getName());
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+	
+	/**
+	 * Returns whether the flushing thread has been started and not stopped.
+	 * 
+	 * @return
+	 * 		True if the flushing thread is running.
+	 */
+	public boolean isStarted()
+	{
+		return (thread != null);
+	}
+	
+	/**
+	 * Returns the milliseconds after the first unflushed write to flush.
+	 * 
+	 * @return
+	 * 		The flush interval, or 0 if only flushed by bytes.
+	 */
+	public long getInterval()
+	{
+		return interval;
+	}
+	
+	/**
+	 * Returns the number of unflushed bytes which causes a flush.
+	 * 
+	 * @return
+	 * 		The flush size, or 0 if only flushed by interval.
+	 */
+	public long getBytes()
+	{
+		return bytes;
+	}
+	
+	/**
+	 * Counts a write which has been made to the store.
+	 * 
+	 * @param length
+	 * 		The number of bytes written.
+	 */
+	public void written(long length)
+	{
+		lock.lock();
+		try {
+			written++;
+			if (pending == 0) {
+				pendingSince = System.nanoTime();
+			}
+			pending += length;
+			due.signal();
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Returns a future which completes once every write counted so far has 
+	 * been flushed. Without an interval those writes are flushed as soon as
+	 * the flushing thread is free.
+	 * 
+	 * @return
+	 * 		The future of the flush.
+	 */
+	public Future<Void> durable()
+	{
+		lock.lock();
+		try {
+			if (interval == 0 && written > flushed) {
+				requested = Math.max(requested, written);
+				due.signal();
+			}
+			return new Durability(written);
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Marks every write counted so far as flushed, since the store has been
+	 * closed and closing a store flushes it.
+	 */
+	public void closed()
+	{
+		lock.lock();
+		try {
+			flushed = written;
+			pending = 0;
+			done.signalAll();
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Stops the flushing thread and flushes any remaining writes on the 
+	 * calling thread. Nothing is flushed if every write is already flushed,
+	 * such as after {@link #closed()}.
+	 */
+	public void stop()
+	{
+		boolean unflushed;
+		
+		synchronized (this) {
+			thread = null;
+		}
+		
+		lock.lock();
+		try {
+			unflushed = (written > flushed);
+			due.signalAll();
+		}
+		finally {
+			lock.unlock();
+		}
+		
+		if (unflushed) {
+			flush();
+		}
+	}
+	
+	/**
+	 * Flushes the store whenever a group of writes is due.
+	 */
+	public void run()
+	{
+		while (isRunning()) {
+			lock.lock();
+			try {
+				while (isRunning() && !isDue()) {
+					if (pending > 0 && interval > 0) {
+						long elapsed = System.nanoTime() - pendingSince;
+						due.awaitNanos(TimeUnit.MILLISECONDS.toNanos(interval) - elapsed);
+					}
+					else {
+						due.await();
+					}
+				}
+			}
+			catch (InterruptedException e) {
+				return;
+			}
+			finally {
+				lock.unlock();
+			}
+			
+			if (isRunning()) {
+				flush();
+			}
+		}
+	}
+	
+	// Whether the calling thread is the flushing thread and should keep running.
+	private boolean isRunning()
+	{
+		return (thread == Thread.currentThread());
+	}
+	
+	// Whether a group of writes is due to be flushed, the lock must be held.
+	private boolean isDue()
+	{
+		if (pending == 0) {
+			return false;
+		}
+		if (requested > Math.max(flushed, failed)) {
+			return true;
+		}
+		if (bytes > 0 && pending >= bytes) {
+			return true;
+		}
+		long elapsed = System.nanoTime() - pendingSince;
+		return (interval > 0 && elapsed >= TimeUnit.MILLISECONDS.toNanos(interval));
+	}
+	
+	// Flushes the store and completes the futures of the writes it covered.
+	private void flush()
+	{
+		long covered;
+		
+		lock.lock();
+		try {
+			covered = written;
+			pending = 0;
+		}
+		finally {
+			lock.unlock();
+		}
+		
+		Throwable error = null;
+		try {
+			store.flush();
+		}
+		catch (RuntimeException e) {
+			error = e;
+		}
+		
+		lock.lock();
+		try {
+			if (error == null) {
+				flushed = Math.max(flushed, covered);
+			}
+			else {
+				failed = Math.max(failed, covered);
+				failure = error;
+			}
+			done.signalAll();
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * A future which completes once the writes up to a number are flushed. 
+	 * If a flush covering those writes fails the error is thrown from get.
+	 */
+	private class Durability implements Future<Void>
+	{
+		
+		// The number of writes which must be flushed.
+		private final long target;
+		
+		// Instantiates a new Durability waiting on the given number of writes.
+		private Durability(long target)
+		{
+			this.target = target;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) 
+		{
+			return false;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean isCancelled() 
+		{
+			return false;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean isDone() 
+		{
+			lock.lock();
+			try {
+				return (flushed >= target || failed >= target);
+			}
+			finally {
+				lock.unlock();
+			}
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Void get() throws InterruptedException, ExecutionException 
+		{
+			lock.lock();
+			try {
+				while (flushed < target && failed < target) {
+					done.await();
+				}
+				return result();
+			}
+			finally {
+				lock.unlock();
+			}
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Void get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException 
+		{
+			long remaining = unit.toNanos(timeout);
+			
+			lock.lock();
+			try {
+				while (flushed < target && failed < target) {
+					if (remaining <= 0) {
+						throw new TimeoutException();
+					}
+					remaining = done.awaitNanos(remaining);
+				}
+				return result();
+			}
+			finally {
+				lock.unlock();
+			}
+		}
+		
+		// Returns the result once done, the lock must be held.
+		private Void result() throws ExecutionException
+		{
+			if (flushed < target) {
+				throw new ExecutionException(failure);
+			}
+			return null;
+		}
+		
+	}
+	
+}
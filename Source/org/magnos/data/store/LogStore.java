@@ -0,0 +1,728 @@
+/* 
+ * NOTICE OF LICENSE
+ * 
+ * This source file is subject to the Open Software License (OSL 3.0) that is 
+ * bundled with this package in the file LICENSE.txt. It is also available 
+ * through the world-wide-web at http://opensource.org/licenses/osl-3.0.php
+ * If you did not receive a copy of the license and are unable to obtain it 
+ * through the world-wide-web, please send an email to pdiffenderfer@gmail.com 
+ * so we can send you a copy immediately. If you use any of this software please
+ * notify me via my website or email, your feedback is much appreciated. 
+ * 
+ * @copyright   Copyright (c) 2011 Magnos Software (http://www.magnos.org)
+ * @license     http://opensource.org/licenses/osl-3.0.php
+ * 				Open Software License (OSL 3.0)
+ */
+
+package org.magnos.data.store;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.magnos.data.StoreAccess;
+import org.magnos.data.error.StoreIOException;
+
+
+/**
+ * A store which is an append-only log of segment files in a directory. Each
+ * append returns the location it was written to and is copied into a large 
+ * write buffer, which is written to the end of the current segment when it 
+ * fills or the store is flushed, so the disk only ever sees large sequential
+ * writes. 
+ * <br/>
+ * Every segment holds the same number of bytes and a new segment is started 
+ * when the last one is full, so a location is found in its segment without 
+ * any lookup and reads work across segments. A segment is named by the 
+ * location of its first byte. A full segment is forced to the disk when the
+ * log moves on to the next, and the segments written since they were last
+ * forced are forced when the store is closed. The capacity of the store is the end of the 
+ * log, which grows with each append, so the capacity never needs to be set 
+ * before writing.
+ * <br/>
+ * Writes must be made at the end of the log or to bytes still in the write 
+ * buffer. Setting a larger capacity appends zeros and setting a smaller 
+ * capacity truncates the log.
+ * 
+ * @author Philip Diffenderfer
+ *
+ */
+public class LogStore extends AbstractStore 
+{
+	
+	/**
+	 * The default number of bytes in a segment.
+	 */
+	public static final long DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+	
+	/**
+	 * The default size of the write buffer.
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+	
+	/**
+	 * The extension of a segment file.
+	 */
+	public static final String SEGMENT_EXTENSION = ".log";
+	
+	// Selects the segment files of a directory.
+	private static final FilenameFilter SEGMENTS = new FilenameFilter() {
+		public boolean accept(File dir, String name) {
+			return name.endsWith(SEGMENT_EXTENSION);
+		}
+	};
+	
+	// The directory of the segment files.
+	private final File directory;
+	
+	// The number of bytes in a segment.
+	private final long segmentSize;
+	
+	// The size of the write buffer.
+	private final int bufferSize;
+	
+	// The channel of each segment, this is also the lock for the log.
+	private final List<FileChannel> segments = new ArrayList<FileChannel>();
+	
+	// Serializes picking the location of an append with writing there.
+	private final Object appendLock = new Object();
+	
+	// The bytes after the end of the segments, created when first written.
+	private ByteBuffer buffer;
+	
+	// The end of the bytes written to the segments.
+	private long written;
+	
+	// The end of the log, including the bytes in the write buffer.
+	private long end;
+	
+	// Whether the segments are opened for writing.
+	private boolean writable;
+	
+	// The first segment written to since it was last forced, or -1.
+	private int unforced = -1;
+	
+	/**
+	 * Instantiates a new LogStore while opening it with the given access.
+	 * 
+	 * @param directory
+	 * 		The directory of the segment files. If this directory doesn't exist
+	 * 		it will be created when the store is opened.
+	 * @param access
+	 * 		The requested access to the store.
+	 */
+	public LogStore(File directory, StoreAccess access) 
+	{
+		this(directory);
+		this.open(access);
+	}
+	
+	/**
+	 * Instantiates a new LogStore with segments and a write buffer of the 
+	 * default sizes.
+	 * 
+	 * @param directory
+	 * 		The directory of the segment files. If this directory doesn't exist
+	 * 		it will be created when the store is opened.
+	 */
+	public LogStore(File directory) 
+	{
+		this(directory, DEFAULT_SEGMENT_SIZE, DEFAULT_BUFFER_SIZE);
+	}
+	
+	/**
+	 * Instantiates a new LogStore with segments and a write buffer of the 
+	 * default sizes.
+	 * 
+	 * @param directory
+	 * 		The directory of the segment files. If this directory doesn't exist
+	 * 		it will be created when the store is opened.
+	 */
+	public LogStore(String directory) 
+	{
+		this(new File(directory));
+	}
+	
+	/**
+	 * Instantiates a new LogStore.
+	 * 
+	 * @param directory
+	 * 		The directory of the segment files. If this directory doesn't exist
+	 * 		it will be created when the store is opened.
+	 * @param segmentSize
+	 * 		The number of bytes in a segment. A log must always be opened with 
+	 * 		the same segment size.
+	 * @param bufferSize
+	 * 		The size of the write buffer in bytes.
+	 * @throws IllegalArgumentException
+	 * 		The segment or buffer size is not positive.
+	 */
+	public LogStore(File directory, long segmentSize, int bufferSize) 
+	{
+		super(directory.getAbsolutePath());
+		if (segmentSize <= 0 || bufferSize <= 0) {
+			throw new IllegalArgumentException("The segment and buffer size must be positive");
+		}
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+		this.bufferSize = bufferSize;
+		this.setAsyncExecutor(FileStore.ASYNC_EXECUTOR);
+	}
+	
+	/**
+	 * Appends the given bytes to the end of the log.
+	 * 
+	 * @param bytes
+	 * 		The bytes to append.
+	 * @return
+	 * 		The location the bytes were written to.
+	 * @throws StoreIOException
+	 * 		An error occurred writing to a segment.
+	 */
+	public long append(byte[] bytes) 
+	{
+		return append(bytes, 0, bytes.length);
+	}
+	
+	/**
+	 * Appends the given bytes to the end of the log.
+	 * 
+	 * @param bytes
+	 * 		The array of bytes to append.
+	 * @param offset
+	 * 		The offset in the array of the first byte to append.
+	 * @param length
+	 * 		The number of bytes to append.
+	 * @return
+	 * 		The location the bytes were written to.
+	 * @throws StoreIOException
+	 * 		An error occurred writing to a segment.
+	 */
+	public long append(byte[] bytes, int offset, int length) 
+	{
+		synchronized (appendLock) {
+			validate();
+			long location = capacity();
+			put(location, bytes, offset, length);
+			return location;
+		}
+	}
+	
+	/**
+	 * Appends the remaining bytes of the given buffer to the end of the log.
+	 * 
+	 * @param buffer
+	 * 		The buffer of bytes to append.
+	 * @return
+	 * 		The location the bytes were written to.
+	 * @throws StoreIOException
+	 * 		An error occurred writing to a segment.
+	 */
+	public long append(ByteBuffer buffer) 
+	{
+		synchronized (appendLock) {
+			validate();
+			long location = capacity();
+			put(location, buffer);
+			return location;
+		}
+	}
+	
+	/**
+	 * Returns the directory of the segment files.
+	 * 
+	 * @return
+	 * 		The directory of the log.
+	 */
+	public File getDirectory() 
+	{
+		return directory;
+	}
+	
+	/**
+	 * Returns the number of bytes in a segment.
+	 * 
+	 * @return
+	 * 		The size of a segment.
+	 */
+	public long getSegmentSize() 
+	{
+		return segmentSize;
+	}
+	
+	/**
+	 * Returns the size of the write buffer.
+	 * 
+	 * @return
+	 * 		The size of the write buffer in bytes.
+	 */
+	public int getBufferSize() 
+	{
+		return bufferSize;
+	}
+	
+	/**
+	 * Returns the number of segment files of the log.
+	 * 
+	 * @return
+	 * 		The number of segments.
+	 */
+	public int getSegmentCount() 
+	{
+		synchronized (segments) {
+			return segments.size();
+		}
+	}
+	
+	/**
+	 * Returns the number of bytes appended which are still in the write 
+	 * buffer and have not been written to a segment.
+	 * 
+	 * @return
+	 * 		The number of buffered bytes.
+	 */
+	public long getBufferedBytes() 
+	{
+		synchronized (segments) {
+			return end - written;
+		}
+	}
+	
+	/**
+	 * Returns the file of the segment which starts at the given location.
+	 * 
+	 * @param location
+	 * 		The location of the first byte of the segment.
+	 * @return
+	 * 		The file of the segment.
+	 */
+	public File getSegmentFile(long location) 
+	{
+		return new File(directory, String.format("%020d", location) + SEGMENT_EXTENSION);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected long storeOpen(StoreAccess access) throws IOException 
+	{
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("The directory " + directory + " could not be created");
+		}
+		
+		String[] names = directory.list(SEGMENTS);
+		Arrays.sort(names);
+		
+		synchronized (segments) {
+			writable = access.canWrite;
+			try {
+				for (int i = 0; i < names.length; i++) {
+					if (!getSegmentFile(i * segmentSize).getName().equals(names[i])) {
+						throw new IOException("The segment " + names[i] + " does not follow a segment of " + segmentSize + " bytes");
+					}
+					segments.add(openSegment(i));
+				}
+			}
+			catch (IOException e) {
+				closeSegments();
+				throw e;
+			}
+			
+			int last = segments.size() - 1;
+			written = (last == -1 ? 0 : last * segmentSize + segments.get(last).size());
+			end = written;
+			return end;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void storeLoad() throws IOException 
+	{
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void storeFlush() throws IOException 
+	{
+		synchronized (segments) {
+			writeBuffer();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void storeClose() throws IOException 
+	{
+		synchronized (segments) {
+			try {
+				writeBuffer();
+				force(segments.size());
+			}
+			finally {
+				closeSegments();
+				buffer = null;
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void storeDelete() 
+	{
+		File[] files = directory.listFiles(SEGMENTS);
+		if (files != null) {
+			for (File file : files) {
+				if (!file.delete()) {
+					file.deleteOnExit();
+				}
+			}
+		}
+		if (!directory.delete()) {
+			directory.deleteOnExit();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected boolean storeExists() 
+	{
+		return directory.isDirectory();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected long storeResize(long capacity) throws IOException 
+	{
+		synchronized (segments) {
+			if (capacity > end) {
+				// Growing appends zeros through the write buffer.
+				ByteBuffer zeros = ByteBuffer.allocate((int)Math.min(capacity - end, bufferSize));
+				while (end < capacity) {
+					zeros.clear();
+					zeros.limit((int)Math.min(zeros.capacity(), capacity - end));
+					appendBytes(zeros);
+				}
+			}
+			else {
+				writeBuffer();
+				
+				int count = (int)((capacity + segmentSize - 1) / segmentSize);
+				while (segments.size() > count) {
+					int last = segments.size() - 1;
+					segments.remove(last).close();
+					File file = getSegmentFile(last * segmentSize);
+					if (!file.delete()) {
+						throw new IOException("The segment " + file + " could not be deleted");
+					}
+				}
+				if (count > 0) {
+					segments.get(count - 1).truncate(capacity - (count - 1) * segmentSize);
+					if (unforced == -1 || unforced > count - 1) {
+						unforced = count - 1;
+					}
+				}
+				else {
+					unforced = -1;
+				}
+				written = end = capacity;
+			}
+			return end;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void storeGet(long location, byte[] bytes, int offset, int length) throws IOException 
+	{
+		storeGet(location, ByteBuffer.wrap(bytes, offset, length));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void storePut(long location, byte[] bytes, int offset, int length) throws IOException 
+	{
+		storePut(location, ByteBuffer.wrap(bytes, offset, length));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void storeGet(long location, ByteBuffer buffer) throws IOException 
+	{
+		synchronized (segments) {
+			int limit = buffer.limit();
+			long position = location;
+			
+			// The bytes written to the segments are read from them.
+			while (buffer.hasRemaining() && position < written) {
+				int index = (int)(position / segmentSize);
+				long offset = position - index * segmentSize;
+				int count = (int)Math.min(buffer.remaining(), Math.min(segmentSize - offset, written - position));
+				
+				buffer.limit(buffer.position() + count);
+				read(segments.get(index), buffer, offset);
+				buffer.limit(limit);
+				position += count;
+			}
+			
+			// The rest are copied from the write buffer.
+			if (buffer.hasRemaining() && position < end) {
+				int count = (int)Math.min(buffer.remaining(), end - position);
+				ByteBuffer view = this.buffer.duplicate();
+				view.position((int)(position - written));
+				view.limit(view.position() + count);
+				buffer.put(view);
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void storePut(long location, ByteBuffer buffer) throws IOException 
+	{
+		synchronized (segments) {
+			int length = buffer.remaining();
+			
+			if (location >= written && location + length <= end) {
+				// Bytes still in the write buffer may be overwritten.
+				ByteBuffer view = this.buffer.duplicate();
+				view.position((int)(location - written));
+				view.put(buffer);
+			}
+			else if (location == end) {
+				appendBytes(buffer);
+				grown(end);
+			}
+			else {
+				throw new IOException("A log can only be written at its end (" + end + ") or in its write buffer, not at " + location);
+			}
+		}
+	}
+	
+	/**
+	 * Appends the remaining bytes of the given buffer to the write buffer, 
+	 * writing the write buffer to the segments each time it fills. Appends
+	 * larger than the write buffer are written to the segments directly. The 
+	 * caller must hold the lock on the segments.
+	 * 
+	 * @param src
+	 * 		The buffer to append from.
+	 * @throws IOException
+	 * 		An error occurred writing to a segment.
+	 */
+	private void appendBytes(ByteBuffer src) throws IOException 
+	{
+		if (buffer == null) {
+			buffer = ByteBuffer.allocateDirect(bufferSize);
+			buffer.clear();
+		}
+		int length = src.remaining();
+		
+		if (length > buffer.remaining()) {
+			writeBuffer();
+		}
+		if (length > buffer.remaining()) {
+			writeSegments(src);
+		}
+		else {
+			buffer.put(src);
+			end += length;
+		}
+	}
+	
+	/**
+	 * Writes the bytes in the write buffer to the segments and empties it. 
+	 * The caller must hold the lock on the segments.
+	 * 
+	 * @throws IOException
+	 * 		An error occurred writing to a segment.
+	 */
+	private void writeBuffer() throws IOException 
+	{
+		if (buffer == null || buffer.position() == 0) {
+			return;
+		}
+		buffer.flip();
+		try {
+			writeSegments(buffer);
+		}
+		finally {
+			buffer.clear();
+		}
+	}
+	
+	/**
+	 * Writes the remaining bytes of the given buffer to the segments after 
+	 * the written bytes, starting a new segment each time the last is full.
+	 * The write buffer must be empty. The caller must hold the lock on the 
+	 * segments.
+	 * 
+	 * @param src
+	 * 		The buffer to write from.
+	 * @throws IOException
+	 * 		An error occurred writing to a segment.
+	 */
+	private void writeSegments(ByteBuffer src) throws IOException 
+	{
+		int limit = src.limit();
+		try {
+			while (src.hasRemaining()) {
+				int index = (int)(written / segmentSize);
+				long offset = written - index * segmentSize;
+				int count = (int)Math.min(src.remaining(), segmentSize - offset);
+				
+				if (index == segments.size()) {
+					// A full segment is never written again, so make it durable now.
+					force(index);
+					segments.add(openSegment(index));
+				}
+				if (unforced == -1) {
+					unforced = index;
+				}
+				src.limit(src.position() + count);
+				write(segments.get(index), src, offset);
+				src.limit(limit);
+				written += count;
+			}
+		}
+		finally {
+			src.limit(limit);
+			end = written;
+		}
+	}
+	
+	/**
+	 * Forces the segments written to since they were last forced, up to the
+	 * given segment, to the disk. The caller must hold the lock on the 
+	 * segments.
+	 * 
+	 * @param end
+	 * 		The index after the last segment to force.
+	 * @throws IOException
+	 * 		An error occurred forcing a segment.
+	 */
+	private void force(int end) throws IOException 
+	{
+		if (unforced == -1) {
+			return;
+		}
+		end = Math.min(end, segments.size());
+		for (int i = unforced; i < end; i++) {
+			segments.get(i).force(true);
+		}
+		unforced = (end < segments.size() ? end : -1);
+	}
+	
+	/**
+	 * Opens the channel of the segment with the given index, creating the 
+	 * segment file if it doesn't exist.
+	 * 
+	 * @param index
+	 * 		The index of the segment.
+	 * @return
+	 * 		The channel of the segment.
+	 * @throws IOException
+	 * 		An error occurred opening the segment file.
+	 */
+	private FileChannel openSegment(int index) throws IOException 
+	{
+		File file = getSegmentFile(index * segmentSize);
+		return new RandomAccessFile(file, writable ? "rw" : "r").getChannel();
+	}
+	
+	/**
+	 * Closes the channel of every segment. The caller must hold the lock on 
+	 * the segments.
+	 * 
+	 * @throws IOException
+	 * 		An error occurred closing a segment.
+	 */
+	private void closeSegments() throws IOException 
+	{
+		IOException error = null;
+		for (FileChannel channel : segments) {
+			try {
+				channel.close();
+			}
+			catch (IOException e) {
+				error = e;
+			}
+		}
+		segments.clear();
+		unforced = -1;
+		if (error != null) {
+			throw error;
+		}
+	}
+	
+	/**
+	 * Reads from a segment at the given position until the buffer is full or
+	 * the end of the segment is reached.
+	 * 
+	 * @param channel
+	 * 		The channel of the segment.
+	 * @param buffer
+	 * 		The buffer to read into.
+	 * @param position
+	 * 		The position in the segment to start reading from.
+	 * @throws IOException
+	 * 		An error occurred reading from the segment.
+	 */
+	private void read(FileChannel channel, ByteBuffer buffer, long position) throws IOException
+	{
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, position);
+			if (read == -1) {
+				break;
+			}
+			position += read;
+		}
+	}
+	
+	/**
+	 * Writes the buffer to a segment at the given position.
+	 * 
+	 * @param channel
+	 * 		The channel of the segment.
+	 * @param buffer
+	 * 		The buffer to write from.
+	 * @param position
+	 * 		The position in the segment to start writing to.
+	 * @throws IOException
+	 * 		An error occurred writing to the segment.
+	 */
+	private void write(FileChannel channel, ByteBuffer buffer, long position) throws IOException
+	{
+		while (buffer.hasRemaining()) {
+			position += channel.write(buffer, position);
+		}
+	}
+
+}
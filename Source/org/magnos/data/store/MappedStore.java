@@ -20,6 +20,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileChannel.MapMode;
@@ -33,12 +34,22 @@ import org.magnos.data.StoreAccess;
  * writes are not done immediately, only when the disk is idle or when flush or 
  * load are called explicitly. If this store has exclusive or read-write access
  * to the mapped file load does not need to be called before reads.
+ * <p>
+ * The file is mapped as a sequence of fixed size segments so the store can be
+ * larger than a single buffer can address. Reads and writes which cross the 
+ * boundary between two segments are split between them transparently.
+ * </p>
  *  
  * @author Philip Diffenderfer
  *
  */
 public class MappedStore extends AbstractStore 
 {
+	
+	/**
+	 * The default number of bytes in a mapped segment of the file (1GB).
+	 */
+	public static final int DEFAULT_SEGMENT_SIZE = 1 << 30;
 
 	// The file the store is persisted to.
 	private File file;
@@ -49,8 +60,11 @@ public class MappedStore extends AbstractStore
 	// The channel used to perform operations on the file.
 	private FileChannel channel;
 	
-	// The memory mapped buffer of the files data.
-	private MappedByteBuffer buffer;
+	// The memory mapped segments of the files data.
+	private MappedByteBuffer[] segments = new MappedByteBuffer[0];
+	
+	// The number of bytes in each mapped segment, the last segment may be less.
+	private final int segmentSize;
 	
 	// The last map mode used by the store.
 	private MapMode mapMode;
@@ -68,7 +82,7 @@ public class MappedStore extends AbstractStore
 	 * @param capacity
 	 * 		The requested capacity of the store.
 	 */
-	public MappedStore(File file, StoreAccess access, int capacity) 
+	public MappedStore(File file, StoreAccess access, long capacity) 
 	{
 		this(file);
 		this.create(access, capacity);
@@ -86,7 +100,7 @@ public class MappedStore extends AbstractStore
 	 * @param capacity
 	 * 		The requested capacity of the store.
 	 */
-	public MappedStore(String filename, StoreAccess access, int capacity) 
+	public MappedStore(String filename, StoreAccess access, long capacity) 
 	{
 		this(filename);
 		this.create(access, capacity);
@@ -101,8 +115,7 @@ public class MappedStore extends AbstractStore
 	 */
 	public MappedStore(File file) 
 	{
-		super(file.getAbsolutePath());
-		this.file = file;
+		this(file, DEFAULT_SEGMENT_SIZE);
 	}
 
 	/**
@@ -113,9 +126,50 @@ public class MappedStore extends AbstractStore
 	 * 		created when the store is opened, sized, or written to.
 	 */
 	public MappedStore(String filename) 
+	{
+		this(filename, DEFAULT_SEGMENT_SIZE);
+	}
+	
+	/**
+	 * Instantiantes a new MappedStore.
+	 * 
+	 * @param file
+	 * 		The file to persist data to. If this file doesn't exist it will be
+	 * 		created when the store is opened, sized, or written to.
+	 * @param segmentSize
+	 * 		The number of bytes in each mapped segment of the file.
+	 * @throws IllegalArgumentException
+	 * 		The segment size is not positive.
+	 */
+	public MappedStore(File file, int segmentSize) 
+	{
+		super(file.getAbsolutePath());
+		if (segmentSize <= 0) {
+			throw new IllegalArgumentException();
+		}
+		this.file = file;
+		this.segmentSize = segmentSize;
+	}
+	
+	/**
+	 * Instantiantes a new MappedStore.
+	 * 
+	 * @param filename
+	 * 		The file to persist data to. If this file doesn't exist it will be
+	 * 		created when the store is opened, sized, or written to.
+	 * @param segmentSize
+	 * 		The number of bytes in each mapped segment of the file.
+	 * @throws IllegalArgumentException
+	 * 		The segment size is not positive.
+	 */
+	public MappedStore(String filename, int segmentSize) 
 	{
 		super(filename);
+		if (segmentSize <= 0) {
+			throw new IllegalArgumentException();
+		}
 		this.file = new File(filename);
+		this.segmentSize = segmentSize;
 	}
 	
 	/**
@@ -152,21 +206,46 @@ public class MappedStore extends AbstractStore
 	}
 	
 	/**
-	 * Returns the memory mapped buffer of the files data.
+	 * Returns the number of bytes in each mapped segment of the file. The last
+	 * segment may have less.
+	 * 
+	 * @return
+	 * 		The size of a segment in bytes.
+	 */
+	public int getSegmentSize()
+	{
+		return segmentSize;
+	}
+	
+	/**
+	 * Returns the number of mapped segments of the file.
+	 * 
+	 * @return
+	 * 		The number of segments.
+	 */
+	public int getSegmentCount()
+	{
+		return segments.length;
+	}
+	
+	/**
+	 * Returns the memory mapped buffer of a segment of the files data.
 	 * 
+	 * @param index
+	 * 		The index of the segment.
 	 * @return
-	 * 		The stores memory mapped buffer.
+	 * 		The memory mapped buffer of the segment.
 	 */
-	public MappedByteBuffer getBuffer() 
+	public MappedByteBuffer getSegment(int index) 
 	{
-		return buffer;
+		return segments[index];
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
-	protected int storeOpen(StoreAccess access) throws IOException 
+	protected long storeOpen(StoreAccess access) throws IOException 
 	{
 		// If the file doesn't exist, create it.
 		if (!file.exists()) {
@@ -178,12 +257,12 @@ public class MappedStore extends AbstractStore
 		// Open with desired access.
 		String mode = (access.canWrite ? "rw" : "r");
 		stream = new RandomAccessFile(file, mode);
-		int capacity = (int)Math.min(stream.length(), Integer.MAX_VALUE);
+		long capacity = stream.length();
 		channel = stream.getChannel();
 		
 		// Map file to memory.
 		mapMode = (access.canWrite ? MapMode.READ_WRITE : MapMode.READ_ONLY);
-		buffer = channel.map(mapMode, 0, capacity);
+		map(capacity);
 		
 		// If we're supposed to lock it, then do it.
 		if (access.canLock) {
@@ -205,7 +284,9 @@ public class MappedStore extends AbstractStore
 	@Override
 	protected void storeLoad() throws IOException 
 	{
-		buffer.load();
+		for (MappedByteBuffer segment : segments) {
+			segment.load();
+		}
 	}
 
 	/**
@@ -214,7 +295,9 @@ public class MappedStore extends AbstractStore
 	@Override
 	protected void storeFlush() throws IOException 
 	{
-		buffer.force();
+		for (MappedByteBuffer segment : segments) {
+			segment.force();
+		}
 	}
 
 	/**
@@ -229,8 +312,10 @@ public class MappedStore extends AbstractStore
 		stream.close();
 		stream = null;
 		
-		Bits.free(buffer);
-		buffer = null;
+		for (MappedByteBuffer segment : segments) {
+			Bits.free(segment);
+		}
+		segments = new MappedByteBuffer[0];
 	}
 
 	/**
@@ -257,55 +342,332 @@ public class MappedStore extends AbstractStore
 	 * {@inheritDoc}
 	 */
 	@Override
-	protected int storeResize(int capacity) throws IOException 
+	protected long storeResize(long capacity) throws IOException 
 	{
-		Bits.free(buffer);
 		stream.setLength(capacity);
-		buffer = channel.map(mapMode, 0, capacity);
-		buffer.load();
-		return (int)Math.min(stream.length(), Integer.MAX_VALUE);
+		map(capacity);
+		return stream.length();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void storeOrder(ByteOrder order) 
+	{
+		for (MappedByteBuffer segment : segments) {
+			segment.order(order);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void storeGet(long location, byte[] bytes, int offset, int length) throws IOException 
+	{
+		check(location, length);
+		while (length > 0) {
+			ByteBuffer view = view(location);
+			int count = Math.min(length, view.remaining());
+			view.get(bytes, offset, count);
+			
+			location += count;
+			offset += count;
+			length -= count;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void storePut(long location, byte[] bytes, int offset, int length) throws IOException 
+	{
+		check(location, length);
+		while (length > 0) {
+			ByteBuffer view = view(location);
+			int count = Math.min(length, view.remaining());
+			view.put(bytes, offset, count);
+			
+			location += count;
+			offset += count;
+			length -= count;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void storeGet(long location, ByteBuffer b) throws IOException 
+	{
+		check(location, b.remaining());
+		while (b.hasRemaining()) {
+			ByteBuffer view = view(location);
+			int count = Math.min(b.remaining(), view.remaining());
+			view.limit(view.position() + count);
+			b.put(view);
+			
+			location += count;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void storePut(long location, ByteBuffer b) throws IOException 
+	{
+		check(location, b.remaining());
+		int limit = b.limit();
+		while (b.hasRemaining()) {
+			ByteBuffer view = view(location);
+			int count = Math.min(b.remaining(), view.remaining());
+			b.limit(b.position() + count);
+			view.put(b);
+			b.limit(limit);
+			
+			location += count;
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected byte storeGetByte(long location) throws IOException 
+	{
+		return segments[(int)(location / segmentSize)].get((int)(location % segmentSize));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void storePutByte(long location, byte value) throws IOException 
+	{
+		segments[(int)(location / segmentSize)].put((int)(location % segmentSize), value);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected short storeGetShort(long location) throws IOException 
+	{
+		if (!within(location, 2)) {
+			return super.storeGetShort(location);
+		}
+		return segments[(int)(location / segmentSize)].getShort((int)(location % segmentSize));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void storePutShort(long location, short value) throws IOException 
+	{
+		if (!within(location, 2)) {
+			super.storePutShort(location, value);
+		}
+		else {
+			segments[(int)(location / segmentSize)].putShort((int)(location % segmentSize), value);
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected int storeGetInt(long location) throws IOException 
+	{
+		if (!within(location, 4)) {
+			return super.storeGetInt(location);
+		}
+		return segments[(int)(location / segmentSize)].getInt((int)(location % segmentSize));
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
-	protected void storeGet(int location, byte[] bytes, int offset, int length) throws IOException 
+	protected void storePutInt(long location, int value) throws IOException 
+	{
+		if (!within(location, 4)) {
+			super.storePutInt(location, value);
+		}
+		else {
+			segments[(int)(location / segmentSize)].putInt((int)(location % segmentSize), value);
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected long storeGetLong(long location) throws IOException 
 	{
-		buffer.position(location);
-		buffer.get(bytes, offset, length);
+		if (!within(location, 8)) {
+			return super.storeGetLong(location);
+		}
+		return segments[(int)(location / segmentSize)].getLong((int)(location % segmentSize));
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
-	protected void storePut(int location, byte[] bytes, int offset, int length) throws IOException 
+	protected void storePutLong(long location, long value) throws IOException 
+	{
+		if (!within(location, 8)) {
+			super.storePutLong(location, value);
+		}
+		else {
+			segments[(int)(location / segmentSize)].putLong((int)(location % segmentSize), value);
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected float storeGetFloat(long location) throws IOException 
 	{
-		buffer.position(location);
-		buffer.put(bytes, offset, length);		
+		if (!within(location, 4)) {
+			return super.storeGetFloat(location);
+		}
+		return segments[(int)(location / segmentSize)].getFloat((int)(location % segmentSize));
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
-	protected void storeGet(int location, ByteBuffer b) throws IOException 
+	protected void storePutFloat(long location, float value) throws IOException 
+	{
+		if (!within(location, 4)) {
+			super.storePutFloat(location, value);
+		}
+		else {
+			segments[(int)(location / segmentSize)].putFloat((int)(location % segmentSize), value);
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected double storeGetDouble(long location) throws IOException 
 	{
-		buffer.position(location);
-		buffer.limit(location + b.remaining());
-		b.put(buffer);
-		buffer.limit(buffer.capacity());
+		if (!within(location, 8)) {
+			return super.storeGetDouble(location);
+		}
+		return segments[(int)(location / segmentSize)].getDouble((int)(location % segmentSize));
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
-	protected void storePut(int location, ByteBuffer b) throws IOException 
+	protected void storePutDouble(long location, double value) throws IOException 
+	{
+		if (!within(location, 8)) {
+			super.storePutDouble(location, value);
+		}
+		else {
+			segments[(int)(location / segmentSize)].putDouble((int)(location % segmentSize), value);
+		}
+	}
+	
+	/**
+	 * Returns whether the given number of bytes at the location lie within a
+	 * single segment, values which straddle two segments are read and written
+	 * through the general methods.
+	 * 
+	 * @param location
+	 * 		The location of the value.
+	 * @param length
+	 * 		The number of bytes in the value.
+	 * @return
+	 * 		True if the value is within one segment.
+	 */
+	private boolean within(long location, int length)
+	{
+		return (location % segmentSize) + length <= segmentSize;
+	}
+
+	/**
+	 * Checks that the given number of bytes from the location are within the
+	 * capacity of the store, so reads and writes never run past the end of 
+	 * the last segment.
+	 * 
+	 * @param location
+	 * 		The location in the store.
+	 * @param length
+	 * 		The number of bytes read or written at the location.
+	 * @throws IndexOutOfBoundsException
+	 * 		The bytes are not all within the store.
+	 */
+	private void check(long location, int length)
+	{
+		long capacity = capacity();
+		if (location < 0 || location + length > capacity) {
+			throw new IndexOutOfBoundsException("The " + length + " bytes at " + location + " are not within the capacity " + capacity);
+		}
+	}
+
+	/**
+	 * Returns a view of the segment which contains the given location. The 
+	 * view is positioned at the location and its limit is the end of the 
+	 * segment. Since each access has its own view the segments shared state
+	 * (position and limit) is never modified.
+	 * 
+	 * @param location
+	 * 		The location in the store.
+	 * @return
+	 * 		A new view of the segment containing the location.
+	 */
+	private ByteBuffer view(long location)
+	{
+		ByteBuffer view = segments[(int)(location / segmentSize)].duplicate();
+		view.position((int)(location % segmentSize));
+		return view;
+	}
+	
+	/**
+	 * Maps the file into segments given its capacity. Segments which are full
+	 * and remain full at the new capacity are kept, every other segment is 
+	 * unmapped and the remainder of the file is mapped again.
+	 * 
+	 * @param capacity
+	 * 		The capacity of the file.
+	 * @throws IOException
+	 * 		An error occurred mapping the file.
+	 */
+	private void map(long capacity) throws IOException
 	{
-		buffer.position(location);
-		buffer.put(b);
+		int count = (int)((capacity + segmentSize - 1) / segmentSize);
+		MappedByteBuffer[] mapped = new MappedByteBuffer[count];
+		
+		for (int i = 0; i < segments.length; i++) {
+			long end = (long)(i + 1) * segmentSize;
+			if (i < count && end <= capacity && segments[i].capacity() == segmentSize) {
+				mapped[i] = segments[i];
+			}
+			else {
+				Bits.free(segments[i]);
+			}
+		}
+		for (int i = 0; i < count; i++) {
+			if (mapped[i] == null) {
+				long start = (long)i * segmentSize;
+				long size = Math.min(segmentSize, capacity - start);
+				mapped[i] = channel.map(mapMode, start, size);
+				mapped[i].order(getOrder());
+			}
+		}
+		segments = mapped;
 	}
 
 }
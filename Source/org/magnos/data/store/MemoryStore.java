@@ -18,13 +18,17 @@ package org.magnos.data.store;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 import org.magnos.data.Bits;
 import org.magnos.data.StoreAccess;
+import org.magnos.data.StoreBatch;
 
 
 /**
  * A store which is kept entirely in memory and is not persisted to any medium.
+ * The store is kept in a single direct buffer, so its capacity cannot exceed
+ * {@link Integer#MAX_VALUE} bytes.
  * 
  * @author Philip Diffenderfer
  *
@@ -33,7 +37,7 @@ public class MemoryStore extends AbstractStore
 {
 	
 	// The initial capacity of the store. Also updated when the store is resized.
-	private int capacity;
+	private long capacity;
 	
 	// The buffer which holds all of the stores data.
 	private ByteBuffer buffer;
@@ -58,7 +62,7 @@ public class MemoryStore extends AbstractStore
 	 * @param capacity
 	 * 		The requested capacity of the store.
 	 */
-	public MemoryStore(String name, int capacity) 
+	public MemoryStore(String name, long capacity) 
 	{
 		super(name);
 		this.capacity = capacity;
@@ -74,7 +78,7 @@ public class MemoryStore extends AbstractStore
 	 * @param capacity
 	 * 		The requested capacity of the store.
 	 */
-	public MemoryStore(String name, StoreAccess access, int capacity) 
+	public MemoryStore(String name, StoreAccess access, long capacity) 
 	{
 		super(name);
 		this.capacity = capacity;
@@ -96,7 +100,7 @@ public class MemoryStore extends AbstractStore
 	 * {@inheritDoc}
 	 */
 	@Override
-	protected int storeOpen(StoreAccess access) throws IOException 
+	protected long storeOpen(StoreAccess access) throws IOException 
 	{
 		return storeResize(capacity);
 	}
@@ -148,8 +152,13 @@ public class MemoryStore extends AbstractStore
 	 * {@inheritDoc}
 	 */
 	@Override
-	protected int storeResize(int bytes) 
+	protected long storeResize(long capacity) throws IOException 
 	{
+		if (capacity > Integer.MAX_VALUE) {
+			throw new IOException("A memory store cannot exceed " + Integer.MAX_VALUE + " bytes: " + capacity);
+		}
+		int bytes = (int)capacity;
+		
 		if (buffer == null) {
 			buffer = ByteBuffer.allocateDirect(bytes);
 		}
@@ -165,50 +174,225 @@ public class MemoryStore extends AbstractStore
 			
 			buffer = newBuffer;
 		}
-		capacity = buffer.capacity();
-		return capacity;
+		buffer.order(getOrder());
+		this.capacity = buffer.capacity();
+		return this.capacity;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void storeOrder(ByteOrder order) 
+	{
+		buffer.order(order);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void storeGet(long location, byte[] bytes, int offset, int length) throws IOException 
+	{
+		ByteBuffer view = buffer.duplicate();
+		view.position(index(location, length));
+		view.get(bytes, offset, length);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void storePut(long location, byte[] bytes, int offset, int length) throws IOException 
+	{
+		ByteBuffer view = buffer.duplicate();
+		view.position(index(location, length));
+		view.put(bytes, offset, length);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void storeGet(long location, ByteBuffer b) throws IOException 
+	{
+		ByteBuffer view = buffer.duplicate();
+		int index = index(location, b.remaining());
+		view.limit(index + b.remaining());
+		view.position(index);
+		b.put(view);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void storePut(long location, ByteBuffer b) throws IOException 
+	{
+		ByteBuffer view = buffer.duplicate();
+		view.position(index(location, b.remaining()));
+		view.put(b);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void storeGet(StoreBatch batch) throws IOException 
+	{
+		ByteBuffer view = buffer.duplicate();
+		for (int i = 0; i < batch.size(); i++) {
+			ByteBuffer b = batch.getBuffer(i);
+			int location = index(batch.getLocation(i), b.remaining());
+			view.limit(location + b.remaining());
+			view.position(location);
+			b.put(view);
+			view.limit(view.capacity());
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void storePut(StoreBatch batch) throws IOException 
+	{
+		ByteBuffer view = buffer.duplicate();
+		for (int i = 0; i < batch.size(); i++) {
+			ByteBuffer b = batch.getBuffer(i);
+			view.position(index(batch.getLocation(i), b.remaining()));
+			view.put(b);
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected byte storeGetByte(long location) throws IOException 
+	{
+		return buffer.get(index(location, 1));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void storePutByte(long location, byte value) throws IOException 
+	{
+		buffer.put(index(location, 1), value);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected short storeGetShort(long location) throws IOException 
+	{
+		return buffer.getShort(index(location, 2));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void storePutShort(long location, short value) throws IOException 
+	{
+		buffer.putShort(index(location, 2), value);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected int storeGetInt(long location) throws IOException 
+	{
+		return buffer.getInt(index(location, 4));
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
-	protected void storeGet(int location, byte[] bytes, int offset, int length) throws IOException 
+	protected void storePutInt(long location, int value) throws IOException 
 	{
-		buffer.position(location);
-		buffer.get(bytes, offset, length);
+		buffer.putInt(index(location, 4), value);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected long storeGetLong(long location) throws IOException 
+	{
+		return buffer.getLong(index(location, 8));
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
-	protected void storePut(int location, byte[] bytes, int offset, int length) throws IOException 
+	protected void storePutLong(long location, long value) throws IOException 
 	{
-		buffer.position(location);
-		buffer.put(bytes, offset, length);
+		buffer.putLong(index(location, 8), value);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected float storeGetFloat(long location) throws IOException 
+	{
+		return buffer.getFloat(index(location, 4));
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
-	protected void storeGet(int location, ByteBuffer b) throws IOException 
+	protected void storePutFloat(long location, float value) throws IOException 
 	{
-		buffer.position(location);
-		buffer.limit(location + b.remaining());
-		b.put(buffer);
-		buffer.limit(buffer.capacity());
+		buffer.putFloat(index(location, 4), value);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected double storeGetDouble(long location) throws IOException 
+	{
+		return buffer.getDouble(index(location, 8));
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
-	protected void storePut(int location, ByteBuffer b) throws IOException 
+	protected void storePutDouble(long location, double value) throws IOException 
+	{
+		buffer.putDouble(index(location, 8), value);
+	}
+	
+	/**
+	 * Returns the index in the buffer of the given location after checking 
+	 * that the given number of bytes from the location are in the buffer, so
+	 * a location past the capacity never wraps when cast to an int.
+	 * 
+	 * @param location
+	 * 		The location in the store.
+	 * @param length
+	 * 		The number of bytes read or written at the location.
+	 * @return
+	 * 		The index in the buffer.
+	 * @throws IndexOutOfBoundsException
+	 * 		The bytes are not all within the store.
+	 */
+	private int index(long location, int length)
 	{
-		buffer.position(location);
-		buffer.put(b);
+		if (location < 0 || location + length > buffer.capacity()) {
+			throw new IndexOutOfBoundsException("The " + length + " bytes at " + location + " are not within the capacity " + buffer.capacity());
+		}
+		return (int)location;
 	}
 
 }
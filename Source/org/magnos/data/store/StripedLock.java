@@ -0,0 +1,316 @@
+/* 
+ * NOTICE OF LICENSE
+ * 
+ * This source file is subject to the Open Software License (OSL 3.0) that is 
+ * bundled with this package in the file LICENSE.txt. It is also available 
+ * through the world-wide-web at http://opensource.org/licenses/osl-3.0.php
+ * If you did not receive a copy of the license and are unable to obtain it 
+ * through the world-wide-web, please send an email to pdiffenderfer@gmail.com 
+ * so we can send you a copy immediately. If you use any of this software please
+ * notify me via my website or email, your feedback is much appreciated. 
+ * 
+ * @copyright   Copyright (c) 2011 Magnos Software (http://www.magnos.org)
+ * @license     http://opensource.org/licenses/osl-3.0.php
+ * 				Open Software License (OSL 3.0)
+ */
+
+package org.magnos.data.store;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+
+/**
+ * A lock manager which divides a store into fixed size stripes and locks
+ * ranges of bytes by locking every stripe the range touches. Reads and writes 
+ * to different stripes can proceed in parallel, while operations over the 
+ * same stripes are atomic with respect to each other. Stripes are mapped onto
+ * a fixed number of locks, and the locks for a range are always acquired in 
+ * ascending order so multi-stripe operations cannot deadlock.
+ * 
+ * @author Philip Diffenderfer
+ *
+ */
+public class StripedLock 
+{
+	
+	/**
+	 * The default number of bytes covered by a single stripe.
+	 */
+	public static final int DEFAULT_STRIPE_SIZE = 4096;
+	
+	/**
+	 * The default number of locks stripes are mapped onto.
+	 */
+	public static final int DEFAULT_STRIPE_COUNT = 64;
+
+	// The number of bytes covered by a single stripe.
+	private final int stripeSize;
+	
+	// The locks the stripes are mapped onto.
+	private final ReentrantReadWriteLock[] locks;
+	
+	
+	/**
+	 * Instantiates a new StripedLock with the default stripe size and count.
+	 */
+	public StripedLock()
+	{
+		this(DEFAULT_STRIPE_SIZE, DEFAULT_STRIPE_COUNT);
+	}
+	
+	/**
+	 * Instantiates a new StripedLock.
+	 * 
+	 * @param stripeSize
+	 * 		The number of bytes covered by a single stripe.
+	 * @param stripeCount
+	 * 		The number of locks stripes are mapped onto.
+	 * @throws IllegalArgumentException
+	 * 		The stripe size or count is not positive.
+	 */
+	public StripedLock(int stripeSize, int stripeCount)
+	{
+		if (stripeSize <= 0 || stripeCount <= 0) {
+			throw new IllegalArgumentException();
+		}
+		this.stripeSize = stripeSize;
+		this.locks = new ReentrantReadWriteLock[stripeCount];
+		for (int i = 0; i < stripeCount; i++) {
+			locks[i] = new ReentrantReadWriteLock();
+		}
+	}
+	
+	/**
+	 * Returns the number of bytes covered by a single stripe.
+	 * 
+	 * @return
+	 * 		The size of a stripe in bytes.
+	 */
+	public int getStripeSize()
+	{
+		return stripeSize;
+	}
+	
+	/**
+	 * Returns the number of locks stripes are mapped onto.
+	 * 
+	 * @return
+	 * 		The number of locks.
+	 */
+	public int getStripeCount()
+	{
+		return locks.length;
+	}
+	
+	/**
+	 * Acquires shared access to the given range of bytes.
+	 * 
+	 * @param location
+	 * 		The offset of the range in bytes.
+	 * @param length
+	 * 		The number of bytes in the range.
+	 */
+	public void lockRead(long location, long length)
+	{
+		apply(location, length, false, true);
+	}
+
+	/**
+	 * Releases shared access to the given range of bytes.
+	 * 
+	 * @param location
+	 * 		The offset of the range in bytes.
+	 * @param length
+	 * 		The number of bytes in the range.
+	 */
+	public void unlockRead(long location, long length)
+	{
+		apply(location, length, false, false);
+	}
+	
+	/**
+	 * Acquires exclusive access to the given range of bytes.
+	 * 
+	 * @param location
+	 * 		The offset of the range in bytes.
+	 * @param length
+	 * 		The number of bytes in the range.
+	 */
+	public void lockWrite(long location, long length)
+	{
+		apply(location, length, true, true);
+	}
+
+	/**
+	 * Releases exclusive access to the given range of bytes.
+	 * 
+	 * @param location
+	 * 		The offset of the range in bytes.
+	 * @param length
+	 * 		The number of bytes in the range.
+	 */
+	public void unlockWrite(long location, long length)
+	{
+		apply(location, length, true, false);
+	}
+	
+	/**
+	 * Acquires shared access to every one of the given ranges of bytes.
+	 * 
+	 * @param locations
+	 * 		The offsets of the ranges in bytes.
+	 * @param lengths
+	 * 		The number of bytes in each range.
+	 * @param count
+	 * 		The number of ranges.
+	 */
+	public void lockRead(long[] locations, long[] lengths, int count)
+	{
+		applyAll(locations, lengths, count, false, true);
+	}
+	
+	/**
+	 * Releases shared access to every one of the given ranges of bytes.
+	 * 
+	 * @param locations
+	 * 		The offsets of the ranges in bytes.
+	 * @param lengths
+	 * 		The number of bytes in each range.
+	 * @param count
+	 * 		The number of ranges.
+	 */
+	public void unlockRead(long[] locations, long[] lengths, int count)
+	{
+		applyAll(locations, lengths, count, false, false);
+	}
+	
+	/**
+	 * Acquires exclusive access to every one of the given ranges of bytes.
+	 * 
+	 * @param locations
+	 * 		The offsets of the ranges in bytes.
+	 * @param lengths
+	 * 		The number of bytes in each range.
+	 * @param count
+	 * 		The number of ranges.
+	 */
+	public void lockWrite(long[] locations, long[] lengths, int count)
+	{
+		applyAll(locations, lengths, count, true, true);
+	}
+	
+	/**
+	 * Releases exclusive access to every one of the given ranges of bytes.
+	 * 
+	 * @param locations
+	 * 		The offsets of the ranges in bytes.
+	 * @param lengths
+	 * 		The number of bytes in each range.
+	 * @param count
+	 * 		The number of ranges.
+	 */
+	public void unlockWrite(long[] locations, long[] lengths, int count)
+	{
+		applyAll(locations, lengths, count, true, false);
+	}
+	
+	/**
+	 * Locks or unlocks every lock the stripes of the given ranges map onto,
+	 * each lock once and in ascending order no matter how the ranges wrap.
+	 * 
+	 * @param locations
+	 * 		The offsets of the ranges in bytes.
+	 * @param lengths
+	 * 		The number of bytes in each range.
+	 * @param count
+	 * 		The number of ranges.
+	 * @param write
+	 * 		True if the exclusive locks are used, false for shared locks.
+	 * @param lock
+	 * 		True if the locks should be acquired, false if released.
+	 */
+	private void applyAll(long[] locations, long[] lengths, int count, boolean write, boolean lock)
+	{
+		if (count == 1) {
+			apply(locations[0], lengths[0], write, lock);
+			return;
+		}
+		boolean[] touched = new boolean[locks.length];
+		for (int r = 0; r < count; r++) {
+			long firstStripe = locations[r] / stripeSize;
+			long lastStripe = (locations[r] + Math.max(lengths[r], 1) - 1) / stripeSize;
+			for (long stripe = firstStripe; stripe <= lastStripe && stripe - firstStripe < locks.length; stripe++) {
+				touched[(int)(stripe % locks.length)] = true;
+			}
+		}
+		for (int i = 0; i < locks.length; i++) {
+			if (touched[i]) {
+				applyBetween(i, i, write, lock);
+			}
+		}
+	}
+	
+	/**
+	 * Locks or unlocks every lock the stripes of the given range map onto. 
+	 * When the range wraps around the array of locks the locks at the 
+	 * beginning of the array are handled first, to keep acquisition in 
+	 * ascending order.
+	 * 
+	 * @param location
+	 * 		The offset of the range in bytes.
+	 * @param length
+	 * 		The number of bytes in the range.
+	 * @param write
+	 * 		True if the exclusive locks are used, false for shared locks.
+	 * @param lock
+	 * 		True if the locks should be acquired, false if released.
+	 */
+	private void apply(long location, long length, boolean write, boolean lock)
+	{
+		long firstStripe = location / stripeSize;
+		long lastStripe = (location + Math.max(length, 1) - 1) / stripeSize;
+		int first = 0;
+		int last = locks.length - 1;
+		
+		// If the range doesn't cover every lock, only use the ones it touches.
+		if (lastStripe - firstStripe < locks.length) {
+			first = (int)(firstStripe % locks.length);
+			last = (int)(lastStripe % locks.length);
+		}
+		
+		if (first <= last) {
+			applyBetween(first, last, write, lock);
+		}
+		else {
+			applyBetween(0, last, write, lock);
+			applyBetween(first, locks.length - 1, write, lock);
+		}
+	}
+	
+	/**
+	 * Locks or unlocks the locks between the given indices inclusively.
+	 * 
+	 * @param from
+	 * 		The index of the first lock.
+	 * @param to
+	 * 		The index of the last lock.
+	 * @param write
+	 * 		True if the exclusive locks are used, false for shared locks.
+	 * @param lock
+	 * 		True if the locks should be acquired, false if released.
+	 */
+	private void applyBetween(int from, int to, boolean write, boolean lock)
+	{
+		for (int i = from; i <= to; i++) {
+			Lock l = (write ? locks[i].writeLock() : locks[i].readLock());
+			if (lock) {
+				l.lock();
+			}
+			else {
+				l.unlock();
+			}
+		}
+	}
+	
+}
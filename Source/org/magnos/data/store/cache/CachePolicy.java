@@ -0,0 +1,89 @@
+/* 
+ * NOTICE OF LICENSE
+ * 
+ * This source file is subject to the Open Software License (OSL 3.0) that is 
+ * bundled with this package in the file LICENSE.txt. It is also available 
+ * through the world-wide-web at http://opensource.org/licenses/osl-3.0.php
+ * If you did not receive a copy of the license and are unable to obtain it 
+ * through the world-wide-web, please send an email to pdiffenderfer@gmail.com 
+ * so we can send you a copy immediately. If you use any of this software please
+ * notify me via my website or email, your feedback is much appreciated. 
+ * 
+ * @copyright   Copyright (c) 2011 Magnos Software (http://www.magnos.org)
+ * @license     http://opensource.org/licenses/osl-3.0.php
+ * 				Open Software License (OSL 3.0)
+ */
+
+package org.magnos.data.store.cache;
+
+
+/**
+ * Decides which page to evict from a cache when every frame is in use. A 
+ * cache has a fixed number of frames which are identified by their index, and
+ * the policy is told whenever a page is placed into a frame, a frame is 
+ * accessed, or a frame is emptied. A policy is used by a single cache and is
+ * only called while the cache holds its lock.
+ * 
+ * @author Philip Diffenderfer
+ *
+ */
+public interface CachePolicy 
+{
+
+	/**
+	 * Resets the policy to track the given number of empty frames. Any 
+	 * previous state of the policy is discarded.
+	 * 
+	 * @param frames
+	 * 		The number of frames in the cache.
+	 */
+	public void reset(int frames);
+	
+	/**
+	 * Notifies the policy that a page has been placed into an empty frame.
+	 * 
+	 * @param frame
+	 * 		The index of the frame.
+	 * @param page
+	 * 		The index of the page now in the frame.
+	 */
+	public void insert(int frame, long page);
+	
+	/**
+	 * Notifies the policy that the page in a frame has been accessed.
+	 * 
+	 * @param frame
+	 * 		The index of the frame.
+	 */
+	public void access(int frame);
+	
+	/**
+	 * Notifies the policy that a frame has been emptied by the cache.
+	 * 
+	 * @param frame
+	 * 		The index of the frame.
+	 */
+	public void remove(int frame);
+	
+	/**
+	 * Chooses a frame to evict and empties it. This is only called when every
+	 * frame of the cache holds a page.
+	 * 
+	 * @return
+	 * 		The index of the emptied frame.
+	 */
+	public int evict();
+	
+	/**
+	 * Chooses a frame which isn't pinned to evict and empties it. Pinned 
+	 * frames are skipped without changing their place in the policy. This is
+	 * only called when every frame of the cache holds a page.
+	 * 
+	 * @param pinned
+	 * 		The frames which must not be evicted, or null if none are pinned.
+	 * @return
+	 * 		The index of the emptied frame, or -1 if every frame is pinned.
+	 */
+	public int evict(PinnedFrames pinned);
+	
+}
@@ -0,0 +1,115 @@
+/* 
+ * NOTICE OF LICENSE
+ * 
+ * This source file is subject to the Open Software License (OSL 3.0) that is 
+ * bundled with this package in the file LICENSE.txt. It is also available 
+ * through the world-wide-web at http://opensource.org/licenses/osl-3.0.php
+ * If you did not receive a copy of the license and are unable to obtain it 
+ * through the world-wide-web, please send an email to pdiffenderfer@gmail.com 
+ * so we can send you a copy immediately. If you use any of this software please
+ * notify me via my website or email, your feedback is much appreciated. 
+ * 
+ * @copyright   Copyright (c) 2011 Magnos Software (http://www.magnos.org)
+ * @license     http://opensource.org/licenses/osl-3.0.php
+ * 				Open Software License (OSL 3.0)
+ */
+
+package org.magnos.data.store.cache;
+
+
+/**
+ * A policy which approximates LRU with a clock. Each frame has a reference 
+ * bit which is set when it's accessed, and the hand sweeps the frames 
+ * clearing reference bits until it finds a frame whose bit is already clear.
+ * Accesses only set a bit, so they are cheaper than moving a frame in a list.
+ * 
+ * @author Philip Diffenderfer
+ *
+ */
+public class ClockCachePolicy implements CachePolicy 
+{
+
+	// Whether the frame holds a page, by frame.
+	private boolean[] used = {};
+	
+	// Whether the frame has been referenced since the hand last passed, by frame.
+	private boolean[] referenced = {};
+	
+	// The next frame the hand will look at.
+	private int hand;
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void reset(int frames) 
+	{
+		used = new boolean[frames];
+		referenced = new boolean[frames];
+		hand = 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void insert(int frame, long page) 
+	{
+		used[frame] = true;
+		referenced[frame] = false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void access(int frame) 
+	{
+		referenced[frame] = true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void remove(int frame) 
+	{
+		used[frame] = false;
+		referenced[frame] = false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int evict() 
+	{
+		return evict(null);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int evict(PinnedFrames pinned) 
+	{
+		// At most two sweeps, the first may clear every reference bit. Pinned
+		// frames are passed over without touching their reference bit.
+		for (int i = 0; i < used.length * 2; i++) {
+			int frame = hand;
+			hand = (hand + 1) % used.length;
+			
+			if (used[frame] && (pinned == null || !pinned.isPinned(frame))) {
+				if (referenced[frame]) {
+					referenced[frame] = false;
+				}
+				else {
+					used[frame] = false;
+					return frame;
+				}
+			}
+		}
+		return -1;
+	}
+
+}
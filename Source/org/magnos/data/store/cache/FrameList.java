@@ -0,0 +1,215 @@
+/* 
+ * NOTICE OF LICENSE
+ * 
+ * This source file is subject to the Open Software License (OSL 3.0) that is 
+ * bundled with this package in the file LICENSE.txt. It is also available 
+ * through the world-wide-web at http://opensource.org/licenses/osl-3.0.php
+ * If you did not receive a copy of the license and are unable to obtain it 
+ * through the world-wide-web, please send an email to pdiffenderfer@gmail.com 
+ * so we can send you a copy immediately. If you use any of this software please
+ * notify me via my website or email, your feedback is much appreciated. 
+ * 
+ * @copyright   Copyright (c) 2011 Magnos Software (http://www.magnos.org)
+ * @license     http://opensource.org/licenses/osl-3.0.php
+ * 				Open Software License (OSL 3.0)
+ */
+
+package org.magnos.data.store.cache;
+
+import java.util.Arrays;
+
+
+/**
+ * A doubly linked list of frames stored in arrays so no objects are created
+ * as frames are moved around. Each frame may be in at most one list.
+ * 
+ * @author Philip Diffenderfer
+ *
+ */
+class FrameList 
+{
+
+	// The next frame toward the tail of the list, by frame.
+	private final int[] next;
+	
+	// The previous frame toward the head of the list, by frame.
+	private final int[] prev;
+	
+	// Whether the frame is in the list, by frame.
+	private final boolean[] linked;
+	
+	// The most recently added frame, or -1 if the list is empty.
+	private int head = -1;
+	
+	// The least recently added frame, or -1 if the list is empty.
+	private int tail = -1;
+	
+	// The number of frames in the list.
+	private int size;
+	
+	/**
+	 * Instantiates a new empty FrameList.
+	 * 
+	 * @param frames
+	 * 		The number of frames which could be in the list.
+	 */
+	public FrameList(int frames)
+	{
+		this.next = new int[frames];
+		this.prev = new int[frames];
+		this.linked = new boolean[frames];
+		Arrays.fill(next, -1);
+		Arrays.fill(prev, -1);
+	}
+	
+	/**
+	 * Adds the frame to the head of the list.
+	 * 
+	 * @param frame
+	 * 		The frame to add, which must not be in the list.
+	 */
+	public void addFirst(int frame)
+	{
+		prev[frame] = -1;
+		next[frame] = head;
+		if (head != -1) {
+			prev[head] = frame;
+		}
+		head = frame;
+		if (tail == -1) {
+			tail = frame;
+		}
+		linked[frame] = true;
+		size++;
+	}
+	
+	/**
+	 * Removes the frame from the list if it's in the list.
+	 * 
+	 * @param frame
+	 * 		The frame to remove.
+	 * @return
+	 * 		True if the frame was removed, false if it wasn't in the list.
+	 */
+	public boolean remove(int frame)
+	{
+		if (!linked[frame]) {
+			return false;
+		}
+		if (prev[frame] == -1) {
+			head = next[frame];
+		}
+		else {
+			next[prev[frame]] = next[frame];
+		}
+		if (next[frame] == -1) {
+			tail = prev[frame];
+		}
+		else {
+			prev[next[frame]] = prev[frame];
+		}
+		next[frame] = prev[frame] = -1;
+		linked[frame] = false;
+		size--;
+		return true;
+	}
+	
+	/**
+	 * Moves the frame to the head of the list.
+	 * 
+	 * @param frame
+	 * 		The frame to move, which must be in the list.
+	 */
+	public void moveFirst(int frame)
+	{
+		if (head != frame) {
+			remove(frame);
+			addFirst(frame);
+		}
+	}
+	
+	/**
+	 * Removes and returns the frame at the tail of the list.
+	 * 
+	 * @return
+	 * 		The removed frame, or -1 if the list is empty.
+	 */
+	public int removeLast()
+	{
+		int frame = tail;
+		if (frame != -1) {
+			remove(frame);
+		}
+		return frame;
+	}
+	
+	/**
+	 * Returns the frame at the tail of the list.
+	 * 
+	 * @return
+	 * 		The least recently added frame, or -1 if the list is empty.
+	 */
+	public int last()
+	{
+		return tail;
+	}
+	
+	/**
+	 * Returns the frame before the given frame, toward the head of the list.
+	 * 
+	 * @param frame
+	 * 		The frame, which must be in the list.
+	 * @return
+	 * 		The previous frame, or -1 if the frame is the head.
+	 */
+	public int previous(int frame)
+	{
+		return prev[frame];
+	}
+	
+	/**
+	 * Removes and returns the frame nearest the tail of the list which isn't
+	 * pinned, the pinned frames keep their places.
+	 * 
+	 * @param pinned
+	 * 		The frames which must not be removed, or null if none are pinned.
+	 * @return
+	 * 		The removed frame, or -1 if every frame in the list is pinned.
+	 */
+	public int removeLast(PinnedFrames pinned)
+	{
+		int frame = tail;
+		while (frame != -1 && pinned != null && pinned.isPinned(frame)) {
+			frame = prev[frame];
+		}
+		if (frame != -1) {
+			remove(frame);
+		}
+		return frame;
+	}
+	
+	/**
+	 * Returns whether the frame is in the list.
+	 * 
+	 * @param frame
+	 * 		The frame.
+	 * @return
+	 * 		True if the frame is in the list.
+	 */
+	public boolean contains(int frame)
+	{
+		return linked[frame];
+	}
+	
+	/**
+	 * Returns the number of frames in the list.
+	 * 
+	 * @return
+	 * 		The size of the list.
+	 */
+	public int size()
+	{
+		return size;
+	}
+	
+}
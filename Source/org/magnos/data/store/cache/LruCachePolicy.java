@@ -0,0 +1,86 @@
+/* 
+ * NOTICE OF LICENSE
+ * 
+ * This source file is subject to the Open Software License (OSL 3.0) that is 
+ * bundled with this package in the file LICENSE.txt. It is also available 
+ * through the world-wide-web at http://opensource.org/licenses/osl-3.0.php
+ * If you did not receive a copy of the license and are unable to obtain it 
+ * through the world-wide-web, please send an email to pdiffenderfer@gmail.com 
+ * so we can send you a copy immediately. If you use any of this software please
+ * notify me via my website or email, your feedback is much appreciated. 
+ * 
+ * @copyright   Copyright (c) 2011 Magnos Software (http://www.magnos.org)
+ * @license     http://opensource.org/licenses/osl-3.0.php
+ * 				Open Software License (OSL 3.0)
+ */
+
+package org.magnos.data.store.cache;
+
+
+/**
+ * A policy which evicts the least recently used page.
+ * 
+ * @author Philip Diffenderfer
+ *
+ */
+public class LruCachePolicy implements CachePolicy 
+{
+
+	// The frames in use from most to least recently used.
+	private FrameList used = new FrameList(0);
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void reset(int frames) 
+	{
+		used = new FrameList(frames);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void insert(int frame, long page) 
+	{
+		used.addFirst(frame);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void access(int frame) 
+	{
+		used.moveFirst(frame);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void remove(int frame) 
+	{
+		used.remove(frame);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int evict() 
+	{
+		return evict(null);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int evict(PinnedFrames pinned) 
+	{
+		return used.removeLast(pinned);
+	}
+
+}
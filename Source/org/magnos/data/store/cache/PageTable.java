@@ -0,0 +1,175 @@
+/* 
+ * NOTICE OF LICENSE
+ * 
+ * This source file is subject to the Open Software License (OSL 3.0) that is 
+ * bundled with this package in the file LICENSE.txt. It is also available 
+ * through the world-wide-web at http://opensource.org/licenses/osl-3.0.php
+ * If you did not receive a copy of the license and are unable to obtain it 
+ * through the world-wide-web, please send an email to pdiffenderfer@gmail.com 
+ * so we can send you a copy immediately. If you use any of this software please
+ * notify me via my website or email, your feedback is much appreciated. 
+ * 
+ * @copyright   Copyright (c) 2011 Magnos Software (http://www.magnos.org)
+ * @license     http://opensource.org/licenses/osl-3.0.php
+ * 				Open Software License (OSL 3.0)
+ */
+
+package org.magnos.data.store.cache;
+
+import java.util.Arrays;
+
+
+/**
+ * A map of page indices to frames stored in arrays with open addressing so
+ * looking up a page neither boxes its index nor creates any objects. The
+ * table never holds more entries than the number of frames it was created
+ * for, so it never grows.
+ * 
+ * @author Philip Diffenderfer
+ *
+ */
+public class PageTable 
+{
+
+	// The page index in each slot, or -1 if the slot is empty.
+	private final long[] pages;
+	
+	// The frame in each slot.
+	private final int[] frames;
+	
+	// The mask applied to a hash to get a slot.
+	private final int mask;
+	
+	// The number of entries in the table.
+	private int size;
+	
+	/**
+	 * Instantiates a new empty PageTable.
+	 * 
+	 * @param frames
+	 * 		The number of frames, which is the most entries the table will hold.
+	 */
+	public PageTable(int frames)
+	{
+		int slots = Integer.highestOneBit(Math.max(1, Math.min(frames, 1 << 29)) * 2 - 1) << 1;
+		
+		this.pages = new long[slots];
+		this.frames = new int[slots];
+		this.mask = slots - 1;
+		this.clear();
+	}
+	
+	/**
+	 * Returns the frame holding the given page.
+	 * 
+	 * @param page
+	 * 		The index of the page, which must not be negative.
+	 * @return
+	 * 		The frame holding the page, or -1 if the page isn't in the table.
+	 */
+	public int get(long page)
+	{
+		int slot = slot(page);
+		while (pages[slot] != -1) {
+			if (pages[slot] == page) {
+				return frames[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+	
+	/**
+	 * Sets the frame holding the given page.
+	 * 
+	 * @param page
+	 * 		The index of the page, which must not be negative.
+	 * @param frame
+	 * 		The frame holding the page.
+	 * @throws IllegalStateException
+	 * 		The page is new and the table is full.
+	 */
+	public void put(long page, int frame)
+	{
+		int slot = slot(page);
+		while (pages[slot] != -1) {
+			if (pages[slot] == page) {
+				frames[slot] = frame;
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+		if (size == pages.length - 1) {
+			throw new IllegalStateException("The page table is full");
+		}
+		pages[slot] = page;
+		frames[slot] = frame;
+		size++;
+	}
+	
+	/**
+	 * Removes the given page from the table.
+	 * 
+	 * @param page
+	 * 		The index of the page.
+	 * @return
+	 * 		The frame which held the page, or -1 if the page wasn't in the table.
+	 */
+	public int remove(long page)
+	{
+		int slot = slot(page);
+		while (pages[slot] != page) {
+			if (pages[slot] == -1) {
+				return -1;
+			}
+			slot = (slot + 1) & mask;
+		}
+		int frame = frames[slot];
+		
+		// Shift back the entries after the slot which can no longer be found.
+		int next = (slot + 1) & mask;
+		while (pages[next] != -1) {
+			int home = slot(pages[next]);
+			if (((next - home) & mask) >= ((next - slot) & mask)) {
+				pages[slot] = pages[next];
+				frames[slot] = frames[next];
+				slot = next;
+			}
+			next = (next + 1) & mask;
+		}
+		pages[slot] = -1;
+		size--;
+		
+		return frame;
+	}
+	
+	/**
+	 * Removes every page from the table.
+	 */
+	public void clear()
+	{
+		Arrays.fill(pages, -1);
+		size = 0;
+	}
+	
+	/**
+	 * Returns the number of pages in the table.
+	 * 
+	 * @return
+	 * 		The number of entries.
+	 */
+	public int size()
+	{
+		return size;
+	}
+	
+	/**
+	 * Returns the slot the given page starts its search from.
+	 */
+	private int slot(long page)
+	{
+		long hash = page * 0x9E3779B97F4A7C15L;
+		return (int)(hash ^ (hash >>> 32)) & mask;
+	}
+
+}
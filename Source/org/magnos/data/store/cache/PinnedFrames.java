@@ -0,0 +1,41 @@
+/* 
+ * NOTICE OF LICENSE
+ * 
+ * This source file is subject to the Open Software License (OSL 3.0) that is 
+ * bundled with this package in the file LICENSE.txt. It is also available 
+ * through the world-wide-web at http://opensource.org/licenses/osl-3.0.php
+ * If you did not receive a copy of the license and are unable to obtain it 
+ * through the world-wide-web, please send an email to pdiffenderfer@gmail.com 
+ * so we can send you a copy immediately. If you use any of this software please
+ * notify me via my website or email, your feedback is much appreciated. 
+ * 
+ * @copyright   Copyright (c) 2011 Magnos Software (http://www.magnos.org)
+ * @license     http://opensource.org/licenses/osl-3.0.php
+ * 				Open Software License (OSL 3.0)
+ */
+
+package org.magnos.data.store.cache;
+
+
+/**
+ * Tells a CachePolicy which frames hold pages that are in use and must not be
+ * evicted. A pinned frame is skipped by an eviction and keeps its place in the
+ * policy, as if the eviction never looked at it.
+ * 
+ * @author Philip Diffenderfer
+ *
+ */
+public interface PinnedFrames 
+{
+
+	/**
+	 * Returns whether the page in a frame is in use.
+	 * 
+	 * @param frame
+	 * 		The index of the frame.
+	 * @return
+	 * 		True if the frame must not be evicted.
+	 */
+	public boolean isPinned(int frame);
+	
+}
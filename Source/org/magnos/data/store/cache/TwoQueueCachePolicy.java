@@ -0,0 +1,187 @@
+/* 
+ * NOTICE OF LICENSE
+ * 
+ * This source file is subject to the Open Software License (OSL 3.0) that is 
+ * bundled with this package in the file LICENSE.txt. It is also available 
+ * through the world-wide-web at http://opensource.org/licenses/osl-3.0.php
+ * If you did not receive a copy of the license and are unable to obtain it 
+ * through the world-wide-web, please send an email to pdiffenderfer@gmail.com 
+ * so we can send you a copy immediately. If you use any of this software please
+ * notify me via my website or email, your feedback is much appreciated. 
+ * 
+ * @copyright   Copyright (c) 2011 Magnos Software (http://www.magnos.org)
+ * @license     http://opensource.org/licenses/osl-3.0.php
+ * 				Open Software License (OSL 3.0)
+ */
+
+package org.magnos.data.store.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+
+
+/**
+ * A scan resistant policy based on the simplified 2Q algorithm. A page read 
+ * for the first time enters a FIFO queue, and only a page read again shortly
+ * after leaving that queue is promoted to the main LRU queue. A sequential 
+ * scan therefore only churns the FIFO queue and leaves the hot pages in the
+ * main queue cached. The pages recently evicted from the FIFO queue are 
+ * remembered by index only.
+ * 
+ * @author Philip Diffenderfer
+ *
+ */
+public class TwoQueueCachePolicy implements CachePolicy 
+{
+
+	/**
+	 * The default fraction of frames the FIFO queue may hold before it is
+	 * evicted from ahead of the main queue.
+	 */
+	public static final float DEFAULT_IN_RATIO = 0.25f;
+	
+	/**
+	 * The default number of evicted pages remembered relative to the number
+	 * of frames.
+	 */
+	public static final float DEFAULT_OUT_RATIO = 0.5f;
+	
+	// The fraction of frames the FIFO queue may hold.
+	private final float inRatio;
+	
+	// The number of evicted pages remembered relative to the number of frames.
+	private final float outRatio;
+	
+	// The frames of pages read once, in order of insertion.
+	private FrameList in = new FrameList(0);
+	
+	// The frames of pages read more than once, from most to least recently used.
+	private FrameList main = new FrameList(0);
+	
+	// The page in each frame, by frame.
+	private long[] pages = {};
+	
+	// The pages recently evicted from the FIFO queue, oldest first.
+	private final LinkedHashSet<Long> out = new LinkedHashSet<Long>();
+	
+	// The maximum number of frames in the FIFO queue.
+	private int inMax;
+	
+	// The maximum number of evicted pages remembered.
+	private int outMax;
+	
+	/**
+	 * Instantiates a new TwoQueueCachePolicy with the default ratios.
+	 */
+	public TwoQueueCachePolicy()
+	{
+		this(DEFAULT_IN_RATIO, DEFAULT_OUT_RATIO);
+	}
+	
+	/**
+	 * Instantiates a new TwoQueueCachePolicy.
+	 * 
+	 * @param inRatio
+	 * 		The fraction of frames the FIFO queue may hold before it is evicted
+	 * 		from ahead of the main queue.
+	 * @param outRatio
+	 * 		The number of evicted pages remembered relative to the number of 
+	 * 		frames.
+	 */
+	public TwoQueueCachePolicy(float inRatio, float outRatio)
+	{
+		this.inRatio = inRatio;
+		this.outRatio = outRatio;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void reset(int frames) 
+	{
+		in = new FrameList(frames);
+		main = new FrameList(frames);
+		pages = new long[frames];
+		out.clear();
+		inMax = Math.max(1, (int)(frames * inRatio));
+		outMax = Math.max(1, (int)(frames * outRatio));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void insert(int frame, long page) 
+	{
+		pages[frame] = page;
+		
+		// Read again soon after eviction, it's hot.
+		if (out.remove(page)) {
+			main.addFirst(frame);
+		}
+		else {
+			in.addFirst(frame);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void access(int frame) 
+	{
+		// Accesses while in the FIFO queue are treated as one.
+		if (main.contains(frame)) {
+			main.moveFirst(frame);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void remove(int frame) 
+	{
+		if (!in.remove(frame)) {
+			main.remove(frame);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int evict() 
+	{
+		return evict(null);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int evict(PinnedFrames pinned) 
+	{
+		// Pinned frames stay where they are, so a queue whose frames are all
+		// pinned leaves the eviction to the other queue.
+		boolean fromIn = (in.size() > inMax || main.size() == 0);
+		int frame = (fromIn ? in : main).removeLast(pinned);
+		if (frame == -1) {
+			fromIn = !fromIn;
+			frame = (fromIn ? in : main).removeLast(pinned);
+		}
+		
+		// Only a page actually evicted from the FIFO queue is remembered.
+		if (frame != -1 && fromIn) {
+			out.add(pages[frame]);
+			if (out.size() > outMax) {
+				Iterator<Long> oldest = out.iterator();
+				oldest.next();
+				oldest.remove();
+			}
+		}
+		return frame;
+	}
+
+}
@@ -17,6 +17,7 @@
 package org.magnos.data.store.factory;
 
 import java.io.File;
+import java.nio.ByteOrder;
 
 import org.magnos.data.Store;
 import org.magnos.data.StoreAccess;
@@ -37,11 +38,22 @@ public class FileStoreFactory implements StoreFactory
 	 * {@inheritDoc}
 	 */
 	@Override
-	public Store create(String name, int capacity) 
+	public Store create(String name, long capacity) 
 	{
 		return new FileStore(new File(name), StoreAccess.ReadWrite, capacity);
 	}
 	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Store create(String name, long capacity, ByteOrder order) 
+	{
+		Store store = create(name, capacity);
+		store.setOrder(order);
+		return store;
+	}
+	
 	/**
 	 * {@inheritDoc}
 	 */
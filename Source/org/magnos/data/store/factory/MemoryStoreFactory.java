@@ -16,6 +16,7 @@
 
 package org.magnos.data.store.factory;
 
+import java.nio.ByteOrder;
 
 import org.magnos.data.Store;
 import org.magnos.data.StoreFactory;
@@ -34,11 +35,22 @@ public class MemoryStoreFactory implements StoreFactory
 	 * {@inheritDoc}
 	 */
 	@Override
-	public Store create(String name, int capacity) 
+	public Store create(String name, long capacity) 
 	{
 		return new MemoryStore(name, capacity);
 	}
 	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Store create(String name, long capacity, ByteOrder order) 
+	{
+		Store store = create(name, capacity);
+		store.setOrder(order);
+		return store;
+	}
+	
 	/**
 	 * {@inheritDoc}
 	 */
@@ -16,6 +16,8 @@
 
 package org.magnos.data.var;
 
+import java.nio.ByteBuffer;
+
 import org.magnos.data.Bits;
 import org.magnos.data.Data;
 import org.magnos.data.Store;
@@ -62,7 +64,7 @@ public class BooleanVar extends AbstractVar<Boolean>
 	 * @param location
 	 * 		The intial location.
 	 */
-	public BooleanVar(Store store, int location) 
+	public BooleanVar(Store store, long location) 
 	{
 		this(store, location, false);
 	}
@@ -77,7 +79,7 @@ public class BooleanVar extends AbstractVar<Boolean>
 	 * @param value
 	 * 		The initial value.
 	 */
-	public BooleanVar(Store store, int location, boolean value) 
+	public BooleanVar(Store store, long location, boolean value) 
 	{
 		super(SIZE);
 		this.setStore(store);
@@ -104,7 +106,7 @@ public class BooleanVar extends AbstractVar<Boolean>
 	 */
 	public void set(boolean value) 
 	{
-		this.value = value;
+		change(value);
 	}
 	
 	/**
@@ -115,7 +117,7 @@ public class BooleanVar extends AbstractVar<Boolean>
 	 */
 	public void put(boolean value) 
 	{
-		this.value = value;
+		change(value);
 		this.write();
 	}
 	
@@ -146,25 +148,43 @@ public class BooleanVar extends AbstractVar<Boolean>
 	@Override
 	public void setValue(Boolean value) 
 	{
-		this.value = value;
+		change(value);
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
-	public void onRead(int location, Store store) 
+	public void onRead(long location, Store store) 
 	{
-		value = Bits.getBoolean(store.get(location, SIZE)[0]);
+		value = Bits.getBoolean(store.getByte(location));
 	}
 	
 	/**
 	 * {@inheritDoc} 
 	 */
 	@Override
-	public void onWrite(int location, Store store) 
+	public void onWrite(long location, Store store) 
 	{
-		store.put(location, new byte[] {Bits.getBooleanBytes(value)});
+		store.putByte(location, Bits.getBooleanBytes(value));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void onRead(ByteBuffer buffer, int index, Store stage) 
+	{
+		value = Bits.getBoolean(buffer.get(index));
+	}
+	
+	/**
+	 * {@inheritDoc} 
+	 */
+	@Override
+	protected void onWrite(ByteBuffer buffer, int index, Store stage) 
+	{
+		buffer.put(index, Bits.getBooleanBytes(value));
 	}
 
 	/**
@@ -176,4 +196,21 @@ public class BooleanVar extends AbstractVar<Boolean>
 		return new BooleanVar(getStore(), getLocation(), value);
 	}
 
+	/**
+	 * Changes the value of this var, marking it dirty if the value differs.
+	 * 
+	 * @param x
+	 * 		The new value.
+	 * @return
+	 * 		The new value.
+	 */
+	private boolean change(boolean x) 
+	{
+		if (x != value) {
+			value = x;
+			markDirty();
+		}
+		return value;
+	}
+
 }
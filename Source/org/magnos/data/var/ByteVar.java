@@ -16,6 +16,8 @@
 
 package org.magnos.data.var;
 
+import java.nio.ByteBuffer;
+
 import org.magnos.data.Data;
 import org.magnos.data.Store;
 
@@ -61,7 +63,7 @@ public class ByteVar extends AbstractVar<Byte>
 	 * @param location
 	 * 		The intial location.
 	 */
-	public ByteVar(Store store, int location) 
+	public ByteVar(Store store, long location) 
 	{
 		this(store, location, (byte)0);
 	}
@@ -76,7 +78,7 @@ public class ByteVar extends AbstractVar<Byte>
 	 * @param value
 	 * 		The initial value.
 	 */
-	public ByteVar(Store store, int location, byte value) 
+	public ByteVar(Store store, long location, byte value) 
 	{
 		super(SIZE);
 		this.setStore(store);
@@ -105,7 +107,7 @@ public class ByteVar extends AbstractVar<Byte>
 	 */
 	public byte add(byte x) 
 	{
-		return (value += x);
+		return change((byte)(value + x));
 	}
 	
 	/**
@@ -118,7 +120,7 @@ public class ByteVar extends AbstractVar<Byte>
 	 */
 	public byte max(byte x) 
 	{
-		return (value = (byte)Math.max(value, x));
+		return change((byte)Math.max(value, x));
 	}
 
 	/**
@@ -131,7 +133,7 @@ public class ByteVar extends AbstractVar<Byte>
 	 */
 	public byte min(byte x) 
 	{
-		return (value = (byte)Math.min(value, x));
+		return change((byte)Math.min(value, x));
 	}
 
 	/**
@@ -144,7 +146,7 @@ public class ByteVar extends AbstractVar<Byte>
 	 */
 	public byte mul(byte x) 
 	{
-		return (value *= x);
+		return change((byte)(value * x));
 	}
 	
 	/**
@@ -155,7 +157,7 @@ public class ByteVar extends AbstractVar<Byte>
 	 */
 	public void set(byte value) 
 	{
-		this.value = value;
+		change(value);
 	}
 	
 	/**
@@ -166,7 +168,7 @@ public class ByteVar extends AbstractVar<Byte>
 	 */
 	public void put(byte value) 
 	{
-		this.value = value;
+		change(value);
 		this.write();
 	}
 	
@@ -197,25 +199,43 @@ public class ByteVar extends AbstractVar<Byte>
 	@Override
 	public void setValue(Byte value) 
 	{
-		this.value = value;
+		change(value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void onRead(long location, Store store) 
+	{
+		value = store.getByte(location);
+	}
+	
+	/**
+	 * {@inheritDoc} 
+	 */
+	@Override
+	public void onWrite(long location, Store store) 
+	{
+		store.putByte(location, value);
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
-	public void onRead(int location, Store store) 
+	protected void onRead(ByteBuffer buffer, int index, Store stage) 
 	{
-		value = store.get(location, SIZE)[0];
+		value = buffer.get(index);
 	}
 	
 	/**
 	 * {@inheritDoc} 
 	 */
 	@Override
-	public void onWrite(int location, Store store) 
+	protected void onWrite(ByteBuffer buffer, int index, Store stage) 
 	{
-		store.put(location, new byte[] {value});
+		buffer.put(index, value);
 	}
 
 	/**
@@ -227,4 +247,21 @@ public class ByteVar extends AbstractVar<Byte>
 		return new ByteVar(getStore(), getLocation(), value);
 	}
 
+	/**
+	 * Changes the value of this var, marking it dirty if the value differs.
+	 * 
+	 * @param x
+	 * 		The new value.
+	 * @return
+	 * 		The new value.
+	 */
+	private byte change(byte x) 
+	{
+		if (x != value) {
+			value = x;
+			markDirty();
+		}
+		return value;
+	}
+
 }
@@ -16,7 +16,8 @@
 
 package org.magnos.data.var;
 
-import org.magnos.data.Bits;
+import java.nio.ByteBuffer;
+
 import org.magnos.data.Data;
 import org.magnos.data.Store;
 
@@ -62,7 +63,7 @@ public class DoubleVar extends AbstractVar<Double>
 	 * @param location
 	 * 		The intial location.
 	 */
-	public DoubleVar(Store store, int location) 
+	public DoubleVar(Store store, long location) 
 	{
 		this(store, location, 0.0);
 	}
@@ -77,7 +78,7 @@ public class DoubleVar extends AbstractVar<Double>
 	 * @param value
 	 * 		The initial value.
 	 */
-	public DoubleVar(Store store, int location, double value) 
+	public DoubleVar(Store store, long location, double value) 
 	{
 		super(SIZE);
 		this.setStore(store);
@@ -106,7 +107,7 @@ public class DoubleVar extends AbstractVar<Double>
 	 */
 	public double add(double x) 
 	{
-		return (value += x);
+		return change(value + x);
 	}
 	
 	/**
@@ -119,7 +120,7 @@ public class DoubleVar extends AbstractVar<Double>
 	 */
 	public double max(double x) 
 	{
-		return (value = Math.max(value, x));
+		return change(Math.max(value, x));
 	}
 
 	/**
@@ -132,7 +133,7 @@ public class DoubleVar extends AbstractVar<Double>
 	 */
 	public double min(double x) 
 	{
-		return (value = Math.min(value, x));
+		return change(Math.min(value, x));
 	}
 
 	/**
@@ -145,7 +146,7 @@ public class DoubleVar extends AbstractVar<Double>
 	 */
 	public double mul(double x) 
 	{
-		return (value *= x);
+		return change(value * x);
 	}
 	
 	/**
@@ -156,7 +157,7 @@ public class DoubleVar extends AbstractVar<Double>
 	 */
 	public void set(double value) 
 	{
-		this.value = value;
+		change(value);
 	}
 	
 	/**
@@ -167,7 +168,7 @@ public class DoubleVar extends AbstractVar<Double>
 	 */
 	public void put(double value) 
 	{
-		this.value = value;
+		change(value);
 		this.write();
 	}
 	
@@ -198,25 +199,43 @@ public class DoubleVar extends AbstractVar<Double>
 	@Override
 	public void setValue(Double value) 
 	{
-		this.value = value;
+		change(value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void onRead(long location, Store store) 
+	{
+		value = store.getDouble(location);
+	}
+	
+	/**
+	 * {@inheritDoc} 
+	 */
+	@Override
+	public void onWrite(long location, Store store) 
+	{
+		store.putDouble(location, value);
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
-	public void onRead(int location, Store store) 
+	protected void onRead(ByteBuffer buffer, int index, Store stage) 
 	{
-		value = Bits.getDouble(store.get(location, SIZE));
+		value = buffer.getDouble(index);
 	}
 	
 	/**
 	 * {@inheritDoc} 
 	 */
 	@Override
-	public void onWrite(int location, Store store) 
+	protected void onWrite(ByteBuffer buffer, int index, Store stage) 
 	{
-		store.put(location, Bits.getDoubleBytes(value));
+		buffer.putDouble(index, value);
 	}
 
 	/**
@@ -228,4 +247,21 @@ public class DoubleVar extends AbstractVar<Double>
 		return new DoubleVar(getStore(), getLocation(), value);
 	}
 
+	/**
+	 * Changes the value of this var, marking it dirty if the value differs.
+	 * 
+	 * @param x
+	 * 		The new value.
+	 * @return
+	 * 		The new value.
+	 */
+	private double change(double x) 
+	{
+		if (Double.doubleToRawLongBits(x) != Double.doubleToRawLongBits(value)) {
+			value = x;
+			markDirty();
+		}
+		return value;
+	}
+
 }
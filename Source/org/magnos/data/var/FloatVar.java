@@ -16,7 +16,8 @@
 
 package org.magnos.data.var;
 
-import org.magnos.data.Bits;
+import java.nio.ByteBuffer;
+
 import org.magnos.data.Data;
 import org.magnos.data.Store;
 
@@ -62,7 +63,7 @@ public class FloatVar extends AbstractVar<Float>
 	 * @param location
 	 * 		The intial location.
 	 */
-	public FloatVar(Store store, int location) 
+	public FloatVar(Store store, long location) 
 	{
 		this(store, location, 0f);
 	}
@@ -77,7 +78,7 @@ public class FloatVar extends AbstractVar<Float>
 	 * @param value
 	 * 		The initial value.
 	 */
-	public FloatVar(Store store, int location, float value) 
+	public FloatVar(Store store, long location, float value) 
 	{
 		super(SIZE);
 		this.setStore(store);
@@ -106,7 +107,7 @@ public class FloatVar extends AbstractVar<Float>
 	 */
 	public float add(float x) 
 	{
-		return (value += x);
+		return change(value + x);
 	}
 	
 	/**
@@ -119,7 +120,7 @@ public class FloatVar extends AbstractVar<Float>
 	 */
 	public float max(float x) 
 	{
-		return (value = Math.max(value, x));
+		return change(Math.max(value, x));
 	}
 
 	/**
@@ -132,7 +133,7 @@ public class FloatVar extends AbstractVar<Float>
 	 */
 	public float min(float x) 
 	{
-		return (value = Math.min(value, x));
+		return change(Math.min(value, x));
 	}
 
 	/**
@@ -145,7 +146,7 @@ public class FloatVar extends AbstractVar<Float>
 	 */
 	public float mul(float x) 
 	{
-		return (value *= x);
+		return change(value * x);
 	}
 	
 	/**
@@ -156,7 +157,7 @@ public class FloatVar extends AbstractVar<Float>
 	 */
 	public void set(float value) 
 	{
-		this.value = value;
+		change(value);
 	}
 	
 	/**
@@ -167,7 +168,7 @@ public class FloatVar extends AbstractVar<Float>
 	 */
 	public void put(float value) 
 	{
-		this.value = value;
+		change(value);
 		this.write();
 	}
 	
@@ -198,25 +199,43 @@ public class FloatVar extends AbstractVar<Float>
 	@Override
 	public void setValue(Float value) 
 	{
-		this.value = value;
+		change(value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void onRead(long location, Store store) 
+	{
+		value = store.getFloat(location);
+	}
+	
+	/**
+	 * {@inheritDoc} 
+	 */
+	@Override
+	public void onWrite(long location, Store store) 
+	{
+		store.putFloat(location, value);
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
-	public void onRead(int location, Store store) 
+	protected void onRead(ByteBuffer buffer, int index, Store stage) 
 	{
-		value = Bits.getFloat(store.get(location, SIZE));
+		value = buffer.getFloat(index);
 	}
 	
 	/**
 	 * {@inheritDoc} 
 	 */
 	@Override
-	public void onWrite(int location, Store store) 
+	protected void onWrite(ByteBuffer buffer, int index, Store stage) 
 	{
-		store.put(location, Bits.getFloatBytes(value));
+		buffer.putFloat(index, value);
 	}
 
 	/**
@@ -228,4 +247,21 @@ public class FloatVar extends AbstractVar<Float>
 		return new FloatVar(getStore(), getLocation(), value);
 	}
 
+	/**
+	 * Changes the value of this var, marking it dirty if the value differs.
+	 * 
+	 * @param x
+	 * 		The new value.
+	 * @return
+	 * 		The new value.
+	 */
+	private float change(float x) 
+	{
+		if (Float.floatToRawIntBits(x) != Float.floatToRawIntBits(value)) {
+			value = x;
+			markDirty();
+		}
+		return value;
+	}
+
 }
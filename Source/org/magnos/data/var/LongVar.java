@@ -16,7 +16,8 @@
 
 package org.magnos.data.var;
 
-import org.magnos.data.Bits;
+import java.nio.ByteBuffer;
+
 import org.magnos.data.Data;
 import org.magnos.data.Store;
 
@@ -62,7 +63,7 @@ public class LongVar extends AbstractVar<Long>
 	 * @param location
 	 * 		The intial location.
 	 */
-	public LongVar(Store store, int location) 
+	public LongVar(Store store, long location) 
 	{
 		this(store, location, 0L);
 	}
@@ -77,7 +78,7 @@ public class LongVar extends AbstractVar<Long>
 	 * @param value
 	 * 		The initial value.
 	 */
-	public LongVar(Store store, int location, long value) 
+	public LongVar(Store store, long location, long value) 
 	{
 		super(SIZE);
 		this.setStore(store);
@@ -106,7 +107,7 @@ public class LongVar extends AbstractVar<Long>
 	 */
 	public long add(long x) 
 	{
-		return (value += x);
+		return change(value + x);
 	}
 	
 	/**
@@ -119,7 +120,7 @@ public class LongVar extends AbstractVar<Long>
 	 */
 	public long max(long x) 
 	{
-		return (value = Math.max(value, x));
+		return change(Math.max(value, x));
 	}
 
 	/**
@@ -132,7 +133,7 @@ public class LongVar extends AbstractVar<Long>
 	 */
 	public long min(long x) 
 	{
-		return (value = Math.min(value, x));
+		return change(Math.min(value, x));
 	}
 
 	/**
@@ -145,7 +146,7 @@ public class LongVar extends AbstractVar<Long>
 	 */
 	public long mul(long x) 
 	{
-		return (value *= x);
+		return change(value * x);
 	}
 	
 	/**
@@ -156,7 +157,7 @@ public class LongVar extends AbstractVar<Long>
 	 */
 	public void set(long value) 
 	{
-		this.value = value;
+		change(value);
 	}
 	
 	/**
@@ -167,7 +168,7 @@ public class LongVar extends AbstractVar<Long>
 	 */
 	public void put(long value) 
 	{
-		this.value = value;
+		change(value);
 		this.write();
 	}
 	
@@ -198,25 +199,43 @@ public class LongVar extends AbstractVar<Long>
 	@Override
 	public void setValue(Long value) 
 	{
-		this.value = value;
+		change(value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void onRead(long location, Store store) 
+	{
+		value = store.getLong(location);
+	}
+	
+	/**
+	 * {@inheritDoc} 
+	 */
+	@Override
+	public void onWrite(long location, Store store) 
+	{
+		store.putLong(location, value);
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
-	public void onRead(int location, Store store) 
+	protected void onRead(ByteBuffer buffer, int index, Store stage) 
 	{
-		value = Bits.getLong(store.get(location, SIZE));
+		value = buffer.getLong(index);
 	}
 	
 	/**
 	 * {@inheritDoc} 
 	 */
 	@Override
-	public void onWrite(int location, Store store) 
+	protected void onWrite(ByteBuffer buffer, int index, Store stage) 
 	{
-		store.put(location, Bits.getLongBytes(value));
+		buffer.putLong(index, value);
 	}
 
 	/**
@@ -228,4 +247,21 @@ public class LongVar extends AbstractVar<Long>
 		return new LongVar(getStore(), getLocation(), value);
 	}
 
+	/**
+	 * Changes the value of this var, marking it dirty if the value differs.
+	 * 
+	 * @param x
+	 * 		The new value.
+	 * @return
+	 * 		The new value.
+	 */
+	private long change(long x) 
+	{
+		if (x != value) {
+			value = x;
+			markDirty();
+		}
+		return value;
+	}
+
 }
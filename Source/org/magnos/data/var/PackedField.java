@@ -0,0 +1,116 @@
+/* 
+ * NOTICE OF LICENSE
+ * 
+ * This source file is subject to the Open Software License (OSL 3.0) that is 
+ * bundled with this package in the file LICENSE.txt. It is also available 
+ * through the world-wide-web at http://opensource.org/licenses/osl-3.0.php
+ * If you did not receive a copy of the license and are unable to obtain it 
+ * through the world-wide-web, please send an email to pdiffenderfer@gmail.com 
+ * so we can send you a copy immediately. If you use any of this software please
+ * notify me via my website or email, your feedback is much appreciated. 
+ * 
+ * @copyright   Copyright (c) 2011 Magnos Software (http://www.magnos.org)
+ * @license     http://opensource.org/licenses/osl-3.0.php
+ * 				Open Software License (OSL 3.0)
+ */
+
+package org.magnos.data.var;
+
+/**
+ * A field of bits within the word of a PackedVar. A field is only a layout, 
+ * its value is held by the PackedVar, so the same field can be used with 
+ * every copy of the PackedVar it was defined on.
+ * 
+ * @author Philip Diffenderfer
+ *
+ */
+public final class PackedField 
+{
+
+	// The number of bits below the field in the word.
+	private final int shift;
+	
+	// The number of bits in the field.
+	private final int width;
+	
+	// The bits of the field within the word.
+	private final long mask;
+	
+	/**
+	 * Instantiates a new PackedField.
+	 * 
+	 * @param shift
+	 * 		The number of bits below the field in the word.
+	 * @param width
+	 * 		The number of bits in the field.
+	 */
+	PackedField(int shift, int width) 
+	{
+		this.shift = shift;
+		this.width = width;
+		this.mask = (width == 64 ? -1L : ((1L << width) - 1)) << shift;
+	}
+	
+	/**
+	 * Returns the value of this field in the given word.
+	 * 
+	 * @param word
+	 * 		The word which holds the field.
+	 * @return
+	 * 		The unsigned value of this field.
+	 */
+	long get(long word) 
+	{
+		return (word & mask) >>> shift;
+	}
+	
+	/**
+	 * Returns the given word with this field set to the given value. Bits of
+	 * the value beyond the width of the field are ignored.
+	 * 
+	 * @param word
+	 * 		The word which holds the field.
+	 * @param value
+	 * 		The new value of this field.
+	 * @return
+	 * 		The updated word.
+	 */
+	long set(long word, long value) 
+	{
+		return (word & ~mask) | ((value << shift) & mask);
+	}
+	
+	/**
+	 * Returns the number of bits below this field in the word.
+	 * 
+	 * @return
+	 * 		The shift of this field.
+	 */
+	public int getShift() 
+	{
+		return shift;
+	}
+	
+	/**
+	 * Returns the number of bits in this field.
+	 * 
+	 * @return
+	 * 		The width of this field.
+	 */
+	public int getWidth() 
+	{
+		return width;
+	}
+	
+	/**
+	 * Returns the largest value this field can hold.
+	 * 
+	 * @return
+	 * 		The maximum value of this field.
+	 */
+	public long getMax() 
+	{
+		return mask >>> shift;
+	}
+	
+}
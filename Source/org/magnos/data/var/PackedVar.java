@@ -0,0 +1,391 @@
+/* 
+ * NOTICE OF LICENSE
+ * 
+ * This source file is subject to the Open Software License (OSL 3.0) that is 
+ * bundled with this package in the file LICENSE.txt. It is also available 
+ * through the world-wide-web at http://opensource.org/licenses/osl-3.0.php
+ * If you did not receive a copy of the license and are unable to obtain it 
+ * through the world-wide-web, please send an email to pdiffenderfer@gmail.com 
+ * so we can send you a copy immediately. If you use any of this software please
+ * notify me via my website or email, your feedback is much appreciated. 
+ * 
+ * @copyright   Copyright (c) 2011 Magnos Software (http://www.magnos.org)
+ * @license     http://opensource.org/licenses/osl-3.0.php
+ * 				Open Software License (OSL 3.0)
+ */
+
+package org.magnos.data.var;
+
+import java.nio.ByteBuffer;
+
+import org.magnos.data.Data;
+import org.magnos.data.Store;
+
+/**
+ * A Var with a word of 1, 2, 4, or 8 bytes which packs flags and small 
+ * unsigned integers into fields of bits. Fields are defined in order from 
+ * the lowest bit with {@link #field(int)} and {@link #flag()}, and accessed 
+ * through this var. Putting a field is a single read-modify-write of the 
+ * word, which leaves the other fields in the store as they are.
+ * 
+ * @author Philip Diffenderfer
+ *
+ */
+public class PackedVar extends AbstractVar<Long> 
+{
+
+	// The size of the word in bytes.
+	private final int size;
+	
+	// The number of bits used by the defined fields.
+	private int used;
+	
+	// The value of the word.
+	private long value;
+	
+	/**
+	 * Instantiates a new PackedVar.
+	 * 
+	 * @param size
+	 * 		The size of the word in bytes, which is 1, 2, 4, or 8.
+	 */
+	public PackedVar(int size) 
+	{
+		this(size, null, 0);
+	}
+	
+	/**
+	 * Instantiates a new PackedVar.
+	 * 
+	 * @param size
+	 * 		The size of the word in bytes, which is 1, 2, 4, or 8.
+	 * @param store
+	 * 		The initial store.
+	 * @param location
+	 * 		The initial location.
+	 */
+	public PackedVar(int size, Store store, long location) 
+	{
+		super(size);
+		if (size != 1 && size != 2 && size != 4 && size != 8) {
+			throw new IllegalArgumentException("A packed word must be 1, 2, 4, or 8 bytes");
+		}
+		this.size = size;
+		this.setStore(store);
+		this.setLocation(location);
+	}
+	
+	/**
+	 * Defines the next field of the given number of bits.
+	 * 
+	 * @param width
+	 * 		The number of bits in the field.
+	 * @return
+	 * 		The new field.
+	 * @throws IllegalArgumentException
+	 * 		The field does not fit in the remaining bits of the word.
+	 */
+	public PackedField field(int width) 
+	{
+		if (width <= 0 || used + width > size * 8) {
+			throw new IllegalArgumentException("A field of " + width + " bits does not fit in the " + (size * 8 - used) + " remaining bits");
+		}
+		PackedField field = new PackedField(used, width);
+		used += width;
+		return field;
+	}
+	
+	/**
+	 * Defines the next field as a single bit flag.
+	 * 
+	 * @return
+	 * 		The new field.
+	 */
+	public PackedField flag() 
+	{
+		return field(1);
+	}
+	
+	/**
+	 * Returns the number of bits used by the defined fields.
+	 * 
+	 * @return
+	 * 		The number of bits used.
+	 */
+	public int getUsed() 
+	{
+		return used;
+	}
+	
+	/**
+	 * Returns the current value of the given field.
+	 * 
+	 * @param field
+	 * 		The field to get.
+	 * @return
+	 * 		The unsigned value of the field.
+	 */
+	public long get(PackedField field) 
+	{
+		return field.get(value);
+	}
+	
+	/**
+	 * Returns whether the given flag is currently set.
+	 * 
+	 * @param field
+	 * 		The field to check.
+	 * @return
+	 * 		True if any bit of the field is set, otherwise false.
+	 */
+	public boolean isSet(PackedField field) 
+	{
+		return field.get(value) != 0;
+	}
+	
+	/**
+	 * Sets the value of the given field, but does not write it to the store.
+	 * 
+	 * @param field
+	 * 		The field to set.
+	 * @param x
+	 * 		The new value of the field, truncated to its width.
+	 */
+	public void set(PackedField field, long x) 
+	{
+		set(field.set(value, x));
+	}
+	
+	/**
+	 * Sets the given flag, but does not write it to the store.
+	 * 
+	 * @param field
+	 * 		The field to set.
+	 * @param x
+	 * 		Whether the flag is set.
+	 */
+	public void set(PackedField field, boolean x) 
+	{
+		set(field, x ? 1L : 0L);
+	}
+	
+	/**
+	 * Sets the value of the given field in the store with a single 
+	 * read-modify-write of the word under the store's write lock, so puts of
+	 * other fields of the same word are not lost. Only the given field of the
+	 * current word is updated, unwritten changes to other fields are kept.
+	 * 
+	 * @param field
+	 * 		The field to put.
+	 * @param x
+	 * 		The new value of the field, truncated to its width.
+	 */
+	public void put(PackedField field, long x) 
+	{
+		long location = getLocation();
+		Store store = getStore();
+		doCheck(location, store);
+		long word = store.putBits(location, size, field.set(0L, -1L), field.set(0L, x));
+		value = field.set(value, field.get(word));
+	}
+	
+	/**
+	 * Sets the given flag in the store with a single read-modify-write of 
+	 * the word.
+	 * 
+	 * @param field
+	 * 		The field to put.
+	 * @param x
+	 * 		Whether the flag is set.
+	 */
+	public void put(PackedField field, boolean x) 
+	{
+		put(field, x ? 1L : 0L);
+	}
+	
+	/**
+	 * Returns the value of the given field by first reading the word from the
+	 * store.
+	 * 
+	 * @param field
+	 * 		The field to take.
+	 * @return
+	 * 		The unsigned value of the field.
+	 */
+	public long take(PackedField field) 
+	{
+		this.read();
+		return field.get(value);
+	}
+	
+	/**
+	 * Returns the current value of the word.
+	 * 
+	 * @return
+	 * 		The current word.
+	 */
+	public long get() 
+	{
+		return value;
+	}
+	
+	/**
+	 * Sets the value of the word, but does not write it to the store.
+	 * 
+	 * @param value
+	 * 		The new word, truncated to the size of this var.
+	 */
+	public void set(long value) 
+	{
+		if (size < 8) {
+			value &= (1L << (size * 8)) - 1;
+		}
+		if (value != this.value) {
+			this.value = value;
+			markDirty();
+		}
+	}
+	
+	/**
+	 * Sets the value of the word and writes it to the store.
+	 * 
+	 * @param value
+	 * 		The new word.
+	 */
+	public void put(long value) 
+	{
+		this.set(value);
+		this.write();
+	}
+	
+	/**
+	 * Returns the value of the word by first reading it from the store.
+	 * 
+	 * @return
+	 * 		The value of the word.
+	 */
+	public long take() 
+	{
+		this.read();
+		return value;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Long getValue() 
+	{
+		return value;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setValue(Long value) 
+	{
+		this.set(value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void onRead(long location, Store store) 
+	{
+		switch (size) {
+		case 1:
+			value = store.getByte(location) & 0xFFL;
+			break;
+		case 2:
+			value = store.getShort(location) & 0xFFFFL;
+			break;
+		case 4:
+			value = store.getInt(location) & 0xFFFFFFFFL;
+			break;
+		default:
+			value = store.getLong(location);
+			break;
+		}
+	}
+	
+	/**
+	 * {@inheritDoc} 
+	 */
+	@Override
+	public void onWrite(long location, Store store) 
+	{
+		switch (size) {
+		case 1:
+			store.putByte(location, (byte)value);
+			break;
+		case 2:
+			store.putShort(location, (short)value);
+			break;
+		case 4:
+			store.putInt(location, (int)value);
+			break;
+		default:
+			store.putLong(location, value);
+			break;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void onRead(ByteBuffer buffer, int index, Store stage) 
+	{
+		switch (size) {
+		case 1:
+			value = buffer.get(index) & 0xFFL;
+			break;
+		case 2:
+			value = buffer.getShort(index) & 0xFFFFL;
+			break;
+		case 4:
+			value = buffer.getInt(index) & 0xFFFFFFFFL;
+			break;
+		default:
+			value = buffer.getLong(index);
+			break;
+		}
+	}
+	
+	/**
+	 * {@inheritDoc} 
+	 */
+	@Override
+	protected void onWrite(ByteBuffer buffer, int index, Store stage) 
+	{
+		switch (size) {
+		case 1:
+			buffer.put(index, (byte)value);
+			break;
+		case 2:
+			buffer.putShort(index, (short)value);
+			break;
+		case 4:
+			buffer.putInt(index, (int)value);
+			break;
+		default:
+			buffer.putLong(index, value);
+			break;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Data copy() 
+	{
+		PackedVar copy = new PackedVar(size, getStore(), getLocation());
+		copy.used = used;
+		copy.set(value);
+		return copy;
+	}
+
+}
@@ -16,11 +16,21 @@
 
 package org.magnos.data.var;
 
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+
 import org.magnos.data.Data;
 import org.magnos.data.Store;
 
 /**
- * A Var with a boolean value.
+ * A Var with a String value. The string is encoded with a charset into a 
+ * fixed number of bytes, terminated by a null character when it's shorter 
+ * and padded with zeros. A string which doesn't fit is truncated at the last
+ * whole character that fits. The decoded string is cached until the bytes 
+ * change by a read or a set.
  * 
  * @author Philip Diffenderfer
  *
@@ -28,44 +38,118 @@ import org.magnos.data.Store;
 public class StringVar extends AbstractVar<String> 
 {
 	
-	// The value of the var.
+	/**
+	 * The ISO-8859-1 charset, one byte for each of the first 256 characters.
+	 */
+	public static final Charset LATIN_1 = Charset.forName("ISO-8859-1");
+	
+	/**
+	 * The UTF-8 charset, one to four bytes for each character.
+	 */
+	public static final Charset UTF_8 = Charset.forName("UTF-8");
+	
+	/**
+	 * The big-endian UTF-16 charset without a byte order mark, two or four 
+	 * bytes for each character.
+	 */
+	public static final Charset UTF_16 = Charset.forName("UTF-16BE");
+	
+	/**
+	 * The default charset of a StringVar.
+	 */
+	public static final Charset DEFAULT_CHARSET = LATIN_1;
+	
+	// The encoded value of the var.
 	private final byte[] value;
+	
+	// The charset the value is encoded with.
+	private final Charset charset;
+	
+	// The number of bytes in the null character of the charset.
+	private final int terminator;
+	
+	// The encoder of the charset, created on the first set.
+	private CharsetEncoder encoder;
+	
+	// The decoded value, or null if the bytes have changed since decoding.
+	private String decoded;
 
 	/**
-	 * Instantiates a new BooleanVar. 
+	 * Instantiates a new StringVar. 
+	 * 
+	 * @param length
+	 * 		The number of bytes of the encoded string.
 	 */
 	public StringVar(int length) 
 	{
-		this(length, null, 0, null);
+		this(length, DEFAULT_CHARSET, null, 0, null);
 	}
 
 	/**
-	 * Instantiates a new BooleanVar.
+	 * Instantiates a new StringVar.
 	 *  
+	 * @param length
+	 * 		The number of bytes of the encoded string.
 	 * @param value
 	 * 		The initial value.
 	 */
 	public StringVar(int length, String value) 
 	{
-		this(length, null, 0, value);
+		this(length, DEFAULT_CHARSET, null, 0, value);
 	}
 	
 	/**
-	 * Instantiates a new BooleanVar.
+	 * Instantiates a new StringVar.
+	 *  
+	 * @param length
+	 * 		The number of bytes of the encoded string.
+	 * @param charset
+	 * 		The charset the string is encoded with.
+	 */
+	public StringVar(int length, Charset charset) 
+	{
+		this(length, charset, null, 0, null);
+	}
+	
+	/**
+	 * Instantiates a new StringVar.
 	 * 
+	 * @param length
+	 * 		The number of bytes of the encoded string.
 	 * @param store
 	 * 		The intial store.
 	 * @param location
 	 * 		The intial location.
 	 */
-	public StringVar(int length, Store store, int location) 
+	public StringVar(int length, Store store, long location) 
+	{
+		this(length, DEFAULT_CHARSET, store, location, null);
+	}
+	
+	/**
+	 * Instantiates a new StringVar.
+	 * 
+	 * @param length
+	 * 		The number of bytes of the encoded string.
+	 * @param store
+	 * 		The initial store.
+	 * @param location
+	 * 		The initial location.
+	 * @param value
+	 * 		The initial value.
+	 */
+	public StringVar(int length, Store store, long location, String value) 
 	{
-		this(length, store, location, null);
+		this(length, DEFAULT_CHARSET, store, location, value);
 	}
 	
 	/**
-	 * Instantiates a new BooleanVar.
+	 * Instantiates a new StringVar.
 	 * 
+	 * @param length
+	 * 		The number of bytes of the encoded string.
+	 * @param charset
+	 * 		The charset the string is encoded with.
 	 * @param store
 	 * 		The initial store.
 	 * @param location
@@ -73,41 +157,78 @@ public class StringVar extends AbstractVar<String>
 	 * @param value
 	 * 		The initial value.
 	 */
-	public StringVar(int length, Store store, int location, String value) 
+	public StringVar(int length, Charset charset, Store store, long location, String value) 
 	{
 		super(length);
-		this.value = new byte[getSize()];
+		this.value = new byte[length];
+		this.charset = charset;
+		this.terminator = "\0".getBytes(charset).length;
 		this.setStore(store);
 		this.setLocation(location);
 		this.set(value);
 	}
 	
 	/**
-	 * Returns the current value of the var.
+	 * Returns the charset the string is encoded with.
+	 * 
+	 * @return
+	 * 		The charset of this var.
+	 */
+	public Charset getCharset()
+	{
+		return charset;
+	}
+	
+	/**
+	 * Returns the current value of the var. The value is only decoded the 
+	 * first time this is called after the bytes change.
 	 * 
 	 * @return
 	 * 		The current value.
 	 */
 	public String get() 
 	{
-		return new String(value).trim();
+		if (decoded == null) {
+			decoded = new String(value, 0, length(), charset);
+		}
+		return decoded;
 	}
 	
 	/**
-	 * Sets the value of this var, but does not write it to the store.
+	 * Sets the value of this var, but does not write it to the store. Setting
+	 * the current value again doesn't change the bytes or mark it dirty.
 	 * 
 	 * @param value
 	 * 		The new value.
 	 */
 	public void set(String value) 
 	{
-		int max = Math.min(getSize(), (value == null ? 0 : value.length()));
-		for (int i = 0; i < max; i++){
-			this.value[i] = (byte)value.charAt(i);
+		if (value == null) {
+			value = "";
+		}
+		if (value.equals(get())) {
+			return;
 		}
-		for (int i = max; i < getSize(); i++) {
+		if (encoder == null) {
+			encoder = charset.newEncoder();
+			encoder.onMalformedInput(CodingErrorAction.REPLACE);
+			encoder.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		}
+		
+		// Encoding stops at the last whole character which fits.
+		CharBuffer in = CharBuffer.wrap(value);
+		ByteBuffer out = ByteBuffer.wrap(this.value);
+		encoder.reset();
+		encoder.encode(in, out, true);
+		encoder.flush(out);
+		
+		for (int i = out.position(); i < this.value.length; i++) {
 			this.value[i] = (byte)0x00;
 		}
+		
+		// The decoded value is known unless it was truncated.
+		decoded = (in.hasRemaining() ? null : value);
+		markDirty();
 	}
 	
 	/**
@@ -156,27 +277,87 @@ public class StringVar extends AbstractVar<String>
 	 * {@inheritDoc}
 	 */
 	@Override
-	public void onRead(int location, Store store) 
+	public void onRead(long location, Store store) 
 	{
 		store.get(location, value);
+		decoded = null;
 	}
 	
 	/**
 	 * {@inheritDoc} 
 	 */
 	@Override
-	public void onWrite(int location, Store store) 
+	public void onWrite(long location, Store store) 
 	{
 		store.put(location, value);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void onRead(ByteBuffer buffer, int index, Store stage) 
+	{
+		// The decoded value is kept if the staged bytes haven't changed.
+		int i = 0;
+		while (i < value.length && buffer.get(index + i) == value[i]) {
+			i++;
+		}
+		if (i < value.length) {
+			ByteBuffer bytes = buffer.duplicate();
+			bytes.position(index);
+			bytes.get(value);
+			decoded = null;
+		}
+	}
+	
+	/**
+	 * {@inheritDoc} 
+	 */
+	@Override
+	protected void onWrite(ByteBuffer buffer, int index, Store stage) 
+	{
+		ByteBuffer bytes = buffer.duplicate();
+		bytes.position(index);
+		bytes.put(value);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
 	public Data copy() 
 	{
-		return new StringVar(getSize(), getStore(), getLocation(), get());
+		return new StringVar(value.length, charset, getStore(), getLocation(), get());
+	}
+	
+	/**
+	 * Returns the number of bytes before the null character, or all of the
+	 * bytes if there is no null character.
+	 * 
+	 * @return
+	 * 		The number of bytes of the encoded string.
+	 */
+	private int length()
+	{
+		int end = value.length - terminator;
+		for (int i = 0; i <= end; i += terminator) {
+			if (isNull(i)) {
+				return i;
+			}
+		}
+		return value.length - (value.length % terminator);
+	}
+	
+	// Whether the null character of the charset starts at the given index.
+	private boolean isNull(int index)
+	{
+		for (int i = 0; i < terminator; i++) {
+			if (value[index + i] != 0) {
+				return false;
+			}
+		}
+		return true;
 	}
 
 }
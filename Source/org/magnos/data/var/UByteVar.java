@@ -16,7 +16,8 @@
 
 package org.magnos.data.var;
 
-import org.magnos.data.Bits;
+import java.nio.ByteBuffer;
+
 import org.magnos.data.Data;
 import org.magnos.data.Store;
 
@@ -62,7 +63,7 @@ public class UByteVar extends AbstractVar<Short>
 	 * @param location
 	 * 		The intial location.
 	 */
-	public UByteVar(Store store, int location) 
+	public UByteVar(Store store, long location) 
 	{
 		this(store, location, (short)0);
 	}
@@ -77,7 +78,7 @@ public class UByteVar extends AbstractVar<Short>
 	 * @param value
 	 * 		The initial value.
 	 */
-	public UByteVar(Store store, int location, short value) 
+	public UByteVar(Store store, long location, short value) 
 	{
 		super(SIZE);
 		this.setStore(store);
@@ -106,7 +107,7 @@ public class UByteVar extends AbstractVar<Short>
 	 */
 	public short add(short x) 
 	{
-		return (value += x);
+		return change((short)(value + x));
 	}
 	
 	/**
@@ -119,7 +120,7 @@ public class UByteVar extends AbstractVar<Short>
 	 */
 	public short max(short x) 
 	{
-		return (value = (short)Math.max(value, x));
+		return change((short)Math.max(value, x));
 	}
 
 	/**
@@ -132,7 +133,7 @@ public class UByteVar extends AbstractVar<Short>
 	 */
 	public short min(short x) 
 	{
-		return (value = (short)Math.min(value, x));
+		return change((short)Math.min(value, x));
 	}
 
 	/**
@@ -145,7 +146,7 @@ public class UByteVar extends AbstractVar<Short>
 	 */
 	public short mul(short x) 
 	{
-		return (value *= x);
+		return change((short)(value * x));
 	}
 	
 	/**
@@ -156,7 +157,7 @@ public class UByteVar extends AbstractVar<Short>
 	 */
 	public void set(short value) 
 	{
-		this.value = value;
+		change(value);
 	}
 	
 	/**
@@ -167,7 +168,7 @@ public class UByteVar extends AbstractVar<Short>
 	 */
 	public void put(short value) 
 	{
-		this.value = value;
+		change(value);
 		this.write();
 	}
 	
@@ -198,25 +199,43 @@ public class UByteVar extends AbstractVar<Short>
 	@Override
 	public void setValue(Short value) 
 	{
-		this.value = value;
+		change(value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void onRead(long location, Store store) 
+	{
+		value = (short)(store.getByte(location) & 0xFF);
+	}
+	
+	/**
+	 * {@inheritDoc} 
+	 */
+	@Override
+	public void onWrite(long location, Store store) 
+	{
+		store.putByte(location, (byte)value);
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
-	public void onRead(int location, Store store) 
+	protected void onRead(ByteBuffer buffer, int index, Store stage) 
 	{
-		value = Bits.getUByte(store.get(location, SIZE));
+		value = (short)(buffer.get(index) & 0xFF);
 	}
 	
 	/**
 	 * {@inheritDoc} 
 	 */
 	@Override
-	public void onWrite(int location, Store store) 
+	protected void onWrite(ByteBuffer buffer, int index, Store stage) 
 	{
-		store.put(location, Bits.getUByteBytes(value));
+		buffer.put(index, (byte)value);
 	}
 
 	/**
@@ -228,4 +247,21 @@ public class UByteVar extends AbstractVar<Short>
 		return new UByteVar(getStore(), getLocation(), value);
 	}
 
+	/**
+	 * Changes the value of this var, marking it dirty if the value differs.
+	 * 
+	 * @param x
+	 * 		The new value.
+	 * @return
+	 * 		The new value.
+	 */
+	private short change(short x) 
+	{
+		if (x != value) {
+			value = x;
+			markDirty();
+		}
+		return value;
+	}
+
 }
@@ -16,7 +16,8 @@
 
 package org.magnos.data.var;
 
-import org.magnos.data.Bits;
+import java.nio.ByteBuffer;
+
 import org.magnos.data.Data;
 import org.magnos.data.Store;
 
@@ -62,7 +63,7 @@ public class UShortVar extends AbstractVar<Integer>
 	 * @param location
 	 * 		The intial location.
 	 */
-	public UShortVar(Store store, int location) 
+	public UShortVar(Store store, long location) 
 	{
 		this(store, location, 0);
 	}
@@ -77,7 +78,7 @@ public class UShortVar extends AbstractVar<Integer>
 	 * @param value
 	 * 		The initial value.
 	 */
-	public UShortVar(Store store, int location, int value) 
+	public UShortVar(Store store, long location, int value) 
 	{
 		super(SIZE);
 		this.setStore(store);
@@ -106,7 +107,7 @@ public class UShortVar extends AbstractVar<Integer>
 	 */
 	public int add(int x) 
 	{
-		return (value += x);
+		return change(value + x);
 	}
 	
 	/**
@@ -119,7 +120,7 @@ public class UShortVar extends AbstractVar<Integer>
 	 */
 	public int max(int x) 
 	{
-		return (value = Math.max(value, x));
+		return change(Math.max(value, x));
 	}
 
 	/**
@@ -132,7 +133,7 @@ public class UShortVar extends AbstractVar<Integer>
 	 */
 	public int min(int x) 
 	{
-		return (value = Math.min(value, x));
+		return change(Math.min(value, x));
 	}
 
 	/**
@@ -145,7 +146,7 @@ public class UShortVar extends AbstractVar<Integer>
 	 */
 	public int mul(int x) 
 	{
-		return (value *= x);
+		return change(value * x);
 	}
 	
 	/**
@@ -156,7 +157,7 @@ public class UShortVar extends AbstractVar<Integer>
 	 */
 	public void set(int value) 
 	{
-		this.value = value;
+		change(value);
 	}
 	
 	/**
@@ -167,7 +168,7 @@ public class UShortVar extends AbstractVar<Integer>
 	 */
 	public void put(int value) 
 	{
-		this.value = value;
+		change(value);
 		this.write();
 	}
 	
@@ -198,25 +199,43 @@ public class UShortVar extends AbstractVar<Integer>
 	@Override
 	public void setValue(Integer value) 
 	{
-		this.value = value;
+		change(value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void onRead(long location, Store store) 
+	{
+		value = store.getShort(location) & 0xFFFF;
+	}
+	
+	/**
+	 * {@inheritDoc} 
+	 */
+	@Override
+	public void onWrite(long location, Store store) 
+	{
+		store.putShort(location, (short)value);
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
-	public void onRead(int location, Store store) 
+	protected void onRead(ByteBuffer buffer, int index, Store stage) 
 	{
-		value = Bits.getUShort(store.get(location, SIZE));
+		value = buffer.getShort(index) & 0xFFFF;
 	}
 	
 	/**
 	 * {@inheritDoc} 
 	 */
 	@Override
-	public void onWrite(int location, Store store) 
+	protected void onWrite(ByteBuffer buffer, int index, Store stage) 
 	{
-		store.put(location, Bits.getUShortBytes(value));
+		buffer.putShort(index, (short)value);
 	}
 
 	/**
@@ -228,4 +247,21 @@ public class UShortVar extends AbstractVar<Integer>
 		return new UShortVar(getStore(), getLocation(), value);
 	}
 
+	/**
+	 * Changes the value of this var, marking it dirty if the value differs.
+	 * 
+	 * @param x
+	 * 		The new value.
+	 * @return
+	 * 		The new value.
+	 */
+	private int change(int x) 
+	{
+		if (x != value) {
+			value = x;
+			markDirty();
+		}
+		return value;
+	}
+
 }
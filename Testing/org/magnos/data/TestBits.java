@@ -18,6 +18,8 @@ package org.magnos.data;
 
 import static org.junit.Assert.*;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 import org.junit.Test;
 import org.magnos.data.Bits;
@@ -84,4 +86,83 @@ public class TestBits extends BaseTest
 		}
 	}
 	
+	
+	@Test
+	public void testOffsetOrder()
+	{
+		ByteOrder[] orders = {ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN};
+		
+		for (ByteOrder order : orders) {
+			byte[] b = new byte[11];
+			ByteBuffer expected = ByteBuffer.allocate(11).order(order);
+			
+			Bits.getShortBytes((short)-1234, b, 3, order);
+			expected.putShort(3, (short)-1234);
+			assertArrayEquals( expected.array(), b );
+			assertEquals( -1234, Bits.getShort(b, 3, order) );
+			
+			Bits.getCharBytes('\u20AC', b, 1, order);
+			expected.putChar(1, '\u20AC');
+			assertArrayEquals( expected.array(), b );
+			assertEquals( '\u20AC', Bits.getChar(b, 1, order) );
+			
+			Bits.getIntBytes(0x12345678, b, 3, order);
+			expected.putInt(3, 0x12345678);
+			assertArrayEquals( expected.array(), b );
+			assertEquals( 0x12345678, Bits.getInt(b, 3, order) );
+			
+			Bits.getLongBytes(-1234567890123L, b, 3, order);
+			expected.putLong(3, -1234567890123L);
+			assertArrayEquals( expected.array(), b );
+			assertEquals( -1234567890123L, Bits.getLong(b, 3, order) );
+			
+			Bits.getFloatBytes(14.9f, b, 2, order);
+			expected.putFloat(2, 14.9f);
+			assertArrayEquals( expected.array(), b );
+			assertEquals( 14.9f, Bits.getFloat(b, 2, order), 0 );
+			
+			Bits.getDoubleBytes(-0.125, b, 1, order);
+			expected.putDouble(1, -0.125);
+			assertArrayEquals( expected.array(), b );
+			assertEquals( -0.125, Bits.getDouble(b, 1, order), 0 );
+		}
+	}
+	
+	
+	@Test
+	public void testBufferOrder()
+	{
+		ByteOrder[] orders = {ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN};
+		
+		for (ByteOrder order : orders) {
+			ByteBuffer b = ByteBuffer.allocateDirect(11);
+			ByteBuffer expected = ByteBuffer.allocate(11).order(order);
+			
+			Bits.getLongBytes(0x0102030405060708L, b, 0, order);
+			assertEquals( 0x0102030405060708L, Bits.getLong(b, 0, order) );
+			Bits.getShortBytes((short)-1234, b, 3, order);
+			Bits.getIntBytes(0x12345678, b, 5, order);
+			expected.putLong(0, 0x0102030405060708L);
+			expected.putShort(3, (short)-1234);
+			expected.putInt(5, 0x12345678);
+			
+			for (int i = 0; i < 11; i++) {
+				assertEquals( expected.get(i), b.get(i) );
+			}
+			assertEquals( -1234, Bits.getShort(b, 3, order) );
+			assertEquals( 0x12345678, Bits.getInt(b, 5, order) );
+			assertEquals( ByteOrder.BIG_ENDIAN, b.order() );
+			assertEquals( 0, b.position() );
+			
+			Bits.getCharBytes('\u20AC', b, 1, order);
+			assertEquals( '\u20AC', Bits.getChar(b, 1, order) );
+			
+			Bits.getFloatBytes(14.9f, b, 2, order);
+			assertEquals( 14.9f, Bits.getFloat(b, 2, order), 0 );
+			
+			Bits.getDoubleBytes(-0.125, b, 3, order);
+			assertEquals( -0.125, Bits.getDouble(b, 3, order), 0 );
+		}
+	}
+	
 }
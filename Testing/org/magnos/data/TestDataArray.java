@@ -18,12 +18,17 @@ package org.magnos.data;
 
 import static org.junit.Assert.*;
 
+import java.nio.ByteOrder;
+
 import org.junit.Test;
 import org.magnos.data.DataArray;
 import org.magnos.data.Store;
 import org.magnos.data.StoreAccess;
 import org.magnos.data.store.MemoryStore;
 import org.magnos.data.var.FloatVar;
+import org.magnos.data.var.IntVar;
+import org.magnos.data.var.LongVar;
+import org.magnos.data.var.StringVar;
 import org.magnos.test.BaseTest;
 
 
@@ -40,6 +45,14 @@ public class TestDataArray extends BaseTest
 		assertEquals( 0, arr.getLocation() );
 	}
 	
+	@Test
+	public void testLargeSize() 
+	{
+		DataArray<LongVar> arr = DataArray.create(LongVar.class, Integer.MAX_VALUE, true);
+		
+		assertEquals( Integer.MAX_VALUE * 8L, arr.getSize() );
+	}
+	
 	@Test
 	public void testLazyGetSet() 
 	{
@@ -106,4 +119,176 @@ public class TestDataArray extends BaseTest
 		assertEquals( -5.3f, arr2.get(1).get(), 0.00001 );
 	}
 	
+	@Test
+	public void testStagedChunks() 
+	{
+		// More elements than fit in a single staged chunk.
+		int count = DataArray.STAGING_SIZE / 4 + 1000;
+		
+		Store store = new MemoryStore("temporary", count * 4);
+		store.open(StoreAccess.ReadWrite);
+		
+		DataArray<IntVar> arr1 = DataArray.create(IntVar.class, count, false);
+		arr1.setStore(store);
+		for (int i = 0; i < count; i++) {
+			arr1.set(i, new IntVar(i));
+		}
+		arr1.write();
+		
+		assertEquals( count - 1, new IntVar(store, (count - 1) * 4L).take() );
+		
+		DataArray<IntVar> arr2 = DataArray.create(IntVar.class, count, false);
+		arr2.setStore(store);
+		arr2.read();
+		
+		for (int i = 0; i < count; i++) {
+			assertEquals( i, arr2.get(i).get() );
+		}
+	}
+	
+	@Test
+	public void testWriteSkipsNull() 
+	{
+		Store store = new MemoryStore("temporary", 16);
+		store.open(StoreAccess.ReadWrite);
+		store.putInt(4, 77);
+		
+		DataArray<IntVar> arr = DataArray.create(IntVar.class, 4, false);
+		arr.setStore(store);
+		arr.set(0, new IntVar(1));
+		arr.set(2, new IntVar(3));
+		arr.set(3, new IntVar(4));
+		arr.write();
+		
+		assertEquals( 1, store.getInt(0) );
+		assertEquals( 77, store.getInt(4) );
+		assertEquals( 3, store.getInt(8) );
+		assertEquals( 4, store.getInt(12) );
+	}
+	
+	@Test
+	public void testCursor() 
+	{
+		Store store = new MemoryStore("temporary", 40);
+		store.open(StoreAccess.ReadWrite);
+		for (int i = 0; i < 10; i++) {
+			store.putInt(i * 4, i * i);
+		}
+		
+		DataArray<IntVar> arr = DataArray.create(IntVar.class, 10, true);
+		arr.setStore(store);
+		
+		DataCursor<IntVar> cursor = arr.cursor();
+		assertEquals( -1, cursor.getIndex() );
+		
+		int i = 0;
+		while (cursor.hasNext()) {
+			IntVar var = cursor.next();
+			assertSame( cursor.get(), var );
+			assertEquals( i * i, var.get() );
+			i++;
+		}
+		assertEquals( 10, i );
+		
+		cursor.moveTo(3).set(-1);
+		cursor.write();
+		assertEquals( -1, arr.get(3).get() );
+		assertEquals( 16, cursor.moveTo(4).get() );
+	}
+	
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testCursorOutOfBounds() 
+	{
+		DataArray<IntVar> arr = DataArray.create(IntVar.class, 10, true);
+		arr.cursor().moveTo(10);
+	}
+	
+	@Test
+	public void testWriteOnlyChanged() 
+	{
+		Store store = new MemoryStore("temporary", 20);
+		store.open(StoreAccess.ReadWrite);
+		
+		DataArray<IntVar> arr = DataArray.create(IntVar.class, 5, false);
+		arr.setStore(store);
+		arr.read();
+		assertFalse( arr.isDirty() );
+		
+		// Changed behind the array's back, which is not overwritten.
+		store.putInt(0, 11);
+		store.putInt(16, 55);
+		
+		arr.get(2).set(3);
+		arr.get(3).set(4);
+		assertTrue( arr.isDirty() );
+		arr.write();
+		assertFalse( arr.isDirty() );
+		
+		assertEquals( 11, store.getInt(0) );
+		assertEquals( 3, store.getInt(8) );
+		assertEquals( 4, store.getInt(12) );
+		assertEquals( 55, store.getInt(16) );
+	}
+	
+	@Test
+	public void testStagedLeaves() 
+	{
+		Store store = new MemoryStore("temporary", 64);
+		store.open(StoreAccess.ReadWrite);
+		store.setOrder(ByteOrder.LITTLE_ENDIAN);
+		
+		// Leaves are encoded straight into the staged bytes in store order.
+		DataArray<LongVar> longs1 = DataArray.create(LongVar.class, 3, false);
+		longs1.setStore(store);
+		for (int i = 0; i < 3; i++) {
+			longs1.set(i, new LongVar(0x0102030405060708L * (i + 1)));
+		}
+		longs1.write();
+		assertEquals( 0x0102030405060708L * 2, store.getLong(8) );
+		assertEquals( 0x08, store.getByte(0) );
+		
+		DataArray<StringVar> strings1 = DataArray.create(new StringVar(5), 2, false);
+		strings1.setStore(store);
+		strings1.setLocation(24);
+		strings1.set(0, new StringVar(5, "abc"));
+		strings1.set(1, new StringVar(5, "hello"));
+		strings1.write();
+		
+		DataArray<IntArray> ints1 = DataArray.create(new IntArray(2), 2, false);
+		ints1.setStore(store);
+		ints1.setLocation(40);
+		for (int i = 0; i < 2; i++) {
+			IntArray ints = new IntArray(2);
+			ints.setInt(0, i * 10 + 1);
+			ints.setInt(1, i * 10 + 2);
+			ints1.set(i, ints);
+		}
+		ints1.write();
+		assertEquals( 12, store.getInt(52) );
+		
+		// And decoded straight from the staged bytes.
+		DataArray<LongVar> longs2 = DataArray.create(LongVar.class, 3, false);
+		longs2.setStore(store);
+		longs2.read();
+		assertFalse( longs2.isDirty() );
+		for (int i = 0; i < 3; i++) {
+			assertEquals( 0x0102030405060708L * (i + 1), longs2.get(i).get() );
+		}
+		
+		DataArray<StringVar> strings2 = DataArray.create(new StringVar(5), 2, false);
+		strings2.setStore(store);
+		strings2.setLocation(24);
+		strings2.read();
+		assertEquals( "abc", strings2.get(0).get() );
+		assertEquals( "hello", strings2.get(1).get() );
+		
+		DataArray<IntArray> ints2 = DataArray.create(new IntArray(2), 2, false);
+		ints2.setStore(store);
+		ints2.setLocation(40);
+		ints2.read();
+		assertEquals( 11, ints2.get(1).getInt(0) );
+		assertEquals( 12, ints2.get(1).getInt(1) );
+		assertEquals( ByteOrder.LITTLE_ENDIAN, ints2.get(0).getOrder() );
+	}
+	
 }
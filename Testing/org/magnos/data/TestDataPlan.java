@@ -0,0 +1,171 @@
+/* 
+ * NOTICE OF LICENSE
+ * 
+ * This source file is subject to the Open Software License (OSL 3.0) that is 
+ * bundled with this package in the file LICENSE.txt. It is also available 
+ * through the world-wide-web at http://opensource.org/licenses/osl-3.0.php
+ * If you did not receive a copy of the license and are unable to obtain it 
+ * through the world-wide-web, please send an email to pdiffenderfer@gmail.com 
+ * so we can send you a copy immediately. If you use any of this software please
+ * notify me via my website or email, your feedback is much appreciated. 
+ * 
+ * @copyright   Copyright (c) 2011 Magnos Software (http://www.magnos.org)
+ * @license     http://opensource.org/licenses/osl-3.0.php
+ * 				Open Software License (OSL 3.0)
+ */
+
+package org.magnos.data;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteOrder;
+
+import org.junit.Test;
+import org.magnos.data.error.StoreIOException;
+import org.magnos.data.store.MemoryStore;
+import org.magnos.data.var.DoubleVar;
+import org.magnos.data.var.IntVar;
+import org.magnos.data.var.LongVar;
+import org.magnos.data.var.PackedField;
+import org.magnos.data.var.PackedVar;
+import org.magnos.data.var.ShortVar;
+import org.magnos.data.var.StringVar;
+import org.magnos.test.BaseTest;
+
+
+public class TestDataPlan extends BaseTest 
+{
+
+	private DataSet tree(Store store) 
+	{
+		// A set with a gap of 2 bytes after the short, which splits the ranges.
+		DataSet header = new DataSet(4);
+		header.add(new ShortVar());
+		
+		DataArray<IntVar> array = DataArray.create(IntVar.class, 5, false);
+		
+		DataSet inner = DataSet.create(new LongVar(), array);
+		DataSet outer = DataSet.create(header, inner, new IntVar());
+		outer.setStore(store);
+		outer.setLocation(8);
+		return outer;
+	}
+	
+	@Test
+	public void testCompile() 
+	{
+		DataPlan plan = DataPlan.compile(tree(null));
+		
+		assertEquals( 8, plan.getLeafCount() );
+		assertEquals( 2, plan.getRangeCount() );
+	}
+	
+	@Test
+	public void testReadWrite() 
+	{
+		Store store = new MemoryStore("temporary", 64);
+		store.open(StoreAccess.ReadWrite);
+		store.putInt(10, -1);
+		
+		DataSet outer1 = tree(store);
+		DataPlan plan1 = DataPlan.compile(outer1);
+		DataSet inner1 = outer1.get(1);
+		DataArray<IntVar> array1 = inner1.get(1);
+		
+		DataSet header1 = outer1.get(0);
+		header1.<ShortVar>get(0).set((short)7);
+		inner1.<LongVar>get(0).set(123456789L);
+		for (int i = 0; i < 5; i++) {
+			array1.get(i).set(i * 3);
+		}
+		outer1.<IntVar>get(2).set(99);
+		plan1.write();
+		
+		// The gap of the header is left untouched.
+		assertEquals( (short)-1, store.getShort(10) );
+		
+		// The plan and the tree read the same bytes.
+		DataSet outer2 = tree(store);
+		outer2.read();
+		DataSet inner2 = outer2.get(1);
+		DataArray<IntVar> array2 = inner2.get(1);
+		assertEquals( 123456789L, inner2.<LongVar>get(0).get() );
+		assertEquals( 12, array2.get(4).get() );
+		assertEquals( 99, outer2.<IntVar>get(2).get() );
+		
+		DataSet outer3 = tree(store);
+		DataPlan plan3 = DataPlan.compile(outer3);
+		plan3.read();
+		DataSet header3 = outer3.get(0);
+		DataSet inner3 = outer3.get(1);
+		DataArray<IntVar> array3 = inner3.get(1);
+		assertEquals( (short)7, header3.<ShortVar>get(0).get() );
+		assertEquals( 123456789L, inner3.<LongVar>get(0).get() );
+		for (int i = 0; i < 5; i++) {
+			assertEquals( i * 3, array3.get(i).get() );
+		}
+		assertEquals( 99, outer3.<IntVar>get(2).get() );
+	}
+	
+	@Test
+	public void testOrder() 
+	{
+		Store store = new MemoryStore("temporary", 64);
+		store.open(StoreAccess.ReadWrite);
+		store.setOrder(ByteOrder.LITTLE_ENDIAN);
+		
+		DataSet set = DataSet.create(new IntVar(0x01020304));
+		set.setStore(store);
+		DataPlan.compile(set).write();
+		
+		assertEquals( 0x04, store.getByte(0) );
+		assertEquals( 0x01020304, store.getInt(0) );
+	}
+	
+	@Test
+	public void testStagedLeaves() 
+	{
+		Store store = new MemoryStore("temporary", 64);
+		store.open(StoreAccess.ReadWrite);
+		store.setOrder(ByteOrder.LITTLE_ENDIAN);
+		
+		IntArray ints1 = new IntArray(2);
+		ints1.setInt(0, 5);
+		ints1.setInt(1, 6);
+		PackedVar packed1 = new PackedVar(2);
+		PackedField low1 = packed1.field(4);
+		packed1.set(low1, 9);
+		DataSet set1 = DataSet.create(new StringVar(6, "plan"), packed1, new DoubleVar(1.5), ints1);
+		set1.setStore(store);
+		DataPlan.compile(set1).write();
+		
+		assertFalse( set1.isDirty() );
+		assertEquals( 9, store.getShort(6) );
+		assertEquals( 1.5, store.getDouble(8), 0.0 );
+		assertEquals( 6, store.getInt(20) );
+		
+		IntArray ints2 = new IntArray(2);
+		PackedVar packed2 = new PackedVar(2);
+		PackedField low2 = packed2.field(4);
+		DataSet set2 = DataSet.create(new StringVar(6), packed2, new DoubleVar(), ints2);
+		set2.setStore(store);
+		DataPlan.compile(set2).read();
+		
+		assertFalse( set2.isDirty() );
+		assertEquals( "plan", set2.<StringVar>get(0).get() );
+		assertEquals( 9, packed2.get(low2) );
+		assertEquals( 1.5, set2.<DoubleVar>get(2).get(), 0.0 );
+		assertEquals( 5, ints2.getInt(0) );
+		assertEquals( 6, ints2.getInt(1) );
+	}
+	
+	@Test(expected = StoreIOException.class)
+	public void testOutOfBounds() 
+	{
+		Store store = new MemoryStore("temporary", 16);
+		store.open(StoreAccess.ReadWrite);
+		
+		DataPlan.compile(tree(store)).read();
+	}
+	
+}
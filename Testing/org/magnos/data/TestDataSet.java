@@ -18,11 +18,15 @@ package org.magnos.data;
 
 import static org.junit.Assert.*;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
 import org.junit.Test;
 import org.magnos.data.DataSet;
 import org.magnos.data.Store;
 import org.magnos.data.StoreAccess;
 import org.magnos.data.Var;
+import org.magnos.data.store.FileStore;
 import org.magnos.data.store.MemoryStore;
 import org.magnos.data.var.BooleanVar;
 import org.magnos.data.var.ByteVar;
@@ -144,5 +148,132 @@ public class TestDataSet extends BaseTest
 		assertTrue( set2.get(1) instanceof BooleanVar );
 		assertTrue( set2.get(2) instanceof ByteVar );
 	}
-
+	
+	@Test
+	public void testAsync() throws Exception
+	{
+		Store store = new FileStore("testDataSetAsync.dat", StoreAccess.ReadWrite, 36);
+		
+		DataSet set1 = new DataSet(12);
+		set1.setLocation(24);
+		set1.setStore(store);
+		set1.add(new FloatVar(14.9f));
+		set1.add(new LongVar(235132432423L));
+		set1.writeAsync().get();
+		
+		DataSet set2 = new DataSet(set1);
+		set2.readAsync().get();
+		
+		FloatVar v1 = set2.get(0);
+		LongVar v2 = set2.get(1);
+		
+		assertEquals( 14.9f, v1.get(), 0.00001 );
+		assertEquals( 235132432423L, v2.get() );
+		
+		store.delete();
+	}
+	
+	@Test
+	public void testDirty() 
+	{
+		Store store = new MemoryStore("temporary", 12);
+		store.open(StoreAccess.ReadWrite);
+		
+		IntVar var = new IntVar(store, 0);
+		assertTrue( var.isDirty() );
+		
+		var.write();
+		assertFalse( var.isDirty() );
+		
+		var.set(0);
+		assertFalse( var.isDirty() );
+		
+		var.add(2);
+		assertTrue( var.isDirty() );
+		
+		var.read();
+		assertFalse( var.isDirty() );
+		assertEquals( 0, var.get() );
+		
+		DataSet set = DataSet.create(new IntVar(), new IntVar());
+		set.setStore(store);
+		assertTrue( set.isDirty() );
+		
+		set.write();
+		assertFalse( set.isDirty() );
+		
+		set.<IntVar>get(1).mul(3);
+		assertFalse( set.isDirty() );
+		
+		set.<IntVar>get(1).set(3);
+		assertTrue( set.isDirty() );
+	}
+	
+	@Test
+	public void testWriteOnlyChanged() 
+	{
+		CountingStore store = new CountingStore(16);
+		
+		IntVar a = new IntVar(1);
+		IntVar b = new IntVar(2);
+		IntVar c = new IntVar(3);
+		IntVar d = new IntVar(4);
+		DataSet set = DataSet.create(a, b, c, d);
+		set.setStore(store);
+		set.write();
+		assertEquals( 1, store.puts );
+		
+		// Nothing changed, nothing is written.
+		store.puts = 0;
+		set.write();
+		assertEquals( 0, store.puts );
+		
+		// The unchanged pieces are not overwritten.
+		store.putInt(4, 77);
+		store.puts = 0;
+		a.set(5);
+		set.write();
+		assertEquals( 1, store.puts );
+		assertEquals( 5, store.getInt(0) );
+		assertEquals( 77, store.getInt(4) );
+		
+		// Adjacent changes are merged into a single put.
+		store.puts = 0;
+		c.set(6);
+		d.set(7);
+		set.write();
+		assertEquals( 1, store.puts );
+		assertEquals( 6, store.getInt(8) );
+		assertEquals( 7, store.getInt(12) );
+		
+		// Writing somewhere else writes every piece.
+		Store other = new MemoryStore("other", 16);
+		other.open(StoreAccess.ReadWrite);
+		set.write(other);
+		assertEquals( 2, other.getInt(4) );
+	}
+	
+	private static class CountingStore extends MemoryStore 
+	{
+		private int puts;
+		
+		public CountingStore(long capacity) 
+		{
+			super("counting", capacity);
+			open(StoreAccess.ReadWrite);
+		}
+		
+		protected void storePut(long location, ByteBuffer b) throws IOException 
+		{
+			puts++;
+			super.storePut(location, b);
+		}
+		
+		protected void storePutInt(long location, int value) throws IOException 
+		{
+			puts++;
+			super.storePutInt(location, value);
+		}
+	}
+	
 }
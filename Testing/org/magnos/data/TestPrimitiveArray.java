@@ -0,0 +1,139 @@
+/* 
+ * NOTICE OF LICENSE
+ * 
+ * This source file is subject to the Open Software License (OSL 3.0) that is 
+ * bundled with this package in the file LICENSE.txt. It is also available 
+ * through the world-wide-web at http://opensource.org/licenses/osl-3.0.php
+ * If you did not receive a copy of the license and are unable to obtain it 
+ * through the world-wide-web, please send an email to pdiffenderfer@gmail.com 
+ * so we can send you a copy immediately. If you use any of this software please
+ * notify me via my website or email, your feedback is much appreciated. 
+ * 
+ * @copyright   Copyright (c) 2011 Magnos Software (http://www.magnos.org)
+ * @license     http://opensource.org/licenses/osl-3.0.php
+ * 				Open Software License (OSL 3.0)
+ */
+
+package org.magnos.data;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteOrder;
+
+import org.junit.Test;
+import org.magnos.data.store.MemoryStore;
+import org.magnos.data.var.DoubleVar;
+import org.magnos.data.var.IntVar;
+import org.magnos.data.var.LongVar;
+import org.magnos.test.BaseTest;
+
+
+public class TestPrimitiveArray extends BaseTest 
+{
+
+	@Test
+	public void testIntArray() 
+	{
+		Store store = new MemoryStore("temporary", 40);
+		store.open(StoreAccess.ReadWrite);
+		
+		IntArray arr1 = new IntArray(10);
+		arr1.setStore(store);
+		assertEquals( 40, arr1.getSize() );
+		
+		for (int i = 0; i < 10; i++) {
+			arr1.setInt(i, i * 1000 - 3);
+		}
+		arr1.write();
+		
+		IntVar var = new IntVar(store, 12);
+		assertEquals( 2997, var.take() );
+		
+		IntArray arr2 = new IntArray(10, true);
+		arr2.setStore(store);
+		arr2.read();
+		assertArrayEquals( arr1.toArray(), arr2.toArray() );
+	}
+	
+	@Test
+	public void testLongArray() 
+	{
+		Store store = new MemoryStore("temporary", 80);
+		store.open(StoreAccess.ReadWrite);
+		
+		LongArray arr1 = new LongArray(10);
+		arr1.setStore(store);
+		arr1.set(new long[] {1L, -2L, Long.MAX_VALUE});
+		arr1.write();
+		
+		LongVar var = new LongVar(store, 16);
+		assertEquals( Long.MAX_VALUE, var.take() );
+		
+		LongArray arr2 = new LongArray(10);
+		arr2.setStore(store);
+		arr2.read();
+		assertEquals( -2L, arr2.getLong(1) );
+		assertEquals( 0L, arr2.getLong(9) );
+	}
+	
+	@Test
+	public void testDoubleArray() 
+	{
+		Store store = new MemoryStore("temporary", 24);
+		store.open(StoreAccess.ReadWrite);
+		
+		DoubleVar var = new DoubleVar(store, 8);
+		var.put(-3.25);
+		
+		DoubleArray arr = new DoubleArray(3);
+		arr.setStore(store);
+		arr.read();
+		assertEquals( 0.0, arr.getDouble(0), 0.0 );
+		assertEquals( -3.25, arr.getDouble(1), 0.0 );
+	}
+	
+	@Test
+	public void testOrder() 
+	{
+		Store big = new MemoryStore("big", 16);
+		big.open(StoreAccess.ReadWrite);
+		
+		Store little = new MemoryStore("little", 16);
+		little.open(StoreAccess.ReadWrite);
+		little.setOrder(ByteOrder.LITTLE_ENDIAN);
+		
+		IntArray arr = new IntArray(4);
+		arr.set(new int[] {1, 2, 3, 4});
+		arr.write(little);
+		assertEquals( ByteOrder.LITTLE_ENDIAN, arr.getOrder() );
+		assertEquals( 3, new IntVar(little, 8).take() );
+		
+		arr.write(big);
+		assertEquals( ByteOrder.BIG_ENDIAN, arr.getOrder() );
+		assertArrayEquals( new int[] {1, 2, 3, 4}, arr.toArray() );
+		
+		arr.read(little);
+		assertArrayEquals( new int[] {1, 2, 3, 4}, arr.toArray() );
+	}
+	
+	@Test
+	public void testCopy() 
+	{
+		IntArray arr = new IntArray(3, true);
+		arr.setInt(2, 42);
+		
+		IntArray copy = (IntArray)arr.copy();
+		assertTrue( copy.isDirect() );
+		assertEquals( 42, copy.getInt(2) );
+		
+		copy.setInt(2, 7);
+		assertEquals( 42, arr.getInt(2) );
+	}
+	
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testOutOfBounds() 
+	{
+		new IntArray(3).getInt(3);
+	}
+	
+}
@@ -0,0 +1,98 @@
+/* 
+ * NOTICE OF LICENSE
+ * 
+ * This source file is subject to the Open Software License (OSL 3.0) that is 
+ * bundled with this package in the file LICENSE.txt. It is also available 
+ * through the world-wide-web at http://opensource.org/licenses/osl-3.0.php
+ * If you did not receive a copy of the license and are unable to obtain it 
+ * through the world-wide-web, please send an email to pdiffenderfer@gmail.com 
+ * so we can send you a copy immediately. If you use any of this software please
+ * notify me via my website or email, your feedback is much appreciated. 
+ * 
+ * @copyright   Copyright (c) 2011 Magnos Software (http://www.magnos.org)
+ * @license     http://opensource.org/licenses/osl-3.0.php
+ * 				Open Software License (OSL 3.0)
+ */
+
+package org.magnos.data;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteOrder;
+
+import org.junit.Test;
+import org.magnos.data.store.MemoryStore;
+import org.magnos.test.BaseTest;
+
+
+public class TestStaging extends BaseTest 
+{
+
+	@Test
+	public void testReuse()
+	{
+		MemoryStore first = Staging.acquire(64, ByteOrder.BIG_ENDIAN);
+		Staging.release(first);
+		
+		// the thread's store is lent again and grows as needed.
+		MemoryStore second = Staging.acquire(128, ByteOrder.LITTLE_ENDIAN);
+		
+		assertSame( first, second );
+		assertTrue( second.capacity() >= 128 );
+		assertEquals( ByteOrder.LITTLE_ENDIAN, second.getOrder() );
+		
+		Staging.release(second);
+		
+		assertTrue( second.exists() );
+	}
+	
+	@Test
+	public void testNested()
+	{
+		MemoryStore outer = Staging.acquire(16, ByteOrder.BIG_ENDIAN);
+		MemoryStore inner = Staging.acquire(16, ByteOrder.BIG_ENDIAN);
+		
+		assertNotSame( outer, inner );
+		
+		Staging.release(inner);
+		
+		assertSame( inner, Staging.acquire(8, ByteOrder.BIG_ENDIAN) );
+		
+		Staging.release(inner);
+		Staging.release(outer);
+		
+		assertSame( outer, Staging.acquire(8, ByteOrder.BIG_ENDIAN) );
+		
+		Staging.release(outer);
+	}
+	
+	@Test
+	public void testBounded()
+	{
+		MemoryStore kept = Staging.acquire(8, ByteOrder.BIG_ENDIAN);
+		Staging.release(kept);
+		
+		// a transfer larger than the staging size isn't kept.
+		MemoryStore large = Staging.acquire(DataArray.STAGING_SIZE + 1, ByteOrder.BIG_ENDIAN);
+		
+		assertNotSame( kept, large );
+		
+		Staging.release(large);
+		
+		assertFalse( large.exists() );
+		assertTrue( kept.capacity() <= DataArray.STAGING_SIZE );
+		
+		// transfers nested deeper than the kept stores aren't kept.
+		MemoryStore[] nested = new MemoryStore[Staging.DEPTH + 1];
+		for (int i = 0; i < nested.length; i++) {
+			nested[i] = Staging.acquire(8, ByteOrder.BIG_ENDIAN);
+		}
+		for (int i = nested.length - 1; i >= 0; i--) {
+			Staging.release(nested[i]);
+		}
+		
+		assertFalse( nested[Staging.DEPTH].exists() );
+		assertTrue( nested[Staging.DEPTH - 1].exists() );
+	}
+	
+}
@@ -19,9 +19,16 @@ package org.magnos.data;
 import static org.junit.Assert.*;
 
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import org.magnos.data.Store;
 import org.magnos.data.StoreAccess;
+import org.magnos.data.StoreBatch;
+import org.magnos.data.error.StoreAccessException;
 import org.magnos.io.Buffers;
 import org.magnos.test.BaseTest;
 
@@ -173,4 +180,193 @@ public class TestStore extends BaseTest
 		assertEquals( StoreAccess.ReadWrite, s2.open(StoreAccess.Exclusive) );
 	}
 	
+	protected void testConcurrent(final Store s) throws InterruptedException
+	{
+		final int threads = 8;
+		final int region = (int)s.capacity() / threads;
+		final List<Throwable> errors = new ArrayList<Throwable>();
+		
+		List<Thread> running = new ArrayList<Thread>();
+		for (int i = 0; i < threads; i++) {
+			final int location = i * region;
+			final byte id = (byte)(i + 1);
+			
+			Thread t = new Thread() {
+				public void run() {
+					try {
+						byte[] expected = new byte[region];
+						byte[] actual = new byte[region];
+						for (int k = 0; k < 200; k++) {
+							for (int j = 0; j < region; j++) {
+								expected[j] = (byte)(id * k + j);
+							}
+							s.put(location, expected);
+							s.get(location, actual);
+							assertArrayEquals( expected, actual );
+						}
+					}
+					catch (Throwable e) {
+						synchronized (errors) {
+							errors.add(e);
+						}
+					}
+				}
+			};
+			running.add(t);
+			t.start();
+		}
+		for (Thread t : running) {
+			t.join();
+		}
+		assertTrue( errors.isEmpty() );
+	}
+	
+	protected void testBatch(Store s)
+	{
+		s.capacity(20);
+		
+		// entries out of order, two of them adjacent.
+		StoreBatch put = new StoreBatch();
+		put.add(12, new byte[] {7, 8, 9});
+		put.add(2, new byte[] {1, 2, 3});
+		put.add(5, new byte[] {4, 5, 6});
+		s.put(put);
+		
+		// the batch keeps the order it was built in.
+		assertEquals( 12, put.getLocation(0) );
+		assertEquals( 2, put.getLocation(1) );
+		assertArrayEquals( new int[] {1, 2, 0}, put.order() );
+		
+		byte[] expected = {0, 0, 1, 2, 3, 4, 5, 6, 0, 0, 0, 0, 7, 8, 9, 0, 0, 0, 0, 0};
+		byte[] actual = new byte[20];
+		s.get(0, actual);
+		assertArrayEquals( expected, actual );
+		
+		byte[] first = new byte[4];
+		byte[] second = new byte[5];
+		byte[] third = new byte[2];
+		
+		StoreBatch get = new StoreBatch(3);
+		get.add(7, second);
+		get.add(3, first);
+		get.add(14, third);
+		s.get(get);
+		
+		assertArrayEquals( new byte[] {2, 3, 4, 5}, first );
+		assertArrayEquals( new byte[] {6, 0, 0, 0, 0}, second );
+		assertArrayEquals( new byte[] {9, 0}, third );
+	}
+	
+	protected void testAsync(Store s) throws Exception
+	{
+		assertTrue( s.capacity() >= 17 );
+		
+		byte[] data1 = "Hello World!".getBytes();
+		s.putAsync(5, data1).get();
+		
+		Future<byte[]> data2 = s.getAsync(5, data1.length);
+		
+		assertArrayEquals( data1, data2.get() );
+		
+		ByteBuffer buffer = ByteBuffer.allocate(5);
+		s.getAsync(11, buffer).get();
+		
+		assertArrayEquals( "World".getBytes(), buffer.array() );
+		
+		// errors are thrown from the future.
+		s.setAccess(StoreAccess.ReadOnly);
+		try {
+			s.putAsync(0, data1).get();
+			fail();
+		}
+		catch (ExecutionException e) {
+			assertTrue( e.getCause() instanceof StoreAccessException );
+		}
+		s.setAccess(StoreAccess.ReadWrite);
+	}
+	
+	protected void testPrimitives(Store s)
+	{
+		assertTrue( s.capacity() >= 24 );
+		
+		s.putByte(0, (byte)-7);
+		s.putShort(1, (short)-1234);
+		s.putInt(3, 0x12345678);
+		s.putLong(7, -1234567890123L);
+		s.putFloat(15, 14.9f);
+		s.putDouble(16, -0.125);
+		
+		assertEquals( -7, s.getByte(0) );
+		assertEquals( -1234, s.getShort(1) );
+		assertEquals( 0x12345678, s.getInt(3) );
+		assertEquals( -1234567890123L, s.getLong(7) );
+		assertEquals( -0.125, s.getDouble(16), 0 );
+		
+		// values are stored big-endian.
+		assertArrayEquals( new byte[] {0x12, 0x34, 0x56, 0x78}, s.get(3, 4) );
+		
+		s.putFloat(16, 14.9f);
+		
+		assertEquals( 14.9f, s.getFloat(16), 0 );
+	}
+	
+	protected void testOrder(Store s)
+	{
+		assertTrue( s.capacity() >= 16 );
+		assertEquals( ByteOrder.BIG_ENDIAN, s.getOrder() );
+		
+		s.setOrder(ByteOrder.LITTLE_ENDIAN);
+		s.putInt(0, 0x12345678);
+		s.putLong(8, 0x0102030405060708L);
+		
+		assertEquals( ByteOrder.LITTLE_ENDIAN, s.getOrder() );
+		assertArrayEquals( new byte[] {0x78, 0x56, 0x34, 0x12}, s.get(0, 4) );
+		assertEquals( 0x12345678, s.getInt(0) );
+		assertEquals( 0x0102030405060708L, s.getLong(8) );
+		
+		// the order survives reopening the store.
+		s.close();
+		s.open(StoreAccess.ReadWrite);
+		
+		assertEquals( 0x12345678, s.getInt(0) );
+		
+		s.setOrder(ByteOrder.BIG_ENDIAN);
+		
+		assertEquals( 0x78563412, s.getInt(0) );
+	}
+	
+	protected void testBounds(Store s)
+	{
+		assertEquals( 100, s.capacity() );
+		
+		// reads and writes past the end fail instead of wrapping or spinning.
+		try {
+			s.get(90, new byte[20]);
+			fail();
+		}
+		catch (IndexOutOfBoundsException e) {
+		}
+		try {
+			s.put(95, ByteBuffer.allocate(8));
+			fail();
+		}
+		catch (IndexOutOfBoundsException e) {
+		}
+		try {
+			s.getLong(96);
+			fail();
+		}
+		catch (IndexOutOfBoundsException e) {
+		}
+		try {
+			s.get(1L << 32, new byte[4]);
+			fail();
+		}
+		catch (IndexOutOfBoundsException e) {
+		}
+		
+		s.put(92, new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+		assertArrayEquals( new byte[] {1, 2, 3, 4, 5, 6, 7, 8}, s.get(92, 8) );
+	}
+
 }
@@ -0,0 +1,71 @@
+/* 
+ * NOTICE OF LICENSE
+ * 
+ * This source file is subject to the Open Software License (OSL 3.0) that is 
+ * bundled with this package in the file LICENSE.txt. It is also available 
+ * through the world-wide-web at http://opensource.org/licenses/osl-3.0.php
+ * If you did not receive a copy of the license and are unable to obtain it 
+ * through the world-wide-web, please send an email to pdiffenderfer@gmail.com 
+ * so we can send you a copy immediately. If you use any of this software please
+ * notify me via my website or email, your feedback is much appreciated. 
+ * 
+ * @copyright   Copyright (c) 2011 Magnos Software (http://www.magnos.org)
+ * @license     http://opensource.org/licenses/osl-3.0.php
+ * 				Open Software License (OSL 3.0)
+ */
+
+package org.magnos.data;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteOrder;
+
+import org.junit.Test;
+import org.magnos.data.error.StoreIOException;
+import org.magnos.data.store.MemoryStore;
+import org.magnos.data.store.factory.MemoryStoreFactory;
+import org.magnos.data.var.IntVar;
+import org.magnos.test.BaseTest;
+
+
+public class TestStoreHeader extends BaseTest 
+{
+
+	@Test
+	public void testWriteRead()
+	{
+		Store store = new MemoryStoreFactory().create("testWriteRead", 16, ByteOrder.LITTLE_ENDIAN);
+		store.open(StoreAccess.ReadWrite);
+		
+		assertFalse( StoreHeader.exists(store, 0) );
+		
+		StoreHeader header = new StoreHeader(store);
+		header.write();
+		
+		IntVar var = new IntVar(store, StoreHeader.SIZE, 0x12345678);
+		var.write();
+		
+		assertTrue( StoreHeader.exists(store, 0) );
+		assertArrayEquals( new byte[] {0x78, 0x56, 0x34, 0x12}, store.get(StoreHeader.SIZE, 4) );
+		
+		// reading the header restores the order of the store.
+		store.setOrder(ByteOrder.BIG_ENDIAN);
+		
+		StoreHeader read = new StoreHeader(store);
+		read.read();
+		
+		assertEquals( ByteOrder.LITTLE_ENDIAN, read.getOrder() );
+		assertEquals( ByteOrder.LITTLE_ENDIAN, store.getOrder() );
+		assertEquals( 0x12345678, var.take() );
+	}
+	
+	@Test(expected = StoreIOException.class)
+	public void testInvalid()
+	{
+		Store store = new MemoryStore("testInvalid", 16);
+		store.open(StoreAccess.ReadWrite);
+		
+		new StoreHeader(store).read();
+	}
+	
+}
@@ -0,0 +1,165 @@
+/* 
+ * NOTICE OF LICENSE
+ * 
+ * This source file is subject to the Open Software License (OSL 3.0) that is 
+ * bundled with this package in the file LICENSE.txt. It is also available 
+ * through the world-wide-web at http://opensource.org/licenses/osl-3.0.php
+ * If you did not receive a copy of the license and are unable to obtain it 
+ * through the world-wide-web, please send an email to pdiffenderfer@gmail.com 
+ * so we can send you a copy immediately. If you use any of this software please
+ * notify me via my website or email, your feedback is much appreciated. 
+ * 
+ * @copyright   Copyright (c) 2011 Magnos Software (http://www.magnos.org)
+ * @license     http://opensource.org/licenses/osl-3.0.php
+ * 				Open Software License (OSL 3.0)
+ */
+
+package org.magnos.data.flyweight;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.junit.Test;
+import org.magnos.data.Store;
+import org.magnos.data.StoreAccess;
+import org.magnos.data.store.MemoryStore;
+import org.magnos.data.var.IntVar;
+import org.magnos.data.var.StringVar;
+import org.magnos.test.BaseTest;
+
+
+public class TestFlyweightProcessor extends BaseTest 
+{
+	
+	private final File dir = new File(System.getProperty("java.io.tmpdir"), "flyweight" + System.nanoTime());
+	
+	@Test
+	public void testGenerate() throws Exception
+	{
+		String source = 
+			"package test;\n" +
+			"import org.magnos.data.flyweight.*;\n" +
+			"@Flyweight\n" +
+			"public interface Point {\n" +
+			"  @Field int getId();\n" +
+			"  void setId(int id);\n" +
+			"  @Field double getX();\n" +
+			"  void setX(double x);\n" +
+			"  @Field boolean isVisible();\n" +
+			"  void setVisible(boolean visible);\n" +
+			"  @Field(length = 8) String getLabel();\n" +
+			"  void setLabel(String label);\n" +
+			"  @Field(offset = 32) char getCode();\n" +
+			"}\n";
+		
+		try {
+			testPoint(source);
+		}
+		finally {
+			delete(dir);
+		}
+	}
+	
+	private void testPoint(String source) throws Exception
+	{
+		assertEquals( "", compile("test/Point.java", source) );
+		
+		ClassLoader loader = new URLClassLoader(new URL[] {dir.toURI().toURL()}, getClass().getClassLoader());
+		Class<?> type = loader.loadClass("test.PointFlyweight");
+		
+		assertEquals( 34L, type.getField("SIZE").getLong(null) );
+		assertEquals( 4L, type.getField("OFFSET_X").getLong(null) );
+		assertEquals( 13L, type.getField("OFFSET_LABEL").getLong(null) );
+		
+		Store store = new MemoryStore("temporary", 68);
+		store.open(StoreAccess.ReadWrite);
+		store.putShort(34 + 32, (short)'z');
+		
+		Object point = type.getConstructor(Store.class, long.class).newInstance(store, 34L);
+		type.getMethod("setId", int.class).invoke(point, 42);
+		type.getMethod("setX", double.class).invoke(point, 1.5);
+		type.getMethod("setVisible", boolean.class).invoke(point, true);
+		type.getMethod("setLabel", String.class).invoke(point, "flyweight");
+		
+		assertEquals( 42, type.getMethod("getId").invoke(point) );
+		assertEquals( 1.5, type.getMethod("getX").invoke(point) );
+		assertEquals( true, type.getMethod("isVisible").invoke(point) );
+		assertEquals( "flyweigh", type.getMethod("getLabel").invoke(point) );
+		assertEquals( 'z', type.getMethod("getCode").invoke(point) );
+		
+		// The layout matches the equivalent vars.
+		assertEquals( 42, new IntVar(store, 34).take() );
+		assertEquals( "flyweigh", new StringVar(8, store, 34 + 13).take() );
+		
+		// The same flyweight moves to another record.
+		Method moveTo = type.getMethod("moveTo", long.class);
+		moveTo.invoke(point, 0L);
+		assertEquals( 0, type.getMethod("getId").invoke(point) );
+		assertEquals( "", type.getMethod("getLabel").invoke(point) );
+	}
+	
+	@Test
+	public void testInvalid() throws Exception
+	{
+		String source = 
+			"package test;\n" +
+			"import org.magnos.data.flyweight.*;\n" +
+			"@Flyweight\n" +
+			"public interface Broken {\n" +
+			"  @Field String getName();\n" +
+			"  void run();\n" +
+			"}\n";
+		
+		String errors = null;
+		try {
+			errors = compile("test/Broken.java", source);
+		}
+		finally {
+			delete(dir);
+		}
+		
+		assertTrue( errors.contains("A String @Field must have a length") );
+		assertTrue( errors.contains("must be a @Field getter or a setter") );
+	}
+	
+	private String compile(String path, String source) throws IOException 
+	{
+		File file = new File(dir, path);
+		file.getParentFile().mkdirs();
+		FileWriter writer = new FileWriter(file);
+		writer.write(source);
+		writer.close();
+		
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		StringWriter errors = new StringWriter();
+		compiler.getTask(errors, null, null, Arrays.asList(
+			"-processor", FlyweightProcessor.class.getName(), 
+			"-classpath", System.getProperty("java.class.path"),
+			"-d", dir.getPath()), 
+			null, compiler.getStandardFileManager(null, null, null).getJavaFileObjects(file)).call();
+		return errors.toString();
+	}
+	
+	private void delete(File file) 
+	{
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+	
+}
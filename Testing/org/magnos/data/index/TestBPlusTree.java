@@ -0,0 +1,288 @@
+/* 
+ * NOTICE OF LICENSE
+ * 
+ * This source file is subject to the Open Software License (OSL 3.0) that is 
+ * bundled with this package in the file LICENSE.txt. It is also available 
+ * through the world-wide-web at http://opensource.org/licenses/osl-3.0.php
+ * If you did not receive a copy of the license and are unable to obtain it 
+ * through the world-wide-web, please send an email to pdiffenderfer@gmail.com 
+ * so we can send you a copy immediately. If you use any of this software please
+ * notify me via my website or email, your feedback is much appreciated. 
+ * 
+ * @copyright   Copyright (c) 2011 Magnos Software (http://www.magnos.org)
+ * @license     http://opensource.org/licenses/osl-3.0.php
+ * 				Open Software License (OSL 3.0)
+ */
+
+package org.magnos.data.index;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.magnos.data.Store;
+import org.magnos.data.StoreAccess;
+import org.magnos.data.error.StoreIOException;
+import org.magnos.data.store.MemoryStore;
+import org.magnos.test.BaseTest;
+
+
+public class TestBPlusTree extends BaseTest 
+{
+
+	@Test
+	public void testGetPut() 
+	{
+		BPlusTree tree = new BPlusTree(new MemoryStore("temporary", StoreAccess.ReadWrite, 0), 8);
+		
+		assertNull( tree.get(BPlusTree.keyOf(4L)) );
+		assertTrue( tree.put(BPlusTree.keyOf(4L), 40) );
+		assertTrue( tree.put(BPlusTree.keyOf(-2L), 20) );
+		assertFalse( tree.put(BPlusTree.keyOf(4L), 44) );
+		
+		assertEquals( 2, tree.size() );
+		assertEquals( 1, tree.getHeight() );
+		assertEquals( Long.valueOf(44), tree.get(BPlusTree.keyOf(4L)) );
+		assertEquals( Long.valueOf(20), tree.get(BPlusTree.keyOf(-2L)) );
+		assertNull( tree.get(BPlusTree.keyOf(3L)) );
+	}
+	
+	@Test
+	public void testSplits() 
+	{
+		BPlusTree tree = new BPlusTree(new MemoryStore("temporary", StoreAccess.ReadWrite, 0), 0, 4, 64);
+		assertEquals( 4, tree.getMaxEntries() );
+		
+		for (int i = 0; i < 500; i++) {
+			int x = (i * 7919) % 500;
+			assertTrue( tree.put(BPlusTree.keyOf(x), x * 10) );
+		}
+		
+		assertEquals( 500, tree.size() );
+		assertTrue( tree.getHeight() > 3 );
+		for (int x = 0; x < 500; x++) {
+			assertEquals( Long.valueOf(x * 10), tree.get(BPlusTree.keyOf(x)) );
+		}
+		assertNull( tree.get(BPlusTree.keyOf(500)) );
+		assertNull( tree.get(BPlusTree.keyOf(-1)) );
+	}
+	
+	@Test
+	public void testRange() 
+	{
+		BPlusTree tree = new BPlusTree(new MemoryStore("temporary", StoreAccess.ReadWrite, 0), 0, 4, 64);
+		for (int x = 99; x >= 0; x--) {
+			tree.put(BPlusTree.keyOf(x * 2), x);
+		}
+		
+		BPlusTree.Cursor cursor = tree.range(BPlusTree.keyOf(21), BPlusTree.keyOf(60));
+		for (int x = 11; x < 30; x++) {
+			assertTrue( cursor.next() );
+			assertEquals( x, cursor.getValue() );
+			assertArrayEquals( BPlusTree.keyOf(x * 2), cursor.getKey() );
+		}
+		assertFalse( cursor.next() );
+		assertFalse( cursor.next() );
+		
+		int count = 0;
+		cursor = tree.range(null, null);
+		while (cursor.next()) {
+			assertEquals( count++, cursor.getValue() );
+		}
+		assertEquals( 100, count );
+		
+		assertFalse( tree.range(BPlusTree.keyOf(500), null).next() );
+	}
+	
+	@Test
+	public void testBulkLoad() 
+	{
+		BPlusTree tree = new BPlusTree(new MemoryStore("temporary", StoreAccess.ReadWrite, 0), 0, 4, 64);
+		byte[][] keys = new byte[1000][];
+		long[] values = new long[1000];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = BPlusTree.keyOf(i - 500);
+			values[i] = i;
+		}
+		tree.bulkLoad(keys, values);
+		
+		assertEquals( 1000, tree.size() );
+		assertEquals( 1 + 250 + 50 + 10 + 2 + 1, tree.getPageCount() );
+		assertEquals( 5, tree.getHeight() );
+		for (int i = 0; i < keys.length; i++) {
+			assertEquals( Long.valueOf(i), tree.get(keys[i]) );
+		}
+		
+		BPlusTree.Cursor cursor = tree.range(null, null);
+		for (int i = 0; i < keys.length; i++) {
+			assertTrue( cursor.next() );
+			assertEquals( i, cursor.getValue() );
+		}
+		assertFalse( cursor.next() );
+		
+		assertTrue( tree.put(BPlusTree.keyOf(1000), 1000) );
+		assertEquals( Long.valueOf(1000), tree.get(BPlusTree.keyOf(1000)) );
+	}
+	
+	@Test
+	public void testBulkLoadUnsorted() 
+	{
+		BPlusTree tree = new BPlusTree(new MemoryStore("temporary", StoreAccess.ReadWrite, 0), 0, 4, 64);
+		try {
+			tree.bulkLoad(new byte[][] {BPlusTree.keyOf(2), BPlusTree.keyOf(1)}, new long[2]);
+			fail();
+		}
+		catch (IllegalArgumentException e) {
+		}
+		
+		tree.put(BPlusTree.keyOf(1), 1);
+		try {
+			tree.bulkLoad(new byte[][] {BPlusTree.keyOf(2)}, new long[1]);
+			fail();
+		}
+		catch (IllegalStateException e) {
+		}
+	}
+	
+	@Test
+	public void testRemove() 
+	{
+		BPlusTree tree = new BPlusTree(new MemoryStore("temporary", StoreAccess.ReadWrite, 0), 0, 4, 64);
+		for (int x = 0; x < 100; x++) {
+			tree.put(BPlusTree.keyOf(x), x);
+		}
+		for (int x = 0; x < 100; x += 2) {
+			assertTrue( tree.remove(BPlusTree.keyOf(x)) );
+		}
+		assertFalse( tree.remove(BPlusTree.keyOf(0)) );
+		
+		assertEquals( 50, tree.size() );
+		for (int x = 0; x < 100; x++) {
+			assertEquals( x % 2 == 0 ? null : Long.valueOf(x), tree.get(BPlusTree.keyOf(x)) );
+		}
+		
+		int count = 0;
+		BPlusTree.Cursor cursor = tree.range(null, null);
+		while (cursor.next()) {
+			assertEquals( count * 2 + 1, cursor.getValue() );
+			count++;
+		}
+		assertEquals( 50, count );
+	}
+	
+	@Test
+	public void testReopen() 
+	{
+		Store store = new MemoryStore("temporary", StoreAccess.ReadWrite, 0);
+		BPlusTree tree = new BPlusTree(store, 16, 8, 128);
+		for (long x = 0; x < 200; x++) {
+			tree.put(BPlusTree.keyOf(x), -x);
+		}
+		
+		BPlusTree reopened = new BPlusTree(store, 16, 8, 128);
+		assertEquals( 200, reopened.size() );
+		assertEquals( tree.getHeight(), reopened.getHeight() );
+		assertEquals( tree.getPageCount(), reopened.getPageCount() );
+		assertEquals( Long.valueOf(-150), reopened.get(BPlusTree.keyOf(150L)) );
+		
+		try {
+			new BPlusTree(store, 16, 4, 128);
+			fail();
+		}
+		catch (StoreIOException e) {
+		}
+	}
+	
+	@Test
+	public void testRemoveAllAndRefill() 
+	{
+		BPlusTree tree = new BPlusTree(new MemoryStore("temporary", StoreAccess.ReadWrite, 0), 0, 4, 64);
+		for (int x = 0; x < 500; x++) {
+			tree.put(BPlusTree.keyOf(x), x);
+		}
+		for (int i = 0; i < 500; i++) {
+			assertTrue( tree.remove(BPlusTree.keyOf((i * 7919) % 500)) );
+		}
+		
+		assertEquals( 0, tree.size() );
+		assertFalse( tree.range(null, null).next() );
+		
+		// Keys between the removed ones are put into the emptied tree.
+		for (int x = 499; x >= 0; x--) {
+			assertTrue( tree.put(BPlusTree.keyOf(x * 2 + 1), x) );
+		}
+		
+		assertEquals( 500, tree.size() );
+		BPlusTree.Cursor cursor = tree.range(null, null);
+		for (int x = 0; x < 500; x++) {
+			assertTrue( cursor.next() );
+			assertEquals( x, cursor.getValue() );
+		}
+		assertFalse( cursor.next() );
+		assertNull( tree.get(BPlusTree.keyOf(2)) );
+	}
+	
+	@Test
+	public void testWrongKeySize() 
+	{
+		BPlusTree tree = new BPlusTree(new MemoryStore("temporary", StoreAccess.ReadWrite, 0), 8);
+		tree.put(BPlusTree.keyOf(1L), 1);
+		byte[] shortKey = BPlusTree.keyOf(1);
+		
+		try {
+			tree.get(shortKey);
+			fail();
+		}
+		catch (IllegalArgumentException e) {
+		}
+		try {
+			tree.put(shortKey, 2);
+			fail();
+		}
+		catch (IllegalArgumentException e) {
+		}
+		try {
+			tree.remove(shortKey);
+			fail();
+		}
+		catch (IllegalArgumentException e) {
+		}
+		try {
+			tree.range(null, shortKey);
+			fail();
+		}
+		catch (IllegalArgumentException e) {
+		}
+		
+		assertEquals( 1, tree.size() );
+		assertEquals( Long.valueOf(1), tree.get(BPlusTree.keyOf(1L)) );
+	}
+	
+	@Test
+	public void testBadLayout() 
+	{
+		Store store = new MemoryStore("temporary", StoreAccess.ReadWrite, 0);
+		try {
+			new BPlusTree(store, 0, 0, 64);
+			fail();
+		}
+		catch (IllegalArgumentException e) {
+		}
+		try {
+			new BPlusTree(store, 0, 8, 32);
+			fail();
+		}
+		catch (IllegalArgumentException e) {
+		}
+		
+		BPlusTree tree = new BPlusTree(store, 0, 4, 64);
+		try {
+			tree.bulkLoad(new byte[][] {BPlusTree.keyOf(1)}, new long[2]);
+			fail();
+		}
+		catch (IllegalArgumentException e) {
+		}
+		
+		assertEquals( 0, tree.size() );
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,253 @@
+/* 
+ * NOTICE OF LICENSE
+ * 
+ * This source file is subject to the Open Software License (OSL 3.0) that is 
+ * bundled with this package in the file LICENSE.txt. It is also available 
+ * through the world-wide-web at http://opensource.org/licenses/osl-3.0.php
+ * If you did not receive a copy of the license and are unable to obtain it 
+ * through the world-wide-web, please send an email to pdiffenderfer@gmail.com 
+ * so we can send you a copy immediately. If you use any of this software please
+ * notify me via my website or email, your feedback is much appreciated. 
+ * 
+ * @copyright   Copyright (c) 2011 Magnos Software (http://www.magnos.org)
+ * @license     http://opensource.org/licenses/osl-3.0.php
+ * 				Open Software License (OSL 3.0)
+ */
+
+package org.magnos.data.index;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.magnos.data.Store;
+import org.magnos.data.StoreAccess;
+import org.magnos.data.error.StoreIOException;
+import org.magnos.data.store.MemoryStore;
+import org.magnos.test.BaseTest;
+
+
+public class TestHashIndex extends BaseTest 
+{
+
+	@Test
+	public void testGetPut() 
+	{
+		HashIndex index = new HashIndex(new MemoryStore("temporary", StoreAccess.ReadWrite, 0), 8);
+		
+		assertEquals( 24, index.getSlotSize() );
+		assertEquals( -1, index.get(BPlusTree.keyOf(4L), -1) );
+		assertTrue( index.put(BPlusTree.keyOf(4L), 40) );
+		assertTrue( index.put(BPlusTree.keyOf(-2L), 20) );
+		assertFalse( index.put(BPlusTree.keyOf(4L), 44) );
+		
+		assertEquals( 2, index.size() );
+		assertEquals( 44, index.get(BPlusTree.keyOf(4L), -1) );
+		assertEquals( 20, index.get(BPlusTree.keyOf(-2L), -1) );
+		assertTrue( index.containsKey(BPlusTree.keyOf(-2L)) );
+		assertFalse( index.containsKey(BPlusTree.keyOf(3L)) );
+	}
+	
+	@Test
+	public void testIncrementalResize() 
+	{
+		HashIndex index = new HashIndex(new MemoryStore("temporary", StoreAccess.ReadWrite, 0), 0, 4, 32);
+		assertEquals( 32, index.capacity() );
+		
+		for (int x = 0; x < 24; x++) {
+			index.put(BPlusTree.keyOf(x), x);
+		}
+		assertFalse( index.isResizing() );
+		
+		index.put(BPlusTree.keyOf(24), 24);
+		assertTrue( index.isResizing() );
+		assertEquals( 64, index.capacity() );
+		for (int x = 0; x <= 24; x++) {
+			assertEquals( x, index.get(BPlusTree.keyOf(x), -1) );
+		}
+		
+		// Changes during the resize see both tables.
+		assertFalse( index.put(BPlusTree.keyOf(21), 111) );
+		assertTrue( index.remove(BPlusTree.keyOf(10)) );
+		assertTrue( index.isResizing() );
+		assertEquals( 24, index.size() );
+		
+		index.put(BPlusTree.keyOf(25), 25);
+		assertFalse( index.isResizing() );
+		assertEquals( 111, index.get(BPlusTree.keyOf(21), -1) );
+		assertEquals( -1, index.get(BPlusTree.keyOf(10), -1) );
+		assertEquals( 25, index.size() );
+	}
+	
+	@Test
+	public void testClearOldBytes() 
+	{
+		// Bytes left in the store look like full slots until cleared, the
+		// resized table lies partly within them and partly past the end.
+		Store store = new MemoryStore("temporary", StoreAccess.ReadWrite, 0);
+		store.capacity(1000);
+		byte[] garbage = new byte[1000];
+		Arrays.fill(garbage, (byte)1);
+		store.put(0, garbage);
+		
+		HashIndex index = new HashIndex(store, 0, 4, 32);
+		for (int x = 0; x < 40; x++) {
+			assertTrue( index.put(BPlusTree.keyOf(x), x) );
+		}
+		assertEquals( 64, index.capacity() );
+		assertEquals( 40, index.size() );
+		for (int x = 0; x < 40; x++) {
+			assertEquals( x, index.get(BPlusTree.keyOf(x), -1) );
+		}
+		assertEquals( -1, index.get(BPlusTree.keyOf(0x01010101), -1) );
+	}
+	
+	@Test
+	public void testMany() 
+	{
+		HashIndex index = new HashIndex(new MemoryStore("temporary", StoreAccess.ReadWrite, 0), 0, 4, 2);
+		for (int x = 0; x < 5000; x++) {
+			assertTrue( index.put(BPlusTree.keyOf(x * 31), x) );
+		}
+		for (int x = 0; x < 5000; x += 3) {
+			assertTrue( index.remove(BPlusTree.keyOf(x * 31)) );
+		}
+		assertFalse( index.remove(BPlusTree.keyOf(0)) );
+		
+		assertEquals( 5000 - 1667, index.size() );
+		for (int x = 0; x < 5000; x++) {
+			assertEquals( x % 3 == 0 ? -1 : x, index.get(BPlusTree.keyOf(x * 31), -1) );
+		}
+	}
+	
+	@Test
+	public void testReopen() 
+	{
+		Store store = new MemoryStore("temporary", StoreAccess.ReadWrite, 0);
+		HashIndex index = new HashIndex(store, 8, 8, 32);
+		for (long x = 0; x < 25; x++) {
+			index.put(BPlusTree.keyOf(x), -x);
+		}
+		assertTrue( index.isResizing() );
+		
+		HashIndex reopened = new HashIndex(store, 8, 8, 32);
+		assertTrue( reopened.isResizing() );
+		assertEquals( 25, reopened.size() );
+		assertEquals( 64, reopened.capacity() );
+		for (long x = 0; x < 25; x++) {
+			assertEquals( -x, reopened.get(BPlusTree.keyOf(x), 1) );
+		}
+		
+		try {
+			new HashIndex(store, 8, 4, 32);
+			fail();
+		}
+		catch (StoreIOException e) {
+		}
+	}
+	
+	@Test
+	public void testCompact() 
+	{
+		Store store = new MemoryStore("temporary", StoreAccess.ReadWrite, 0);
+		HashIndex index = new HashIndex(store, 0, 4, 2);
+		
+		// Compacting after each resize keeps the store within three tables.
+		for (int x = 0; x < 5000; x++) {
+			boolean resizing = index.isResizing();
+			index.put(BPlusTree.keyOf(x), x);
+			if (resizing && !index.isResizing()) {
+				assertTrue( index.compact() > 0 );
+				assertEquals( HashIndex.HEADER_SIZE + index.capacity() * index.getSlotSize(), store.capacity() );
+			}
+			assertTrue( store.capacity() <= HashIndex.HEADER_SIZE + 3 * index.capacity() * index.getSlotSize() );
+		}
+		
+		// A resize in progress is finished first.
+		int keys = 5000;
+		while (!index.isResizing()) {
+			index.put(BPlusTree.keyOf(keys), keys);
+			keys++;
+		}
+		index.remove(BPlusTree.keyOf(7));
+		index.compact();
+		
+		assertFalse( index.isResizing() );
+		assertEquals( 0, index.compact() );
+		assertEquals( HashIndex.HEADER_SIZE + index.capacity() * index.getSlotSize(), store.capacity() );
+		
+		HashIndex reopened = new HashIndex(store, 0, 4, 2);
+		assertEquals( keys - 1, reopened.size() );
+		for (int x = 0; x < keys; x++) {
+			assertEquals( x == 7 ? -1 : x, reopened.get(BPlusTree.keyOf(x), -1) );
+		}
+	}
+	
+	@Test
+	public void testReplaceDuringResize() 
+	{
+		Store store = new MemoryStore("temporary", StoreAccess.ReadWrite, 0);
+		HashIndex index = new HashIndex(store, 0, 4, 32);
+		for (int x = 0; x < 25; x++) {
+			index.put(BPlusTree.keyOf(x), x);
+		}
+		assertTrue( index.isResizing() );
+		
+		// Replacing values only moves the old table, which must be saved.
+		for (int i = 0; index.isResizing(); i++) {
+			assertFalse( index.put(BPlusTree.keyOf(i % 25), -i) );
+		}
+		
+		HashIndex reopened = new HashIndex(store, 0, 4, 32);
+		assertFalse( reopened.isResizing() );
+		assertEquals( 25, reopened.size() );
+		for (int x = 0; x < 25; x++) {
+			assertEquals( index.get(BPlusTree.keyOf(x), 1), reopened.get(BPlusTree.keyOf(x), 1) );
+		}
+	}
+	
+	@Test
+	public void testMisuse() 
+	{
+		Store store = new MemoryStore("temporary", StoreAccess.ReadWrite, 0);
+		try {
+			new HashIndex(store, 0, 0, 32);
+			fail();
+		}
+		catch (IllegalArgumentException e) {
+		}
+		try {
+			new HashIndex(store, 0, 4, 0);
+			fail();
+		}
+		catch (IllegalArgumentException e) {
+		}
+		
+		HashIndex index = new HashIndex(store, 0, 4, 32);
+		index.put(BPlusTree.keyOf(1), 1);
+		byte[] longKey = BPlusTree.keyOf(1L);
+		try {
+			index.put(longKey, 2);
+			fail();
+		}
+		catch (IllegalArgumentException e) {
+		}
+		try {
+			index.get(longKey, -1);
+			fail();
+		}
+		catch (IllegalArgumentException e) {
+		}
+		try {
+			index.remove(longKey);
+			fail();
+		}
+		catch (IllegalArgumentException e) {
+		}
+		
+		assertEquals( 1, index.size() );
+		assertEquals( 1, index.get(BPlusTree.keyOf(1), -1) );
+	}
+	
+}
\ No newline at end of file
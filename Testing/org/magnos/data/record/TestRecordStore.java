@@ -0,0 +1,243 @@
+/* 
+ * NOTICE OF LICENSE
+ * 
+ * This source file is subject to the Open Software License (OSL 3.0) that is 
+ * bundled with this package in the file LICENSE.txt. It is also available 
+ * through the world-wide-web at http://opensource.org/licenses/osl-3.0.php
+ * If you did not receive a copy of the license and are unable to obtain it 
+ * through the world-wide-web, please send an email to pdiffenderfer@gmail.com 
+ * so we can send you a copy immediately. If you use any of this software please
+ * notify me via my website or email, your feedback is much appreciated. 
+ * 
+ * @copyright   Copyright (c) 2011 Magnos Software (http://www.magnos.org)
+ * @license     http://opensource.org/licenses/osl-3.0.php
+ * 				Open Software License (OSL 3.0)
+ */
+
+package org.magnos.data.record;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.magnos.data.DataSet;
+import org.magnos.data.Store;
+import org.magnos.data.StoreAccess;
+import org.magnos.data.error.StoreIOException;
+import org.magnos.data.store.MemoryStore;
+import org.magnos.data.var.IntVar;
+import org.magnos.data.var.LongVar;
+import org.magnos.test.BaseTest;
+
+
+public class TestRecordStore extends BaseTest 
+{
+
+	@Test
+	public void testAllocate() 
+	{
+		Store store = new MemoryStore("temporary", StoreAccess.ReadWrite, 0);
+		RecordStore records = new RecordStore(store, 0, 12, 100);
+		
+		assertEquals( 0, records.allocate() );
+		assertEquals( 1, records.allocate() );
+		assertEquals( 2, records.getAllocated() );
+		assertEquals( 2, records.getLive() );
+		assertEquals( 100, records.getCapacity() );
+		assertEquals( RecordStore.HEADER_SIZE + 1200, store.capacity() );
+		assertEquals( RecordStore.HEADER_SIZE + 12, records.getLocation(1) );
+	}
+	
+	@Test
+	public void testGrowInChunks() 
+	{
+		Store store = new MemoryStore("temporary", StoreAccess.ReadWrite, 0);
+		RecordStore records = new RecordStore(store, 0, 8, 16);
+		
+		long resizes = 0;
+		long capacity = store.capacity();
+		for (int i = 0; i < 10000; i++) {
+			records.allocate();
+			if (store.capacity() != capacity) {
+				capacity = store.capacity();
+				resizes++;
+			}
+		}
+		assertTrue( records.getCapacity() >= 10000 );
+		assertTrue( resizes < 20 );
+	}
+	
+	@Test
+	public void testFreeReuses() 
+	{
+		RecordStore records = new RecordStore(new MemoryStore("temporary", StoreAccess.ReadWrite, 0), 16);
+		
+		long a = records.allocate();
+		long b = records.allocate();
+		long c = records.allocate();
+		
+		LongVar var = records.bind(new LongVar(), b);
+		var.put(77L);
+		
+		records.free(b);
+		records.free(a);
+		assertEquals( 1, records.getLive() );
+		
+		// The most recently freed record is allocated first, and zeroed.
+		assertEquals( a, records.allocate() );
+		assertEquals( b, records.allocate() );
+		assertEquals( 0L, var.take() );
+		assertEquals( c + 1, records.allocate() );
+	}
+	
+	@Test
+	public void testReopen() 
+	{
+		Store store = new MemoryStore("temporary", StoreAccess.ReadWrite, 0);
+		RecordStore records1 = new RecordStore(store, 8, 8, 4);
+		records1.allocate();
+		long b = records1.allocate();
+		records1.allocate();
+		records1.bind(new IntVar(), 0).put(5);
+		records1.free(b);
+		
+		RecordStore records2 = new RecordStore(store, 8, 8, 4);
+		assertEquals( 3, records2.getAllocated() );
+		assertEquals( 2, records2.getLive() );
+		assertEquals( 5, records2.bind(new IntVar(), 0).take() );
+		assertEquals( b, records2.allocate() );
+		assertEquals( 3, records2.allocate() );
+	}
+	
+	@Test(expected = StoreIOException.class)
+	public void testWrongRecordSize() 
+	{
+		Store store = new MemoryStore("temporary", StoreAccess.ReadWrite, 0);
+		new RecordStore(store, 16);
+		new RecordStore(store, 24);
+	}
+	
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testFreeUnallocated() 
+	{
+		new RecordStore(new MemoryStore("temporary", StoreAccess.ReadWrite, 0), 16).free(0);
+	}
+	
+	@Test
+	public void testDoubleFree() 
+	{
+		RecordStore records = new RecordStore(new MemoryStore("temporary", StoreAccess.ReadWrite, 0), 8);
+		long a = records.allocate();
+		long b = records.allocate();
+		records.free(a);
+		records.free(b);
+		
+		// The head of the free list and a record deeper in it are both rejected.
+		try {
+			records.free(b);
+			fail();
+		}
+		catch (IllegalStateException e) {
+		}
+		try {
+			records.free(a);
+			fail();
+		}
+		catch (IllegalStateException e) {
+		}
+		
+		assertTrue( records.isFree(a) );
+		assertEquals( 0, records.getLive() );
+		assertEquals( b, records.allocate() );
+		assertEquals( a, records.allocate() );
+		assertEquals( 2, records.allocate() );
+		assertFalse( records.isFree(a) );
+		assertEquals( 3, records.getLive() );
+	}
+	
+	@Test
+	public void testDoubleFreeAfterReopen() 
+	{
+		Store store = new MemoryStore("temporary", StoreAccess.ReadWrite, 0);
+		RecordStore records1 = new RecordStore(store, 8);
+		for (int i = 0; i < 100; i++) {
+			records1.allocate();
+		}
+		for (int i = 0; i < 100; i += 3) {
+			records1.free(i);
+		}
+		
+		RecordStore records2 = new RecordStore(store, 8);
+		for (int i = 0; i < 100; i++) {
+			assertEquals( i % 3 == 0, records2.isFree(i) );
+		}
+		try {
+			records2.free(99);
+			fail();
+		}
+		catch (IllegalStateException e) {
+		}
+		assertEquals( 66, records2.getLive() );
+	}
+	
+	@Test
+	public void testFragmented() 
+	{
+		RecordStore records = new RecordStore(new MemoryStore("temporary", StoreAccess.ReadWrite, 0), 0, 16, 8);
+		for (int i = 0; i < 64; i++) {
+			records.bind(new LongVar(), records.allocate()).put(i);
+		}
+		for (int i = 1; i < 64; i += 2) {
+			records.free(i);
+		}
+		long capacity = records.getCapacity();
+		
+		// Every freed record is reused before the store grows, and the others are untouched.
+		boolean[] reused = new boolean[64];
+		for (int i = 0; i < 32; i++) {
+			long id = records.allocate();
+			assertEquals( 1, id % 2 );
+			assertFalse( reused[(int)id] );
+			reused[(int)id] = true;
+		}
+		assertEquals( capacity, records.getCapacity() );
+		assertEquals( 64, records.allocate() );
+		for (int i = 0; i < 64; i += 2) {
+			assertEquals( (long)i, records.bind(new LongVar(), i).take() );
+		}
+	}
+	
+	@Test(expected = StoreIOException.class)
+	public void testCorruptFreeList() 
+	{
+		Store store = new MemoryStore("temporary", StoreAccess.ReadWrite, 0);
+		RecordStore records = new RecordStore(store, 8);
+		long a = records.allocate();
+		records.allocate();
+		records.free(a);
+		
+		// A free record which links to itself is caught when opened.
+		store.putLong(records.getLocation(a), a);
+		new RecordStore(store, 8);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testRecordTooSmall() 
+	{
+		new RecordStore(new MemoryStore("temporary", StoreAccess.ReadWrite, 0), RecordStore.MIN_RECORD_SIZE - 1);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoGrowth() 
+	{
+		new RecordStore(new MemoryStore("temporary", StoreAccess.ReadWrite, 0), 0, 8, 0);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testBindTooLarge() 
+	{
+		RecordStore records = new RecordStore(new MemoryStore("temporary", StoreAccess.ReadWrite, 0), 8);
+		records.bind(new IntVar(), records.allocate());
+		records.bind(new DataSet(9), 0);
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,237 @@
+/* 
+ * NOTICE OF LICENSE
+ * 
+ * This source file is subject to the Open Software License (OSL 3.0) that is 
+ * bundled with this package in the file LICENSE.txt. It is also available 
+ * through the world-wide-web at http://opensource.org/licenses/osl-3.0.php
+ * If you did not receive a copy of the license and are unable to obtain it 
+ * through the world-wide-web, please send an email to pdiffenderfer@gmail.com 
+ * so we can send you a copy immediately. If you use any of this software please
+ * notify me via my website or email, your feedback is much appreciated. 
+ * 
+ * @copyright   Copyright (c) 2011 Magnos Software (http://www.magnos.org)
+ * @license     http://opensource.org/licenses/osl-3.0.php
+ * 				Open Software License (OSL 3.0)
+ */
+
+package org.magnos.data.record;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.magnos.data.Store;
+import org.magnos.data.StoreAccess;
+import org.magnos.data.store.MemoryStore;
+import org.magnos.test.BaseTest;
+
+
+public class TestSlottedPages extends BaseTest 
+{
+
+	private byte[] record(int length, int seed) 
+	{
+		byte[] record = new byte[length];
+		for (int i = 0; i < length; i++) {
+			record[i] = (byte)(seed + i);
+		}
+		return record;
+	}
+	
+	@Test
+	public void testInsertGet() 
+	{
+		Store store = new MemoryStore("temporary", StoreAccess.ReadWrite, 0);
+		SlottedPages pages = new SlottedPages(store, 0, 256);
+		
+		long a = pages.insert(record(10, 1));
+		long b = pages.insert(record(0, 2));
+		long c = pages.insert(record(100, 3));
+		
+		assertEquals( 1, pages.getPageCount() );
+		assertEquals( 256, store.capacity() );
+		assertEquals( SlottedPages.id(0, 0), a );
+		assertEquals( SlottedPages.id(0, 2), c );
+		
+		assertArrayEquals( record(10, 1), pages.get(a) );
+		assertArrayEquals( record(0, 2), pages.get(b) );
+		assertArrayEquals( record(100, 3), pages.get(c) );
+		assertNull( pages.get(SlottedPages.id(0, 3)) );
+		assertNull( pages.get(SlottedPages.id(5, 0)) );
+		
+		// A record which doesn't fit goes to a new page.
+		long d = pages.insert(record(200, 4));
+		assertEquals( 1, SlottedPages.getPage(d) );
+		assertEquals( 2, pages.getPageCount() );
+	}
+	
+	@Test
+	public void testUpdateInPlace() 
+	{
+		SlottedPages pages = new SlottedPages(new MemoryStore("temporary", StoreAccess.ReadWrite, 0), 0, 256);
+		
+		long a = pages.insert(record(50, 1));
+		long b = pages.insert(record(50, 2));
+		long c = pages.insert(record(50, 3));
+		
+		// Shrinking and then growing again needs compaction to find room.
+		assertTrue( pages.update(b, record(10, 4)) );
+		assertTrue( pages.update(a, record(120, 5)) );
+		
+		assertEquals( 1, pages.getPageCount() );
+		assertArrayEquals( record(120, 5), pages.get(a) );
+		assertArrayEquals( record(10, 4), pages.get(b) );
+		assertArrayEquals( record(50, 3), pages.get(c) );
+	}
+	
+	@Test
+	public void testUpdateMoves() 
+	{
+		SlottedPages pages = new SlottedPages(new MemoryStore("temporary", StoreAccess.ReadWrite, 0), 0, 256);
+		
+		long a = pages.insert(record(100, 1));
+		long b = pages.insert(record(100, 2));
+		
+		// The record no longer fits in its page but keeps its id.
+		assertTrue( pages.update(a, record(200, 3)) );
+		assertEquals( 2, pages.getPageCount() );
+		assertArrayEquals( record(200, 3), pages.get(a) );
+		assertArrayEquals( record(100, 2), pages.get(b) );
+		
+		// Moving again replaces the first move, and moving back home works.
+		assertTrue( pages.update(a, record(210, 4)) );
+		assertArrayEquals( record(210, 4), pages.get(a) );
+		assertTrue( pages.update(a, record(20, 5)) );
+		assertArrayEquals( record(20, 5), pages.get(a) );
+		assertEquals( pages.getPageSize() - SlottedPages.HEADER_SIZE, pages.getFreeBytes(1) );
+		
+		assertTrue( pages.delete(a) );
+		assertNull( pages.get(a) );
+		assertFalse( pages.update(a, record(1, 1)) );
+		assertFalse( pages.delete(a) );
+	}
+	
+	@Test
+	public void testDeleteReuses() 
+	{
+		SlottedPages pages = new SlottedPages(new MemoryStore("temporary", StoreAccess.ReadWrite, 0), 0, 256);
+		
+		long a = pages.insert(record(100, 1));
+		long b = pages.insert(record(100, 2));
+		assertTrue( pages.delete(a) );
+		
+		long c = pages.insert(record(100, 3));
+		assertEquals( a, c );
+		assertEquals( 1, pages.getPageCount() );
+		assertArrayEquals( record(100, 2), pages.get(b) );
+		assertArrayEquals( record(100, 3), pages.get(c) );
+	}
+	
+	@Test
+	public void testReopen() 
+	{
+		Store store = new MemoryStore("temporary", StoreAccess.ReadWrite, 0);
+		SlottedPages pages1 = new SlottedPages(store, 16, 128);
+		long a = pages1.insert(record(60, 1));
+		long b = pages1.insert(record(60, 2));
+		
+		SlottedPages pages2 = new SlottedPages(store, 16, 128);
+		assertEquals( 2, pages2.getPageCount() );
+		assertEquals( pages1.getFreeBytes(0), pages2.getFreeBytes(0) );
+		assertArrayEquals( record(60, 1), pages2.get(a) );
+		assertArrayEquals( record(60, 2), pages2.get(b) );
+	}
+	
+	@Test
+	public void testRandom() 
+	{
+		SlottedPages pages = new SlottedPages(new MemoryStore("temporary", StoreAccess.ReadWrite, 0), 0, 512);
+		Random random = new Random(7);
+		List<Long> ids = new ArrayList<Long>();
+		List<byte[]> records = new ArrayList<byte[]>();
+		
+		for (int i = 0; i < 2000; i++) {
+			int op = random.nextInt(3);
+			byte[] record = record(random.nextInt(300), i);
+			if (op == 0 || ids.isEmpty()) {
+				ids.add(pages.insert(record));
+				records.add(record);
+			}
+			else if (op == 1) {
+				int k = random.nextInt(ids.size());
+				assertTrue( pages.update(ids.get(k), record) );
+				records.set(k, record);
+			}
+			else {
+				int k = random.nextInt(ids.size());
+				assertTrue( pages.delete(ids.remove(k)) );
+				records.remove(k);
+			}
+		}
+		
+		for (int i = 0; i < ids.size(); i++) {
+			assertArrayEquals( records.get(i), pages.get(ids.get(i)) );
+		}
+	}
+	
+	@Test
+	public void testRandomSmallPages() 
+	{
+		SlottedPages pages = new SlottedPages(new MemoryStore("temporary", StoreAccess.ReadWrite, 0), 0, 64);
+		Random random = new Random(11);
+		List<Long> ids = new ArrayList<Long>();
+		List<byte[]> records = new ArrayList<byte[]>();
+		
+		// Small records on small pages fill directories and fragment pages.
+		for (int i = 0; i < 2000; i++) {
+			int op = random.nextInt(3);
+			byte[] record = record(random.nextInt(30), i);
+			if (op == 0 || ids.isEmpty()) {
+				ids.add(pages.insert(record));
+				records.add(record);
+			}
+			else if (op == 1) {
+				int k = random.nextInt(ids.size());
+				assertTrue( pages.update(ids.get(k), record) );
+				records.set(k, record);
+			}
+			else {
+				int k = random.nextInt(ids.size());
+				assertTrue( pages.delete(ids.remove(k)) );
+				records.remove(k);
+			}
+			for (int k = 0; k < ids.size(); k++) {
+				assertArrayEquals( records.get(k), pages.get(ids.get(k)) );
+			}
+		}
+	}
+	
+	@Test
+	public void testGrowDirectoryInFragmentedPage() 
+	{
+		SlottedPages pages = new SlottedPages(new MemoryStore("temporary", StoreAccess.ReadWrite, 0), 0, 64);
+		
+		long a = pages.insert(record(28, 1));
+		long b = pages.insert(record(12, 2));
+		assertTrue( pages.update(a, record(8, 1)) );
+		
+		// The page only has room for the new slot once its garbage is removed.
+		long c = pages.insert(record(8, 3));
+		assertEquals( 0, SlottedPages.getPage(c) );
+		
+		assertArrayEquals( record(8, 1), pages.get(a) );
+		assertArrayEquals( record(12, 2), pages.get(b) );
+		assertArrayEquals( record(8, 3), pages.get(c) );
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testTooLong() 
+	{
+		SlottedPages pages = new SlottedPages(new MemoryStore("temporary", StoreAccess.ReadWrite, 0), 0, 256);
+		pages.insert(new byte[pages.getMaxLength() + 1]);
+	}
+	
+}
@@ -0,0 +1,266 @@
+/* 
+ * NOTICE OF LICENSE
+ * 
+ * This source file is subject to the Open Software License (OSL 3.0) that is 
+ * bundled with this package in the file LICENSE.txt. It is also available 
+ * through the world-wide-web at http://opensource.org/licenses/osl-3.0.php
+ * If you did not receive a copy of the license and are unable to obtain it 
+ * through the world-wide-web, please send an email to pdiffenderfer@gmail.com 
+ * so we can send you a copy immediately. If you use any of this software please
+ * notify me via my website or email, your feedback is much appreciated. 
+ * 
+ * @copyright   Copyright (c) 2011 Magnos Software (http://www.magnos.org)
+ * @license     http://opensource.org/licenses/osl-3.0.php
+ * 				Open Software License (OSL 3.0)
+ */
+
+package org.magnos.data.store;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.magnos.data.StoreAccess;
+import org.magnos.data.TestStore;
+import org.magnos.data.store.cache.ClockCachePolicy;
+import org.magnos.data.store.cache.LruCachePolicy;
+import org.magnos.data.store.cache.TwoQueueCachePolicy;
+
+
+public class TestCachedStore extends TestStore 
+{
+
+	@Test
+	public void testDefaults()
+	{
+		CachedStore cs = new CachedStore(new MemoryStore("testDefaults.dat"));
+		testDefaults(cs);
+		
+		assertEquals( "testDefaults.dat", cs.getName() );
+		assertEquals( CachedStore.DEFAULT_PAGE_SIZE, cs.getPageSize() );
+		assertEquals( CachedStore.DEFAULT_BUDGET / CachedStore.DEFAULT_PAGE_SIZE, cs.getFrameCount() );
+		
+		cs.close();
+	}
+	
+	@Test
+	public void testCapacity()
+	{
+		CachedStore cs = new CachedStore(new FileStore("testCapacity.dat"));
+		cs.create(StoreAccess.ReadWrite, 20);
+		testCapacity(cs);
+		cs.delete();
+		
+		assertFalse( cs.exists() );
+	}
+	
+	@Test
+	public void testByteArray()
+	{
+		CachedStore cs = new CachedStore(new FileStore("testByteArray.dat"), 8, 32, new LruCachePolicy());
+		cs.create(StoreAccess.ReadWrite, 20);
+		testByteArray(cs);
+		testByteSection(cs);
+		testByteBuffer(cs);
+		cs.delete();
+	}
+	
+	@Test
+	public void testBatch()
+	{
+		CachedStore cs = new CachedStore(new MemoryStore("testBatch.dat"), 4, 16, new ClockCachePolicy());
+		cs.create(StoreAccess.ReadWrite, 20);
+		testBatch(cs);
+		cs.delete();
+	}
+	
+	@Test
+	public void testConcurrent() throws InterruptedException
+	{
+		CachedStore cs = new CachedStore(new MemoryStore("testConcurrent.dat"), 16, 256, new TwoQueueCachePolicy());
+		cs.create(StoreAccess.ReadWrite, 1024);
+		testConcurrent(cs);
+		cs.delete();
+	}
+	
+	@Test
+	public void testCounters()
+	{
+		MemoryStore ms = new MemoryStore("testCounters.dat", StoreAccess.ReadWrite, 64);
+		CachedStore cs = new CachedStore(ms, 8, 16, new LruCachePolicy());
+		
+		assertEquals( 2, cs.getFrameCount() );
+		
+		cs.get(0, 4);
+		cs.get(4, 4);
+		cs.get(8, 4);
+		
+		assertEquals( 1, cs.getHits() );
+		assertEquals( 2, cs.getMisses() );
+		assertEquals( 0, cs.getEvictions() );
+		
+		// a read across pages touches both.
+		cs.get(6, 4);
+		
+		assertEquals( 3, cs.getHits() );
+		
+		cs.get(16, 1);
+		
+		assertEquals( 3, cs.getMisses() );
+		assertEquals( 1, cs.getEvictions() );
+		
+		cs.resetStatistics();
+		
+		assertEquals( 0, cs.getHits() );
+		assertEquals( 0, cs.getMisses() );
+		assertEquals( 0, cs.getEvictions() );
+		
+		cs.delete();
+	}
+	
+	@Test
+	public void testWriteThrough()
+	{
+		MemoryStore ms = new MemoryStore("testWriteThrough.dat", StoreAccess.ReadWrite, 20);
+		CachedStore cs = new CachedStore(ms, 8, 64, new LruCachePolicy());
+		
+		// cache the first page, then write over it and the uncached second.
+		assertArrayEquals( new byte[4], cs.get(0, 4) );
+		
+		cs.put(6, new byte[] {1, 2, 3, 4});
+		
+		assertArrayEquals( new byte[] {1, 2, 3, 4}, ms.get(6, 4) );
+		assertArrayEquals( new byte[] {1, 2, 3, 4}, cs.get(6, 4) );
+		
+		// the partial last page reads zeros past the capacity.
+		cs.capacity(18);
+		
+		assertArrayEquals( new byte[2], cs.get(16, 2) );
+		
+		cs.delete();
+	}
+	
+	@Test
+	public void testPrimitives()
+	{
+		CachedStore cs = new CachedStore(new MemoryStore("testPrimitives.dat"), 8, 16, new LruCachePolicy());
+		cs.create(StoreAccess.ReadWrite, 24);
+		testPrimitives(cs);
+		cs.delete();
+	}
+	
+	@Test
+	public void testLoadOutsideLock() throws InterruptedException
+	{
+		final CountDownLatch loading = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		
+		// The second page blocks while it's loaded.
+		MemoryStore ms = new MemoryStore("testLoadOutsideLock.dat", StoreAccess.ReadWrite, 32) {
+			protected void storeGet(long location, ByteBuffer b) throws IOException {
+				if (location == 8) {
+					loading.countDown();
+					try {
+						release.await();
+					}
+					catch (InterruptedException e) {
+						throw new IOException(e);
+					}
+				}
+				super.storeGet(location, b);
+			}
+		};
+		ms.put(8, new byte[] {1, 2, 3, 4});
+		
+		final CachedStore cs = new CachedStore(ms, 8, 16, new LruCachePolicy());
+		final byte[][] read = new byte[2][];
+		
+		cs.get(0, 4);
+		
+		Thread t = new Thread() {
+			public void run() {
+				read[0] = cs.get(8, 4);
+			}
+		};
+		t.start();
+		
+		assertTrue( loading.await(5, TimeUnit.SECONDS) );
+		
+		// A cached page and an uncached page are read while the load is blocked.
+		assertArrayEquals( new byte[4], cs.get(0, 4) );
+		
+		Thread u = new Thread() {
+			public void run() {
+				read[1] = cs.get(8, 4);
+			}
+		};
+		u.start();
+		
+		assertArrayEquals( new byte[4], cs.get(20, 4) );
+		
+		release.countDown();
+		t.join(5000);
+		u.join(5000);
+		
+		assertArrayEquals( new byte[] {1, 2, 3, 4}, read[0] );
+		assertArrayEquals( new byte[] {1, 2, 3, 4}, read[1] );
+		
+		// The second reader of the loading page waited for it instead of loading it again.
+		assertEquals( 2, cs.getHits() );
+		assertEquals( 3, cs.getMisses() );
+		assertEquals( 1, cs.getEvictions() );
+		
+		cs.delete();
+	}
+	
+	@Test
+	public void testAllPinned() throws InterruptedException
+	{
+		final CountDownLatch loading = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		
+		MemoryStore ms = new MemoryStore("testAllPinned.dat", StoreAccess.ReadWrite, 32) {
+			protected void storeGet(long location, ByteBuffer b) throws IOException {
+				if (location == 8) {
+					loading.countDown();
+					try {
+						release.await();
+					}
+					catch (InterruptedException e) {
+						throw new IOException(e);
+					}
+				}
+				super.storeGet(location, b);
+			}
+		};
+		ms.put(0, new byte[] {5, 6});
+		
+		final CachedStore cs = new CachedStore(ms, 8, 8, new LruCachePolicy());
+		
+		Thread t = new Thread() {
+			public void run() {
+				cs.get(8, 4);
+			}
+		};
+		t.start();
+		
+		assertTrue( loading.await(5, TimeUnit.SECONDS) );
+		
+		// The only frame is pinned by the load, so this is read from the store.
+		assertArrayEquals( new byte[] {5, 6}, cs.get(0, 2) );
+		assertEquals( 0, cs.getEvictions() );
+		
+		release.countDown();
+		t.join(5000);
+		
+		assertArrayEquals( new byte[] {5, 6}, cs.get(0, 2) );
+		assertEquals( 1, cs.getEvictions() );
+		
+		cs.delete();
+	}
+	
+}
\ No newline at end of file
@@ -18,6 +18,13 @@ package org.magnos.data.store;
 
 import static org.junit.Assert.*;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.junit.Test;
 import org.magnos.data.StoreAccess;
 import org.magnos.data.TestStore;
@@ -192,5 +199,217 @@ public class TestFileStore extends TestStore
 		}
 	}
 	
+	@Test
+	public void testConcurrent() throws InterruptedException
+	{
+		FileStore fs = new FileStore("testConcurrent.dat", StoreAccess.ReadWrite, 1024);
+		testConcurrent(fs);
+		fs.delete();
+		
+		assertFalse( fs.exists() );
+	}
+	
+	@Test
+	public void testLargeArray()
+	{
+		int size = FileStore.BUFFER_SIZE * 2 + 100;
+		FileStore fs = new FileStore("testLargeArray.dat", StoreAccess.ReadWrite, size + 7);
+		
+		byte[] data1 = new byte[size];
+		for (int i = 0; i < size; i++) {
+			data1[i] = (byte)(i * 31);
+		}
+		fs.put(7, data1);
+		
+		assertArrayEquals( data1, fs.get(7, size) );
+		
+		ByteBuffer buffer = ByteBuffer.allocate(size + 3);
+		buffer.position(3);
+		fs.get(7, buffer);
+		
+		assertFalse( buffer.hasRemaining() );
+		assertEquals( data1[size - 1], buffer.get(size + 2) );
+		
+		fs.delete();
+		
+		assertFalse( fs.exists() );
+	}
+	
+	@Test
+	public void testBatch()
+	{
+		FileStore fs = new FileStore("testBatch.dat", StoreAccess.ReadWrite, 20);
+		testBatch(fs);
+		fs.delete();
+	}
+	
+	@Test
+	public void testWriteBack() throws Exception
+	{
+		FileStore fs = new FileStore("testWriteBack.dat", StoreAccess.ReadWrite, 20);
+		fs.setWriteBack(8, 1024);
+		
+		assertTrue( fs.isWriteBack() );
+		assertEquals( 8, fs.getPageSize() );
+		assertEquals( 1024, fs.getDirtyThreshold() );
+		
+		byte[] data = {1, 2, 3, 4, 5};
+		fs.put(6, data);
+		
+		// two pages are dirty and the file is untouched.
+		assertEquals( 16, fs.getDirtyBytes() );
+		assertArrayEquals( new byte[5], read(fs, 6, 5) );
+		assertArrayEquals( data, fs.get(6, 5) );
+		
+		fs.flush();
+		
+		assertEquals( 0, fs.getDirtyBytes() );
+		assertArrayEquals( data, read(fs, 6, 5) );
+		assertArrayEquals( data, fs.get(6, 5) );
+		
+		// the last page is partial and the file must not grow.
+		fs.put(17, new byte[] {9});
+		fs.close();
+		fs.open(StoreAccess.ReadWrite);
+		
+		assertEquals( 20, fs.capacity() );
+		assertArrayEquals( new byte[] {0, 9, 0}, fs.get(16, 3) );
+		
+		testByteArray(fs);
+		testByteBuffer(fs);
+		fs.delete();
+	}
+	
+	@Test
+	public void testWriteBackBatch()
+	{
+		FileStore fs = new FileStore("testWriteBackBatch.dat", StoreAccess.ReadWrite, 20);
+		fs.setWriteBack(4, 1024);
+		testBatch(fs);
+		fs.delete();
+	}
+	
+	@Test
+	public void testWriteBackThreshold() throws Exception
+	{
+		FileStore fs = new FileStore("testWriteBackThreshold.dat", StoreAccess.ReadWrite, 64);
+		fs.setWriteBack(8, 24);
+		
+		fs.put(0, new byte[] {1});
+		fs.put(8, new byte[] {2});
+		
+		assertEquals( 16, fs.getDirtyBytes() );
+		
+		// the third page reaches the threshold.
+		fs.put(40, new byte[] {3});
+		
+		assertEquals( 0, fs.getDirtyBytes() );
+		assertArrayEquals( new byte[] {1}, read(fs, 0, 1) );
+		assertArrayEquals( new byte[] {2}, read(fs, 8, 1) );
+		assertArrayEquals( new byte[] {3}, read(fs, 40, 1) );
+		
+		fs.put(50, new byte[] {4});
+		fs.setWriteBack(false);
+		
+		assertFalse( fs.isWriteBack() );
+		assertEquals( 0, fs.getDirtyBytes() );
+		assertArrayEquals( new byte[] {4}, read(fs, 50, 1) );
+		
+		fs.delete();
+	}
+	
+	@Test
+	public void testWriteBackConcurrent() throws InterruptedException
+	{
+		FileStore fs = new FileStore("testWriteBackConcurrent.dat", StoreAccess.ReadWrite, 1024);
+		fs.setWriteBack(16, 256);
+		testConcurrent(fs);
+		fs.delete();
+	}
+	
+	@Test
+	public void testWriteBackSharedPages() throws Exception
+	{
+		FileStore fs = new FileStore("testWriteBackSharedPages.dat", StoreAccess.ReadWrite, 1024);
+		// pages straddle the regions of the threads and flush often.
+		fs.setWriteBack(48, 96);
+		testConcurrent(fs);
+		fs.flush();
+		
+		for (int i = 0; i < 8; i++) {
+			byte[] expected = new byte[128];
+			for (int j = 0; j < 128; j++) {
+				expected[j] = (byte)((i + 1) * 199 + j);
+			}
+			assertArrayEquals( expected, read(fs, i * 128, 128) );
+		}
+		fs.delete();
+	}
+	
+	// Reads directly from the file, bypassing any dirty pages.
+	private byte[] read(FileStore fs, long location, int length) throws Exception
+	{
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		fs.getChannel().read(buffer, location);
+		return buffer.array();
+	}
+	
+	@Test
+	public void testAsync() throws Exception
+	{
+		FileStore fs = new FileStore("testAsync.dat", StoreAccess.ReadWrite, 20);
+		testAsync(fs);
+		fs.delete();
+	}
+	
+	@Test
+	public void testPrimitives()
+	{
+		FileStore fs = new FileStore("testPrimitives.dat", StoreAccess.ReadWrite, 24);
+		testPrimitives(fs);
+		fs.delete();
+	}
+	
+	@Test
+	public void testOrder()
+	{
+		FileStore fs = new FileStore("testOrder.dat", StoreAccess.ReadWrite, 16);
+		testOrder(fs);
+		fs.delete();
+	}
+	
+	@Test
+	public void testAsyncBounded() throws Exception
+	{
+		FileStore fs = new FileStore("testAsyncBounded.dat", StoreAccess.ReadWrite, 20);
+		
+		assertSame( FileStore.ASYNC_EXECUTOR, fs.getAsyncExecutor() );
+		
+		final AtomicInteger running = new AtomicInteger();
+		final AtomicInteger most = new AtomicInteger();
+		
+		// more tasks than threads queue instead of starting new threads.
+		List<Future<Void>> futures = new ArrayList<Future<Void>>();
+		for (int i = 0; i < FileStore.ASYNC_THREADS * 4; i++) {
+			futures.add(fs.async(new Callable<Void>() {
+				public Void call() throws Exception {
+					int now = running.incrementAndGet();
+					synchronized (most) {
+						most.set(Math.max(most.get(), now));
+					}
+					Thread.sleep(10);
+					running.decrementAndGet();
+					return null;
+				}
+			}));
+		}
+		for (Future<Void> f : futures) {
+			f.get();
+		}
+		
+		assertTrue( most.get() <= FileStore.ASYNC_THREADS );
+		
+		fs.delete();
+	}
 	
-}
+}
\ No newline at end of file
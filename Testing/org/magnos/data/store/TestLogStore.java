@@ -0,0 +1,203 @@
+/* 
+ * NOTICE OF LICENSE
+ * 
+ * This source file is subject to the Open Software License (OSL 3.0) that is 
+ * bundled with this package in the file LICENSE.txt. It is also available 
+ * through the world-wide-web at http://opensource.org/licenses/osl-3.0.php
+ * If you did not receive a copy of the license and are unable to obtain it 
+ * through the world-wide-web, please send an email to pdiffenderfer@gmail.com 
+ * so we can send you a copy immediately. If you use any of this software please
+ * notify me via my website or email, your feedback is much appreciated. 
+ * 
+ * @copyright   Copyright (c) 2011 Magnos Software (http://www.magnos.org)
+ * @license     http://opensource.org/licenses/osl-3.0.php
+ * 				Open Software License (OSL 3.0)
+ */
+
+package org.magnos.data.store;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+import org.magnos.data.StoreAccess;
+import org.magnos.data.error.StoreIOException;
+import org.magnos.test.BaseTest;
+
+
+public class TestLogStore extends BaseTest 
+{
+	
+	private byte[] bytes(int start, int length) 
+	{
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++) {
+			bytes[i] = (byte)(start + i);
+		}
+		return bytes;
+	}
+
+	@Test
+	public void testAppend()
+	{
+		LogStore log = new LogStore(new File("testLogAppend"), 100, 16);
+		log.open(StoreAccess.ReadWrite);
+		try {
+			assertEquals( 0, log.capacity() );
+			assertEquals( 0, log.append(bytes(0, 10)) );
+			assertEquals( 10, log.append(ByteBuffer.wrap(bytes(10, 5))) );
+			assertEquals( 15, log.capacity() );
+			assertEquals( 15, log.getBufferedBytes() );
+			assertEquals( 0, log.getSegmentCount() );
+			
+			// Reads are served from the write buffer.
+			assertArrayEquals( bytes(0, 15), log.get(0, 15) );
+			
+			// The write buffer fills and is written to the first segment.
+			assertEquals( 15, log.append(bytes(15, 5)) );
+			assertEquals( 5, log.getBufferedBytes() );
+			assertEquals( 1, log.getSegmentCount() );
+			assertArrayEquals( bytes(0, 20), log.get(0, 20) );
+			
+			log.flush();
+			assertEquals( 0, log.getBufferedBytes() );
+			assertEquals( 20, log.getSegmentFile(0).length() );
+		}
+		finally {
+			log.delete();
+		}
+		assertFalse( log.exists() );
+	}
+	
+	@Test
+	public void testRollSegments()
+	{
+		LogStore log = new LogStore(new File("testLogRoll"), 100, 16);
+		log.open(StoreAccess.ReadWrite);
+		try {
+			for (int i = 0; i < 25; i++) {
+				assertEquals( i * 10, log.append(bytes(i * 10, 10)) );
+			}
+			// Appends larger than the write buffer are written directly.
+			assertEquals( 250, log.append(bytes(250, 120)) );
+			log.flush();
+			
+			assertEquals( 370, log.capacity() );
+			assertEquals( 4, log.getSegmentCount() );
+			assertEquals( 100, log.getSegmentFile(100).length() );
+			assertEquals( 70, log.getSegmentFile(300).length() );
+			
+			// Reads cross segments.
+			assertArrayEquals( bytes(95, 220), log.get(95, 220) );
+			assertEquals( (byte)199, log.getByte(199) );
+		}
+		finally {
+			log.delete();
+		}
+	}
+	
+	@Test
+	public void testReopen()
+	{
+		File dir = new File("testLogReopen");
+		LogStore log = new LogStore(dir, 100, 16);
+		log.open(StoreAccess.ReadWrite);
+		try {
+			log.append(bytes(0, 150));
+			log.putLong(150, 42L);
+			log.close();
+			
+			LogStore reopened = new LogStore(dir, 100, 16);
+			reopened.open(StoreAccess.ReadWrite);
+			assertEquals( 158, reopened.capacity() );
+			assertEquals( 42L, reopened.getLong(150) );
+			assertEquals( 158, reopened.append(bytes(0, 2)) );
+			reopened.close();
+		}
+		finally {
+			log.delete();
+		}
+	}
+	
+	@Test
+	public void testPutOnlyAtEnd()
+	{
+		LogStore log = new LogStore(new File("testLogPut"), 100, 16);
+		log.open(StoreAccess.ReadWrite);
+		try {
+			log.append(bytes(0, 30));
+			log.append(bytes(0, 4));
+			
+			// Bytes in the write buffer can be changed.
+			log.putInt(30, 7);
+			assertEquals( 7, log.getInt(30) );
+			
+			try {
+				log.putInt(0, 7);
+				fail();
+			}
+			catch (StoreIOException e) {
+			}
+			try {
+				log.putInt(40, 7);
+				fail();
+			}
+			catch (StoreIOException e) {
+			}
+		}
+		finally {
+			log.delete();
+		}
+	}
+	
+	@Test
+	public void testCapacity()
+	{
+		LogStore log = new LogStore(new File("testLogCapacity"), 100, 16);
+		log.open(StoreAccess.ReadWrite);
+		try {
+			log.append(bytes(1, 10));
+			assertEquals( 250, log.capacity(250) );
+			assertEquals( 3, log.getSegmentCount() );
+			assertEquals( 0, log.getByte(200) );
+			
+			assertEquals( 120, log.capacity(120) );
+			assertEquals( 2, log.getSegmentCount() );
+			assertEquals( 20, log.getSegmentFile(100).length() );
+			assertFalse( log.getSegmentFile(200).exists() );
+			assertEquals( 120, log.append(bytes(0, 1)) );
+			assertArrayEquals( bytes(1, 10), log.get(0, 10) );
+		}
+		finally {
+			log.delete();
+		}
+	}
+	
+	@Test
+	public void testCloseAfterRollAndTruncate()
+	{
+		File dir = new File("testLogCloseAfterTruncate");
+		LogStore log = new LogStore(dir, 100, 16);
+		log.open(StoreAccess.ReadWrite);
+		try {
+			// Rolled segments and a truncated one are all forced on close.
+			log.append(bytes(0, 250));
+			log.capacity(150);
+			log.append(bytes(150, 100));
+			log.close();
+			
+			LogStore reopened = new LogStore(dir, 100, 16);
+			reopened.open(StoreAccess.ReadWrite);
+			assertEquals( 250, reopened.capacity() );
+			assertEquals( 3, reopened.getSegmentCount() );
+			assertArrayEquals( bytes(0, 250), reopened.get(0, 250) );
+			reopened.close();
+		}
+		finally {
+			log.delete();
+		}
+	}
+	
+}
\ No newline at end of file
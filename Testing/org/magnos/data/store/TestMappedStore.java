@@ -16,6 +16,10 @@
 
 package org.magnos.data.store;
 
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+
 import org.junit.Test;
 import org.magnos.data.StoreAccess;
 import org.magnos.data.TestStore;
@@ -175,5 +179,106 @@ public class TestMappedStore extends TestStore
 			ms1.delete();
 		}
 	}
-
+	
+	@Test
+	public void testConcurrent() throws InterruptedException
+	{
+		MappedStore ms = new MappedStore("testConcurrent.dat", StoreAccess.ReadWrite, 1024);
+		testConcurrent(ms);
+		ms.delete();
+	}
+	
+	@Test
+	public void testSegments()
+	{
+		MappedStore ms = new MappedStore("testSegments.dat", 16);
+		ms.create(StoreAccess.ReadWrite, 40);
+		
+		assertEquals( 3, ms.getSegmentCount() );
+		assertEquals( 8, ms.getSegment(2).capacity() );
+		
+		// Crosses the boundaries of all three segments.
+		byte[] data1 = "Hello World! Hello Segments!".getBytes();
+		ms.put(10, data1);
+		
+		assertArrayEquals( data1, ms.get(10, data1.length) );
+		
+		ByteBuffer buffer1 = ByteBuffer.wrap(data1);
+		ms.put(4, buffer1);
+		
+		ByteBuffer buffer2 = ByteBuffer.allocate(data1.length);
+		ms.get(4, buffer2);
+		
+		assertArrayEquals( data1, buffer2.array() );
+		
+		// Resizing keeps the data in existing segments.
+		assertEquals( 70, ms.capacity(70) );
+		assertEquals( 5, ms.getSegmentCount() );
+		assertArrayEquals( data1, ms.get(4, data1.length) );
+		
+		ms.delete();
+	}
+	
+	@Test
+	public void testBatch()
+	{
+		MappedStore ms = new MappedStore("testBatch.dat", StoreAccess.ReadWrite, 20);
+		testBatch(ms);
+		ms.delete();
+	}
+	
+	@Test
+	public void testAsync() throws Exception
+	{
+		MappedStore ms = new MappedStore("testAsync.dat", StoreAccess.ReadWrite, 20);
+		testAsync(ms);
+		ms.delete();
+	}
+	
+	@Test
+	public void testPrimitives()
+	{
+		MappedStore ms = new MappedStore("testPrimitives.dat", StoreAccess.ReadWrite, 24);
+		testPrimitives(ms);
+		ms.delete();
+	}
+	
+	@Test
+	public void testPrimitivesAcrossSegments()
+	{
+		MappedStore ms = new MappedStore("testPrimitivesAcrossSegments.dat", 16);
+		ms.create(StoreAccess.ReadWrite, 32);
+		
+		// the long straddles the first and second segments.
+		ms.putLong(12, 0x0102030405060708L);
+		ms.putInt(16, 0x7F6F5F4F);
+		ms.putLong(4, -1L);
+		
+		assertEquals( -1L, ms.getLong(4) );
+		assertEquals( 0x7F6F5F4F, ms.getInt(16) );
+		assertEquals( 0xFFFFFFFF01020304L, ms.getLong(8) );
+		
+		ms.delete();
+	}
+	
+	@Test
+	public void testOrder()
+	{
+		MappedStore ms = new MappedStore("testOrder.dat", StoreAccess.ReadWrite, 16);
+		testOrder(ms);
+		ms.delete();
+	}
+	
+	@Test
+	public void testBounds()
+	{
+		MappedStore ms = new MappedStore("testBounds.dat", StoreAccess.ReadWrite, 100);
+		try {
+			testBounds(ms);
+		}
+		finally {
+			ms.delete();
+		}
+	}
+	
 }
@@ -16,8 +16,18 @@
 
 package org.magnos.data.store;
 
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.junit.Test;
 import org.magnos.data.StoreAccess;
+import org.magnos.data.StoreBatch;
 import org.magnos.data.TestStore;
 import org.magnos.data.error.StoreAccessException;
 import org.magnos.data.store.MemoryStore;
@@ -121,4 +131,290 @@ public class TestMemoryStore extends TestStore
 		}
 	}
 	
+	@Test
+	public void testConcurrent() throws InterruptedException
+	{
+		MemoryStore ms = new MemoryStore("testConcurrent.dat", StoreAccess.ReadWrite, 1024);
+		testConcurrent(ms);
+		ms.delete();
+	}
+	
+	@Test
+	public void testStripeSize() throws InterruptedException
+	{
+		MemoryStore ms = new MemoryStore("testStripeSize.dat", StoreAccess.ReadWrite, 1024);
+		ms.setStripeSize(16);
+		
+		assertEquals( 16, ms.getStripeSize() );
+		
+		testConcurrent(ms);
+		ms.delete();
+	}
+	
+	@Test
+	public void testBatch()
+	{
+		MemoryStore ms = new MemoryStore("testBatch.dat", StoreAccess.ReadWrite, 20);
+		testBatch(ms);
+		ms.delete();
+	}
+	
+	@Test
+	public void testGroupFlush() throws Exception
+	{
+		final AtomicInteger flushes = new AtomicInteger();
+		MemoryStore ms = new MemoryStore("testGroupFlush.dat", StoreAccess.ReadWrite, 64) {
+			protected void storeFlush() throws IOException {
+				flushes.incrementAndGet();
+			}
+		};
+		ms.setGroupFlush(60000, 16);
+		
+		assertTrue( ms.isGroupFlush() );
+		assertEquals( 60000, ms.getGroupFlushInterval() );
+		assertEquals( 16, ms.getGroupFlushBytes() );
+		
+		ms.put(0, new byte[8]);
+		Future<Void> first = ms.durable();
+		
+		assertFalse( first.isDone() );
+		
+		// the second write reaches the bytes which cause a flush.
+		ms.put(8, new byte[8]);
+		first.get(5, TimeUnit.SECONDS);
+		
+		assertEquals( 1, flushes.get() );
+		
+		// closing the store flushes the waiting writes.
+		ms.put(0, new byte[1]);
+		Future<Void> second = ms.durable();
+		ms.close();
+		
+		assertTrue( second.isDone() );
+		
+		ms.setGroupFlush(0, 0);
+		
+		assertFalse( ms.isGroupFlush() );
+		assertTrue( ms.durable().isDone() );
+		
+		ms.delete();
+	}
+	
+	@Test
+	public void testGroupFlushBatchBytes() throws Exception
+	{
+		final AtomicInteger flushes = new AtomicInteger();
+		MemoryStore ms = new MemoryStore("testGroupFlushBatchBytes.dat", StoreAccess.ReadWrite, 64) {
+			protected void storeFlush() throws IOException {
+				flushes.incrementAndGet();
+			}
+		};
+		ms.setGroupFlush(60000, 16);
+		
+		// a sparse batch counts the bytes it writes, not the span it covers.
+		ms.put(new StoreBatch().add(0, new byte[4]).add(40, new byte[4]));
+		Future<Void> first = ms.durable();
+		
+		assertFalse( first.isDone() );
+		assertEquals( 0, flushes.get() );
+		
+		ms.put(new StoreBatch().add(20, new byte[8]));
+		first.get(5, TimeUnit.SECONDS);
+		
+		assertEquals( 1, flushes.get() );
+		
+		ms.setGroupFlush(0, 0);
+		ms.delete();
+	}
+	
+	@Test
+	public void testGroupFlushConcurrent() throws Exception
+	{
+		final AtomicInteger flushes = new AtomicInteger();
+		final MemoryStore ms = new MemoryStore("testGroupFlushConcurrent.dat", StoreAccess.ReadWrite, 1024) {
+			protected void storeFlush() throws IOException {
+				flushes.incrementAndGet();
+			}
+		};
+		ms.setGroupFlush(5, 0);
+		
+		final int threads = 8;
+		final int writes = 20;
+		final List<Throwable> errors = new ArrayList<Throwable>();
+		
+		List<Thread> running = new ArrayList<Thread>();
+		for (int i = 0; i < threads; i++) {
+			final int location = i * 16;
+			
+			Thread t = new Thread() {
+				public void run() {
+					try {
+						for (int k = 0; k < writes; k++) {
+							ms.put(location, new byte[16]);
+							ms.durable().get(5, TimeUnit.SECONDS);
+						}
+					}
+					catch (Throwable e) {
+						synchronized (errors) {
+							errors.add(e);
+						}
+					}
+				}
+			};
+			running.add(t);
+			t.start();
+		}
+		for (Thread t : running) {
+			t.join();
+		}
+		
+		assertTrue( errors.isEmpty() );
+		assertTrue( flushes.get() < threads * writes );
+		
+		ms.setGroupFlush(0, 0);
+		ms.delete();
+	}
+	
+	@Test
+	public void testGroupFlushBytesOnly() throws Exception
+	{
+		final AtomicInteger flushes = new AtomicInteger();
+		MemoryStore ms = new MemoryStore("testGroupFlushBytesOnly.dat", StoreAccess.ReadWrite, 64) {
+			protected void storeFlush() throws IOException {
+				flushes.incrementAndGet();
+			}
+		};
+		ms.setGroupFlush(0, 1 << 20);
+		
+		// writes far below the bytes wait until a durability future is asked for.
+		ms.put(0, new byte[8]);
+		ms.put(8, new byte[8]);
+		Thread.sleep(50);
+		
+		assertEquals( 0, flushes.get() );
+		
+		ms.durable().get(5, TimeUnit.SECONDS);
+		
+		assertEquals( 1, flushes.get() );
+		assertTrue( ms.durable().isDone() );
+		
+		ms.setGroupFlush(0, 0);
+		ms.delete();
+	}
+	
+	@Test
+	public void testGroupFlushReopen() throws Exception
+	{
+		final AtomicInteger flushes = new AtomicInteger();
+		MemoryStore ms = new MemoryStore("testGroupFlushReopen.dat", StoreAccess.ReadWrite, 64) {
+			protected void storeFlush() throws IOException {
+				flushes.incrementAndGet();
+			}
+		};
+		ms.setGroupFlush(60000, 16);
+		
+		assertEquals( 1, flushThreads("testGroupFlushReopen.dat", 1) );
+		
+		// closing stops the flushing thread.
+		ms.close();
+		
+		assertTrue( ms.isGroupFlush() );
+		assertEquals( 0, flushThreads("testGroupFlushReopen.dat", 0) );
+		
+		// reopening starts it again and groups writes as before.
+		ms.open(StoreAccess.ReadWrite);
+		
+		assertEquals( 1, flushThreads("testGroupFlushReopen.dat", 1) );
+		
+		int before = flushes.get();
+		ms.put(0, new byte[16]);
+		ms.durable().get(5, TimeUnit.SECONDS);
+		
+		assertEquals( before + 1, flushes.get() );
+		
+		ms.setGroupFlush(0, 0);
+		
+		assertEquals( 0, flushThreads("testGroupFlushReopen.dat", 0) );
+		
+		ms.delete();
+	}
+	
+	// Waits up to a few seconds for the number of live flushing threads of a store to reach the expected count.
+	private static int flushThreads(String name, int expected) throws InterruptedException
+	{
+		int count = 0;
+		for (int attempt = 0; attempt < 500; attempt++) {
+			count = 0;
+			for (Thread t : Thread.getAllStackTraces().keySet()) {
+				if (t.isAlive() && t.getName().equals("GroupFlush-" + name)) {
+					count++;
+				}
+			}
+			if (count == expected) {
+				break;
+			}
+			Thread.sleep(10);
+		}
+		return count;
+	}
+	
+	@Test
+	public void testAsync() throws Exception
+	{
+		MemoryStore ms = new MemoryStore("testAsync.dat", StoreAccess.ReadWrite, 20);
+		testAsync(ms);
+		ms.delete();
+	}
+	
+	@Test
+	public void testPrimitives()
+	{
+		MemoryStore ms = new MemoryStore("testPrimitives.dat", StoreAccess.ReadWrite, 24);
+		testPrimitives(ms);
+		ms.delete();
+	}
+	
+	@Test
+	public void testOrder()
+	{
+		MemoryStore ms = new MemoryStore("testOrder.dat", StoreAccess.ReadWrite, 16);
+		testOrder(ms);
+		ms.delete();
+	}
+	
+	@Test
+	public void testBounds()
+	{
+		MemoryStore ms = new MemoryStore("testBounds.dat", StoreAccess.ReadWrite, 100);
+		try {
+			testBounds(ms);
+		}
+		finally {
+			ms.delete();
+		}
+	}
+	
+	@Test
+	public void testNegativeLocation()
+	{
+		MemoryStore ms = new MemoryStore("testNegativeLocation.dat", StoreAccess.ReadWrite, 20);
+		try {
+			ms.getInt(-4);
+			fail();
+		}
+		catch (IndexOutOfBoundsException e) {
+		}
+		try {
+			ms.put(new StoreBatch().add(4, new byte[2]).add(-2, new byte[2]));
+			fail();
+		}
+		catch (IndexOutOfBoundsException e) {
+		}
+		
+		// no stripe was left locked by the rejected calls.
+		ms.putInt(0, 7);
+		assertEquals( 7, ms.getInt(0) );
+		ms.delete();
+	}
+	
 }
@@ -0,0 +1,144 @@
+/* 
+ * NOTICE OF LICENSE
+ * 
+ * This source file is subject to the Open Software License (OSL 3.0) that is 
+ * bundled with this package in the file LICENSE.txt. It is also available 
+ * through the world-wide-web at http://opensource.org/licenses/osl-3.0.php
+ * If you did not receive a copy of the license and are unable to obtain it 
+ * through the world-wide-web, please send an email to pdiffenderfer@gmail.com 
+ * so we can send you a copy immediately. If you use any of this software please
+ * notify me via my website or email, your feedback is much appreciated. 
+ * 
+ * @copyright   Copyright (c) 2011 Magnos Software (http://www.magnos.org)
+ * @license     http://opensource.org/licenses/osl-3.0.php
+ * 				Open Software License (OSL 3.0)
+ */
+
+package org.magnos.data.store;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.magnos.test.BaseTest;
+
+
+public class TestStripedLock extends BaseTest 
+{
+
+	private Thread lockWrite(final StripedLock lock, final int location, final int length)
+	{
+		Thread t = new Thread() {
+			public void run() {
+				lock.lockWrite(location, length);
+				lock.unlockWrite(location, length);
+			}
+		};
+		t.start();
+		return t;
+	}
+	
+	@Test
+	public void testDisjoint() throws InterruptedException
+	{
+		StripedLock lock = new StripedLock(64, 8);
+		lock.lockWrite(0, 100);
+		
+		Thread t = lockWrite(lock, 200, 10);
+		t.join(1000);
+		assertFalse( t.isAlive() );
+		
+		lock.unlockWrite(0, 100);
+	}
+	
+	@Test
+	public void testOverlap() throws InterruptedException
+	{
+		StripedLock lock = new StripedLock(64, 8);
+		lock.lockWrite(0, 100);
+		
+		Thread t = lockWrite(lock, 100, 10);
+		t.join(100);
+		assertTrue( t.isAlive() );
+		
+		lock.unlockWrite(0, 100);
+		t.join(1000);
+		assertFalse( t.isAlive() );
+	}
+	
+	@Test
+	public void testReaders() throws InterruptedException
+	{
+		final StripedLock lock = new StripedLock(64, 8);
+		lock.lockRead(0, 64);
+		
+		Thread t = new Thread() {
+			public void run() {
+				lock.lockRead(0, 64);
+				lock.unlockRead(0, 64);
+			}
+		};
+		t.start();
+		t.join(1000);
+		assertFalse( t.isAlive() );
+		
+		lock.unlockRead(0, 64);
+	}
+	
+	@Test
+	public void testWrapAround() throws InterruptedException
+	{
+		StripedLock lock = new StripedLock(64, 4);
+		// Stripes 3, 4, and 5 map onto locks 3, 0, and 1.
+		lock.lockWrite(192, 192);
+		
+		Thread t = lockWrite(lock, 0, 1);
+		t.join(100);
+		assertTrue( t.isAlive() );
+		
+		Thread u = lockWrite(lock, 128, 1);
+		u.join(1000);
+		assertFalse( u.isAlive() );
+		
+		lock.unlockWrite(192, 192);
+		t.join(1000);
+		assertFalse( t.isAlive() );
+	}
+	
+	@Test
+	public void testCoverAll() throws InterruptedException
+	{
+		StripedLock lock = new StripedLock(64, 4);
+		lock.lockWrite(64, 1000);
+		
+		Thread t = lockWrite(lock, 0, 1);
+		t.join(100);
+		assertTrue( t.isAlive() );
+		
+		lock.unlockWrite(64, 1000);
+		t.join(1000);
+		assertFalse( t.isAlive() );
+	}
+	
+	@Test
+	public void testRanges() throws InterruptedException
+	{
+		StripedLock lock = new StripedLock(64, 8);
+		long[] locations = {0, 320};
+		long[] lengths = {10, 10};
+		// Stripes 0 and 5, the stripes between them are free.
+		lock.lockWrite(locations, lengths, 2);
+		
+		Thread t = lockWrite(lock, 64, 200);
+		t.join(1000);
+		assertFalse( t.isAlive() );
+		
+		Thread u = lockWrite(lock, 330, 1);
+		u.join(100);
+		assertTrue( u.isAlive() );
+		
+		lock.unlockWrite(locations, lengths, 2);
+		u.join(1000);
+		assertFalse( u.isAlive() );
+	}
+	
+}
@@ -0,0 +1,81 @@
+/* 
+ * NOTICE OF LICENSE
+ * 
+ * This source file is subject to the Open Software License (OSL 3.0) that is 
+ * bundled with this package in the file LICENSE.txt. It is also available 
+ * through the world-wide-web at http://opensource.org/licenses/osl-3.0.php
+ * If you did not receive a copy of the license and are unable to obtain it 
+ * through the world-wide-web, please send an email to pdiffenderfer@gmail.com 
+ * so we can send you a copy immediately. If you use any of this software please
+ * notify me via my website or email, your feedback is much appreciated. 
+ * 
+ * @copyright   Copyright (c) 2011 Magnos Software (http://www.magnos.org)
+ * @license     http://opensource.org/licenses/osl-3.0.php
+ * 				Open Software License (OSL 3.0)
+ */
+
+package org.magnos.data.store.cache;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.magnos.test.BaseTest;
+
+
+public class TestClockCachePolicy extends BaseTest 
+{
+
+	@Test
+	public void testEvict()
+	{
+		ClockCachePolicy p = new ClockCachePolicy();
+		p.reset(3);
+		p.insert(0, 10);
+		p.insert(1, 11);
+		p.insert(2, 12);
+		p.access(0);
+		
+		// the hand passes over the referenced frame.
+		assertEquals( 1, p.evict() );
+		
+		p.insert(1, 13);
+		p.access(2);
+		
+		// the reference bit of frame 0 was cleared on the first sweep.
+		assertEquals( 0, p.evict() );
+	}
+	
+	@Test
+	public void testAllReferenced()
+	{
+		ClockCachePolicy p = new ClockCachePolicy();
+		p.reset(2);
+		p.insert(0, 10);
+		p.insert(1, 11);
+		p.access(0);
+		p.access(1);
+		
+		assertEquals( 0, p.evict() );
+	}
+	
+	@Test
+	public void testPinned()
+	{
+		ClockCachePolicy p = new ClockCachePolicy();
+		p.reset(3);
+		p.insert(0, 10);
+		p.insert(1, 11);
+		p.insert(2, 12);
+		
+		PinnedFrames pinned = new PinnedFrames() {
+			public boolean isPinned(int frame) {
+				return frame != 1;
+			}
+		};
+		
+		assertEquals( 1, p.evict(pinned) );
+		assertEquals( -1, p.evict(pinned) );
+		assertEquals( 2, p.evict() );
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,87 @@
+/* 
+ * NOTICE OF LICENSE
+ * 
+ * This source file is subject to the Open Software License (OSL 3.0) that is 
+ * bundled with this package in the file LICENSE.txt. It is also available 
+ * through the world-wide-web at http://opensource.org/licenses/osl-3.0.php
+ * If you did not receive a copy of the license and are unable to obtain it 
+ * through the world-wide-web, please send an email to pdiffenderfer@gmail.com 
+ * so we can send you a copy immediately. If you use any of this software please
+ * notify me via my website or email, your feedback is much appreciated. 
+ * 
+ * @copyright   Copyright (c) 2011 Magnos Software (http://www.magnos.org)
+ * @license     http://opensource.org/licenses/osl-3.0.php
+ * 				Open Software License (OSL 3.0)
+ */
+
+package org.magnos.data.store.cache;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.magnos.test.BaseTest;
+
+
+public class TestPageTable extends BaseTest 
+{
+
+	@Test
+	public void testPutGet()
+	{
+		PageTable t = new PageTable(4);
+		t.put(10, 0);
+		t.put(1L << 40, 1);
+		t.put(0, 2);
+		
+		assertEquals( 3, t.size() );
+		assertEquals( 0, t.get(10) );
+		assertEquals( 1, t.get(1L << 40) );
+		assertEquals( 2, t.get(0) );
+		assertEquals( -1, t.get(11) );
+		
+		t.put(10, 3);
+		
+		assertEquals( 3, t.size() );
+		assertEquals( 3, t.get(10) );
+		
+		t.clear();
+		
+		assertEquals( 0, t.size() );
+		assertEquals( -1, t.get(10) );
+	}
+	
+	@Test
+	public void testRemove()
+	{
+		// Sequential pages collide often in a small table.
+		PageTable t = new PageTable(64);
+		for (int i = 0; i < 64; i++) {
+			t.put(i * 16, i);
+		}
+		for (int i = 0; i < 64; i += 2) {
+			assertEquals( i, t.remove(i * 16) );
+		}
+		
+		assertEquals( 32, t.size() );
+		assertEquals( -1, t.remove(0) );
+		
+		for (int i = 0; i < 64; i++) {
+			assertEquals( i % 2 == 0 ? -1 : i, t.get(i * 16) );
+		}
+	}
+	
+	@Test
+	public void testFull()
+	{
+		PageTable t = new PageTable(1);
+		t.put(5, 0);
+		
+		try {
+			t.put(6, 0);
+			fail();
+		}
+		catch (IllegalStateException e) {
+		}
+	}
+	
+}
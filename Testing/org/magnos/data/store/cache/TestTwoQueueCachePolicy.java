@@ -0,0 +1,121 @@
+/* 
+ * NOTICE OF LICENSE
+ * 
+ * This source file is subject to the Open Software License (OSL 3.0) that is 
+ * bundled with this package in the file LICENSE.txt. It is also available 
+ * through the world-wide-web at http://opensource.org/licenses/osl-3.0.php
+ * If you did not receive a copy of the license and are unable to obtain it 
+ * through the world-wide-web, please send an email to pdiffenderfer@gmail.com 
+ * so we can send you a copy immediately. If you use any of this software please
+ * notify me via my website or email, your feedback is much appreciated. 
+ * 
+ * @copyright   Copyright (c) 2011 Magnos Software (http://www.magnos.org)
+ * @license     http://opensource.org/licenses/osl-3.0.php
+ * 				Open Software License (OSL 3.0)
+ */
+
+package org.magnos.data.store.cache;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.magnos.test.BaseTest;
+
+
+public class TestTwoQueueCachePolicy extends BaseTest 
+{
+
+	@Test
+	public void testPromote()
+	{
+		TwoQueueCachePolicy p = new TwoQueueCachePolicy(0.25f, 1.0f);
+		p.reset(4);
+		p.insert(0, 10);
+		p.insert(1, 11);
+		
+		// page 10 is read once and evicted, then read again.
+		assertEquals( 0, p.evict() );
+		p.insert(0, 10);
+		p.insert(2, 12);
+		
+		// the FIFO queue is over its share and evicted ahead of the promoted page.
+		assertEquals( 1, p.evict() );
+		assertEquals( 0, p.evict() );
+		assertEquals( 2, p.evict() );
+	}
+	
+	@Test
+	public void testScanResistant()
+	{
+		TwoQueueCachePolicy p = new TwoQueueCachePolicy(0.25f, 1.0f);
+		p.reset(4);
+		
+		// make page 1 hot.
+		p.insert(0, 1);
+		assertEquals( 0, p.evict() );
+		p.insert(0, 1);
+		
+		// a scan over many pages only evicts other scanned pages.
+		p.insert(1, 100);
+		p.insert(2, 101);
+		p.insert(3, 102);
+		for (long page = 103; page < 200; page++) {
+			int frame = p.evict();
+			
+			assertTrue( frame != 0 );
+			
+			p.insert(frame, page);
+		}
+	}
+	
+	@Test
+	public void testPinnedStaysCold()
+	{
+		TwoQueueCachePolicy p = new TwoQueueCachePolicy(0.25f, 1.0f);
+		p.reset(4);
+		p.insert(0, 10);
+		p.insert(1, 11);
+		p.insert(2, 12);
+		
+		PinnedFrames pinned = new PinnedFrames() {
+			public boolean isPinned(int frame) {
+				return frame == 0;
+			}
+		};
+		
+		// the oldest page is pinned, so the next oldest is evicted instead.
+		assertEquals( 1, p.evict(pinned) );
+		p.insert(1, 13);
+		
+		// the skipped page kept its place at the end of the FIFO queue.
+		assertEquals( 0, p.evict() );
+		
+		// a page which was actually evicted is remembered and promoted.
+		p.insert(0, 11);
+		p.insert(3, 14);
+		
+		assertEquals( 2, p.evict() );
+		assertEquals( 1, p.evict() );
+		assertEquals( 0, p.evict() );
+		assertEquals( 3, p.evict() );
+	}
+	
+	@Test
+	public void testAllPinned()
+	{
+		TwoQueueCachePolicy p = new TwoQueueCachePolicy(0.25f, 1.0f);
+		p.reset(2);
+		p.insert(0, 10);
+		p.insert(1, 11);
+		
+		PinnedFrames pinned = new PinnedFrames() {
+			public boolean isPinned(int frame) {
+				return true;
+			}
+		};
+		
+		assertEquals( -1, p.evict(pinned) );
+		assertEquals( 0, p.evict() );
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,165 @@
+/* 
+ * NOTICE OF LICENSE
+ * 
+ * This source file is subject to the Open Software License (OSL 3.0) that is 
+ * bundled with this package in the file LICENSE.txt. It is also available 
+ * through the world-wide-web at http://opensource.org/licenses/osl-3.0.php
+ * If you did not receive a copy of the license and are unable to obtain it 
+ * through the world-wide-web, please send an email to pdiffenderfer@gmail.com 
+ * so we can send you a copy immediately. If you use any of this software please
+ * notify me via my website or email, your feedback is much appreciated. 
+ * 
+ * @copyright   Copyright (c) 2011 Magnos Software (http://www.magnos.org)
+ * @license     http://opensource.org/licenses/osl-3.0.php
+ * 				Open Software License (OSL 3.0)
+ */
+
+package org.magnos.data.var;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.magnos.data.Store;
+import org.magnos.data.StoreAccess;
+import org.magnos.data.store.MemoryStore;
+import org.magnos.data.var.PackedField;
+import org.magnos.data.var.PackedVar;
+
+public class TestPackedVar extends TestVar 
+{
+
+	@Test
+	public void testAccessors()
+	{
+		testAccessors(new PackedVar(4), 0L, (1L << 32) - 1);
+		testAccessors(new PackedVar(1), 0L, 0x1FFL, 0xFFL);
+	}
+	
+	@Test
+	public void testPersist()
+	{
+		testPersist(new PackedVar(2), new PackedVar(2), 0xABCDL);
+		testPersist(new PackedVar(8), new PackedVar(8), -1L);
+	}
+	
+	@Test
+	public void testFields()
+	{
+		PackedVar var = new PackedVar(2);
+		PackedField active = var.flag();
+		PackedField kind = var.field(3);
+		PackedField count = var.field(12);
+		
+		assertEquals( 1, kind.getShift() );
+		assertEquals( 7, kind.getMax() );
+		assertEquals( 16, var.getUsed() );
+		
+		var.set(active, true);
+		var.set(kind, 5);
+		var.set(count, 4095);
+		assertTrue( var.isSet(active) );
+		assertEquals( 5, var.get(kind) );
+		assertEquals( 4095, var.get(count) );
+		assertEquals( 0xFFFBL, var.get() );
+		
+		// Values are truncated to the width of the field.
+		var.set(kind, 9);
+		assertEquals( 1, var.get(kind) );
+		assertEquals( 4095, var.get(count) );
+		
+		var.set(active, false);
+		assertFalse( var.isSet(active) );
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testFieldOverflow()
+	{
+		PackedVar var = new PackedVar(1);
+		var.field(5);
+		var.field(4);
+	}
+	
+	@Test
+	public void testPut()
+	{
+		Store store = new MemoryStore("tmp", 4);
+		store.open(StoreAccess.ReadWrite);
+		
+		PackedVar var1 = new PackedVar(4, store, 0);
+		PackedField low = var1.field(16);
+		PackedField high = var1.field(16);
+		
+		PackedVar var2 = (PackedVar)var1.copy();
+		
+		// Each put only changes its own field in the store.
+		var1.put(low, 0x1234);
+		var2.put(high, 0xABCD);
+		
+		assertEquals( 0xABCD1234L, store.getInt(0) & 0xFFFFFFFFL );
+		assertEquals( 0, var2.get(low) );
+		assertEquals( 0xABCD, var2.get(high) );
+		assertEquals( 0xABCD, var1.take(high) );
+	}
+	
+	@Test
+	public void testPutKeepsLocal()
+	{
+		Store store = new MemoryStore("temporary", 2);
+		store.open(StoreAccess.ReadWrite);
+		
+		PackedVar var = new PackedVar(2, store, 0);
+		PackedField low = var.field(8);
+		PackedField high = var.field(8);
+		
+		// An unwritten change to one field survives a put of another.
+		var.set(low, 0x12);
+		var.put(high, 0x34);
+		
+		assertEquals( 0x12, var.get(low) );
+		assertEquals( 0x34, var.get(high) );
+		assertEquals( 0x3400, store.getShort(0) & 0xFFFF );
+		
+		var.write();
+		assertEquals( 0x3412, store.getShort(0) & 0xFFFF );
+		
+		store.close();
+	}
+	
+	@Test
+	public void testPutConcurrent() throws InterruptedException
+	{
+		final Store store = new MemoryStore("temporary", 8);
+		store.open(StoreAccess.ReadWrite);
+		
+		final PackedVar var = new PackedVar(8, store, 0);
+		final PackedField[] fields = { var.field(32), var.field(32) };
+		final int count = 20000;
+		
+		// Each thread puts its own field of the same word.
+		Thread[] threads = new Thread[fields.length];
+		for (int i = 0; i < threads.length; i++) {
+			final PackedVar mine = (PackedVar)var.copy();
+			final PackedField field = fields[i];
+			threads[i] = new Thread() {
+				public void run() {
+					for (int k = 1; k <= count; k++) {
+						mine.put(field, k);
+					}
+				}
+			};
+		}
+		for (Thread t : threads) {
+			t.start();
+		}
+		for (Thread t : threads) {
+			t.join();
+		}
+		
+		var.read();
+		assertEquals( count, var.get(fields[0]) );
+		assertEquals( count, var.get(fields[1]) );
+		
+		store.close();
+	}
+	
+}
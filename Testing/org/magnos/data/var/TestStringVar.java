@@ -16,7 +16,13 @@
 
 package org.magnos.data.var;
 
+import static org.junit.Assert.*;
+
 import org.junit.Test;
+import org.magnos.data.DataArray;
+import org.magnos.data.Store;
+import org.magnos.data.StoreAccess;
+import org.magnos.data.store.MemoryStore;
 import org.magnos.data.var.StringVar;
 
 public class TestStringVar extends TestVar
@@ -38,4 +44,81 @@ public class TestStringVar extends TestVar
 		testPersist(new StringVar(12), new StringVar(12), "This is much longer than 12 characters", "This is much");
 	}
 	
+	@Test
+	public void testCharsets()
+	{
+		testPersist(new StringVar(12, StringVar.UTF_8), new StringVar(12, StringVar.UTF_8), "h\u00e9llo \u20ac");
+		testPersist(new StringVar(12, StringVar.UTF_16), new StringVar(12, StringVar.UTF_16), "h\u00e9llo");
+		testPersist(new StringVar(12, StringVar.UTF_16), new StringVar(12, StringVar.UTF_16), "h\u00e9llo world", "h\u00e9llo ");
+		testPersist(new StringVar(12, StringVar.LATIN_1), new StringVar(12, StringVar.LATIN_1), "caf\u00e9");
+	}
+	
+	@Test
+	public void testTruncateWholeCharacters()
+	{
+		// The euro sign is 3 bytes in UTF-8 and would be split at byte 12.
+		StringVar var = new StringVar(12, StringVar.UTF_8);
+		var.set("0123456789\u20ac");
+		assertEquals( "0123456789", var.get() );
+	}
+	
+	@Test
+	public void testWhitespace()
+	{
+		testPersist(new StringVar(12), new StringVar(12), "  padded  ");
+	}
+	
+	@Test
+	public void testCache()
+	{
+		Store store = new MemoryStore("tmp");
+		store.create(StoreAccess.ReadWrite, 12);
+		
+		StringVar var1 = new StringVar(12, StringVar.UTF_8, store, 0, "first");
+		StringVar var2 = new StringVar(12, StringVar.UTF_8, store, 0, null);
+		
+		var1.write();
+		var2.read();
+		
+		String first = var2.get();
+		assertEquals( "first", first );
+		assertSame( first, var2.get() );
+		
+		var1.put("second");
+		assertSame( first, var2.get() );
+		
+		var2.read();
+		assertEquals( "second", var2.get() );
+	}
+	
+	@Test
+	public void testSetSameAfterRead()
+	{
+		Store store = new MemoryStore("tmp");
+		store.create(StoreAccess.ReadWrite, 24);
+		
+		StringVar var1 = new StringVar(12, store, 0, "same");
+		var1.write();
+		
+		// Setting the value which was read leaves the var clean.
+		StringVar var2 = new StringVar(12, store, 0);
+		var2.read();
+		assertFalse( var2.isDirty() );
+		var2.set("same");
+		assertFalse( var2.isDirty() );
+		var2.set("other");
+		assertTrue( var2.isDirty() );
+		
+		// An array of strings keeps the decoded values of unchanged bytes.
+		DataArray<StringVar> array = DataArray.create(new StringVar(12), 2, false);
+		array.setStore(store);
+		array.read();
+		String cached = array.get(0).get();
+		assertEquals( "same", cached );
+		array.read();
+		assertSame( cached, array.get(0).get() );
+		array.get(0).set("same");
+		assertFalse( array.isDirty() );
+	}
+	
 }